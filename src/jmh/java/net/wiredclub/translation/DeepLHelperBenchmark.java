@@ -0,0 +1,45 @@
+package net.wiredclub.translation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placeholder handling of every text which is sent to DeepL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DeepLHelperBenchmark {
+
+	@Param({"20", "200", "2000"})
+	int valueLength;
+
+	private final DeepLHelper deepLHelper = new DeepLHelper();
+
+	private String text;
+	private String wrapped;
+
+	@Setup
+	public void setUp() {
+		text = TranslationCatalogues.text(0, valueLength);
+		wrapped = deepLHelper.wrapTextToTranslate(text);
+	}
+
+	@Benchmark
+	public String wrapTextToTranslate() {
+		return deepLHelper.wrapTextToTranslate(text);
+	}
+
+	@Benchmark
+	public String unwrapTranslation() {
+		return deepLHelper.unwrapTranslation(wrapped);
+	}
+}
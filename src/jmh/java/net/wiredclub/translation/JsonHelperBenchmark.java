@@ -0,0 +1,68 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and serialization of translation files, as string and as stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class JsonHelperBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	int keys;
+
+	@Param({"0", "3"})
+	int depth;
+
+	@Param({"20", "200"})
+	int valueLength;
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+
+	private JsonNode json;
+	private String content;
+	private byte[] bytes;
+
+	@Setup
+	public void setUp() throws TranslationJsonProcessingException {
+		json = TranslationCatalogues.source(keys, depth, valueLength);
+		content = jsonHelper.convertJsonToString(json);
+		bytes = content.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public JsonNode convertStringToJson() throws TranslationJsonProcessingException {
+		return jsonHelper.convertStringToJson(content);
+	}
+
+	@Benchmark
+	public JsonNode readJson() throws IOException {
+		return jsonHelper.readJson(new ByteArrayInputStream(bytes));
+	}
+
+	@Benchmark
+	public String convertJsonToString() throws TranslationJsonProcessingException {
+		return jsonHelper.convertJsonToString(json);
+	}
+
+	@Benchmark
+	public void writeJson() throws IOException {
+		jsonHelper.writeJson(json, OutputStream.nullOutputStream());
+	}
+}
@@ -0,0 +1,105 @@
+package net.wiredclub.translation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Compares {@link PlaceholderTokenizer} with the former placeholder handling of {@link DeepLHelper}, which ran
+ * two regex replacements to protect and two to restore every text, on a batch of texts like the ones of a
+ * translation run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlaceholderTokenizerBenchmark {
+
+	private static final Pattern CURLY_BRACKETS_START = Pattern.compile("\\{\\{");
+	private static final Pattern CURLY_BRACKETS_END = Pattern.compile("}}");
+	private static final Pattern DONUT_START = Pattern.compile("<donut>");
+	private static final Pattern DONUT_END = Pattern.compile("</donut>");
+
+	@Param({"1000", "10000"})
+	int texts;
+
+	@Param({"20", "200"})
+	int valueLength;
+
+	private final PlaceholderTokenizer allSyntaxes = PlaceholderTokenizer.defaults();
+	private final PlaceholderTokenizer doubleBraces =
+			new PlaceholderTokenizer(EnumSet.of(PlaceholderTokenizer.Syntax.DOUBLE_BRACES));
+
+	private String[] batch;
+	private String[] protectedBatch;
+
+	@Setup
+	public void setUp() {
+		batch = new String[texts];
+		protectedBatch = new String[texts];
+		for (int i = 0; i < texts; i++) {
+			batch[i] = TranslationCatalogues.text(i, valueLength);
+			protectedBatch[i] = allSyntaxes.protect(batch[i]);
+		}
+	}
+
+	@Benchmark
+	public void regexProtect(Blackhole blackhole) {
+		for (String text : batch) {
+			String wrap = CURLY_BRACKETS_START.matcher(text).replaceAll("<donut>{{");
+			blackhole.consume(CURLY_BRACKETS_END.matcher(wrap).replaceAll("}}</donut>"));
+		}
+	}
+
+	@Benchmark
+	public void tokenizerProtect(Blackhole blackhole) {
+		for (String text : batch) {
+			blackhole.consume(allSyntaxes.protect(text));
+		}
+	}
+
+	/**
+	 * Protects the same syntax as the regex replacements.
+	 */
+	@Benchmark
+	public void tokenizerProtectDoubleBraces(Blackhole blackhole) {
+		for (String text : batch) {
+			blackhole.consume(doubleBraces.protect(text));
+		}
+	}
+
+	@Benchmark
+	public void regexRestore(Blackhole blackhole) {
+		for (String text : protectedBatch) {
+			String unwrap = DONUT_START.matcher(text).replaceAll("");
+			blackhole.consume(DONUT_END.matcher(unwrap).replaceAll(""));
+		}
+	}
+
+	@Benchmark
+	public void tokenizerRestore(Blackhole blackhole) {
+		for (String text : protectedBatch) {
+			blackhole.consume(allSyntaxes.restore(text));
+		}
+	}
+
+	/**
+	 * Restores and verifies the translations like {@link DeepLHelper} does.
+	 */
+	@Benchmark
+	public void tokenizerRestoreAndVerify(Blackhole blackhole) {
+		for (String text : protectedBatch) {
+			blackhole.consume(allSyntaxes.lostPlaceholder(text, text));
+			blackhole.consume(allSyntaxes.restore(text));
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.flipkart.zjsonpatch.JsonDiff;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link TranslationDiff} with the general purpose diff of zjsonpatch on a target file which misses
+ * some keys of the source file, has some outdated keys and translated values for all others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TranslationDiffBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	int keys;
+
+	@Param({"0", "3"})
+	int depth;
+
+	@Param({"40"})
+	int valueLength;
+
+	private JsonNode sourceJson;
+	private JsonNode targetJson;
+	private KeyPathIndex sourceKeys;
+
+	@Setup
+	public void setUp() {
+		sourceJson = TranslationCatalogues.source(keys, depth, valueLength);
+		targetJson = TranslationCatalogues.target(sourceJson, keys, depth, "de");
+		sourceKeys = KeyPathIndex.of(sourceJson);
+	}
+
+	@Benchmark
+	public JsonNode zjsonpatch() {
+		return JsonDiff.asJson(targetJson, sourceJson);
+	}
+
+	@Benchmark
+	public JsonNode translationDiff() {
+		return TranslationDiff.diff(targetJson, sourceJson);
+	}
+
+	/**
+	 * Like the translation tool, the key path index of the source is shared between all target languages and only
+	 * keys are compared. The changes are not converted to a json patch.
+	 */
+	@Benchmark
+	public TranslationDiff.Changes translationDiffKeysWithSourceIndex() {
+		return TranslationDiff.diffKeys(targetJson, sourceKeys);
+	}
+}
@@ -0,0 +1,92 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.flipkart.zjsonpatch.JsonPatch;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the change set of a source file like for a new target language and applies it. For comparison, the same
+ * changes are applied as json patch with zjsonpatch, which parses and follows the json pointer of every operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TranslationPatchBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	int keys;
+
+	@Param({"0", "3"})
+	int depth;
+
+	@Param({"40"})
+	int valueLength;
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+
+	private JsonNode sourceJson;
+	private KeyPathIndex sourceKeys;
+	private ChangeSet changes;
+	private ArrayNode patch;
+	private JsonNode targetJson;
+
+	@Setup
+	public void setUp() throws TranslationException {
+		sourceJson = TranslationCatalogues.source(keys, depth, valueLength);
+		sourceKeys = KeyPathIndex.of(sourceJson);
+		changes = traverse();
+		patch = jsonHelper.createNewTranslationPatch();
+		for (int id = 1; id < sourceKeys.size(); id++) {
+			if (!sourceKeys.isObject(id)) {
+				patch.add(jsonHelper.createPatchOperationReplace(sourceKeys.pointer(id),
+						"de:" + sourceKeys.node(id).asText()));
+			}
+		}
+	}
+
+	/**
+	 * The changes are applied in place, so every invocation needs a fresh target.
+	 */
+	@Setup(Level.Invocation)
+	public void setUpTarget() {
+		targetJson = sourceJson.deepCopy();
+	}
+
+	@Benchmark
+	public ChangeSet traverse() throws TranslationException {
+		ChangeSet changeSet = new ChangeSet();
+		TranslationBatch batch = new TranslationBatch(null, "en", "de", Map.of());
+		// every field of the root is replaced, its path id is found by walking the siblings
+		for (int id = 1; id < sourceKeys.size(); id = sourceKeys.end(id) + 1) {
+			TranslationRun.traverse(changeSet.replace(sourceKeys, id), batch, sourceKeys.node(id), "main.json");
+		}
+		// every text gets a translation, so that the change set can be applied
+		batch.reuseExistingTranslations().forEach((text, targets) ->
+				targets.forEach(target -> target.set("de:" + text)));
+		return changeSet;
+	}
+
+	@Benchmark
+	public JsonNode apply() throws TranslationException {
+		changes.apply(targetJson);
+		return targetJson;
+	}
+
+	@Benchmark
+	public JsonNode applyInPlace() {
+		JsonPatch.applyInPlace(patch, targetJson);
+		return targetJson;
+	}
+}
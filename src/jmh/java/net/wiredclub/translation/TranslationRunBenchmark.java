@@ -0,0 +1,157 @@
+package net.wiredclub.translation;
+
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Complete translation runs against a local DeepL stand-in, see {@link FakeDeepLServer}, or against a provider
+ * without network, see {@link InProcessTranslationProvider}, which isolates the pipeline from HTTP. Every
+ * iteration resets a generated repository, see {@link SyntheticRepository}, to its last commit and
+ * translates the changes of that commit. Besides the time of a run, the requests and bytes sent to
+ * DeepL and the peak heap usage are reported as secondary results.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TranslationRunBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	int keys;
+
+	@Param({"1", "20"})
+	int namespaces;
+
+	@Param({"4"})
+	int languages;
+
+	@Param({"1", "4"})
+	int jobs;
+
+	@Param({"20"})
+	int latencyMillis;
+
+	@Param({"fake-deepl", "in-process"})
+	String provider;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong requestBytes = new AtomicLong();
+	private final AtomicLong responseBytes = new AtomicLong();
+
+	private Path directory;
+	private Path repository;
+	private FakeDeepLServer server;
+	private DeepLHelper deepLHelper;
+	private TranslationProvider translationProvider;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, GitAPIException {
+		directory = Files.createTempDirectory("translation-run-benchmark");
+		repository = directory.resolve("repo");
+		SyntheticRepository.generate(repository,
+				SyntheticRepository.Settings.defaults().withSize(keys, namespaces, languages));
+
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults()
+				.withLatency(Duration.ofMillis(latencyMillis)));
+		deepLHelper = server.deepLHelper(DeepLTransport.Settings.defaults());
+		deepLHelper.transport().addListener((endpoint, statusCode, sentBytes, receivedBytes, latencyNanos) -> {
+			requests.incrementAndGet();
+			requestBytes.addAndGet(sentBytes);
+			responseBytes.addAndGet(receivedBytes);
+		});
+		translationProvider = "in-process".equals(provider)
+				? new InProcessTranslationProvider(Duration.ofMillis(latencyMillis)) : deepLHelper;
+	}
+
+	@Setup(Level.Iteration)
+	public void resetRepository() throws IOException, GitAPIException {
+		SyntheticRepository.reset(repository);
+		requests.set(0);
+		requestBytes.set(0);
+		responseBytes.set(0);
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			pool.resetPeakUsage();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		server.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	@Benchmark
+	public TranslationStatusCode run(RunCounters counters) {
+		JsonHelper jsonHelper = new JsonHelper();
+		FileHelper fileHelper = new FileHelper();
+		TranslationStatusCode statusCode = new TranslationTool(jsonHelper, translationProvider, fileHelper,
+				new CommandLineHelper(translationProvider, fileHelper)).run(new String[]{"-r", repository.toString(),
+				"-p", SyntheticRepository.TRANSLATIONS_DIRECTORY, "-s", SyntheticRepository.SOURCE_LANGUAGE,
+				"-j", String.valueOf(jobs), "--no-cache"});
+		if (statusCode != TranslationStatusCode.STATUS_OK) {
+			throw new IllegalStateException("Translation run failed with " + statusCode);
+		}
+
+		counters.requests = requests.get();
+		counters.requestBytes = requestBytes.get();
+		counters.responseBytes = responseBytes.get();
+		counters.peakHeapBytes = peakHeapBytes();
+		return statusCode;
+	}
+
+	private static long peakHeapBytes() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if (pool.getType() == MemoryType.HEAP) {
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+		return peak;
+	}
+
+	/**
+	 * Secondary results of a run.
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class RunCounters {
+
+		public long requests;
+		public long requestBytes;
+		public long responseBytes;
+		public long peakHeapBytes;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			requests = 0;
+			requestBytes = 0;
+			responseBytes = 0;
+			peakHeapBytes = 0;
+		}
+	}
+}
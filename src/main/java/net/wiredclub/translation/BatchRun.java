@@ -0,0 +1,106 @@
+package net.wiredclub.translation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_BAD_AS_HELL;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_OK;
+
+/**
+ * Translates the projects of a batch run one after another, each like a normal run of its own with its own
+ * {@link TranslationRun} and report, so the projects share no state. The process, the DeepL connections, the
+ * validated languages, the translation memory and the placeholders are shared. The projects run sequentially,
+ * within a project up to {@link TranslationConfig#jobs()} target languages are translated in parallel. Every project
+ * requests the DeepL usage, so it sees the characters the projects before it consumed.
+ */
+final class BatchRun {
+
+	private static final Logger LOG = LoggerFactory.getLogger(BatchRun.class);
+
+	private final JsonHelper jsonHelper;
+	private final TranslationProvider provider;
+	private final FileHelper fileHelper;
+
+	/**
+	 * @param jsonHelper reads and writes the translation files
+	 * @param provider translates the texts of all projects
+	 * @param fileHelper reads the repositories and writes the translation files
+	 */
+	BatchRun(JsonHelper jsonHelper, TranslationProvider provider, FileHelper fileHelper) {
+		this.jsonHelper = jsonHelper;
+		this.provider = provider;
+		this.fileHelper = fileHelper;
+	}
+
+	/**
+	 * Translates all projects. A failed project does not stop the batch.
+	 *
+	 * @param batchConfig the configuration of the batch run with its projects
+	 * @param batchReport the report of the batch run, the report of every project is added to it
+	 * @throws TranslationException thrown if at least one project failed, with the status of the first one
+	 */
+	void translate(TranslationConfig batchConfig, RunReport batchReport) throws TranslationException {
+		List<String> failedProjects = new ArrayList<>();
+		TranslationStatusCode failedStatusCode = null;
+		// the requests of a project are only counted in the report of the project
+		provider.removeListener(batchReport);
+		try {
+			int number = 0;
+			for (TranslationConfig project : batchConfig.projects()) {
+				number++;
+				String name = project.repositoryDirectory() + "/" + project.translationsDirectory();
+				LOG.info("Translating project {} of {}: '{}'.", number, batchConfig.projects().size(), name);
+				RunReport projectReport = new RunReport();
+				TranslationStatusCode statusCode = translateProject(
+						new TranslationRun(jsonHelper, provider, fileHelper, project, projectReport), projectReport);
+				projectReport.finish(statusCode);
+				LOG.info(projectReport.summary());
+				batchReport.project(project.repositoryDirectory(), project.translationsDirectory(), projectReport);
+				if (statusCode != STATUS_OK) {
+					failedProjects.add(name);
+					if (failedStatusCode == null) {
+						failedStatusCode = statusCode;
+					}
+				}
+			}
+		} finally {
+			provider.addListener(batchReport);
+		}
+		if (failedStatusCode != null) {
+			throw new TranslationException("Error: " + failedProjects.size() + " of " + batchConfig.projects().size()
+					+ " project(s) failed: " + String.join(", ", failedProjects), failedStatusCode);
+		}
+	}
+
+	/**
+	 * Translates one project. Exceptions are not thrown but logged, so that the other projects are translated
+	 * anyway.
+	 *
+	 * @param translationRun the translation of the project
+	 * @param projectReport the report of the project, the requests of the project are counted in it
+	 * @return the status of the project
+	 */
+	private TranslationStatusCode translateProject(TranslationRun translationRun, RunReport projectReport) {
+		provider.addListener(projectReport);
+		try {
+			translationRun.translate();
+			return STATUS_OK;
+		} catch (TranslationException e) {
+			String message = e.getMessage();
+			if (message != null && !message.isBlank()) {
+				LOG.warn(message);
+			}
+			return e.statusCode();
+		} catch (Exception e) {
+			LOG.error(e.getMessage(), e);
+			return STATUS_BAD_AS_HELL;
+		} finally {
+			provider.removeListener(projectReport);
+			// the repository of the project is not needed any more
+			fileHelper.close();
+		}
+	}
+}
@@ -0,0 +1,443 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_TRANSLATION_FILE_INVALID;
+
+/**
+ * All changes of a target file: keys which are removed, keys which are added and texts which are replaced. The
+ * changes of the key diff and of the value diff are merged into one tree in the shape of the target json, so
+ * they are applied in a single traversal of the target json. Changes are registered by path id of the
+ * {@link KeyPathIndex} of the source file or by json pointer, every object of the target json is looked up once
+ * however many of its keys change.
+ * <p>
+ * The key order is the same as with json patch: a changed key keeps its position, added keys are appended in the
+ * order they were registered. A later change of a key replaces an earlier change of the same key. Texts are
+ * registered without a value, it is set when the texts are translated, see {@link TranslationBatch}.
+ */
+final class ChangeSet {
+
+	private static final JsonNodeFactory NODE_FACTORY = JsonNodeFactory.instance;
+
+	private final ObjectChange root = new ObjectChange();
+	private final List<Text> texts = new ArrayList<>();
+
+	private int removedKeys;
+	private int addedKeys;
+	private int addedTexts;
+	private int replacedTexts;
+
+	/**
+	 * @param path json pointer of a key of the target json
+	 * @throws TranslationException thrown if the path is the root of the target json
+	 */
+	void remove(String path) throws TranslationException {
+		Key key = key(path, false);
+		key.parent.changes.put(key.fieldName, Removal.INSTANCE);
+		removedKeys++;
+	}
+
+	/**
+	 * @param path json pointer of a key which is missing in the target json
+	 * @return the added key, its texts are counted as added texts
+	 * @throws TranslationException thrown if the path is the root of the target json
+	 */
+	Key add(String path) throws TranslationException {
+		addedKeys++;
+		return key(path, true);
+	}
+
+	/**
+	 * @param path json pointer of a key whose source text changed
+	 * @return the key, its texts are counted as replaced texts
+	 * @throws TranslationException thrown if the path is the root of the target json
+	 */
+	Key replace(String path) throws TranslationException {
+		return key(path, false);
+	}
+
+	/**
+	 * @param keys the key paths of the source file
+	 * @param parent path id of an object
+	 * @param fieldName name of a field of the target json which is not part of the source file
+	 */
+	void remove(KeyPathIndex keys, int parent, String fieldName) {
+		object(keys, parent).changes.put(fieldName, Removal.INSTANCE);
+		removedKeys++;
+	}
+
+	/**
+	 * @param keys the key paths of the source file
+	 * @param id path id of a key which is missing in the target json
+	 * @return the added key, its texts are counted as added texts
+	 * @throws TranslationException thrown if the path is the root of the target json
+	 */
+	Key add(KeyPathIndex keys, int id) throws TranslationException {
+		addedKeys++;
+		return key(keys, id, true);
+	}
+
+	/**
+	 * @param keys the key paths of the source file
+	 * @param id path id of a key whose source text changed
+	 * @return the key, its texts are counted as replaced texts
+	 * @throws TranslationException thrown if the path is the root of the target json
+	 */
+	Key replace(KeyPathIndex keys, int id) throws TranslationException {
+		return key(keys, id, false);
+	}
+
+	private Key key(KeyPathIndex keys, int id, boolean added) throws TranslationException {
+		if (id == 0) {
+			throw rootChanged("");
+		}
+		return new Key(object(keys, keys.parent(id)), keys.fieldName(id), added);
+	}
+
+	private ObjectChange object(KeyPathIndex keys, int id) {
+		return id == 0 ? root : object(keys, keys.parent(id)).object(keys.fieldName(id));
+	}
+
+	private static TranslationException rootChanged(String path) {
+		return new TranslationException("Error: Invalid key '" + path + "', the root of a translation file "
+				+ "cannot be changed.", STATUS_TRANSLATION_FILE_INVALID);
+	}
+
+	private Key key(String path, boolean added) throws TranslationException {
+		if (path.isEmpty() || path.charAt(0) != '/') {
+			throw rootChanged(path);
+		}
+		ObjectChange parent = root;
+		int start = 1;
+		int end = path.indexOf('/', start);
+		while (end >= 0) {
+			parent = parent.object(unescape(path.substring(start, end)));
+			start = end + 1;
+			end = path.indexOf('/', start);
+		}
+		return new Key(parent, unescape(path.substring(start)), added);
+	}
+
+	/**
+	 * Unescapes a field name of a json pointer, see RFC 6901 and {@link TranslationDiff#escape(String)}.
+	 */
+	private static String unescape(String fieldName) {
+		if (fieldName.indexOf('~') < 0) {
+			return fieldName;
+		}
+		return fieldName.replace("~1", "/").replace("~0", "~");
+	}
+
+	/**
+	 * Applies all changes in one traversal of the target json. All texts must be translated.
+	 *
+	 * @param targetJson the target json, it is changed in place
+	 * @throws TranslationException thrown if the target json is no object
+	 */
+	void apply(JsonNode targetJson) throws TranslationException {
+		if (root.changes.isEmpty()) {
+			return;
+		}
+		if (!targetJson.isObject()) {
+			throw new TranslationException("Error: A translation file must contain a json object.",
+					STATUS_TRANSLATION_FILE_INVALID);
+		}
+		apply(root, (ObjectNode) targetJson);
+	}
+
+	private static void apply(ObjectChange change, ObjectNode target) {
+		for (Map.Entry<String, Change> field : change.changes.entrySet()) {
+			Change fieldChange = field.getValue();
+			if (fieldChange instanceof Text) {
+				target.put(field.getKey(), ((Text) fieldChange).translation());
+			} else if (fieldChange instanceof ObjectChange) {
+				JsonNode existing = target.get(field.getKey());
+				apply((ObjectChange) fieldChange, existing instanceof ObjectNode
+						? (ObjectNode) existing : target.putObject(field.getKey()));
+			} else {
+				target.remove(field.getKey());
+			}
+		}
+	}
+
+	/**
+	 * Sets the translations of the texts which refer to a text of a translation plan.
+	 *
+	 * @param translations the translations of the texts of the plan, in order of the texts
+	 */
+	void translate(List<String> translations) {
+		for (Text text : texts) {
+			if (text.index >= 0) {
+				text.set(translations.get(text.index));
+			}
+		}
+	}
+
+	/**
+	 * @return {@code true} if at least one text has no translation
+	 */
+	boolean hasUntranslated() {
+		return texts.stream().anyMatch(Text::isUntranslated);
+	}
+
+	/**
+	 * Removes the texts which have no translation, e.g. because a placeholder got lost in their translation, so
+	 * their keys keep the value of the target json.
+	 *
+	 * @return json pointers of the keys of the removed texts
+	 */
+	List<String> discardUntranslated() {
+		List<String> paths = new ArrayList<>();
+		discardUntranslated(root, "", paths);
+		texts.removeIf(Text::isUntranslated);
+		return paths;
+	}
+
+	private static void discardUntranslated(ObjectChange change, String path, List<String> paths) {
+		Iterator<Map.Entry<String, Change>> fields = change.changes.entrySet().iterator();
+		while (fields.hasNext()) {
+			Map.Entry<String, Change> field = fields.next();
+			Change fieldChange = field.getValue();
+			String fieldPath = path + "/" + TranslationDiff.escape(field.getKey());
+			if (fieldChange instanceof Text && ((Text) fieldChange).isUntranslated()) {
+				paths.add(fieldPath);
+				fields.remove();
+			} else if (fieldChange instanceof ObjectChange) {
+				discardUntranslated((ObjectChange) fieldChange, fieldPath, paths);
+			}
+		}
+	}
+
+	boolean isEmpty() {
+		return root.changes.isEmpty();
+	}
+
+	int removedKeys() {
+		return removedKeys;
+	}
+
+	int addedKeys() {
+		return addedKeys;
+	}
+
+	/**
+	 * @return number of texts of added keys
+	 */
+	int addedTexts() {
+		return addedTexts;
+	}
+
+	/**
+	 * @return number of texts of keys whose source text changed
+	 */
+	int replacedTexts() {
+		return replacedTexts;
+	}
+
+	/**
+	 * @return number of removed and added keys and texts of added keys
+	 */
+	int keyOperations() {
+		return removedKeys + addedKeys + addedTexts;
+	}
+
+	/**
+	 * The changes as json in the shape of the target json: an object for an object which is changed or added,
+	 * {@code null} for a removed key, a string for a text which is translated and a number for a text which
+	 * refers to a text of a translation plan, see {@link Text#refer(int)}.
+	 *
+	 * @return the changes and their statistics
+	 */
+	JsonNode toJson() {
+		ObjectNode json = NODE_FACTORY.objectNode();
+		json.put("removedKeys", removedKeys);
+		json.put("addedKeys", addedKeys);
+		json.put("addedTexts", addedTexts);
+		json.put("replacedTexts", replacedTexts);
+		json.set("changes", toJson(root));
+		return json;
+	}
+
+	private static ObjectNode toJson(ObjectChange change) {
+		ObjectNode json = NODE_FACTORY.objectNode();
+		for (Map.Entry<String, Change> field : change.changes.entrySet()) {
+			Change fieldChange = field.getValue();
+			if (fieldChange instanceof Text) {
+				Text text = (Text) fieldChange;
+				if (text.index >= 0) {
+					json.put(field.getKey(), text.index);
+				} else {
+					json.put(field.getKey(), text.value);
+				}
+			} else if (fieldChange instanceof ObjectChange) {
+				json.set(field.getKey(), toJson((ObjectChange) fieldChange));
+			} else {
+				json.putNull(field.getKey());
+			}
+		}
+		return json;
+	}
+
+	/**
+	 * @param json the changes as written by {@link #toJson()}
+	 * @param texts number of texts of the translation plan
+	 * @return the changes, texts which refer to a text of the plan are not translated yet
+	 * @throws IllegalArgumentException thrown if the json contains anything else than changes
+	 */
+	static ChangeSet fromJson(JsonNode json, int texts) {
+		if (!json.path("changes").isObject()) {
+			throw new IllegalArgumentException("changes missing");
+		}
+		ChangeSet changeSet = new ChangeSet();
+		changeSet.removedKeys = json.path("removedKeys").asInt();
+		changeSet.addedKeys = json.path("addedKeys").asInt();
+		changeSet.addedTexts = json.path("addedTexts").asInt();
+		changeSet.replacedTexts = json.path("replacedTexts").asInt();
+		changeSet.fromJson(changeSet.root, json.get("changes"), texts);
+		return changeSet;
+	}
+
+	private void fromJson(ObjectChange change, JsonNode json, int texts) {
+		Iterator<Map.Entry<String, JsonNode>> fields = json.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			JsonNode value = field.getValue();
+			if (value.isObject()) {
+				fromJson(change.object(field.getKey()), value, texts);
+			} else if (value.isNull()) {
+				change.changes.put(field.getKey(), Removal.INSTANCE);
+			} else if (value.isTextual()) {
+				change.text(field.getKey()).set(value.textValue());
+			} else if (value.canConvertToInt() && value.asInt() >= 0 && value.asInt() < texts) {
+				change.text(field.getKey()).refer(value.asInt());
+			} else {
+				throw new IllegalArgumentException("'" + field.getKey() + "' refers to unknown text " + value);
+			}
+		}
+	}
+
+	/**
+	 * A key of the target json which is added or whose text changed.
+	 */
+	final class Key {
+
+		private final ObjectChange parent;
+		private final String fieldName;
+		private final boolean added;
+
+		private Key(ObjectChange parent, String fieldName, boolean added) {
+			this.parent = parent;
+			this.fieldName = fieldName;
+			this.added = added;
+		}
+
+		/**
+		 * The key becomes an object, also if no field is added to it.
+		 */
+		void object() {
+			parent.object(fieldName);
+		}
+
+		/**
+		 * @param childFieldName name of a field of the object of this key
+		 * @return the field, the key becomes an object
+		 */
+		Key field(String childFieldName) {
+			return new Key(parent.object(fieldName), childFieldName, added);
+		}
+
+		/**
+		 * @return the text of the key, its value is set when it is translated
+		 */
+		Text text() {
+			if (added) {
+				addedTexts++;
+			} else {
+				replacedTexts++;
+			}
+			return parent.text(fieldName);
+		}
+	}
+
+	private interface Change {
+	}
+
+	private enum Removal implements Change {
+		INSTANCE
+	}
+
+	/**
+	 * The changes of the fields of an object, in order of registration.
+	 */
+	private final class ObjectChange implements Change {
+
+		private final Map<String, Change> changes = new LinkedHashMap<>();
+
+		private ObjectChange object(String fieldName) {
+			Change change = changes.get(fieldName);
+			if (change instanceof ObjectChange) {
+				return (ObjectChange) change;
+			}
+			ObjectChange objectChange = new ObjectChange();
+			changes.put(fieldName, objectChange);
+			return objectChange;
+		}
+
+		private Text text(String fieldName) {
+			Text text = new Text();
+			changes.put(fieldName, text);
+			texts.add(text);
+			return text;
+		}
+	}
+
+	/**
+	 * A text of the target json, its value is the translation of a source text.
+	 */
+	static final class Text implements Change {
+
+		private String value;
+		private int index = -1;
+
+		void set(String value) {
+			this.value = value;
+			this.index = -1;
+		}
+
+		/**
+		 * The text is translated later, when the translation plan it is part of is applied.
+		 *
+		 * @param index the index of the source text within the texts of the plan
+		 */
+		void refer(int index) {
+			this.value = null;
+			this.index = index;
+		}
+
+		String value() {
+			return value;
+		}
+
+		/**
+		 * @return {@code true} if the text has neither a translation nor refers to a text of a translation plan
+		 */
+		private boolean isUntranslated() {
+			return value == null && index < 0;
+		}
+
+		private String translation() {
+			if (value == null) {
+				throw new IllegalStateException("Text " + (index >= 0 ? index + " " : "") + "is not translated.");
+			}
+			return value;
+		}
+	}
+}
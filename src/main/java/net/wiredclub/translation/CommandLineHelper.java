@@ -2,6 +2,8 @@ package net.wiredclub.translation;
 
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
 import org.apache.commons.cli.DefaultParser;
@@ -12,12 +14,21 @@ import org.apache.commons.cli.ParseException;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_FILE_NOT_FOUND;
 import static net.wiredclub.translation.TranslationStatusCode.STATUS_HELP;
 import static net.wiredclub.translation.TranslationStatusCode.STATUS_INVALID_ARGUMENT;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_JSON_INVALID;
 
 /**
  * A helper tool for command line arguments.
@@ -29,18 +40,24 @@ public class CommandLineHelper {
 	public static final String DEFAULT_TRANSLATION_DIRECTORY = "translations";
 	public static final String DEFAULT_SOURCE_LANGUAGE = "en";
 	public static final String DEFAULT_REPOSITORY_PATH = ".";
+	public static final int DEFAULT_JOBS = 1;
+	public static final String DEFAULT_CACHE_DIRECTORY =
+			System.getProperty("user.home") + "/.cache/translation-tool";
 
-	private final DeepLHelper deepLHelper;
+	private final TranslationProvider provider;
 	private final FileHelper fileHelper;
+	private final JsonHelper jsonHelper;
 
 	public CommandLineHelper() {
-		this.deepLHelper = new DeepLHelper(new JsonHelper());
+		this.jsonHelper = new JsonHelper();
+		this.provider = new DeepLHelper(jsonHelper);
 		this.fileHelper = new FileHelper();
 	}
 
-	public CommandLineHelper(DeepLHelper deepLHelper, FileHelper fileHelper) {
-		this.deepLHelper = deepLHelper;
+	public CommandLineHelper(TranslationProvider provider, FileHelper fileHelper) {
+		this.provider = provider;
 		this.fileHelper = fileHelper;
+		this.jsonHelper = new JsonHelper();
 	}
 
 	public TranslationConfig getTranslationConfig(String[] args) throws TranslationException, IOException {
@@ -79,6 +96,78 @@ public class CommandLineHelper {
 				"Path of repository (default is '" + DEFAULT_REPOSITORY_PATH + "')");
 		options.addOption(repoOption);
 
+		Option jobsOption = new Option("j", "jobs", true,
+				"Number of target languages translated in parallel (default is '" + DEFAULT_JOBS + "')");
+		options.addOption(jobsOption);
+
+		Option priorityOption = new Option(null, "priority", true,
+				"Comma separated target languages which are translated first if the DeepL quota is not sufficient "
+						+ "(default is alphabetical order)");
+		options.addOption(priorityOption);
+
+		Option fullOption = new Option(null, "full", false,
+				"Process all namespaces, also the ones which are unchanged since the previous commit");
+		options.addOption(fullOption);
+
+		Option sinceOption = new Option(null, "since", true,
+				"Translate the changes of the source files since this revision (default is the last translated "
+						+ "commit, or the previous commit if it is unknown)");
+		options.addOption(sinceOption);
+
+		Option watchOption = new Option(null, "watch", false,
+				"Keep running after the translation and translate the changes of source files whenever they are "
+						+ "saved, until Ctrl+C is pressed");
+		options.addOption(watchOption);
+
+		Option planOption = new Option(null, "plan", true,
+				"Compute which texts are translated and which characters DeepL charges without any request to "
+						+ "DeepL, and write this plan to the file instead of translating");
+		options.addOption(planOption);
+
+		Option applyOption = new Option(null, "apply", true,
+				"Translate the texts of a plan written with --plan and patch the target files, instead of "
+						+ "translating the changes of the source files");
+		options.addOption(applyOption);
+
+		Option verifyOption = new Option(null, "verify", false,
+				"Check without any request to DeepL that all target files have the keys of their source files, no "
+						+ "arrays and the placeholders of their source texts, and report every problem");
+		options.addOption(verifyOption);
+
+		Option batchOption = new Option(null, "batch", true,
+				"Translate all projects of this json file one after another in one process, sharing the DeepL "
+						+ "connections and the translation memory. --jobs applies within each project, the other "
+						+ "options apply to all projects except --since, which is set per project in the file");
+		options.addOption(batchOption);
+
+		Option placeholdersOption = new Option(null, "placeholders", true,
+				"Comma separated placeholder syntaxes which are not translated, 'none' or some of "
+						+ placeholderSyntaxes(",") + " (default is all of them)");
+		options.addOption(placeholdersOption);
+
+		Option reportOption = new Option(null, "report", true,
+				"Write a json report with durations, DeepL requests, characters, bytes and keys per language "
+						+ "to this file");
+		options.addOption(reportOption);
+
+		Option jfrOption = new Option(null, "jfr", true,
+				"Record the run with Java Flight Recorder into this file, including DeepL requests, diffs and "
+						+ "file access");
+		options.addOption(jfrOption);
+
+		Option cacheDirOption = new Option(null, "cache-dir", true,
+				"Directory of the translation memory (default is '" + DEFAULT_CACHE_DIRECTORY + "')");
+		options.addOption(cacheDirOption);
+
+		Option noCacheOption = new Option(null, "no-cache", false,
+				"Do not use the translation memory, every text is translated by DeepL");
+		options.addOption(noCacheOption);
+
+		Option languageCacheTtlOption = new Option(null, "language-cache-ttl", true,
+				"Hours the languages supported by DeepL are cached, 0 turns the cache off (default is '"
+						+ LanguageCache.DEFAULT_TTL.toHours() + "')");
+		options.addOption(languageCacheTtlOption);
+
 		Option verbose = new Option("v", "verbose", false, "Turn on more output (default is off)");
 		options.addOption(verbose);
 
@@ -113,31 +202,265 @@ public class CommandLineHelper {
 
 		String repositoryDirectory = cmd.getOptionValue("repo", DEFAULT_REPOSITORY_PATH).trim();
 		String translationsDirectory = cmd.getOptionValue("path", DEFAULT_TRANSLATION_DIRECTORY).trim();
+		int jobs = parseJobs(cmd.getOptionValue("jobs"));
+		String cacheDirectory = cmd.hasOption("no-cache")
+				? null
+				: cmd.getOptionValue("cache-dir", DEFAULT_CACHE_DIRECTORY).trim();
+
+		String reportFile = cmd.hasOption("report") ? cmd.getOptionValue("report").trim() : null;
+		String recordingFile = cmd.hasOption("jfr") ? cmd.getOptionValue("jfr").trim() : null;
+		String since = cmd.hasOption("since") ? cmd.getOptionValue("since").trim() : null;
+		Set<PlaceholderTokenizer.Syntax> placeholders = parsePlaceholders(cmd.getOptionValue("placeholders"));
+		String planFile = cmd.hasOption("plan") ? cmd.getOptionValue("plan").trim() : null;
+		String applyFile = cmd.hasOption("apply") ? cmd.getOptionValue("apply").trim() : null;
+		boolean verify = cmd.hasOption("verify");
+		String batchFile = cmd.hasOption("batch") ? cmd.getOptionValue("batch").trim() : null;
+		int modes = (planFile != null ? 1 : 0) + (applyFile != null ? 1 : 0) + (cmd.hasOption("watch") ? 1 : 0)
+				+ (verify ? 1 : 0) + (batchFile != null ? 1 : 0);
+		if (modes > 1) {
+			throw new ParseException("Only one of --plan, --apply, --watch, --verify and --batch is allowed.");
+		}
+		if (batchFile != null && since != null) {
+			// one revision hardly exists in several repositories, so it is set per project in the batch file
+			throw new ParseException("--since is not allowed with --batch, set \"since\" per project in the batch "
+					+ "file instead.");
+		}
+
+		Duration languageCacheTtl = parseLanguageCacheTtl(cmd.getOptionValue("language-cache-ttl"));
+
+		// languages supported by DeepL, usually from cache, so that no request to DeepL is needed. A verification
+		// translates nothing, so the languages are not validated and DeepL is never asked. A plan is computed
+		// without network access, so it is validated against the cached or shipped languages of any age.
+		// the language cache is independent of --no-cache, it is turned off by a TTL of 0 hours
+		Path languageCacheFile = languageCacheTtl.isZero() ? null : Paths.get(
+				cmd.getOptionValue("cache-dir", DEFAULT_CACHE_DIRECTORY).trim(), LanguageCache.DEFAULT_FILE_NAME);
+		LanguageCache languageCache = new LanguageCache(provider, jsonHelper, languageCacheFile, languageCacheTtl);
+		LanguageCache.Languages languages = verify ? null
+				: planFile != null ? languageCache.cachedLanguages()
+				: languageCache.languages();
 
 		String sourceLanguage = cmd.getOptionValue("source", DEFAULT_SOURCE_LANGUAGE).trim();
-		List<String> sourceLanguages = deepLHelper.sourceLanguages();
-		if (!sourceLanguages.contains(sourceLanguage)) {
-			throw new ParseException("Source language '" + sourceLanguage + "' is not allowed. "
-					+ "Possible values are: " + sourceLanguages);
+		checkSourceLanguage(languages, sourceLanguage);
+
+		List<String> priority = new ArrayList<>();
+		for (String language : cmd.getOptionValue("priority", "").split(",")) {
+			if (!language.isBlank()) {
+				priority.add(language.trim());
+			}
 		}
 
+		TranslationConfig.Builder config = TranslationConfig.builder()
+				.sourceLanguage(sourceLanguage)
+				.translationsDirectory(translationsDirectory)
+				.repositoryDirectory(repositoryDirectory)
+				.jobs(jobs)
+				.cacheDirectory(cacheDirectory)
+				.priority(priority)
+				.full(cmd.hasOption("full"))
+				.placeholders(placeholders);
+
 		String targetLanguage = cmd.getOptionValue("target");
-		Set<String> targetLanguages;
-		if (targetLanguage == null) {
+		if (batchFile != null) {
+			// the languages are validated once for all projects, every project is translated like a normal run
+			List<TranslationConfig> projects = new ArrayList<>();
+			for (JsonNode project : readBatch(batchFile)) {
+				String projectRepository = project.get("repo").asText().trim();
+				String projectTranslations = project.path("path").asText(translationsDirectory).trim();
+				String projectSource = project.path("source").asText(sourceLanguage).trim();
+				String projectSince = project.has("since") ? project.get("since").asText().trim() : null;
+				checkSourceLanguage(languages, projectSource);
+				List<String> targets = new ArrayList<>();
+				project.path("targets").forEach(target -> targets.add(target.asText().trim()));
+				if (targets.isEmpty() && targetLanguage != null) {
+					targets.add(targetLanguage.trim());
+				}
+				Set<String> projectTargets = targetLanguages(languages, targets, projectRepository,
+						projectTranslations, projectSource);
+				// reports and recordings are written once for the whole batch
+				projects.add(TranslationConfig.builder()
+						.sourceLanguage(projectSource)
+						.targetLanguages(projectTargets)
+						.translationsDirectory(projectTranslations)
+						.repositoryDirectory(projectRepository)
+						.jobs(jobs)
+						.cacheDirectory(cacheDirectory)
+						.priority(priority)
+						.full(cmd.hasOption("full"))
+						.since(projectSince)
+						.placeholders(placeholders)
+						.build());
+			}
+			return config
+					.reportFile(reportFile)
+					.recordingFile(recordingFile)
+					.projects(projects)
+					.build();
+		}
+
+		Set<String> targetLanguages = targetLanguages(languages,
+				targetLanguage == null ? List.of() : List.of(targetLanguage.trim()), repositoryDirectory,
+				translationsDirectory, sourceLanguage);
+
+		return config
+				.targetLanguages(targetLanguages)
+				.reportFile(reportFile)
+				.recordingFile(recordingFile)
+				.since(since)
+				.watch(cmd.hasOption("watch"))
+				.planFile(planFile)
+				.applyFile(applyFile)
+				.verify(verify)
+				.build();
+	}
+
+	/**
+	 * @param languages languages supported by DeepL, {@code null} if they are not validated
+	 * @param sourceLanguage the source language
+	 * @throws ParseException if DeepL does not support the source language
+	 */
+	private void checkSourceLanguage(LanguageCache.Languages languages, String sourceLanguage)
+			throws ParseException {
+		if (languages != null && !languages.source().contains(sourceLanguage)) {
+			throw new ParseException("Source language '" + sourceLanguage + "' is not allowed. "
+					+ "Possible values are: " + languages.source());
+		}
+	}
+
+	/**
+	 * @param languages languages supported by DeepL, {@code null} if they are not validated
+	 * @param targetLanguages the target languages given by the user, empty to discover them
+	 * @param repositoryDirectory the root directory of the repository
+	 * @param translationsDirectory the translations directory relative to the repository directory
+	 * @param sourceLanguage the source language, its directory is no target language
+	 * @return the target languages
+	 * @throws ParseException if DeepL does not support some target languages
+	 * @throws IOException if the translations directory cannot be read
+	 */
+	private Set<String> targetLanguages(LanguageCache.Languages languages, List<String> targetLanguages,
+	                                    String repositoryDirectory, String translationsDirectory,
+	                                    String sourceLanguage) throws ParseException, IOException {
+		Set<String> result;
+		if (targetLanguages.isEmpty()) {
 			// find in parent directory all other directories which are not the source directory
-			targetLanguages = fileHelper.discoverLanguageDirectories(repositoryDirectory + "/" + translationsDirectory);
-			targetLanguages.remove(sourceLanguage);
+			result = fileHelper.discoverLanguageDirectories(repositoryDirectory + "/" + translationsDirectory);
+			result.remove(sourceLanguage);
 		} else {
-			targetLanguages = Set.of(targetLanguage.trim());
+			result = new HashSet<>(targetLanguages);
+		}
+
+		if (languages != null && !new HashSet<>(languages.target()).containsAll(result)) {
+			throw new ParseException("Some target languages " + result + " are not allowed. "
+					+ "Possible target languages are: " + languages.target());
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the projects of a batch run, e.g.
+	 * <pre>
+	 * { "projects": [
+	 *     { "repo": "../shop", "path": "translations", "source": "en", "targets": ["de", "fr"] },
+	 *     { "repo": "../admin", "since": "v2.3" }
+	 * ] }
+	 * </pre>
+	 * Only {@code repo} is required, the other fields default to the command line arguments. Without
+	 * {@code since}, a project translates the changes since its last translated commit. Without targets in
+	 * the file and on the command line, the target languages of a project are discovered.
+	 *
+	 * @param batchFile the json file with the projects
+	 * @return the projects
+	 * @throws TranslationException if the file does not exist or is no valid json
+	 * @throws ParseException if a project is invalid
+	 * @throws IOException if the file cannot be read
+	 */
+	private List<JsonNode> readBatch(String batchFile) throws TranslationException, ParseException, IOException {
+		JsonNode json;
+		try {
+			json = fileHelper.readFile(batchFile, jsonHelper::readJson);
+		} catch (JsonProcessingException e) {
+			throw new TranslationException("Error: Invalid Json. Please verify that the batch file '" + batchFile
+					+ "' is valid json. Cause: " + e.getMessage(), STATUS_JSON_INVALID);
+		} catch (TranslationFileNotFoundException e) {
+			throw new TranslationException("Error: Batch file '" + batchFile + "' not found. "
+					+ "Please verify that the file exists.", STATUS_FILE_NOT_FOUND);
 		}
 
-		List<String> possibleLanguages = deepLHelper.targetLanguages();
-		if (!new HashSet<>(possibleLanguages).containsAll(targetLanguages)) {
-			throw new ParseException("Some target languages " + targetLanguages + " are not allowed. "
-					+ "Possible target languages are: " + possibleLanguages);
+		List<JsonNode> projects = new ArrayList<>();
+		json.path("projects").forEach(projects::add);
+		if (projects.isEmpty()) {
+			throw new ParseException("Batch file '" + batchFile + "' contains no projects.");
 		}
+		for (int i = 0; i < projects.size(); i++) {
+			JsonNode project = projects.get(i);
+			if (!project.path("repo").isTextual() || project.get("repo").asText().isBlank()) {
+				throw new ParseException("Project " + (i + 1) + " of batch file '" + batchFile + "' has no repo.");
+			}
+			JsonNode projectSince = project.path("since");
+			if (!projectSince.isMissingNode() && (!projectSince.isTextual() || projectSince.asText().isBlank())) {
+				throw new ParseException("The since of project " + (i + 1) + " of batch file '" + batchFile
+						+ "' must be a revision.");
+			}
+			if (project.has("targets") && !project.get("targets").isArray()) {
+				throw new ParseException("The targets of project " + (i + 1) + " of batch file '" + batchFile
+						+ "' must be an array of languages.");
+			}
+		}
+		return projects;
+	}
 
-		return new TranslationConfig(sourceLanguage, targetLanguages, translationsDirectory, repositoryDirectory);
+	private Set<PlaceholderTokenizer.Syntax> parsePlaceholders(String value) throws ParseException {
+		if (value == null) {
+			return EnumSet.allOf(PlaceholderTokenizer.Syntax.class);
+		}
+		Set<PlaceholderTokenizer.Syntax> placeholders = EnumSet.noneOf(PlaceholderTokenizer.Syntax.class);
+		if (value.trim().equals("none")) {
+			return placeholders;
+		}
+		for (String syntax : value.split(",")) {
+			try {
+				placeholders.add(PlaceholderTokenizer.Syntax.ofOptionName(syntax));
+			} catch (IllegalArgumentException e) {
+				throw new ParseException("Placeholder syntax '" + syntax.trim() + "' is not allowed. "
+						+ "Possible values are: none, " + placeholderSyntaxes(", "));
+			}
+		}
+		return placeholders;
+	}
+
+	private static String placeholderSyntaxes(String delimiter) {
+		return Arrays.stream(PlaceholderTokenizer.Syntax.values())
+				.map(PlaceholderTokenizer.Syntax::optionName)
+				.collect(Collectors.joining(delimiter));
+	}
+
+	private Duration parseLanguageCacheTtl(String value) throws ParseException {
+		if (value == null) {
+			return LanguageCache.DEFAULT_TTL;
+		}
+		try {
+			long hours = Long.parseLong(value.trim());
+			if (hours >= 0) {
+				return Duration.ofHours(hours);
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new ParseException("Language cache TTL '" + value + "' is not allowed. Please use a number of hours.");
+	}
+
+	private int parseJobs(String value) throws ParseException {
+		if (value == null) {
+			return DEFAULT_JOBS;
+		}
+		try {
+			int jobs = Integer.parseInt(value.trim());
+			if (jobs >= 1) {
+				return jobs;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new ParseException("Jobs '" + value + "' is not allowed. Please use a number greater than 0.");
 	}
 
 	/**
@@ -152,7 +475,7 @@ public class CommandLineHelper {
 						+ "https://www.deepl.com/translator and stored for each target language(s). The order of "
 						+ "existing keys is preserved, but new keys are added at the end of the target file.\n\n";
 
-		String footer = "\nExample: translation-tool -s en -t de -p \"translations\" -r .";
+		String footer = "\nExample: translation-tool -s en -t de -p \"translations\" -r . -j 4";
 
 		HelpFormatter formatter = new HelpFormatter();
 		formatter.setOptionComparator(null);
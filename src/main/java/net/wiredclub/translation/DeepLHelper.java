@@ -1,79 +1,182 @@
 package net.wiredclub.translation;
 
 import com.fasterxml.jackson.databind.JsonNode;
-import org.apache.http.client.fluent.Form;
-import org.apache.http.client.fluent.Request;
+import net.wiredclub.translation.DeepLTransport.Form;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 /**
  * A helper class that executes requests to DeepL-API, e.g.
  * it retrieves allowed source and target languages, usage stats,
  * or triggers the translation of a text.
+ * Translations are looked up in the translation memory first, if one is used.
+ * Placeholders of the texts are protected from being translated, see {@link PlaceholderTokenizer}.
+ * All batches of a translation are sent at once, the transport keeps them in flight without blocking a thread.
+ * The helper is thread safe and can be shared between threads.
  */
-public class DeepLHelper {
+public class DeepLHelper implements TranslationProvider {
 
-    // private static final Logger LOG = LoggerFactory.getLogger(DeepLHelper.class);
+    private static final Logger LOG = LoggerFactory.getLogger(DeepLHelper.class);
 
-    private static final String AUTH_KEY = "bddf179b-b8b6-d1a3-2a96-11c7cc8ac50a:fx";
+    private static final String DEFAULT_AUTH_KEY = "bddf179b-b8b6-d1a3-2a96-11c7cc8ac50a:fx";
 
     private static final String DEEPL_BASE_URI_FREE = "https://api-free.deepl.com";
+
+    // base uri and auth key can be set as system property or environment variable, e.g. for a local DeepL stand-in
+    static final String BASE_URI_PROPERTY = "deepl.base-uri";
+    static final String BASE_URI_ENVIRONMENT = "DEEPL_BASE_URI";
+    static final String AUTH_KEY_PROPERTY = "deepl.auth-key";
+    static final String AUTH_KEY_ENVIRONMENT = "DEEPL_AUTH_KEY";
+
     private static final String DEEPL_USAGE = "/v2/usage";
     private static final String DEEPL_LANGUAGES = "/v2/languages";
     private static final String DEEPL_TRANSLATE = "/v2/translate";
 
-    private static final String XML_TAG_TO_EXCHANGE_CURLY_BRACKETS = "donut";
+    // the tag handling settings of a translation are part of the translation memory key
+    private static final String TAG_HANDLING = "xml;ignore_tags=" + PlaceholderTokenizer.TAG + ";placeholders=";
+
+    // DeepL accepts up to 50 texts per translate request and a request body of at most 128 KiB.
+    static final int MAX_TEXTS_PER_REQUEST = 50;
+    static final int MAX_REQUEST_BYTES = 120 * 1024;
+    // rough size of the form parameters besides the texts (auth key, languages, tag handling)
+    private static final int REQUEST_OVERHEAD_BYTES = 256;
 
     private final JsonHelper jsonHelper;
+    private final DeepLTransport transport;
+    private final String authKey;
+
+    private volatile TranslationMemory translationMemory = TranslationMemory.disabled();
+    private volatile PlaceholderTokenizer placeholders = PlaceholderTokenizer.defaults();
 
     public DeepLHelper() {
-        this.jsonHelper = new JsonHelper();
+        this(new JsonHelper());
     }
 
     public DeepLHelper(JsonHelper jsonHelper) {
+        this(jsonHelper, new DeepLTransport(setting(BASE_URI_PROPERTY, BASE_URI_ENVIRONMENT, DEEPL_BASE_URI_FREE),
+                DeepLTransport.Settings.defaults()));
+    }
+
+    public DeepLHelper(JsonHelper jsonHelper, DeepLTransport transport) {
+        this(jsonHelper, transport, setting(AUTH_KEY_PROPERTY, AUTH_KEY_ENVIRONMENT, DEFAULT_AUTH_KEY));
+    }
+
+    public DeepLHelper(JsonHelper jsonHelper, DeepLTransport transport, String authKey) {
         this.jsonHelper = jsonHelper;
+        this.transport = transport;
+        this.authKey = authKey;
+    }
+
+    /**
+     * @return the value of the system property, otherwise of the environment variable, otherwise the default value
+     */
+    private static String setting(String property, String environmentVariable, String defaultValue) {
+        String value = System.getProperty(property);
+        if (value == null || value.isBlank()) {
+            value = System.getenv(environmentVariable);
+        }
+        return value == null || value.isBlank() ? defaultValue : value.trim();
+    }
+
+    public DeepLTransport transport() {
+        return transport;
+    }
+
+    @Override
+    public String baseUri() {
+        return transport.baseUri();
+    }
+
+    public TranslationMemory translationMemory() {
+        return translationMemory;
+    }
+
+    /**
+     * @param translationMemory the translation memory which is consulted before DeepL is asked
+     */
+    @Override
+    public void useTranslationMemory(TranslationMemory translationMemory) {
+        this.translationMemory = translationMemory;
+    }
+
+    public PlaceholderTokenizer placeholders() {
+        return placeholders;
+    }
+
+    /**
+     * @param placeholders the tokenizer which protects the placeholders of the texts
+     */
+    @Override
+    public void usePlaceholders(PlaceholderTokenizer placeholders) {
+        this.placeholders = placeholders;
+    }
+
+    @Override
+    public void addListener(DeepLTransport.RequestListener listener) {
+        transport.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(DeepLTransport.RequestListener listener) {
+        transport.removeListener(listener);
     }
 
-    public DeepLUsage usage() throws IOException, TranslationJsonProcessingException {
-        String response = Request.Post(DEEPL_BASE_URI_FREE + DEEPL_USAGE)
-                .bodyForm(Form.form()
-                        .add("auth_key", AUTH_KEY)
-                        .build())
-                .execute().returnContent().asString();
+    public Usage usage() throws IOException, TranslationJsonProcessingException {
+        String response = transport.post(DEEPL_USAGE, Form.form()
+                .add("auth_key", authKey));
 
+        return parseUsage(response);
+    }
+
+    @Override
+    public CompletableFuture<Usage> usageAsync() {
+        return transport.postAsync(DEEPL_USAGE, Form.form()
+                .add("auth_key", authKey)).thenApply(response -> {
+                    try {
+                        return parseUsage(response);
+                    } catch (TranslationJsonProcessingException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    private Usage parseUsage(String response) throws TranslationJsonProcessingException {
         JsonNode json = jsonHelper.convertStringToJson(response);
 
         long characterCount = json.get("character_count").asLong();
         long characterLimit = json.get("character_limit").asLong();
 
-        return new DeepLUsage(characterCount, characterLimit);
+        return new Usage(characterCount, characterLimit);
     }
 
+    @Override
     public List<String> sourceLanguages() throws IOException, TranslationJsonProcessingException {
-        String response = Request.Post(DEEPL_BASE_URI_FREE + DEEPL_LANGUAGES)
-                .bodyForm(Form.form()
-                        .add("auth_key", AUTH_KEY)
-                        .add("type", "source")
-                        .build())
-                .execute().returnContent().asString();
+        String response = transport.post(DEEPL_LANGUAGES, Form.form()
+                .add("auth_key", authKey)
+                .add("type", "source"));
 
         JsonNode json = jsonHelper.convertStringToJson(response);
         Set<String> languages = jsonHelper.extractLanguages(json);
         return languages.stream().map(String::toLowerCase).sorted().collect(Collectors.toList());
     }
 
+    @Override
     public List<String> targetLanguages() throws IOException, TranslationJsonProcessingException {
-        String response = Request.Post(DEEPL_BASE_URI_FREE + DEEPL_LANGUAGES)
-                .bodyForm(Form.form()
-                        .add("auth_key", AUTH_KEY)
-                        .add("type", "target")
-                        .build())
-                .execute().returnContent().asString();
+        String response = transport.post(DEEPL_LANGUAGES, Form.form()
+                .add("auth_key", authKey)
+                .add("type", "target"));
 
         JsonNode json = jsonHelper.convertStringToJson(response);
         Set<String> languages = jsonHelper.extractLanguages(json);
@@ -81,40 +184,263 @@ public class DeepLHelper {
     }
 
     public String translate(String textToTranslate, String sourceLanguage, String targetLanguage)
-            throws IOException, TranslationJsonProcessingException {
-        String response = Request.Post(DEEPL_BASE_URI_FREE + DEEPL_TRANSLATE)
-                .bodyForm(Form.form()
-                        .add("auth_key", AUTH_KEY)
-                        .add("text", wrapTextToTranslate(textToTranslate))
-                        .add("source_lang", sourceLanguage)
-                        .add("target_lang", targetLanguage)
-                        .add("tag_handling", "xml")
-                        .add("ignore_tags", XML_TAG_TO_EXCHANGE_CURLY_BRACKETS) // xml tag for disabling translation
-                        .build())
-                .execute().returnContent().asString(StandardCharsets.UTF_8);
+            throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+        return translate(List.of(textToTranslate), sourceLanguage, targetLanguage).get(0);
+    }
 
-        JsonNode json = jsonHelper.convertStringToJson(response);
-        // LOG.debug("Translated '{}' to '{}'", textToTranslate, translation);
-        String translation = jsonHelper.extractTranslation(json, textToTranslate);
-        return unwrapTranslation(translation);
+    /**
+     * Translates many texts with as few requests as possible, see {@link #translateAsync(List, String, String)}.
+     *
+     * @param textsToTranslate texts in source language
+     * @param sourceLanguage the source language
+     * @param targetLanguage the target language
+     * @return translations in the same order as the texts to translate
+     * @throws IOException if a request to deepl.com cannot be completed
+     * @throws TranslationJsonProcessingException if the response of DeepL is not valid json
+     * @throws TranslationPlaceholderException if DeepL dropped or changed a placeholder of a text
+     */
+    public List<String> translate(List<String> textsToTranslate, String sourceLanguage, String targetLanguage)
+            throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+        return TranslationProvider.await(translateAsync(textsToTranslate, sourceLanguage, targetLanguage));
     }
 
-    private static final Pattern CURLY_BRACKETS_START = Pattern.compile("\\{\\{");
-    private static final Pattern CURLY_BRACKETS_END = Pattern.compile("}}");
+    /**
+     * Translates many texts with as few requests as possible. Texts which are found in the
+     * translation memory are not sent to DeepL, the others are packed into requests by count
+     * and payload size and stored in the translation memory afterwards. All requests are sent
+     * at once. The result has the same order as the given texts. A translation is only accepted
+     * if it contains all placeholders of its text. If placeholders got lost, the future completes
+     * with a {@link TranslationPlaceholderException} which holds the accepted translations, they
+     * are stored in the translation memory anyway.
+     *
+     * @param textsToTranslate texts in source language
+     * @param sourceLanguage the source language
+     * @param targetLanguage the target language
+     * @return translations in the same order as the texts to translate
+     */
+    @Override
+    public CompletableFuture<List<String>> translateAsync(List<String> textsToTranslate, String sourceLanguage,
+                                                          String targetLanguage) {
+        TranslationMemory memory = translationMemory;
+        PlaceholderTokenizer tokenizer = placeholders;
+        String tagHandling = TAG_HANDLING + tokenizer.signature();
+        List<String> translations = new ArrayList<>(textsToTranslate.size());
+        List<String> missingTexts = new ArrayList<>();
+        try {
+            for (String text : textsToTranslate) {
+                String translation = memory.get(text, sourceLanguage, targetLanguage, tagHandling);
+                translations.add(translation);
+                if (translation == null) {
+                    missingTexts.add(text);
+                }
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (missingTexts.isEmpty()) {
+            return CompletableFuture.completedFuture(translations);
+        }
 
-    String wrapTextToTranslate(String text) {
-        String wrap = CURLY_BRACKETS_START.matcher(text).replaceAll("<" + XML_TAG_TO_EXCHANGE_CURLY_BRACKETS + ">{{");
-        return CURLY_BRACKETS_END.matcher(wrap).replaceAll("}}</" + XML_TAG_TO_EXCHANGE_CURLY_BRACKETS + ">");
+        // every text is protected once, its size decides the batch
+        List<String> protectedTexts = new ArrayList<>(missingTexts.size());
+        for (String text : missingTexts) {
+            protectedTexts.add(tokenizer.protect(text));
+        }
+        List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+        // every batch describes its lost placeholders in its own list, they are read when all batches completed
+        List<List<String>> lostPlaceholders = new ArrayList<>();
+        for (List<String> batch : createBatches(protectedTexts)) {
+            List<String> batchLostPlaceholders = new ArrayList<>();
+            lostPlaceholders.add(batchLostPlaceholders);
+            batches.add(translateBatch(batch, sourceLanguage, targetLanguage, tokenizer, batchLostPlaceholders));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            List<String> missingTranslations = new ArrayList<>(missingTexts.size());
+            for (CompletableFuture<List<String>> batch : batches) {
+                missingTranslations.addAll(batch.join());
+            }
+
+            Map<String, String> newTranslations = new LinkedHashMap<>();
+            for (int i = 0; i < missingTexts.size(); i++) {
+                if (missingTranslations.get(i) != null) {
+                    newTranslations.put(missingTexts.get(i), missingTranslations.get(i));
+                }
+            }
+            try {
+                memory.putAll(newTranslations, sourceLanguage, targetLanguage, tagHandling);
+            } catch (IOException e) {
+                // DeepL already charged for the translations, the memory is only a cache
+                LOG.warn("Translations could not be written to the translation memory. Cause: {}", e.getMessage());
+            }
+
+            int next = 0;
+            for (int i = 0; i < translations.size(); i++) {
+                if (translations.get(i) == null) {
+                    translations.set(i, missingTranslations.get(next++));
+                }
+            }
+
+            List<String> problems = lostPlaceholders.stream().flatMap(List::stream).collect(Collectors.toList());
+            if (!problems.isEmpty()) {
+                throw new CompletionException(new TranslationPlaceholderException(problems.get(0)
+                        + (problems.size() > 1 ? " Placeholders of " + (problems.size() - 1)
+                        + " more text(s) are missing as well." : ""), translations));
+            }
+            return translations;
+        });
     }
 
-    private static final Pattern DONUT_START = Pattern.compile("<" + XML_TAG_TO_EXCHANGE_CURLY_BRACKETS + ">");
-    private static final Pattern DONUT_END = Pattern.compile("</" + XML_TAG_TO_EXCHANGE_CURLY_BRACKETS + ">");
+    /**
+     * Counts the characters DeepL charges for the translation of the texts. Texts which are found
+     * in the translation memory are free.
+     *
+     * @param texts texts in source language
+     * @param sourceLanguage the source language
+     * @param targetLanguage the target language
+     * @return number of characters which would be sent to DeepL
+     * @throws IOException if the translation memory cannot be read
+     */
+    @Override
+    public long billableCharacters(List<String> texts, String sourceLanguage, String targetLanguage)
+            throws IOException {
+        TranslationMemory memory = translationMemory;
+        String tagHandling = TAG_HANDLING + placeholders.signature();
+        long characters = 0;
+        for (String text : texts) {
+            if (!memory.contains(text, sourceLanguage, targetLanguage, tagHandling)) {
+                characters += text.codePointCount(0, text.length());
+            }
+        }
+        return characters;
+    }
 
-    String unwrapTranslation(String translation) {
-        String unwrap = DONUT_START.matcher(translation).replaceAll("");
-        return DONUT_END.matcher(unwrap).replaceAll("");
+    /**
+     * @param batch protected texts in source language
+     * @param tokenizer the tokenizer which protected the texts
+     * @param lostPlaceholders the lost placeholders are described here
+     * @return the restored translations, {@code null} for a text whose placeholder got lost
+     */
+    private CompletableFuture<List<String>> translateBatch(List<String> batch, String sourceLanguage,
+                                                           String targetLanguage, PlaceholderTokenizer tokenizer,
+                                                           List<String> lostPlaceholders) {
+        Form form = Form.form().add("auth_key", authKey);
+        for (String text : batch) {
+            form.add("text", text);
+        }
+        TranslationEvents.DeepLRequest event = new TranslationEvents.DeepLRequest();
+        event.begin();
+        return transport.postAsync(DEEPL_TRANSLATE, form
+                .add("source_lang", sourceLanguage)
+                .add("target_lang", targetLanguage)
+                .add("tag_handling", "xml")
+                .add("ignore_tags", PlaceholderTokenizer.TAG)) // xml tag for disabling translation
+                .handle((response, error) -> {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.endpoint = DEEPL_TRANSLATE;
+                        event.sourceLanguage = sourceLanguage;
+                        event.targetLanguage = targetLanguage;
+                        event.texts = batch.size();
+                        event.characters = batch.stream().map(tokenizer::restore)
+                                .mapToLong(text -> text.codePointCount(0, text.length())).sum();
+                        event.statusCode = statusCode(error);
+                        event.commit();
+                    }
+                    if (error != null) {
+                        throw error instanceof CompletionException
+                                ? (CompletionException) error : new CompletionException(error);
+                    }
+                    try {
+                        return restoreTranslations(batch, response, targetLanguage, tokenizer, lostPlaceholders);
+                    } catch (TranslationException e) {
+                        throw new CompletionException(e);
+                    }
+                });
     }
 
-    record DeepLUsage(long characterCount, long characterLimit) {
+    /**
+     * @return 200 if the request succeeded, the status code DeepL answered with, or 0 if no response was received
+     */
+    private static int statusCode(Throwable error) {
+        if (error == null) {
+            return 200;
+        }
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        return cause instanceof DeepLTransport.DeepLHttpException
+                ? ((DeepLTransport.DeepLHttpException) cause).statusCode() : 0;
+    }
+
+    /**
+     * Every translation is checked on its own, a lost placeholder only rejects the translation of its text.
+     *
+     * @param lostPlaceholders the lost placeholders are described here
+     * @return the restored translations, {@code null} for a text whose placeholder got lost
+     */
+    private List<String> restoreTranslations(List<String> batch, String response, String targetLanguage,
+                                             PlaceholderTokenizer tokenizer, List<String> lostPlaceholders)
+            throws TranslationJsonProcessingException {
+        JsonNode json = jsonHelper.convertStringToJson(response);
+        List<String> translations = jsonHelper.extractTranslations(json);
+        if (translations.size() != batch.size()) {
+            throw new TranslationJsonProcessingException("DeepL returned " + translations.size()
+                    + " translation(s) for " + batch.size() + " text(s).");
+        }
+        List<String> restored = new ArrayList<>(translations.size());
+        for (int i = 0; i < batch.size(); i++) {
+            String translation = translations.get(i);
+            String lostPlaceholder = tokenizer.lostPlaceholder(batch.get(i), translation);
+            if (lostPlaceholder != null) {
+                lostPlaceholders.add("Placeholder '" + lostPlaceholder + "' of '"
+                        + tokenizer.restore(batch.get(i)) + "' is missing in the translation to '"
+                        + targetLanguage + "': '" + tokenizer.restore(translation) + "'.");
+                restored.add(null);
+            } else {
+                restored.add(tokenizer.restore(translation));
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * Splits texts into batches. A batch holds at most {@link #MAX_TEXTS_PER_REQUEST} texts and
+     * its texts are not larger than {@link #MAX_REQUEST_BYTES}. A single text larger than the limit
+     * is sent on its own.
+     *
+     * @param texts texts in source language as they are sent, i.e. with protected placeholders
+     * @return batches of texts in the original order
+     */
+    List<List<String>> createBatches(List<String> texts) {
+        List<List<String>> batches = new ArrayList<>();
+        List<String> batch = new ArrayList<>();
+        int batchBytes = REQUEST_OVERHEAD_BYTES;
+        for (String text : texts) {
+            int textBytes = encodedSize(text);
+            if (!batch.isEmpty()
+                    && (batch.size() == MAX_TEXTS_PER_REQUEST || batchBytes + textBytes > MAX_REQUEST_BYTES)) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+                batchBytes = REQUEST_OVERHEAD_BYTES;
+            }
+            batch.add(text);
+            batchBytes += textBytes;
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    private static int encodedSize(String text) {
+        // "&text=" is added for every text
+        return URLEncoder.encode(text, StandardCharsets.UTF_8).length() + 6;
+    }
+
+    String wrapTextToTranslate(String text) {
+        return placeholders.protect(text);
+    }
+
+    String unwrapTranslation(String translation) {
+        return placeholders.restore(translation);
     }
 }
@@ -0,0 +1,408 @@
+package net.wiredclub.translation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The HTTP transport used by {@link DeepLHelper}. All requests share one {@link HttpClient}
+ * which prefers HTTP/2, so requests are multiplexed over a kept alive connection. The number of
+ * requests in flight is limited, and every request has a connect, read and total timeout, the total timeout
+ * includes the time waiting for a free connection. Responses are requested gzip compressed. Requests which
+ * are rejected temporarily (429 or 5xx) are retried with exponential backoff. Requests are sent
+ * asynchronously, no thread is blocked while a request waits for a connection or a response.
+ * The transport is thread safe and is meant to be shared by all translations of a run.
+ */
+public class DeepLTransport {
+
+	// private static final Logger LOG = LoggerFactory.getLogger(DeepLTransport.class);
+
+	// request bodies smaller than this are not worth to be compressed
+	private static final int MIN_COMPRESSED_REQUEST_BYTES = 1024;
+
+	private final String baseUri;
+	private final Settings settings;
+	private final HttpClient httpClient;
+	private final ConnectionLimiter connections;
+	private final List<RequestListener> listeners = new CopyOnWriteArrayList<>();
+
+	public DeepLTransport(String baseUri, Settings settings) {
+		this.baseUri = baseUri;
+		this.settings = settings;
+		// the pool settings of the jdk http client are system properties which are read once per process, so the
+		// requests in flight are limited here instead
+		this.connections = new ConnectionLimiter(settings.maxConnections());
+
+		AtomicInteger threadCount = new AtomicInteger();
+		ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "deepl-http-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		this.httpClient = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.connectTimeout(settings.connectTimeout())
+				.followRedirects(HttpClient.Redirect.NEVER)
+				.executor(executor)
+				.build();
+	}
+
+	public String baseUri() {
+		return baseUri;
+	}
+
+	public Settings settings() {
+		return settings;
+	}
+
+	/**
+	 * Registers a listener which is notified after every request, e.g. to measure latencies.
+	 *
+	 * @param listener the listener to add
+	 */
+	public void addListener(RequestListener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(RequestListener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Posts a form to DeepL and returns the response body.
+	 *
+	 * @param endpoint the endpoint, e.g. {@code /v2/translate}
+	 * @param form the form parameters
+	 * @return the response body as UTF-8 text
+	 * @throws IOException if the request fails, times out, or DeepL answers with an error status
+	 */
+	public String post(String endpoint, Form form) throws IOException {
+		CompletableFuture<String> future = postAsync(endpoint, form);
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause() instanceof CompletionException ? e.getCause().getCause() : e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			throw new IOException("Request to '" + endpoint + "' failed.", cause);
+		} catch (InterruptedException e) {
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new IOException("Request to '" + endpoint + "' was interrupted.", e);
+		}
+	}
+
+	/**
+	 * Posts a form to DeepL without blocking the calling thread. If no connection is free, the request waits
+	 * until a running request completes. Retries are scheduled, no thread sleeps in between.
+	 *
+	 * @param endpoint the endpoint, e.g. {@code /v2/translate}
+	 * @param form the form parameters
+	 * @return the response body as UTF-8 text, the future completes exceptionally with an {@link IOException} if
+	 * the request fails, times out, or DeepL answers with an error status
+	 */
+	public CompletableFuture<String> postAsync(String endpoint, Form form) {
+		byte[] body = form.encode();
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUri + endpoint))
+				.timeout(settings.readTimeout())
+				.header("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8")
+				.header("Accept-Encoding", "gzip");
+		if (settings.compressRequests() && body.length >= MIN_COMPRESSED_REQUEST_BYTES) {
+			try {
+				body = gzip(body);
+			} catch (IOException e) {
+				return CompletableFuture.failedFuture(e);
+			}
+			request.header("Content-Encoding", "gzip");
+		}
+		request.POST(HttpRequest.BodyPublishers.ofByteArray(body));
+
+		// listeners may keep state of the calling thread, the request completes on another thread
+		List<RequestListener> requestListeners = new ArrayList<>(listeners.size());
+		for (RequestListener listener : listeners) {
+			requestListeners.add(listener.onRequestStarted());
+		}
+		return send(endpoint, request.build(), body.length, requestListeners, 0);
+	}
+
+	private CompletableFuture<String> send(String endpoint, HttpRequest request, long requestBytes,
+	                                       List<RequestListener> requestListeners, int attempt) {
+		// the time waiting for a connection counts against the total timeout of the request
+		long deadline = System.nanoTime() + settings.totalTimeout().toNanos();
+		return connections.acquire(endpoint, settings.totalTimeout())
+				.thenCompose(connection -> exchange(endpoint, request, requestBytes, requestListeners, deadline))
+				.exceptionallyCompose(error -> {
+					Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+					if (cause instanceof DeepLHttpException && attempt < settings.maxRetries()
+							&& isRetryable(((DeepLHttpException) cause).statusCode())) {
+						Executor delayed = CompletableFuture.delayedExecutor(
+								retryDelay(attempt, ((DeepLHttpException) cause).retryAfter()), TimeUnit.MILLISECONDS);
+						return CompletableFuture.runAsync(() -> { }, delayed)
+								.thenCompose(retry ->
+										send(endpoint, request, requestBytes, requestListeners, attempt + 1));
+					}
+					return CompletableFuture.failedFuture(cause);
+				});
+	}
+
+	/**
+	 * Sends a request on an acquired connection and releases the connection when the response is received.
+	 *
+	 * @param deadline value of {@link System#nanoTime()} when the request times out
+	 */
+	private CompletableFuture<String> exchange(String endpoint, HttpRequest request, long requestBytes,
+	                                           List<RequestListener> requestListeners, long deadline) {
+		long start = System.nanoTime();
+		CompletableFuture<HttpResponse<byte[]>> future =
+				httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray());
+		long remaining = Math.max(0, deadline - start);
+		return future.orTimeout(remaining, TimeUnit.NANOSECONDS).handle((response, error) -> {
+			connections.release();
+			int statusCode = response == null ? 0 : response.statusCode();
+			long responseBytes = response == null ? 0 : response.body().length;
+			try {
+				if (error != null) {
+					Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+					if (cause instanceof TimeoutException) {
+						future.cancel(true);
+						throw new HttpTimeoutException("Request to '" + endpoint + "' did not complete within "
+								+ settings.totalTimeout().toMillis() + " ms.");
+					} else if (cause instanceof IOException) {
+						throw (IOException) cause;
+					}
+					throw new IOException("Request to '" + endpoint + "' failed.", cause);
+				}
+
+				String content = decode(response);
+				if (statusCode < 200 || statusCode >= 300) {
+					Duration retryAfter = response.headers().firstValue("Retry-After")
+							.filter(value -> value.matches("\\d+"))
+							.map(value -> Duration.ofSeconds(Long.parseLong(value)))
+							.orElse(null);
+					throw new DeepLHttpException(endpoint, statusCode, content, retryAfter);
+				}
+				return content;
+			} catch (IOException e) {
+				throw new CompletionException(e);
+			} finally {
+				long latency = System.nanoTime() - start;
+				for (RequestListener listener : requestListeners) {
+					listener.requestCompleted(endpoint, statusCode, requestBytes, responseBytes, latency);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Too many requests (429) and server errors (5xx) are temporary. Other errors, e.g. an exceeded
+	 * quota (456), are not retried.
+	 */
+	private static boolean isRetryable(int statusCode) {
+		return statusCode == 429 || statusCode >= 500;
+	}
+
+	/**
+	 * @return milliseconds to wait with exponential backoff, but at least as long as DeepL asked for
+	 */
+	private long retryDelay(int attempt, Duration retryAfter) {
+		long delay = settings.retryBackoff().toMillis() << Math.min(attempt, 16);
+		if (retryAfter != null) {
+			delay = Math.max(delay, retryAfter.toMillis());
+		}
+		return Math.min(delay, settings.totalTimeout().toMillis());
+	}
+
+	private String decode(HttpResponse<byte[]> response) throws IOException {
+		String contentEncoding = response.headers().firstValue("Content-Encoding").orElse("");
+		if (!"gzip".equalsIgnoreCase(contentEncoding)) {
+			return new String(response.body(), StandardCharsets.UTF_8);
+		}
+		try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private byte[] gzip(byte[] body) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+			gzip.write(body);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Limits the number of requests in flight without blocking a thread. A request which finds no free
+	 * connection waits in a queue and is started as soon as a running request releases its connection.
+	 */
+	private static final class ConnectionLimiter {
+
+		private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+		private int available;
+
+		ConnectionLimiter(int connections) {
+			this.available = connections;
+		}
+
+		/**
+		 * @return completes when a connection is acquired, or exceptionally if none got free within the timeout
+		 */
+		CompletableFuture<Void> acquire(String endpoint, Duration timeout) {
+			CompletableFuture<Void> connection = new CompletableFuture<>();
+			synchronized (this) {
+				if (available > 0) {
+					available--;
+					connection.complete(null);
+					return connection;
+				}
+				waiting.add(connection);
+			}
+			CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS).execute(() ->
+					connection.completeExceptionally(new HttpTimeoutException(
+							"No connection available for request to '" + endpoint + "'.")));
+			return connection;
+		}
+
+		void release() {
+			while (true) {
+				CompletableFuture<Void> next;
+				synchronized (this) {
+					next = waiting.poll();
+					if (next == null) {
+						available++;
+						return;
+					}
+				}
+				// a request which timed out while waiting does not take the connection
+				if (next.complete(null)) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Timeouts and pool settings of the transport.
+	 *
+	 * @param connectTimeout maximum time to establish a connection
+	 * @param readTimeout maximum time to wait for the response of DeepL
+	 * @param totalTimeout maximum time of a request including waiting for a free connection
+	 * @param maxConnections maximum number of requests in flight
+	 * @param compressRequests gzip request bodies, DeepL does not document support for it, so it is off by default
+	 * @param maxRetries how often a request is repeated if DeepL answers with 429 or 5xx
+	 * @param retryBackoff wait time before the first retry, it is doubled for every further retry
+	 */
+	public record Settings(Duration connectTimeout, Duration readTimeout, Duration totalTimeout, int maxConnections,
+	                       boolean compressRequests, int maxRetries, Duration retryBackoff) {
+
+		public static Settings defaults() {
+			return new Settings(Duration.ofSeconds(10), Duration.ofSeconds(30), Duration.ofSeconds(60), 8, false, 3,
+					Duration.ofMillis(500));
+		}
+	}
+
+	/**
+	 * Is called after every request, also if the request failed.
+	 */
+	@FunctionalInterface
+	public interface RequestListener {
+
+		/**
+		 * Is called on the thread which starts a request. The returned listener is notified when the request
+		 * completed, which may happen on another thread, e.g. to keep state of the starting thread.
+		 *
+		 * @return the listener of the request
+		 */
+		default RequestListener onRequestStarted() {
+			return this;
+		}
+
+		/**
+		 * @param endpoint the endpoint, e.g. {@code /v2/translate}
+		 * @param statusCode the http status code, 0 if no response was received
+		 * @param requestBytes size of the request body as sent
+		 * @param responseBytes size of the response body as received
+		 * @param latencyNanos duration of the request in nanoseconds
+		 */
+		void requestCompleted(String endpoint, int statusCode, long requestBytes, long responseBytes,
+		                      long latencyNanos);
+	}
+
+	/**
+	 * Form parameters which are sent url encoded. A parameter name may be added more than once.
+	 */
+	public static final class Form {
+
+		private final StringBuilder encoded = new StringBuilder();
+
+		public static Form form() {
+			return new Form();
+		}
+
+		public Form add(String name, String value) {
+			if (encoded.length() > 0) {
+				encoded.append('&');
+			}
+			encoded.append(URLEncoder.encode(name, StandardCharsets.UTF_8))
+					.append('=')
+					.append(URLEncoder.encode(value, StandardCharsets.UTF_8));
+			return this;
+		}
+
+		byte[] encode() {
+			return encoded.toString().getBytes(StandardCharsets.UTF_8);
+		}
+	}
+
+	/**
+	 * DeepL answered with a status code other than 2xx.
+	 */
+	public static class DeepLHttpException extends IOException {
+
+		private final int statusCode;
+		private final transient Duration retryAfter;
+
+		DeepLHttpException(String endpoint, int statusCode, String content, Duration retryAfter) {
+			super("Request to '" + endpoint + "' failed with status " + statusCode + ": " + content);
+			this.statusCode = statusCode;
+			this.retryAfter = retryAfter;
+		}
+
+		public int statusCode() {
+			return statusCode;
+		}
+
+		/**
+		 * @return the time DeepL asked to wait before the next request, {@code null} if not given
+		 */
+		public Duration retryAfter() {
+			return retryAfter;
+		}
+	}
+}
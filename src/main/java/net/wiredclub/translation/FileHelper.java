@@ -1,23 +1,40 @@
 package net.wiredclub.translation;
 
-import org.eclipse.jgit.api.Git;
-import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.Repository;
-import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.TreeWalk;
-import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.util.FS;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -25,13 +42,18 @@ import java.util.stream.Stream;
  * A helper class for file operations, e.g.
  * it reads a text file, writes back the output, or scans the language
  * directory for existing languages.
- * For a GIT repo, it traverses back one commit and returns the file
- * in its previous version.
+ * For a GIT repo, it resolves a previous revision and returns the file
+ * in its previous version. Repositories are kept open until the helper is closed.
  */
-public class FileHelper {
+public class FileHelper implements AutoCloseable {
 
 	// private static final Logger LOG = LoggerFactory.getLogger(FileHelper.class);
 
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final String JSON_EXTENSION = ".json";
+
+	private final Map<File, Repository> repositories = new HashMap<>();
+
 	public String readFile(String fileName) throws TranslationFileNotFoundException {
 		try {
 			return Files.readString(Paths.get(fileName), StandardCharsets.UTF_8);
@@ -40,6 +62,37 @@ public class FileHelper {
 		}
 	}
 
+	/**
+	 * @param fileName the file to be read
+	 * @param reader reads the content of the file, it is streamed from disk
+	 * @return the result of the reader
+	 * @throws TranslationFileNotFoundException if the file cannot be opened
+	 * @throws IOException if the reader fails
+	 */
+	public <T> T readFile(String fileName, ContentReader<T> reader)
+			throws TranslationFileNotFoundException, IOException {
+		TranslationEvents.FileRead event = new TranslationEvents.FileRead();
+		event.begin();
+		Path file = Paths.get(fileName);
+		InputStream in;
+		try {
+			in = Files.newInputStream(file);
+		} catch (IOException e) {
+			throw new TranslationFileNotFoundException(fileName);
+		}
+		try (in) {
+			return reader.read(in);
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.path = fileName;
+				event.revision = "";
+				event.bytes = Files.size(file);
+				event.commit();
+			}
+		}
+	}
+
 	public void writeFile(String fileName, String content) throws IOException {
 		Files.writeString(Paths.get(new File(fileName).toURI()),
 				content,
@@ -48,35 +101,246 @@ public class FileHelper {
 				StandardOpenOption.TRUNCATE_EXISTING);
 	}
 
+	/**
+	 * Writes a file atomically: the content is streamed into a temporary file in the same directory, which
+	 * then replaces the file. If the file already has the same content, it is not touched.
+	 *
+	 * @param fileName the file to be written
+	 * @param writer writes the content into the stream
+	 * @return {@code true} if the file was written, {@code false} if its content is unchanged
+	 * @throws IOException if the file cannot be written
+	 */
+	public boolean writeFileAtomically(String fileName, ContentWriter writer) throws IOException {
+		TranslationEvents.FileWrite event = new TranslationEvents.FileWrite();
+		event.begin();
+		Path file = Paths.get(fileName).toAbsolutePath();
+		Files.createDirectories(file.getParent());
+		Path temporaryFile = file.resolveSibling("." + file.getFileName() + "." + System.nanoTime() + ".tmp");
+		boolean written = false;
+		try {
+			try (FileChannel channel = FileChannel.open(temporaryFile,
+					StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			     OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE)) {
+				writer.writeTo(out);
+			}
+
+			if (Files.isRegularFile(file) && Files.mismatch(file, temporaryFile) == -1) {
+				return false;
+			}
+			try {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			written = true;
+			return true;
+		} finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.path = fileName;
+				event.bytes = Files.isRegularFile(file) ? Files.size(file) : 0;
+				event.written = written;
+				event.commit();
+			}
+			Files.deleteIfExists(temporaryFile);
+		}
+	}
+
 	public String readPreviousFileFromHistory(String repositoryPath, String fileName, int revRange)
 			throws IOException, TranslationFileNotFoundException {
-		try (Git git = Git.open(new File(repositoryPath))) {
-			Repository repository = git.getRepository();
-
-			Iterable<RevCommit> revCommits = git.log().setSkip(revRange).call();
-			for (RevCommit revCommit : revCommits) {
-				try (TreeWalk treeWalk = new TreeWalk(repository)) {
-					treeWalk.addTree(revCommit.getTree());
-					treeWalk.setRecursive(true);
-					treeWalk.setFilter(PathFilter.create(fileName));
-
-					if (!treeWalk.next()) {
-						throw new TranslationFileNotFoundException(fileName);
-					}
-					ObjectId objectId = treeWalk.getObjectId(0);
+		return readFileFromHistory(repositoryPath, "HEAD~" + revRange, fileName,
+				in -> new String(in.readAllBytes(), StandardCharsets.UTF_8));
+	}
 
-					ObjectLoader loader = repository.open(objectId);
-					ByteArrayOutputStream stream = new ByteArrayOutputStream();
-					loader.copyTo(stream);
+	/**
+	 * Reads a file in the version of a revision of the repository, its content is streamed to the reader.
+	 *
+	 * @param repositoryPath the root directory of the repository
+	 * @param revision the revision, e.g. {@code HEAD~1}, a branch, a tag or a commit id
+	 * @param fileName the file relative to the root directory of the repository
+	 * @param reader reads the content of the file
+	 * @return the result of the reader
+	 * @throws IOException if the repository cannot be read
+	 * @throws TranslationFileNotFoundException if the revision or the file does not exist
+	 */
+	public <T> T readFileFromHistory(String repositoryPath, String revision, String fileName, ContentReader<T> reader)
+			throws IOException, TranslationFileNotFoundException {
+		Map<String, T> files = readFilesFromHistory(repositoryPath, revision, Set.of(fileName), reader);
+		if (!files.containsKey(fileName)) {
+			throw new TranslationFileNotFoundException(fileName);
+		}
+		return files.get(fileName);
+	}
+
+	/**
+	 * Reads several files in the version of a revision of the repository with one walk through the tree
+	 * of the revision. The contents are streamed from the object database to the reader.
+	 *
+	 * @param repositoryPath the root directory of the repository
+	 * @param revision the revision, e.g. {@code HEAD~1}, a branch, a tag or a commit id
+	 * @param fileNames the files relative to the root directory of the repository
+	 * @param reader reads the content of a file
+	 * @return the results of the reader for all files which exist in the revision, an empty map if the
+	 * revision does not exist
+	 * @throws IOException if the repository cannot be read
+	 */
+	public <T> Map<String, T> readFilesFromHistory(String repositoryPath, String revision,
+	                                               Collection<String> fileNames, ContentReader<T> reader)
+			throws IOException {
+		Map<String, T> files = new HashMap<>();
+		if (fileNames.isEmpty()) {
+			return files;
+		}
 
-					return stream.toString(StandardCharsets.UTF_8);
+		Repository repository = repository(repositoryPath);
+		ObjectId commitId = repository.resolve(revision + "^{commit}");
+		if (commitId == null) {
+			return files;
+		}
+
+		try (ObjectReader objectReader = repository.newObjectReader();
+		     RevWalk revWalk = new RevWalk(objectReader);
+		     TreeWalk treeWalk = new TreeWalk(repository, objectReader)) {
+			treeWalk.addTree(revWalk.parseCommit(commitId).getTree());
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(PathFilterGroup.createFromStrings(fileNames));
+
+			while (treeWalk.next()) {
+				TranslationEvents.FileRead event = new TranslationEvents.FileRead();
+				event.begin();
+				ObjectLoader loader = objectReader.open(treeWalk.getObjectId(0), Constants.OBJ_BLOB);
+				try (InputStream in = loader.openStream()) {
+					files.put(treeWalk.getPathString(), reader.read(in));
+				} finally {
+					event.end();
+					if (event.shouldCommit()) {
+						event.path = treeWalk.getPathString();
+						event.revision = revision;
+						event.bytes = loader.getSize();
+						event.commit();
+					}
 				}
 			}
-		} catch (GitAPIException e) {
-			throw new RuntimeException(e);
 		}
+		return files;
+	}
+
+	/**
+	 * @param repositoryPath the root directory of the repository
+	 * @param revision the revision, e.g. {@code HEAD}, a branch, a tag or an abbreviated commit id
+	 * @return the full id of the commit of the revision, {@code null} if the revision does not exist
+	 * @throws IOException if the repository cannot be read
+	 */
+	public String resolveCommit(String repositoryPath, String revision) throws IOException {
+		try {
+			ObjectId commitId = repository(repositoryPath).resolve(revision + "^{commit}");
+			return commitId == null ? null : commitId.name();
+		} catch (RevisionSyntaxException | IncorrectObjectTypeException | MissingObjectException e) {
+			// a full commit id which is not part of the repository any more, e.g. after a rebase or a squash merge
+			return null;
+		}
+	}
+
+	/**
+	 * Looks up the git object ids of several files in a revision of the repository with one walk through
+	 * the tree of the revision. The contents of the files are not read.
+	 *
+	 * @param repositoryPath the root directory of the repository
+	 * @param revision the revision, e.g. {@code HEAD~1}, a branch, a tag or a commit id
+	 * @param fileNames the files relative to the root directory of the repository
+	 * @return the object ids of all files which exist in the revision, an empty map if the revision does not exist
+	 * @throws IOException if the repository cannot be read
+	 */
+	public Map<String, String> blobIdsFromHistory(String repositoryPath, String revision,
+	                                              Collection<String> fileNames) throws IOException {
+		Map<String, String> blobIds = new HashMap<>();
+		if (fileNames.isEmpty()) {
+			return blobIds;
+		}
+
+		Repository repository = repository(repositoryPath);
+		ObjectId commitId = repository.resolve(revision + "^{commit}");
+		if (commitId == null) {
+			return blobIds;
+		}
+
+		try (ObjectReader objectReader = repository.newObjectReader();
+		     RevWalk revWalk = new RevWalk(objectReader);
+		     TreeWalk treeWalk = new TreeWalk(repository, objectReader)) {
+			treeWalk.addTree(revWalk.parseCommit(commitId).getTree());
+			treeWalk.setRecursive(true);
+			treeWalk.setFilter(PathFilterGroup.createFromStrings(fileNames));
+
+			while (treeWalk.next()) {
+				blobIds.put(treeWalk.getPathString(), treeWalk.getObjectId(0).name());
+			}
+		}
+		return blobIds;
+	}
 
-		throw new TranslationFileNotFoundException(fileName);
+	/**
+	 * Computes the git object id of a file in the working directory, like {@code git hash-object}.
+	 *
+	 * @param fileName the file
+	 * @return the object id or {@code null} if the file does not exist
+	 * @throws IOException if the file cannot be read
+	 */
+	public String blobId(String fileName) throws IOException {
+		Path file = Paths.get(fileName);
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (InputStream in = Files.newInputStream(file)) {
+			return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, Files.size(file), in).name();
+		}
+	}
+
+	/**
+	 * The repository is opened once and kept open until this helper is closed.
+	 */
+	private synchronized Repository repository(String repositoryPath) throws IOException {
+		File directory = new File(repositoryPath).getCanonicalFile();
+		Repository repository = repositories.get(directory);
+		if (repository == null) {
+			RepositoryCache.FileKey key = RepositoryCache.FileKey.lenient(directory, FS.DETECTED);
+			repository = new FileRepositoryBuilder()
+					.setFS(FS.DETECTED)
+					.setGitDir(key.getFile())
+					.setMustExist(true)
+					.build();
+			repositories.put(directory, repository);
+		}
+		return repository;
+	}
+
+	/**
+	 * Closes all repositories which were opened to read the history.
+	 */
+	@Override
+	public synchronized void close() {
+		repositories.values().forEach(Repository::close);
+		repositories.clear();
+	}
+
+	/**
+	 * Every json file in the directory of a language is a namespace. Files in sub directories are namespaces, too.
+	 *
+	 * @param languageDirectory the directory of a language
+	 * @return the namespaces in alphabetical order, e.g. {@code main} or {@code admin/users}
+	 * @throws IOException if the directory cannot be read
+	 */
+	public Set<String> discoverNamespaces(String languageDirectory) throws IOException {
+		Path directory = Paths.get(languageDirectory);
+		if (!Files.isDirectory(directory)) {
+			return new TreeSet<>();
+		}
+		try (Stream<Path> stream = Files.walk(directory)) {
+			return stream.filter(Files::isRegularFile)
+					.map(path -> directory.relativize(path).toString().replace(File.separatorChar, '/'))
+					.filter(name -> name.endsWith(JSON_EXTENSION) && !name.startsWith("."))
+					.map(name -> name.substring(0, name.length() - JSON_EXTENSION.length()))
+					.collect(Collectors.toCollection(TreeSet::new));
+		}
 	}
 
 	public Set<String> discoverLanguageDirectories(String dir) throws IOException {
@@ -87,4 +351,22 @@ public class FileHelper {
 					.collect(Collectors.toSet());
 		}
 	}
+
+	/**
+	 * Reads the content of a file.
+	 */
+	@FunctionalInterface
+	public interface ContentReader<T> {
+
+		T read(InputStream in) throws IOException;
+	}
+
+	/**
+	 * Writes the content of a file.
+	 */
+	@FunctionalInterface
+	public interface ContentWriter {
+
+		void writeTo(OutputStream out) throws IOException;
+	}
 }
@@ -1,15 +1,22 @@
 package net.wiredclub.translation;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.util.DefaultIndenter;
-import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -17,21 +24,21 @@ import java.util.Set;
  * it serializes and deserializes strings to json and back,
  * extracts responses from DeepL and returns the desired return type,
  * or creates patch objects.
+ * The helper does not hold any mutable state and can be shared between threads.
  */
 public class JsonHelper {
 
 	// private static final Logger LOG = LoggerFactory.getLogger(JsonHelper.class);
 
 	private final ObjectMapper objectMapper;
-	private final DefaultPrettyPrinter printer;
+	private final ObjectReader reader;
+	private final ObjectWriter writer;
 
 	public JsonHelper() {
 		this.objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
-
-		printer = new DefaultPrettyPrinter();
-		DefaultPrettyPrinter.Indenter indenter = new DefaultIndenter("\t", DefaultIndenter.SYS_LF);
-		printer.indentObjectsWith(indenter);
-		printer.indentArraysWith(indenter);
+		this.reader = objectMapper.reader().without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+		this.writer = objectMapper.writer(new TranslationPrettyPrinter())
+				.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 	}
 
 	public JsonNode convertStringToJson(String json) throws TranslationJsonProcessingException {
@@ -42,17 +49,52 @@ public class JsonHelper {
 		}
 	}
 
+	/**
+	 * Parses json directly from a stream, e.g. of a file.
+	 *
+	 * @param in the stream, it is not closed
+	 * @return the json
+	 * @throws IOException if the stream cannot be read or does not contain valid json
+	 */
+	public JsonNode readJson(InputStream in) throws IOException {
+		return reader.readTree(in);
+	}
+
+	/**
+	 * Creates a parser which reads json token by token directly from a stream, without building a tree.
+	 *
+	 * @param in the stream, it is not closed
+	 * @return the parser
+	 * @throws IOException if the stream cannot be read
+	 */
+	public JsonParser createParser(InputStream in) throws IOException {
+		return reader.createParser(in);
+	}
+
 	public String convertJsonToString(JsonNode jsonNode) throws TranslationJsonProcessingException {
 		try {
-			String content = objectMapper.writer(printer).writeValueAsString(jsonNode);
-			// remove spaces between '"' and ':' or '{', jacksons output is '"key" : "value"'.
-			// we want it '"key": "value"' and '"key": {'. This is a simple approach but could be also dangerous.
-			return content.replace("\" : \"", "\": \"").replace("\" : {", "\": {");
+			return writer.writeValueAsString(jsonNode);
 		} catch (JsonProcessingException e) {
 			throw new TranslationJsonProcessingException(e.getMessage());
 		}
 	}
 
+	/**
+	 * Writes the json in the format of translation files directly into the stream, without creating the
+	 * whole document in memory. The stream is flushed but not closed.
+	 *
+	 * @param jsonNode the json to be written
+	 * @param out the stream, e.g. of a file
+	 * @throws IOException if the json cannot be written
+	 */
+	public void writeJson(JsonNode jsonNode, OutputStream out) throws IOException {
+		writer.writeValue(out, jsonNode);
+	}
+
+	public ObjectNode createNewTranslationFile() {
+		return objectMapper.createObjectNode();
+	}
+
 	public ArrayNode createNewTranslationPatch() {
 		return objectMapper.createArrayNode();
 	}
@@ -62,7 +104,8 @@ public class JsonHelper {
 
 		objectNode.put("op", "add");
 		objectNode.put("path", path);
-		objectNode.set("value", value);
+		// the value is copied, otherwise the patched target json would share nodes with the source json
+		objectNode.set("value", value.deepCopy());
 
 		return objectNode;
 	}
@@ -105,4 +148,15 @@ public class JsonHelper {
 		}
 		return translation;
 	}
+
+	public List<String> extractTranslations(JsonNode json) {
+		JsonNode translations = json.get("translations");
+		List<String> texts = new ArrayList<>();
+		if (translations != null && translations.isArray()) {
+			for (int i = 0; i < translations.size(); i++) {
+				texts.add(translations.get(i).get("text").asText());
+			}
+		}
+		return texts;
+	}
 }
@@ -0,0 +1,212 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Trie of all key paths of a json, built once from a source file and shared by all target languages. Every
+ * object and value of the json has a path id, the ids are assigned in document order, so the descendants of a
+ * path are the ids up to {@link #end(int)}. The root has the id 0.
+ * <p>
+ * The trie holds no json pointers but the parent and the field name of every path, the field names are shared
+ * with the source json. Jackson interns field names while parsing, so the target files share them as well.
+ * Values of other files are stored by path id, see {@link Values}, so diffing and patching work on ids and build
+ * json pointers only for logging, see {@link #pointer(int)}.
+ */
+final class KeyPathIndex {
+
+	private static final int NO_PARENT = -1;
+
+	private final int size;
+	private final int[] parents;
+	private final int[] ends;
+	private final String[] fieldNames;
+	private final JsonNode[] nodes;
+
+	/**
+	 * Open addressing table from parent id and field name to path id + 1, 0 marks a free slot.
+	 */
+	private final int[] children;
+
+	private KeyPathIndex(JsonNode json) {
+		this.size = count(json);
+		this.parents = new int[size];
+		this.ends = new int[size];
+		this.fieldNames = new String[size];
+		this.nodes = new JsonNode[size];
+		index(NO_PARENT, null, json, 0);
+
+		this.children = new int[Integer.highestOneBit(Math.max(size, 1) * 2 - 1) * 2];
+		for (int id = 1; id < size; id++) {
+			int slot = slot(parents[id], fieldNames[id]);
+			while (children[slot] != 0) {
+				slot = (slot + 1) & (children.length - 1);
+			}
+			children[slot] = id + 1;
+		}
+	}
+
+	/**
+	 * @param json the json to be indexed, e.g. a source file
+	 * @return the key paths of all objects and values of the json
+	 */
+	static KeyPathIndex of(JsonNode json) {
+		return new KeyPathIndex(json);
+	}
+
+	private static int count(JsonNode node) {
+		int count = 1;
+		if (node.isObject()) {
+			for (JsonNode child : node) {
+				count += count(child);
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * @return the next free path id
+	 */
+	private int index(int parent, String fieldName, JsonNode node, int id) {
+		parents[id] = parent;
+		fieldNames[id] = fieldName;
+		nodes[id] = node;
+		int next = id + 1;
+		if (node.isObject()) {
+			Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				next = index(id, field.getKey(), field.getValue(), next);
+			}
+		}
+		ends[id] = next - 1;
+		return next;
+	}
+
+	private int slot(int parent, String fieldName) {
+		int hash = parent * 0x9e3779b9 + fieldName.hashCode();
+		return (hash ^ (hash >>> 16)) & (children.length - 1);
+	}
+
+	/**
+	 * @return number of objects and values of the json
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * @param parent path id of an object
+	 * @param fieldName name of a field of the object
+	 * @return path id of the field or -1 if the object has no such field
+	 */
+	int child(int parent, String fieldName) {
+		int slot = slot(parent, fieldName);
+		while (children[slot] != 0) {
+			int id = children[slot] - 1;
+			if (parents[id] == parent && fieldNames[id].equals(fieldName)) {
+				return id;
+			}
+			slot = (slot + 1) & (children.length - 1);
+		}
+		return -1;
+	}
+
+	/**
+	 * @return path id of the parent object, -1 for the root
+	 */
+	int parent(int id) {
+		return parents[id];
+	}
+
+	/**
+	 * @return the unescaped field name of the path, {@code null} for the root
+	 */
+	String fieldName(int id) {
+		return fieldNames[id];
+	}
+
+	/**
+	 * @return the last path id of the descendants of the path, the path id itself if it has no descendants
+	 */
+	int end(int id) {
+		return ends[id];
+	}
+
+	/**
+	 * @return the object or value of the indexed json
+	 */
+	JsonNode node(int id) {
+		return nodes[id];
+	}
+
+	boolean isObject(int id) {
+		return nodes[id].isObject();
+	}
+
+	/**
+	 * @return the json pointer of the path, field names are escaped, see {@link TranslationDiff#escape(String)}
+	 */
+	String pointer(int id) {
+		return id == 0 ? "" : pointer(parents[id]) + "/" + TranslationDiff.escape(fieldNames[id]);
+	}
+
+	/**
+	 * @param parent path id of an object
+	 * @param fieldName name of a field which is not part of the index
+	 * @return the json pointer of the field
+	 */
+	String pointer(int parent, String fieldName) {
+		return pointer(parent) + "/" + TranslationDiff.escape(fieldName);
+	}
+
+	/**
+	 * @param json another json, e.g. a target file
+	 * @return the objects and values of the json at the paths of the index, other keys of the json are ignored
+	 */
+	Values values(JsonNode json) {
+		Values values = new Values(size);
+		values(values, 0, json);
+		return values;
+	}
+
+	private void values(Values values, int id, JsonNode node) {
+		values.set(id, node);
+		if (node.isObject() && isObject(id)) {
+			Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+			while (fields.hasNext()) {
+				Map.Entry<String, JsonNode> field = fields.next();
+				int child = child(id, field.getKey());
+				if (child >= 0) {
+					values(values, child, field.getValue());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Objects and values of another json at the paths of the index, e.g. of a target file. Paths which the
+	 * other json does not have, or which are below a value of the other json, have no node.
+	 */
+	static final class Values {
+
+		private final JsonNode[] nodes;
+
+		Values(int size) {
+			this.nodes = new JsonNode[size];
+		}
+
+		/**
+		 * @return the object or value at the path, {@code null} if the json has none
+		 */
+		JsonNode node(int id) {
+			return nodes[id];
+		}
+
+		void set(int id, JsonNode node) {
+			nodes[id] = node;
+		}
+	}
+}
@@ -0,0 +1,227 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Caches the source and target languages supported by DeepL on disk, so that command line
+ * arguments can be validated without a request to DeepL. If the cache is outdated both lists are
+ * requested in parallel. If DeepL cannot be reached, an outdated cache or the snapshot which is
+ * shipped with the tool is used.
+ * <p>
+ * The languages are cached per {@link TranslationProvider#baseUri() base URI}, as the free and the pro API of DeepL
+ * or a test server may support different languages.
+ */
+public class LanguageCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LanguageCache.class);
+
+	public static final String DEFAULT_FILE_NAME = "deepl-languages.json";
+	public static final Duration DEFAULT_TTL = Duration.ofHours(24);
+
+	private static final String SNAPSHOT_RESOURCE = "/deepl-languages.json";
+
+	private final TranslationProvider provider;
+	private final JsonHelper jsonHelper;
+	private final Path cacheFile;
+	private final Duration ttl;
+	private final Clock clock;
+
+	/**
+	 * @param provider requests the languages from DeepL
+	 * @param jsonHelper reads and writes the cache file
+	 * @param cacheFile the cache file, {@code null} if the languages should not be cached
+	 * @param ttl time after which the cached languages are requested again
+	 */
+	public LanguageCache(TranslationProvider provider, JsonHelper jsonHelper, Path cacheFile, Duration ttl) {
+		this(provider, jsonHelper, cacheFile, ttl, Clock.systemUTC());
+	}
+
+	LanguageCache(TranslationProvider provider, JsonHelper jsonHelper, Path cacheFile, Duration ttl, Clock clock) {
+		this.provider = provider;
+		this.jsonHelper = jsonHelper;
+		this.cacheFile = cacheFile;
+		this.ttl = ttl;
+		this.clock = clock;
+	}
+
+	/**
+	 * @return the supported source and target languages in lower case
+	 * @throws IOException if the languages are neither cached nor can be requested from DeepL
+	 * @throws TranslationJsonProcessingException if the response of DeepL is not valid json
+	 */
+	public Languages languages() throws IOException, TranslationJsonProcessingException {
+		Languages cached = readCache();
+		if (cached != null && clock.millis() - cached.fetched() < ttl.toMillis()) {
+			return cached;
+		}
+
+		try {
+			Languages languages = fetch();
+			writeCache(languages);
+			return languages;
+		} catch (IOException | TranslationJsonProcessingException e) {
+			if (cached != null) {
+				LOG.warn("DeepL languages could not be requested, outdated languages from '{}' are used. Cause: {}",
+						cacheFile, e.getMessage());
+				return cached;
+			}
+			Languages snapshot = readSnapshot();
+			if (snapshot == null) {
+				throw e;
+			}
+			LOG.warn("DeepL languages could not be requested, the languages shipped with the tool are used. "
+					+ "Cause: {}", e.getMessage());
+			return snapshot;
+		}
+	}
+
+	/**
+	 * Returns the languages without any request to DeepL, e.g. for a plan which is computed offline.
+	 *
+	 * @return the cached languages even if they are outdated, otherwise the languages shipped with the tool,
+	 * {@code null} if there are none
+	 */
+	public Languages cachedLanguages() {
+		Languages cached = readCache();
+		return cached != null ? cached : readSnapshot();
+	}
+
+	/**
+	 * Requests source and target languages in parallel.
+	 */
+	private Languages fetch() throws IOException, TranslationJsonProcessingException {
+		CompletableFuture<List<String>> sourceLanguages = CompletableFuture.supplyAsync(() -> {
+			try {
+				return provider.sourceLanguages();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (TranslationJsonProcessingException e) {
+				throw new CompletionException(e);
+			}
+		});
+
+		List<String> targetLanguages = provider.targetLanguages();
+		try {
+			return new Languages(clock.millis(), sourceLanguages.join(), targetLanguages);
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) cause).getCause();
+			} else if (cause instanceof TranslationJsonProcessingException) {
+				throw (TranslationJsonProcessingException) cause;
+			}
+			throw e;
+		}
+	}
+
+	private Languages readCache() {
+		if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+			return null;
+		}
+		try {
+			JsonNode languages = readCacheFile().get(provider.baseUri());
+			return languages == null ? null : toLanguages(languages);
+		} catch (IOException | TranslationJsonProcessingException | RuntimeException e) {
+			LOG.debug("Language cache '{}' cannot be read and is ignored. Cause: {}", cacheFile, e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * @return the cached languages of all base URIs
+	 */
+	private ObjectNode readCacheFile() throws IOException, TranslationJsonProcessingException {
+		if (!Files.isRegularFile(cacheFile)) {
+			return JsonNodeFactory.instance.objectNode();
+		}
+		JsonNode json = jsonHelper.convertStringToJson(Files.readString(cacheFile, StandardCharsets.UTF_8));
+		ObjectNode cache = JsonNodeFactory.instance.objectNode();
+		// entries of other base URIs are kept, everything else (e.g. the format without base URI) is dropped
+		json.fields().forEachRemaining(entry -> {
+			if (entry.getValue().isObject() && entry.getValue().has("fetched")) {
+				cache.set(entry.getKey(), entry.getValue());
+			}
+		});
+		return cache;
+	}
+
+	private Languages readSnapshot() {
+		try (InputStream in = LanguageCache.class.getResourceAsStream(SNAPSHOT_RESOURCE)) {
+			if (in == null) {
+				return null;
+			}
+			return toLanguages(jsonHelper.convertStringToJson(new String(in.readAllBytes(), StandardCharsets.UTF_8)));
+		} catch (IOException | TranslationJsonProcessingException e) {
+			return null;
+		}
+	}
+
+	private void writeCache(Languages languages) {
+		if (cacheFile == null) {
+			return;
+		}
+		ObjectNode cache;
+		try {
+			cache = readCacheFile();
+		} catch (IOException | TranslationJsonProcessingException | RuntimeException e) {
+			cache = JsonNodeFactory.instance.objectNode();
+		}
+		ObjectNode json = cache.putObject(provider.baseUri());
+		json.put("fetched", languages.fetched());
+		ArrayNode source = json.putArray("source");
+		languages.source().forEach(source::add);
+		ArrayNode target = json.putArray("target");
+		languages.target().forEach(target::add);
+
+		try {
+			Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+			Path temporaryFile = Files.createTempFile(cacheFile.toAbsolutePath().getParent(), "languages", ".tmp");
+			Files.writeString(temporaryFile, jsonHelper.convertJsonToString(cache), StandardCharsets.UTF_8);
+			Files.move(temporaryFile, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | TranslationJsonProcessingException e) {
+			// the cache is only an optimization
+			LOG.debug("Language cache '{}' cannot be written. Cause: {}", cacheFile, e.getMessage());
+		}
+	}
+
+	private Languages toLanguages(JsonNode json) {
+		return new Languages(json.get("fetched").asLong(), toList(json.get("source")), toList(json.get("target")));
+	}
+
+	private List<String> toList(JsonNode array) {
+		List<String> values = new ArrayList<>(array.size());
+		for (JsonNode value : array) {
+			values.add(value.asText());
+		}
+		return values;
+	}
+
+	/**
+	 * Languages supported by DeepL.
+	 *
+	 * @param fetched time in milliseconds since epoch the languages were requested from DeepL
+	 * @param source the source languages in lower case
+	 * @param target the target languages in lower case
+	 */
+	public record Languages(long fetched, List<String> source, List<String> target) {
+	}
+}
@@ -0,0 +1,575 @@
+package net.wiredclub.translation;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Protects placeholders of a text from being translated by DeepL and restores them afterwards. Placeholders are
+ * wrapped into an xml tag which DeepL is told to ignore, e.g. {@code Hello {name}} is sent as
+ * {@code Hello <donut>{name}</donut>}. The characters {@code <}, {@code >} and {@code &} of a placeholder are
+ * escaped, so that the payload stays valid xml.
+ * <p>
+ * The text is read once from left to right without regular expressions, and texts without placeholders are
+ * returned as they are. Consecutive protected parts share one tag, e.g. the structure of an ICU plural
+ * {@code {count, plural, one {# item} other {# items}}} is protected, but its messages are translated.
+ * <p>
+ * The tokenizer is immutable and can be shared between threads.
+ */
+public final class PlaceholderTokenizer {
+
+	/**
+	 * Placeholder syntaxes which can be protected.
+	 */
+	public enum Syntax {
+		/** i18next and handlebars, e.g. {@code {{name}}} or {@code {{- html}}} */
+		DOUBLE_BRACES,
+		/** MessageFormat and ICU arguments, e.g. {@code {0}}, {@code {name}} or {@code {price, number}} */
+		BRACES,
+		/** ICU plural and select, e.g. {@code {count, plural, one {# item} other {# items}}} */
+		ICU,
+		/** printf, e.g. {@code %s}, {@code %1$d}, {@code %.2f} or {@code %%} */
+		PRINTF,
+		/** numbered tags of react-i18next, e.g. {@code <0>}, {@code </0>} or {@code <1/>} */
+		TAGS;
+
+		/**
+		 * @return the name of the syntax on the command line, e.g. {@code double-braces}
+		 */
+		public String optionName() {
+			return name().toLowerCase(Locale.ROOT).replace('_', '-');
+		}
+
+		/**
+		 * @param optionName the name of the syntax on the command line, e.g. {@code double-braces}
+		 * @return the syntax
+		 * @throws IllegalArgumentException if there is no syntax with this name
+		 */
+		public static Syntax ofOptionName(String optionName) {
+			return valueOf(optionName.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+		}
+	}
+
+	static final String TAG = "donut";
+
+	private static final String START_TAG = "<" + TAG + ">";
+	private static final String END_TAG = "</" + TAG + ">";
+
+	private static final String PRINTF_FLAGS = "-#+0,(";
+	private static final String PRINTF_CONVERSIONS = "bBhHsScCdoxXeEfgGaAn%@";
+
+	private final Set<Syntax> syntaxes;
+	private final boolean doubleBraces;
+	private final boolean braces;
+	private final boolean icu;
+	private final boolean printf;
+	private final boolean tags;
+
+	/**
+	 * @param syntaxes the placeholder syntaxes which are protected
+	 */
+	public PlaceholderTokenizer(Set<Syntax> syntaxes) {
+		this.syntaxes = syntaxes.isEmpty()
+				? Collections.emptySet()
+				: Collections.unmodifiableSet(EnumSet.copyOf(syntaxes));
+		this.doubleBraces = syntaxes.contains(Syntax.DOUBLE_BRACES);
+		this.braces = syntaxes.contains(Syntax.BRACES);
+		this.icu = syntaxes.contains(Syntax.ICU);
+		this.printf = syntaxes.contains(Syntax.PRINTF);
+		this.tags = syntaxes.contains(Syntax.TAGS);
+	}
+
+	/**
+	 * @return a tokenizer which protects all known placeholder syntaxes
+	 */
+	public static PlaceholderTokenizer defaults() {
+		return new PlaceholderTokenizer(EnumSet.allOf(Syntax.class));
+	}
+
+	public Set<Syntax> syntaxes() {
+		return syntaxes;
+	}
+
+	/**
+	 * @return the protected syntaxes, e.g. {@code double-braces,printf}, translations which were made with other
+	 * syntaxes must not be reused
+	 */
+	public String signature() {
+		return syntaxes.stream().map(Syntax::optionName).collect(Collectors.joining(","));
+	}
+
+	/**
+	 * @param text the text in source language
+	 * @return the text with all placeholders wrapped into ignored xml tags
+	 */
+	public String protect(String text) {
+		int first = nextCandidate(text, 0);
+		if (first < 0) {
+			return text;
+		}
+		Output out = new Output(text);
+		scan(text, first, null, out);
+		if (out.builder == null) {
+			return text;
+		}
+		out.plain(out.plainStart, text.length());
+		out.close();
+		return out.builder.toString();
+	}
+
+	/**
+	 * @param translation the translation of a protected text
+	 * @return the translation with all ignored xml tags removed and their placeholders unescaped
+	 */
+	public String restore(String translation) {
+		int start = translation.indexOf(START_TAG);
+		if (start < 0) {
+			return translation;
+		}
+		StringBuilder out = new StringBuilder(translation.length());
+		int from = 0;
+		while (start >= 0) {
+			int contentStart = start + START_TAG.length();
+			int end = translation.indexOf(END_TAG, contentStart);
+			if (end < 0) {
+				break;
+			}
+			out.append(translation, from, start);
+			unescape(translation, contentStart, end, out);
+			from = end + END_TAG.length();
+			start = translation.indexOf(START_TAG, from);
+		}
+		return out.append(translation, from, translation.length()).toString();
+	}
+
+	/**
+	 * Checks that every protected placeholder of a text is part of its translation, DeepL may move placeholders,
+	 * but should neither drop nor change them.
+	 *
+	 * @param protectedText the protected text in source language
+	 * @param protectedTranslation the protected translation as returned by DeepL
+	 * @return the first placeholder of the text which is missing in the translation, {@code null} if all
+	 * placeholders survived
+	 */
+	public String lostPlaceholder(String protectedText, String protectedTranslation) {
+		int start = protectedText.indexOf(START_TAG);
+		while (start >= 0) {
+			int contentStart = start + START_TAG.length();
+			int end = protectedText.indexOf(END_TAG, contentStart);
+			if (end < 0) {
+				return null;
+			}
+			int expected = count(protectedText, protectedText, contentStart, end);
+			if (count(protectedTranslation, protectedText, contentStart, end) < expected) {
+				StringBuilder placeholder = new StringBuilder(end - contentStart);
+				unescape(protectedText, contentStart, end, placeholder);
+				return placeholder.toString();
+			}
+			start = protectedText.indexOf(START_TAG, end + END_TAG.length());
+		}
+		return null;
+	}
+
+	/**
+	 * @return the number of ignored xml tags of the text with the given content
+	 */
+	private static int count(String text, String content, int contentStart, int contentEnd) {
+		int length = contentEnd - contentStart;
+		int count = 0;
+		int start = text.indexOf(START_TAG);
+		while (start >= 0) {
+			int from = start + START_TAG.length();
+			if (text.startsWith(END_TAG, from + length) && text.regionMatches(from, content, contentStart, length)) {
+				count++;
+			}
+			start = text.indexOf(START_TAG, from);
+		}
+		return count;
+	}
+
+	/**
+	 * Scans a part of the text and writes it with protected placeholders. A nested scan within an ICU message
+	 * stops at the closing brace of the message.
+	 *
+	 * @param start the first character which may start a placeholder, within an ICU message its first character
+	 * @param message {@code null} outside of ICU messages, {@code "plural"} or {@code "select"} within them
+	 * @return the closing brace of the message if nested, otherwise the length of the text, -1 if the message has
+	 * no closing brace
+	 */
+	private int scan(String text, int start, String message, Output out) {
+		boolean nested = message != null;
+		int length = text.length();
+		int i = start;
+		while (i < length) {
+			char c = text.charAt(i);
+			if (nested && c == '}') {
+				return i;
+			}
+			int end = -1;
+			if (c == '{') {
+				if (doubleBraces && i + 1 < length && text.charAt(i + 1) == '{') {
+					end = doubleBraces(text, i);
+				}
+				if (end < 0 && braces) {
+					end = braces(text, i);
+				}
+				if (end < 0 && icu) {
+					// the structure is written by the ICU tokenizer itself
+					int icuEnd = icu(text, i, out);
+					if (icuEnd >= 0) {
+						out.plainStart = icuEnd;
+						i = next(text, icuEnd, nested);
+						continue;
+					}
+				}
+			} else if (c == '%' && printf) {
+				end = printf(text, i);
+			} else if (c == '<' && tags) {
+				end = tag(text, i);
+			} else if (c == '#' && "plural".equals(message)) {
+				end = i + 1;
+			}
+			if (end >= 0) {
+				out.plain(out.plainStart, i);
+				out.protect(i, end);
+				out.plainStart = end;
+				i = next(text, end, nested);
+			} else {
+				i = next(text, i + 1, nested);
+			}
+		}
+		return nested ? -1 : length;
+	}
+
+	/**
+	 * @return the next character which may start a placeholder, within an ICU message every character
+	 */
+	private int next(String text, int from, boolean nested) {
+		if (nested) {
+			return from;
+		}
+		int candidate = nextCandidate(text, from);
+		return candidate < 0 ? text.length() : candidate;
+	}
+
+	private int nextCandidate(String text, int from) {
+		for (int i = from; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if ((c == '{' && (doubleBraces || braces || icu)) || (c == '%' && printf) || (c == '<' && tags)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the end of {@code {{...}}} starting at the given index, -1 if it is not closed
+	 */
+	private static int doubleBraces(String text, int start) {
+		int end = text.indexOf("}}", start + 2);
+		if (end < 0) {
+			return -1;
+		}
+		end += 2;
+		// triple braces of handlebars, e.g. {{{html}}}
+		if (text.charAt(start + 2) == '{' && end < text.length() && text.charAt(end) == '}') {
+			end++;
+		}
+		return end;
+	}
+
+	/**
+	 * @return the end of {@code {name}} or {@code {name, type, style}} starting at the given index, -1 if it is
+	 * no argument
+	 */
+	private static int braces(String text, int start) {
+		int nameStart = skipWhitespace(text, start + 1);
+		int nameEnd = identifier(text, nameStart);
+		int i = skipWhitespace(text, nameEnd);
+		if (nameEnd == nameStart || i >= text.length()) {
+			return -1;
+		}
+		if (text.charAt(i) == '}') {
+			return i + 1;
+		}
+		if (text.charAt(i) != ',') {
+			return -1;
+		}
+		for (int j = i + 1; j < text.length(); j++) {
+			char c = text.charAt(j);
+			if (c == '}') {
+				return j + 1;
+			}
+			// a nested brace is part of an ICU plural or select
+			if (c == '{') {
+				return -1;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Writes an ICU plural or select starting at the given index, its structure is protected and its messages
+	 * are scanned for further placeholders.
+	 *
+	 * @return the end of the plural or select, -1 if it is none, then nothing is written
+	 */
+	private int icu(String text, int start, Output out) {
+		int i = skipWhitespace(text, start + 1);
+		int nameEnd = identifier(text, i);
+		if (nameEnd == i) {
+			return -1;
+		}
+		i = skipWhitespace(text, nameEnd);
+		if (i >= text.length() || text.charAt(i) != ',') {
+			return -1;
+		}
+		i = skipWhitespace(text, i + 1);
+		int typeEnd = identifier(text, i);
+		String message;
+		if (isKeyword(text, i, typeEnd, "plural") || isKeyword(text, i, typeEnd, "selectordinal")) {
+			message = "plural";
+		} else if (isKeyword(text, i, typeEnd, "select")) {
+			message = "select";
+		} else {
+			return -1;
+		}
+		i = skipWhitespace(text, typeEnd);
+		if (i >= text.length() || text.charAt(i) != ',') {
+			return -1;
+		}
+
+		int mark = out.mark();
+		int plainStart = out.plainStart;
+		out.plain(plainStart, start);
+		int protectedStart = start;
+		i++;
+		int messages = 0;
+		while (true) {
+			i = skipWhitespace(text, i);
+			if (i >= text.length()) {
+				out.reset(mark, plainStart);
+				return -1;
+			}
+			char c = text.charAt(i);
+			if (c == '}' && messages > 0) {
+				out.protect(protectedStart, i + 1);
+				return i + 1;
+			}
+			if (message.equals("plural") && text.startsWith("offset:", i)) {
+				i = digits(text, skipWhitespace(text, i + "offset:".length()));
+				continue;
+			}
+			int selectorEnd = c == '=' ? digits(text, i + 1) : identifier(text, i);
+			if (selectorEnd == i || (c == '=' && selectorEnd == i + 1)) {
+				out.reset(mark, plainStart);
+				return -1;
+			}
+			i = skipWhitespace(text, selectorEnd);
+			if (i >= text.length() || text.charAt(i) != '{') {
+				out.reset(mark, plainStart);
+				return -1;
+			}
+			out.protect(protectedStart, i + 1);
+			out.plainStart = i + 1;
+			int messageEnd = scan(text, i + 1, message, out);
+			if (messageEnd < 0) {
+				out.reset(mark, plainStart);
+				return -1;
+			}
+			out.plain(out.plainStart, messageEnd);
+			protectedStart = messageEnd;
+			i = messageEnd + 1;
+			messages++;
+		}
+	}
+
+	/**
+	 * @return the end of {@code %s}, {@code %1$-10.2f} or {@code %%} starting at the given index, -1 if it is no
+	 * format specifier, e.g. in {@code 100% sure}
+	 */
+	private static int printf(String text, int start) {
+		int i = start + 1;
+		int argumentEnd = digits(text, i);
+		if (argumentEnd > i && argumentEnd < text.length() && text.charAt(argumentEnd) == '$') {
+			i = argumentEnd + 1;
+		}
+		while (i < text.length() && PRINTF_FLAGS.indexOf(text.charAt(i)) >= 0) {
+			i++;
+		}
+		i = digits(text, i);
+		if (i < text.length() && text.charAt(i) == '.') {
+			int precisionEnd = digits(text, i + 1);
+			if (precisionEnd == i + 1) {
+				return -1;
+			}
+			i = precisionEnd;
+		}
+		if (i < text.length() && PRINTF_CONVERSIONS.indexOf(text.charAt(i)) >= 0) {
+			return i + 1;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return the end of {@code <0>}, {@code </0>} or {@code <0/>} starting at the given index, -1 if it is no
+	 * numbered tag
+	 */
+	private static int tag(String text, int start) {
+		int i = start + 1;
+		if (i < text.length() && text.charAt(i) == '/') {
+			i++;
+		}
+		int numberEnd = digits(text, i);
+		if (numberEnd == i || numberEnd >= text.length()) {
+			return -1;
+		}
+		if (text.charAt(numberEnd) == '>') {
+			return numberEnd + 1;
+		}
+		if (text.charAt(i - 1) != '/' && text.startsWith("/>", numberEnd)) {
+			return numberEnd + 2;
+		}
+		return -1;
+	}
+
+	private static boolean isKeyword(String text, int from, int to, String keyword) {
+		return to - from == keyword.length() && text.startsWith(keyword, from);
+	}
+
+	private static int skipWhitespace(String text, int from) {
+		int i = from;
+		while (i < text.length() && Character.isWhitespace(text.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static int identifier(String text, int from) {
+		int i = from;
+		while (i < text.length() && isIdentifier(text.charAt(i))) {
+			i++;
+		}
+		return i;
+	}
+
+	private static boolean isIdentifier(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == '.'
+				|| c == '-';
+	}
+
+	private static int digits(String text, int from) {
+		int i = from;
+		while (i < text.length() && text.charAt(i) >= '0' && text.charAt(i) <= '9') {
+			i++;
+		}
+		return i;
+	}
+
+	private static void escape(String text, int from, int to, StringBuilder out) {
+		for (int i = from; i < to; i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '<' -> out.append("&lt;");
+				case '>' -> out.append("&gt;");
+				case '&' -> out.append("&amp;");
+				default -> out.append(c);
+			}
+		}
+	}
+
+	private static void unescape(String text, int from, int to, StringBuilder out) {
+		int i = from;
+		while (i < to) {
+			char c = text.charAt(i);
+			if (c == '&') {
+				if (text.startsWith("&lt;", i)) {
+					out.append('<');
+					i += 4;
+					continue;
+				}
+				if (text.startsWith("&gt;", i)) {
+					out.append('>');
+					i += 4;
+					continue;
+				}
+				if (text.startsWith("&amp;", i)) {
+					out.append('&');
+					i += 5;
+					continue;
+				}
+			}
+			out.append(c);
+			i++;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "PlaceholderTokenizer" + Arrays.toString(syntaxes.toArray());
+	}
+
+	/**
+	 * The protected text, it is only created when the first placeholder is found.
+	 */
+	private static final class Output {
+
+		private final String text;
+		private StringBuilder builder;
+		private boolean open;
+		private int plainStart;
+
+		private Output(String text) {
+			this.text = text;
+		}
+
+		private void plain(int from, int to) {
+			if (from >= to) {
+				return;
+			}
+			close();
+			builder().append(text, from, to);
+		}
+
+		private void protect(int from, int to) {
+			StringBuilder out = builder();
+			if (!open) {
+				out.append(START_TAG);
+				open = true;
+			}
+			escape(text, from, to, out);
+		}
+
+		private void close() {
+			if (open) {
+				builder.append(END_TAG);
+				open = false;
+			}
+		}
+
+		private StringBuilder builder() {
+			if (builder == null) {
+				builder = new StringBuilder(text.length() + 32);
+			}
+			return builder;
+		}
+
+		/**
+		 * @return the state to return to if an ICU plural or select turns out to be invalid
+		 */
+		private int mark() {
+			return (builder == null ? 0 : builder.length()) << 1 | (open ? 1 : 0);
+		}
+
+		private void reset(int mark, int plainStart) {
+			if (builder != null) {
+				builder.setLength(mark >>> 1);
+			}
+			open = (mark & 1) == 1;
+			this.plainStart = plainStart;
+		}
+	}
+}
@@ -0,0 +1,317 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import static net.wiredclub.translation.RunReport.Phase;
+import static net.wiredclub.translation.RunReport.Stage;
+import static net.wiredclub.translation.TranslationProvider.Usage;
+import static net.wiredclub.translation.TranslationRun.LanguageResult;
+import static net.wiredclub.translation.TranslationRun.LanguageWork;
+import static net.wiredclub.translation.TranslationRun.SourceWork;
+import static net.wiredclub.translation.TranslationRun.TranslationUnit;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_FILE_NOT_FOUND;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_INVALID_ARGUMENT;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_JSON_INVALID;
+
+/**
+ * The translation of a project split into two runs: {@code --plan} computes the changes without any request to DeepL
+ * and writes them into a {@link TranslationPlanFile}, {@code --apply} translates the texts of the plan and patches
+ * the target files later, e.g. on another machine. The changes are found and the files are patched by the
+ * {@link TranslationRun} of the project.
+ */
+final class PlanRun {
+
+	private static final Logger LOG = LoggerFactory.getLogger(PlanRun.class);
+
+	private final JsonHelper jsonHelper;
+	private final TranslationProvider provider;
+	private final FileHelper fileHelper;
+	private final TranslationConfig cfg;
+	private final RunReport report;
+	private final TranslationRun translationRun;
+
+	/**
+	 * @param jsonHelper reads and writes the plan and the translation files
+	 * @param provider translates the texts and counts their characters
+	 * @param fileHelper reads the repository and writes the plan and the translation files
+	 * @param cfg the configuration of the project
+	 * @param report the report the project is measured in
+	 */
+	PlanRun(JsonHelper jsonHelper, TranslationProvider provider, FileHelper fileHelper, TranslationConfig cfg,
+	        RunReport report) {
+		this.jsonHelper = jsonHelper;
+		this.provider = provider;
+		this.fileHelper = fileHelper;
+		this.cfg = cfg;
+		this.report = report;
+		this.translationRun = new TranslationRun(jsonHelper, provider, fileHelper, cfg, report);
+	}
+
+	/**
+	 * Writes the translation plan of the changed namespaces, see {@link TranslationPlanFile}. Nothing is sent to DeepL,
+	 * the characters are computed from the texts and the translation memory. The plan is only written if all
+	 * namespaces could be prepared, otherwise applying it would skip the failed ones.
+	 *
+	 * @throws TranslationException thrown if at least one namespace could not be prepared
+	 * @throws IOException thrown if the repository cannot be read or the plan cannot be written
+	 */
+	void writePlan() throws TranslationException, IOException {
+		List<TranslationUnit> units = translationRun.changedUnits(translationRun.discover());
+		Map<String, TranslationPlanFile.LanguagePlan> languages = new TreeMap<>();
+		Map<String, SourceWork> sources = new HashMap<>();
+		ExecutorService executor = translationRun.createExecutor(units.size());
+		try {
+			List<LanguageWork> works = translationRun.prepareUnits(executor, units, sources);
+			if (works.stream().anyMatch(work -> work.error() != null)) {
+				translationRun.reportResults(works.stream()
+						.map(work -> work.error() == null
+								? new LanguageResult(work.unit(), 0, 0, 0, 0, 0, null, false, null)
+								: LanguageResult.failed(work.unit(), work.error()))
+						.collect(Collectors.toList()));
+			}
+
+			long start = System.nanoTime();
+			// unchanged target languages have an empty plan, so that applying it remembers them as translated
+			Map<String, List<LanguageWork>> worksPerLanguage = new TreeMap<>();
+			cfg.targetLanguages().forEach(language -> worksPerLanguage.put(language, new ArrayList<>()));
+			for (LanguageWork work : works) {
+				worksPerLanguage.computeIfAbsent(work.unit().targetLanguage(), key -> new ArrayList<>()).add(work);
+			}
+			for (Map.Entry<String, List<LanguageWork>> language : worksPerLanguage.entrySet()) {
+				languages.put(language.getKey(), planLanguage(language.getKey(), language.getValue()));
+			}
+			report.stage(Stage.PLAN, start);
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+
+		TranslationPlanFile plan = new TranslationPlanFile(cfg.sourceLanguage(), translationRun.baseCommit(),
+				fileHelper.resolveCommit(cfg.repositoryDirectory(), "HEAD"), languages,
+				new TreeMap<>(TranslationRun.manifestSources(sources.values())));
+		fileHelper.writeFileAtomically(cfg.planFile(), out -> jsonHelper.writeJson(plan.toJson(), out));
+		LOG.info("Plan with {} distinct text(s) and {} character(s) for {} target language(s) written to '{}'.",
+				plan.texts(), plan.characters(), languages.size(), cfg.planFile());
+	}
+
+	/**
+	 * Collects the texts of all namespaces of a target language, so that every distinct text is translated once
+	 * when the plan is applied. Texts which are already translated in the target file are part of the changes.
+	 *
+	 * @param targetLanguage the target language
+	 * @param works the prepared namespaces of the target language
+	 * @return the plan of the target language
+	 * @throws IOException thrown if a target file or the translation memory cannot be read
+	 */
+	private TranslationPlanFile.LanguagePlan planLanguage(String targetLanguage, List<LanguageWork> works)
+			throws IOException {
+		Map<String, Integer> texts = new LinkedHashMap<>();
+		Map<String, TranslationPlanFile.FilePlan> files = new LinkedHashMap<>();
+		for (LanguageWork work : works) {
+			Map<String, List<ChangeSet.Text>> pending = work.batch().reuseExistingTranslations();
+			for (Map.Entry<String, List<ChangeSet.Text>> text : pending.entrySet()) {
+				int index = texts.computeIfAbsent(text.getKey(), key -> texts.size());
+				text.getValue().forEach(target -> target.refer(index));
+			}
+			String targetFileName = cfg.targetFileName(targetLanguage, work.unit().namespace());
+			String blobId = fileHelper.blobId(cfg.repositoryDirectory() + "/" + targetFileName);
+			files.put(work.unit().namespace(), new TranslationPlanFile.FilePlan(blobId, work.changes()));
+		}
+		List<String> distinctTexts = new ArrayList<>(texts.keySet());
+		long characters = provider.billableCharacters(distinctTexts, cfg.sourceLanguage(), targetLanguage);
+		return new TranslationPlanFile.LanguagePlan(distinctTexts, characters, files);
+	}
+
+	/**
+	 * Executes a plan which was written with {@code --plan}. The texts of every target language are translated
+	 * together, then the target files are patched and written. A target file which changed since the plan was
+	 * computed is not patched. The commit of the plan is remembered as last translated commit of every target
+	 * language which was applied completely.
+	 *
+	 * @throws TranslationException thrown if the plan is invalid or the translation of at least one file failed
+	 * or was deferred
+	 * @throws IOException thrown if the plan or the state file cannot be read or written
+	 */
+	void applyPlan() throws TranslationException, IOException {
+		TranslationPlanFile plan = readPlan(cfg.applyFile());
+		if (!plan.sourceLanguage().equals(cfg.sourceLanguage())) {
+			throw new TranslationException("Error: The plan '" + cfg.applyFile() + "' translates source language '"
+					+ plan.sourceLanguage() + "'. Please use the same source language.", STATUS_INVALID_ARGUMENT);
+		}
+		LOG.info("Applying the plan with {} distinct text(s) and {} character(s) for {} target language(s).",
+				plan.texts(), plan.characters(), plan.languages().size());
+
+		if (!plan.languages().isEmpty()) {
+			CompletableFuture<Usage> usage = translationRun.requestUsage();
+			Map<String, Long> charactersPerLanguage = new LinkedHashMap<>();
+			plan.languages().forEach((language, languagePlan) ->
+					charactersPerLanguage.put(language, languagePlan.characters()));
+			long start = System.nanoTime();
+			TranslationPlanner.Plan selection = translationRun.planTranslations(charactersPerLanguage, usage);
+			report.stage(Stage.PLAN, start);
+
+			List<String> targetLanguages = new ArrayList<>(plan.languages().keySet());
+			translationRun.readManifests(targetLanguages);
+			ExecutorService executor = translationRun.createExecutor(targetLanguages.size());
+			try {
+				start = System.nanoTime();
+				// the texts of all selected target languages are requested at once
+				Map<String, CompletableFuture<List<String>>> translations = new HashMap<>();
+				for (String language : targetLanguages) {
+					List<String> texts = plan.languages().get(language).texts();
+					if (selection.isSelected(language) && !texts.isEmpty()) {
+						translations.put(language, translationRun.requestTranslation(language,
+								() -> provider.translateAsync(texts, cfg.sourceLanguage(), language)));
+					}
+				}
+				List<LanguageResult> results = new ArrayList<>();
+				translationRun.forEach(executor, targetLanguages, language -> applyLanguage(language,
+								plan.languages().get(language), selection, translations.get(language)))
+						.forEach(results::addAll);
+				report.stage(Stage.COMPLETE, start);
+				translationRun.updateManifests(plan.sources(), results);
+				if (plan.commit() != null) {
+					translationRun.updateState(plan.commit(), targetLanguages, results);
+				}
+				translationRun.reportResults(results);
+			} finally {
+				if (executor != null) {
+					executor.shutdownNow();
+				}
+			}
+		}
+	}
+
+	private TranslationPlanFile readPlan(String fileName) throws TranslationException, IOException {
+		try {
+			return TranslationPlanFile.fromJson(fileHelper.readFile(fileName, jsonHelper::readJson));
+		} catch (JsonProcessingException e) {
+			throw new TranslationException("Error: Invalid Json. Please verify that the plan '" + fileName
+					+ "' is valid json. Cause: " + e.getMessage(), STATUS_JSON_INVALID);
+		} catch (TranslationFileNotFoundException e) {
+			throw new TranslationException("Error: Plan '" + fileName + "' not found. "
+					+ "Please verify that the file exists.", STATUS_FILE_NOT_FOUND);
+		}
+	}
+
+	/**
+	 * Translates the texts of a target language of the plan and patches all its target files. Exceptions are not
+	 * thrown but returned within the results, so that the other target languages are not affected.
+	 *
+	 * @param targetLanguage the target language
+	 * @param languagePlan the plan of the target language
+	 * @param selection the selected target languages, a target language which is not selected is deferred
+	 * @param translation the requested translation of the texts, {@code null} if nothing is translated
+	 * @return the results of the namespaces of the target language
+	 */
+	private List<LanguageResult> applyLanguage(String targetLanguage, TranslationPlanFile.LanguagePlan languagePlan,
+	                                           TranslationPlanner.Plan selection,
+	                                           CompletableFuture<List<String>> translation) {
+		List<TranslationUnit> units = new ArrayList<>();
+		languagePlan.files().keySet().forEach(namespace -> units.add(new TranslationUnit(namespace, targetLanguage)));
+		List<LanguageResult> results = new ArrayList<>();
+		if (!selection.isSelected(targetLanguage)) {
+			// the characters are planned per target language, they are reported with its first namespace
+			for (TranslationUnit unit : units) {
+				results.add(LanguageResult.deferred(unit, results.isEmpty() ? languagePlan.characters() : 0));
+			}
+			return results;
+		}
+
+		try {
+			List<String> translations;
+			TranslationPlaceholderException lostPlaceholders = null;
+			try {
+				translations = translation == null ? List.of() : TranslationProvider.await(translation);
+			} catch (TranslationPlaceholderException e) {
+				if (e.translations() == null) {
+					throw e;
+				}
+				// the texts whose placeholders got lost are not translated, the other texts are applied anyway
+				translations = e.translations();
+				lostPlaceholders = e;
+			}
+			report.texts(targetLanguage, languagePlan.texts().size(), 0, languagePlan.characters());
+			for (TranslationUnit unit : units) {
+				LanguageResult result = applyFile(unit, languagePlan.files().get(unit.namespace()), translations,
+						lostPlaceholders);
+				results.add(results.isEmpty() ? result.withTexts(languagePlan.texts().size(),
+						languagePlan.characters()) : result);
+			}
+		} catch (TranslationException e) {
+			units.forEach(unit -> results.add(LanguageResult.failed(unit, e)));
+		} catch (Exception e) {
+			TranslationException error =
+					translationRun.unexpectedError(cfg.translationsDirectory() + "/" + targetLanguage, e);
+			units.forEach(unit -> results.add(LanguageResult.failed(unit, error)));
+		}
+		return results;
+	}
+
+	/**
+	 * Patches and writes one target file of the plan. Exceptions are not thrown but returned within the result.
+	 *
+	 * @param unit the namespace and target language
+	 * @param filePlan the plan of the target file
+	 * @param translations the translations of the texts of the target language, {@code null} for a text whose
+	 * placeholder got lost
+	 * @param lostPlaceholders the exception if placeholders got lost, otherwise {@code null}
+	 * @return the result of the target file
+	 */
+	private LanguageResult applyFile(TranslationUnit unit, TranslationPlanFile.FilePlan filePlan,
+	                                 List<String> translations, TranslationPlaceholderException lostPlaceholders) {
+		String targetLanguage = unit.targetLanguage();
+		String targetFileName = cfg.targetFileName(targetLanguage, unit.namespace());
+		try {
+			long start = System.nanoTime();
+			String blobId = fileHelper.blobId(cfg.repositoryDirectory() + "/" + targetFileName);
+			if (!Objects.equals(filePlan.blobId(), blobId)) {
+				throw new TranslationException("Error: '" + targetFileName + "' changed after the plan was "
+						+ "computed. Please compute the plan again with --plan.", STATUS_INVALID_ARGUMENT);
+			}
+			JsonNode targetJson = translationRun.getTargetTranslationFile(targetFileName, targetLanguage);
+			report.phase(targetLanguage, Phase.READ_TARGET, start);
+
+			start = System.nanoTime();
+			ChangeSet changes = filePlan.changes();
+			changes.translate(translations);
+			TranslationPlaceholderException error = null;
+			if (lostPlaceholders != null && changes.hasUntranslated()) {
+				error = translationRun.lostPlaceholders(unit, changes, lostPlaceholders);
+			}
+			changes.apply(targetJson);
+			report.phase(targetLanguage, Phase.PATCH, start);
+
+			start = System.nanoTime();
+			String writtenFile = null;
+			if (!changes.isEmpty()) {
+				writtenFile = translationRun.writeTargetTranslationFile(targetJson, unit);
+			}
+			report.phase(targetLanguage, Phase.WRITE, start);
+
+			report.keys(targetLanguage, changes.addedTexts(), changes.removedKeys(), changes.replacedTexts());
+			return new LanguageResult(unit, changes.keyOperations(), changes.replacedTexts(), 0, 0, 0, writtenFile,
+					false, error);
+		} catch (TranslationException e) {
+			return LanguageResult.failed(unit, e);
+		} catch (Exception e) {
+			return LanguageResult.failed(unit, translationRun.unexpectedError(targetFileName, e));
+		}
+	}
+}
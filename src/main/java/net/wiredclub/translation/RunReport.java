@@ -0,0 +1,445 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Measurements of one translation run, broken down per language: how long every phase took, which DeepL
+ * requests were sent with their latencies, and how many characters, bytes and keys were processed. The
+ * phases of the source files are reported under the source language, all others under their target
+ * language. Phase durations of a language are summed over its namespaces, so with parallel jobs they can
+ * exceed the duration of the run.
+ * <p>
+ * DeepL requests are assigned to the language of the thread which started them, see {@link #enter(String)}.
+ * A batch run has a report per project, see {@link #project(String, String, RunReport)}, its summary adds them up.
+ * All methods are thread safe.
+ */
+class RunReport implements DeepLTransport.RequestListener {
+
+	/**
+	 * Stages of the whole run, measured in wall clock time.
+	 */
+	enum Stage {
+		PARSE_ARGUMENTS, DISCOVER, FIND_CHANGES, PREPARE, PLAN, COMPLETE, VERIFY
+	}
+
+	/**
+	 * Phases of a single file, measured per language.
+	 */
+	enum Phase {
+		READ_SOURCE, READ_PREVIOUS_SOURCE, DIFF_SOURCE, READ_TARGET, DIFF_TARGET, COLLECT, TRANSLATE, PATCH, WRITE
+	}
+
+	private static final JsonNodeFactory NODE_FACTORY = JsonNodeFactory.instance;
+
+	private final Instant started = Instant.now();
+	private final long startNanos = System.nanoTime();
+	private final Map<Stage, Long> stages = new EnumMap<>(Stage.class);
+	private final Map<String, LanguageStatistics> languages = new ConcurrentHashMap<>();
+	private final Requests requests = new Requests();
+	private final Requests otherRequests = new Requests();
+	private final ThreadLocal<String> currentLanguage = new ThreadLocal<>();
+	private final List<Project> projects = new ArrayList<>();
+
+	private volatile long durationNanos = -1;
+	private volatile TranslationStatusCode statusCode;
+
+	/**
+	 * @param stage the stage
+	 * @param start value of {@link System#nanoTime()} when the stage started
+	 */
+	void stage(Stage stage, long start) {
+		long nanos = System.nanoTime() - start;
+		synchronized (stages) {
+			stages.merge(stage, nanos, Long::sum);
+		}
+	}
+
+	/**
+	 * @param language the source or target language
+	 * @param phase the phase
+	 * @param start value of {@link System#nanoTime()} when the phase started
+	 */
+	void phase(String language, Phase phase, long start) {
+		language(language).phaseNanos.addAndGet(phase.ordinal(), System.nanoTime() - start);
+	}
+
+	/**
+	 * Assigns the DeepL requests started by the current thread to a language until {@link #leave()} is called.
+	 */
+	void enter(String language) {
+		currentLanguage.set(language);
+	}
+
+	void leave() {
+		currentLanguage.remove();
+	}
+
+	/**
+	 * @return a listener which assigns the request to the language of the current thread, also if the request
+	 * completes on another thread
+	 */
+	@Override
+	public DeepLTransport.RequestListener onRequestStarted() {
+		String language = currentLanguage.get();
+		return (endpoint, statusCode, requestBytes, responseBytes, latencyNanos) ->
+				addRequest(language, statusCode, requestBytes, responseBytes, latencyNanos);
+	}
+
+	@Override
+	public void requestCompleted(String endpoint, int statusCode, long requestBytes, long responseBytes,
+	                             long latencyNanos) {
+		addRequest(currentLanguage.get(), statusCode, requestBytes, responseBytes, latencyNanos);
+	}
+
+	private void addRequest(String language, int statusCode, long requestBytes, long responseBytes,
+	                        long latencyNanos) {
+		requests.add(statusCode, requestBytes, responseBytes, latencyNanos);
+		Requests languageRequests = language == null ? otherRequests : language(language).requests;
+		languageRequests.add(statusCode, requestBytes, responseBytes, latencyNanos);
+	}
+
+	/**
+	 * @return the stream, which counts the bytes read as bytes read of the language
+	 */
+	InputStream countRead(String language, InputStream in) {
+		AtomicLong bytesRead = language(language).bytesRead;
+		language(language).filesRead.incrementAndGet();
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int read = super.read();
+				if (read >= 0) {
+					bytesRead.incrementAndGet();
+				}
+				return read;
+			}
+
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				int read = super.read(buffer, offset, length);
+				if (read > 0) {
+					bytesRead.addAndGet(read);
+				}
+				return read;
+			}
+
+			@Override
+			public long skip(long n) throws IOException {
+				long skipped = super.skip(n);
+				bytesRead.addAndGet(skipped);
+				return skipped;
+			}
+		};
+	}
+
+	/**
+	 * @return the stream, which counts the bytes written as bytes written of the language
+	 */
+	OutputStream countWritten(String language, OutputStream out) {
+		AtomicLong bytesWritten = language(language).bytesWritten;
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(int b) throws IOException {
+				out.write(b);
+				bytesWritten.incrementAndGet();
+			}
+
+			@Override
+			public void write(byte[] buffer, int offset, int length) throws IOException {
+				out.write(buffer, offset, length);
+				bytesWritten.addAndGet(length);
+			}
+		};
+	}
+
+	/**
+	 * @param language the target language
+	 * @param added texts which were added to the target file
+	 * @param removed keys or groups which were removed from the target file
+	 * @param replaced texts which were replaced because the source text changed
+	 */
+	void keys(String language, long added, long removed, long replaced) {
+		LanguageStatistics statistics = language(language);
+		statistics.keysAdded.addAndGet(added);
+		statistics.keysRemoved.addAndGet(removed);
+		statistics.keysReplaced.addAndGet(replaced);
+	}
+
+	/**
+	 * @param language the target language
+	 * @param translated distinct texts which were sent to DeepL or taken from the translation memory
+	 * @param reused distinct texts which were taken from existing translations of the target file
+	 * @param characters characters DeepL charged for the texts
+	 */
+	void texts(String language, long translated, long reused, long characters) {
+		LanguageStatistics statistics = language(language);
+		statistics.translatedTexts.addAndGet(translated);
+		statistics.reusedTexts.addAndGet(reused);
+		statistics.characters.addAndGet(characters);
+	}
+
+	/**
+	 * @param language the target language
+	 * @param written {@code true} if the target file was written
+	 * @param deferred {@code true} if the translation was deferred because of the DeepL quota
+	 * @param failed {@code true} if the translation failed
+	 */
+	void file(String language, boolean written, boolean deferred, boolean failed) {
+		LanguageStatistics statistics = language(language);
+		statistics.files.incrementAndGet();
+		if (written) {
+			statistics.filesWritten.incrementAndGet();
+		}
+		if (deferred) {
+			statistics.filesDeferred.incrementAndGet();
+		}
+		if (failed) {
+			statistics.filesFailed.incrementAndGet();
+		}
+	}
+
+	/**
+	 * Adds a finished project of a batch run.
+	 *
+	 * @param repositoryDirectory the repository of the project
+	 * @param translationsDirectory the translations directory of the project relative to its repository
+	 * @param projectReport the report of the project
+	 */
+	void project(String repositoryDirectory, String translationsDirectory, RunReport projectReport) {
+		synchronized (projects) {
+			projects.add(new Project(repositoryDirectory, translationsDirectory, projectReport));
+		}
+	}
+
+	/**
+	 * Ends the run, later measurements are still recorded but the duration is fixed.
+	 */
+	void finish(TranslationStatusCode statusCode) {
+		this.statusCode = statusCode;
+		this.durationNanos = System.nanoTime() - startNanos;
+	}
+
+	private LanguageStatistics language(String language) {
+		return languages.computeIfAbsent(language, key -> new LanguageStatistics());
+	}
+
+	/**
+	 * @return the report as json, durations are in milliseconds
+	 */
+	ObjectNode toJson() {
+		ObjectNode json = NODE_FACTORY.objectNode();
+		json.put("started", started.toString());
+		json.put("durationMillis", millis(duration()));
+		json.put("status", statusCode == null ? null : statusCode.name());
+
+		ObjectNode stagesJson = json.putObject("stages");
+		synchronized (stages) {
+			stages.forEach((stage, nanos) -> stagesJson.put(name(stage), millis(nanos)));
+		}
+
+		ObjectNode languagesJson = json.putObject("languages");
+		new TreeMap<>(languages).forEach((language, statistics) ->
+				languagesJson.set(language, statistics.toJson()));
+
+		json.set("requests", requests.toJson());
+		json.set("otherRequests", otherRequests.toJson());
+
+		List<Project> batch = projects();
+		if (!batch.isEmpty()) {
+			ArrayNode projectsJson = json.putArray("projects");
+			for (Project project : batch) {
+				ObjectNode projectJson = projectsJson.addObject();
+				projectJson.put("repo", project.repositoryDirectory());
+				projectJson.put("path", project.translationsDirectory());
+				projectJson.setAll(project.report().toJson());
+			}
+		}
+		return json;
+	}
+
+	private List<Project> projects() {
+		synchronized (projects) {
+			return List.copyOf(projects);
+		}
+	}
+
+	/**
+	 * @return a single line with the totals of the run, e.g. for the log
+	 */
+	String summary() {
+		long files = 0;
+		long filesWritten = 0;
+		long added = 0;
+		long removed = 0;
+		long replaced = 0;
+		long characters = 0;
+		long bytesRead = 0;
+		long bytesWritten = 0;
+		List<RunReport> reports = new ArrayList<>();
+		reports.add(this);
+		projects().forEach(project -> reports.add(project.report()));
+		long[] latencies = new long[0];
+		for (RunReport report : reports) {
+			for (LanguageStatistics statistics : report.languages.values()) {
+				files += statistics.files.get();
+				filesWritten += statistics.filesWritten.get();
+				added += statistics.keysAdded.get();
+				removed += statistics.keysRemoved.get();
+				replaced += statistics.keysReplaced.get();
+				characters += statistics.characters.get();
+				bytesRead += statistics.bytesRead.get();
+				bytesWritten += statistics.bytesWritten.get();
+			}
+			long[] reportLatencies = report.requests.latencies();
+			int length = latencies.length;
+			latencies = Arrays.copyOf(latencies, length + reportLatencies.length);
+			System.arraycopy(reportLatencies, 0, latencies, length, reportLatencies.length);
+		}
+		Arrays.sort(latencies);
+		return String.format(Locale.ROOT, "Run finished in %d ms: %d target file(s), %d written, "
+						+ "keys +%d -%d ~%d, %d character(s), %d DeepL request(s) (p50 %d ms, p99 %d ms), "
+						+ "%d byte(s) read, %d byte(s) written.",
+				millis(duration()), files, filesWritten, added, removed, replaced, characters, latencies.length,
+				millis(percentile(latencies, 50)), millis(percentile(latencies, 99)), bytesRead, bytesWritten);
+	}
+
+	private long duration() {
+		long duration = durationNanos;
+		return duration < 0 ? System.nanoTime() - startNanos : duration;
+	}
+
+	private static String name(Enum<?> value) {
+		StringBuilder name = new StringBuilder();
+		for (String word : value.name().toLowerCase(Locale.ROOT).split("_")) {
+			name.append(name.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+		}
+		return name.toString();
+	}
+
+	private static long millis(long nanos) {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * @param sorted sorted values
+	 * @param percentile the percentile between 0 and 100
+	 * @return the value of the percentile (nearest rank), 0 if there are no values
+	 */
+	static long percentile(long[] sorted, int percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+	}
+
+	private record Project(String repositoryDirectory, String translationsDirectory, RunReport report) {
+	}
+
+	private static final class LanguageStatistics {
+
+		private final AtomicLongArray phaseNanos = new AtomicLongArray(Phase.values().length);
+		private final AtomicLong files = new AtomicLong();
+		private final AtomicLong filesRead = new AtomicLong();
+		private final AtomicLong filesWritten = new AtomicLong();
+		private final AtomicLong filesDeferred = new AtomicLong();
+		private final AtomicLong filesFailed = new AtomicLong();
+		private final AtomicLong bytesRead = new AtomicLong();
+		private final AtomicLong bytesWritten = new AtomicLong();
+		private final AtomicLong keysAdded = new AtomicLong();
+		private final AtomicLong keysRemoved = new AtomicLong();
+		private final AtomicLong keysReplaced = new AtomicLong();
+		private final AtomicLong translatedTexts = new AtomicLong();
+		private final AtomicLong reusedTexts = new AtomicLong();
+		private final AtomicLong characters = new AtomicLong();
+		private final Requests requests = new Requests();
+
+		ObjectNode toJson() {
+			ObjectNode json = NODE_FACTORY.objectNode();
+			ObjectNode phasesJson = json.putObject("phases");
+			for (Phase phase : Phase.values()) {
+				long nanos = phaseNanos.get(phase.ordinal());
+				if (nanos > 0) {
+					phasesJson.put(name(phase), millis(nanos));
+				}
+			}
+			json.put("files", files.get());
+			json.put("filesRead", filesRead.get());
+			json.put("filesWritten", filesWritten.get());
+			json.put("filesDeferred", filesDeferred.get());
+			json.put("filesFailed", filesFailed.get());
+			json.put("bytesRead", bytesRead.get());
+			json.put("bytesWritten", bytesWritten.get());
+			json.put("keysAdded", keysAdded.get());
+			json.put("keysRemoved", keysRemoved.get());
+			json.put("keysReplaced", keysReplaced.get());
+			json.put("translatedTexts", translatedTexts.get());
+			json.put("reusedTexts", reusedTexts.get());
+			json.put("characters", characters.get());
+			json.set("requests", requests.toJson());
+			return json;
+		}
+	}
+
+	private static final class Requests {
+
+		private long count;
+		private long failed;
+		private long bytesSent;
+		private long bytesReceived;
+		private long[] latencies = new long[16];
+
+		synchronized void add(int statusCode, long requestBytes, long responseBytes, long latencyNanos) {
+			if (count == latencies.length) {
+				latencies = Arrays.copyOf(latencies, latencies.length * 2);
+			}
+			latencies[(int) count++] = latencyNanos;
+			if (statusCode < 200 || statusCode >= 300) {
+				failed++;
+			}
+			bytesSent += requestBytes;
+			bytesReceived += responseBytes;
+		}
+
+		synchronized long[] latencies() {
+			long[] sorted = Arrays.copyOf(latencies, (int) count);
+			Arrays.sort(sorted);
+			return sorted;
+		}
+
+		synchronized ObjectNode toJson() {
+			long[] sorted = latencies();
+			ObjectNode json = NODE_FACTORY.objectNode();
+			json.put("count", count);
+			json.put("failed", failed);
+			json.put("bytesSent", bytesSent);
+			json.put("bytesReceived", bytesReceived);
+			ObjectNode latencyJson = json.putObject("latencyMillis");
+			latencyJson.put("p50", millis(percentile(sorted, 50)));
+			latencyJson.put("p90", millis(percentile(sorted, 90)));
+			latencyJson.put("p99", millis(percentile(sorted, 99)));
+			latencyJson.put("max", millis(sorted.length == 0 ? 0 : sorted[sorted.length - 1]));
+			return json;
+		}
+	}
+}
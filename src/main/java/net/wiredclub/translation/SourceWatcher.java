@@ -0,0 +1,149 @@
+package net.wiredclub.translation;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Watches the directory of the source language, including its sub directories, for saved namespace files.
+ * Editors often write a file more than once when it is saved, e.g. into a temporary file which is renamed
+ * afterwards, so changes are collected until no file changed for the debounce time.
+ */
+class SourceWatcher implements Closeable {
+
+	static final Duration DEFAULT_DEBOUNCE = Duration.ofMillis(300);
+
+	private static final String JSON_EXTENSION = ".json";
+
+	private final Path directory;
+	private final Duration debounce;
+	private final WatchService watchService;
+	private final Map<WatchKey, Path> directories = new ConcurrentHashMap<>();
+
+	/**
+	 * @param directory the directory of the source language
+	 * @param debounce the time without changes after which the collected changes are returned
+	 * @throws IOException if the directory cannot be watched
+	 */
+	SourceWatcher(Path directory, Duration debounce) throws IOException {
+		this.directory = directory;
+		this.debounce = debounce;
+		this.watchService = directory.getFileSystem().newWatchService();
+		register(directory, new TreeSet<>());
+	}
+
+	/**
+	 * Waits until namespace files were created, modified or deleted and no further change happened for the
+	 * debounce time.
+	 *
+	 * @return the changed namespaces in alphabetical order, e.g. {@code main} or {@code admin/users}, an empty
+	 * set if the watcher was closed
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 * @throws IOException if a new sub directory cannot be watched
+	 */
+	Set<String> awaitChanges() throws InterruptedException, IOException {
+		Set<String> namespaces = new TreeSet<>();
+		try {
+			while (namespaces.isEmpty()) {
+				WatchKey key = watchService.take();
+				while (key != null) {
+					collect(key, namespaces);
+					key = watchService.poll(debounce.toMillis(), TimeUnit.MILLISECONDS);
+				}
+			}
+		} catch (ClosedWatchServiceException e) {
+			return new TreeSet<>();
+		}
+		return namespaces;
+	}
+
+	private void collect(WatchKey key, Set<String> namespaces) throws IOException {
+		Path keyDirectory = directories.get(key);
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				// events were lost, every namespace may have changed
+				namespaces.addAll(namespaces());
+				continue;
+			}
+			if (keyDirectory == null) {
+				continue;
+			}
+			Path path = keyDirectory.resolve((Path) event.context());
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+				// files of a new directory may have been created before it is watched
+				register(path, namespaces);
+				continue;
+			}
+			String namespace = namespace(path);
+			if (namespace != null) {
+				namespaces.add(namespace);
+			}
+		}
+		if (!key.reset()) {
+			directories.remove(key);
+		}
+	}
+
+	/**
+	 * Watches the directory and all its sub directories.
+	 *
+	 * @param namespaces the namespaces found in the directories are added
+	 */
+	private void register(Path root, Set<String> namespaces) throws IOException {
+		try (Stream<Path> paths = Files.walk(root)) {
+			for (Path path : (Iterable<Path>) paths::iterator) {
+				if (Files.isDirectory(path)) {
+					directories.put(path.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+							StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE), path);
+				} else if (!root.equals(directory)) {
+					String namespace = namespace(path);
+					if (namespace != null) {
+						namespaces.add(namespace);
+					}
+				}
+			}
+		}
+	}
+
+	private Set<String> namespaces() throws IOException {
+		Set<String> namespaces = new TreeSet<>();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.filter(Files::isRegularFile).map(this::namespace).filter(Objects::nonNull).forEach(namespaces::add);
+		}
+		return namespaces;
+	}
+
+	/**
+	 * @return the namespace of the file, {@code null} if it is no namespace file, e.g. a backup of an editor
+	 */
+	private String namespace(Path path) {
+		String name = directory.relativize(path).toString().replace(File.separatorChar, '/');
+		if (!name.endsWith(JSON_EXTENSION) || name.startsWith(".")) {
+			return null;
+		}
+		return name.substring(0, name.length() - JSON_EXTENSION.length());
+	}
+
+	/**
+	 * Stops watching, a thread waiting for changes returns.
+	 */
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+}
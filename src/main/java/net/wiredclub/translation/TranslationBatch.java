@@ -0,0 +1,257 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Collects all texts of one target file which need a translation and translates them together.
+ * Every distinct source text is translated at most once per run, and a text which is already
+ * translated under another, unchanged key of the target file is reused instead of being sent to
+ * the {@link TranslationProvider}. The batches of all target files of a target language are
+ * translated together, see {@link #translateAsync(List)}.
+ * <p>
+ * Texts of a {@link ChangeSet} are registered with their source text, their value is set to the
+ * translation when {@link #translate()} is called.
+ */
+class TranslationBatch {
+
+	private final TranslationProvider provider;
+	private final String sourceLanguage;
+	private final String targetLanguage;
+	private final Map<String, String> existingTranslations;
+	private final Map<String, List<ChangeSet.Text>> pendingTexts = new LinkedHashMap<>();
+
+	private int operations;
+	private int reusedTexts;
+	private int translatedTexts;
+
+	TranslationBatch(TranslationProvider provider, String sourceLanguage, String targetLanguage,
+	                 Map<String, String> existingTranslations) {
+		this.provider = provider;
+		this.sourceLanguage = sourceLanguage;
+		this.targetLanguage = targetLanguage;
+		this.existingTranslations = existingTranslations;
+	}
+
+	/**
+	 * Builds an index from source text to the current target text of the same key. Only keys whose
+	 * source text is unchanged are used, otherwise the target text is an outdated translation.
+	 *
+	 * @param sourceKeys the key paths of the actual source json
+	 * @param target the values of the target json before it is patched
+	 * @param changedPaths path ids of all source texts which were added or changed since the previous version
+	 * @return source texts and their existing translations
+	 */
+	static Map<String, String> indexExistingTranslations(KeyPathIndex sourceKeys, KeyPathIndex.Values target,
+	                                                     BitSet changedPaths) {
+		Map<String, String> index = new HashMap<>();
+		for (int id = 0; id < sourceKeys.size(); id++) {
+			if (changedPaths.get(id)) {
+				id = sourceKeys.end(id);
+				continue;
+			}
+			JsonNode sourceNode = sourceKeys.node(id);
+			JsonNode targetNode = target.node(id);
+			if (targetNode != null && sourceNode.isValueNode() && targetNode.isValueNode()) {
+				index.putIfAbsent(sourceNode.asText(), targetNode.asText());
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Registers a text of a change set whose value is the translation of the given source text.
+	 *
+	 * @param target the text of the change set, its value will be set to the translation
+	 * @param text the text in source language
+	 */
+	void add(ChangeSet.Text target, String text) {
+		pendingTexts.computeIfAbsent(text, key -> new ArrayList<>()).add(target);
+		operations++;
+	}
+
+	boolean isEmpty() {
+		return pendingTexts.isEmpty();
+	}
+
+	/**
+	 * @return number of characters DeepL charges for the translation of this batch
+	 * @throws IOException if the translation memory cannot be read
+	 */
+	long billableCharacters() throws IOException {
+		return billableCharacters(List.of(this));
+	}
+
+	/**
+	 * @param batches batches of the target files of one target language
+	 * @return number of characters DeepL charges for the translation of the batches, a text which several
+	 * batches need is charged once
+	 * @throws IOException if the translation memory cannot be read
+	 */
+	static long billableCharacters(List<TranslationBatch> batches) throws IOException {
+		Set<String> textsToTranslate = new LinkedHashSet<>();
+		for (TranslationBatch batch : batches) {
+			for (String text : batch.pendingTexts.keySet()) {
+				if (!batch.existingTranslations.containsKey(text)) {
+					textsToTranslate.add(text);
+				}
+			}
+		}
+		if (textsToTranslate.isEmpty()) {
+			return 0;
+		}
+		TranslationBatch first = batches.get(0);
+		return first.provider.billableCharacters(new ArrayList<>(textsToTranslate), first.sourceLanguage,
+				first.targetLanguage);
+	}
+
+	/**
+	 * Translates all distinct texts which have no existing translation in one batch call and sets the
+	 * translations into the registered texts of the change set.
+	 *
+	 * @throws IOException if a request to DeepL cannot be completed
+	 * @throws TranslationJsonProcessingException if the response of DeepL is not valid json
+	 * @throws TranslationPlaceholderException if DeepL dropped or changed a placeholder of a text
+	 */
+	void translate() throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		TranslationProvider.await(translateAsync());
+	}
+
+	/**
+	 * Requests the translation of all distinct texts which have no existing translation in one batch call. When
+	 * the future completes, the translations are set into the registered texts of the change set. If placeholders
+	 * got lost, the future completes with a {@link TranslationPlaceholderException} after the other translations
+	 * are set, the texts whose placeholder got lost stay without value, see {@link ChangeSet#discardUntranslated()}.
+	 *
+	 * @return completes when all registered texts have their translation, see {@link TranslationProvider}
+	 */
+	CompletableFuture<Void> translateAsync() {
+		return translateAsync(List.of(this));
+	}
+
+	/**
+	 * Translates the batches of several target files of one target language together like {@link #translateAsync()},
+	 * with one call of the provider. A text is reused only from the target file of its own batch, every other
+	 * distinct text is translated once however many batches need it.
+	 *
+	 * @param batches batches of the target files of one target language
+	 * @return completes when all registered texts of all batches have their translation
+	 */
+	static CompletableFuture<Void> translateAsync(List<TranslationBatch> batches) {
+		Map<String, List<TranslationBatch>> batchesPerText = new LinkedHashMap<>();
+		for (TranslationBatch batch : batches) {
+			batch.reuseExistingTranslations();
+			for (String text : batch.pendingTexts.keySet()) {
+				batchesPerText.computeIfAbsent(text, key -> new ArrayList<>()).add(batch);
+			}
+		}
+		if (batchesPerText.isEmpty()) {
+			return CompletableFuture.completedFuture(null);
+		}
+		List<String> textsToTranslate = new ArrayList<>(batchesPerText.keySet());
+		TranslationBatch first = batches.get(0);
+		return first.provider.translateAsync(textsToTranslate, first.sourceLanguage, first.targetLanguage)
+				.handle((result, error) -> {
+					List<String> translations = result;
+					TranslationPlaceholderException lostPlaceholders = null;
+					if (error != null) {
+						lostPlaceholders = lostPlaceholders(error);
+						if (lostPlaceholders == null) {
+							throw error instanceof CompletionException ? (CompletionException) error
+									: new CompletionException(error);
+						}
+						translations = lostPlaceholders.translations();
+					}
+					for (int i = 0; i < textsToTranslate.size(); i++) {
+						if (translations.get(i) == null) {
+							continue;
+						}
+						for (TranslationBatch batch : batchesPerText.get(textsToTranslate.get(i))) {
+							batch.setValue(batch.pendingTexts.get(textsToTranslate.get(i)), translations.get(i));
+							batch.translatedTexts++;
+						}
+					}
+					batches.forEach(batch -> batch.pendingTexts.clear());
+					if (lostPlaceholders != null) {
+						throw new CompletionException(lostPlaceholders);
+					}
+					return null;
+				});
+	}
+
+	/**
+	 * @param error the error a translation completed with
+	 * @return the exception if placeholders got lost and the other texts are translated, otherwise {@code null}
+	 */
+	private static TranslationPlaceholderException lostPlaceholders(Throwable error) {
+		Throwable cause = error;
+		while (cause instanceof CompletionException && cause.getCause() != null) {
+			cause = cause.getCause();
+		}
+		if (cause instanceof TranslationPlaceholderException
+				&& ((TranslationPlaceholderException) cause).translations() != null) {
+			return (TranslationPlaceholderException) cause;
+		}
+		return null;
+	}
+
+	/**
+	 * Sets the existing translations into their texts, afterwards only the texts which need a
+	 * translation by DeepL are pending.
+	 *
+	 * @return the pending source texts and the texts of the change set, in order of registration
+	 */
+	Map<String, List<ChangeSet.Text>> reuseExistingTranslations() {
+		Iterator<Map.Entry<String, List<ChangeSet.Text>>> pending = pendingTexts.entrySet().iterator();
+		while (pending.hasNext()) {
+			Map.Entry<String, List<ChangeSet.Text>> targets = pending.next();
+			String existingTranslation = existingTranslations.get(targets.getKey());
+			if (existingTranslation != null) {
+				setValue(targets.getValue(), existingTranslation);
+				reusedTexts++;
+				pending.remove();
+			}
+		}
+		return Collections.unmodifiableMap(pendingTexts);
+	}
+
+	private void setValue(List<ChangeSet.Text> targets, String translation) {
+		for (ChangeSet.Text target : targets) {
+			target.set(translation);
+		}
+	}
+
+	/**
+	 * @return number of registered texts of the change set
+	 */
+	int operations() {
+		return operations;
+	}
+
+	/**
+	 * @return number of distinct texts which were taken from existing translations
+	 */
+	int reusedTexts() {
+		return reusedTexts;
+	}
+
+	/**
+	 * @return number of distinct texts which were translated
+	 */
+	int translatedTexts() {
+		return translatedTexts;
+	}
+}
@@ -1,6 +1,9 @@
 package net.wiredclub.translation;
 
 import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 
 public class TranslationConfig {
@@ -9,13 +12,47 @@ public class TranslationConfig {
 	private final Set<String> targetLanguages;
 	private final String translationsDirectory;
 	private final String repositoryDirectory;
+	private final int jobs;
+	private final String cacheDirectory;
+	private final List<String> priority;
+	private final boolean full;
+	private final String reportFile;
+	private final String recordingFile;
+	private final String since;
+	private final Set<PlaceholderTokenizer.Syntax> placeholders;
+	private final boolean watch;
+	private final String planFile;
+	private final String applyFile;
+	private final boolean verify;
+	private final List<TranslationConfig> projects;
 
-	TranslationConfig(String sourceLanguage, Set<String> targetLanguages, String translationsDirectory,
-	                  String repositoryDirectory) {
-		this.sourceLanguage = sourceLanguage;
-		this.targetLanguages = Collections.unmodifiableSet(targetLanguages);
-		this.translationsDirectory = translationsDirectory;
-		this.repositoryDirectory = repositoryDirectory;
+	private TranslationConfig(Builder builder) {
+		this.sourceLanguage = builder.sourceLanguage;
+		this.targetLanguages = Collections.unmodifiableSet(new LinkedHashSet<>(builder.targetLanguages));
+		this.translationsDirectory = builder.translationsDirectory;
+		this.repositoryDirectory = builder.repositoryDirectory;
+		this.jobs = builder.jobs;
+		this.cacheDirectory = builder.cacheDirectory;
+		this.priority = List.copyOf(builder.priority);
+		this.full = builder.full;
+		this.reportFile = builder.reportFile;
+		this.recordingFile = builder.recordingFile;
+		this.since = builder.since;
+		this.placeholders = Collections.unmodifiableSet(builder.placeholders.isEmpty()
+				? EnumSet.noneOf(PlaceholderTokenizer.Syntax.class) : EnumSet.copyOf(builder.placeholders));
+		this.watch = builder.watch;
+		this.planFile = builder.planFile;
+		this.applyFile = builder.applyFile;
+		this.verify = builder.verify;
+		this.projects = List.copyOf(builder.projects);
+	}
+
+	/**
+	 * @return a builder with the defaults of the command line, i.e. a normal run which translates the changes of
+	 * the source files of the current directory
+	 */
+	static Builder builder() {
+		return new Builder();
 	}
 
 	public String sourceLanguage() {
@@ -34,11 +71,250 @@ public class TranslationConfig {
 		return repositoryDirectory;
 	}
 
-	public String sourceFileName() {
-		return translationsDirectory() + "/" + sourceLanguage() + "/main.json";
+	/**
+	 * @return number of target languages which are translated in parallel
+	 */
+	public int jobs() {
+		return jobs;
+	}
+
+	/**
+	 * @return directory of the translation memory, {@code null} if caching is turned off
+	 */
+	public String cacheDirectory() {
+		return cacheDirectory;
+	}
+
+	/**
+	 * @return target languages which are preferred if the DeepL quota is not sufficient for all of them
+	 */
+	public List<String> priority() {
+		return priority;
+	}
+
+	/**
+	 * @return {@code true} if all namespaces are processed, also if they are unchanged since the previous version
+	 */
+	public boolean full() {
+		return full;
+	}
+
+	/**
+	 * @return file the json run report is written to, {@code null} if no report is written
+	 */
+	public String reportFile() {
+		return reportFile;
+	}
+
+	/**
+	 * @return file a Java Flight Recorder recording of the run is written to, {@code null} if nothing is recorded
+	 */
+	public String recordingFile() {
+		return recordingFile;
+	}
+
+	/**
+	 * @return revision the changes of the source files are translated since, {@code null} to use the last
+	 * translated commit
+	 */
+	public String since() {
+		return since;
+	}
+
+	/**
+	 * @return placeholder syntaxes which are protected from being translated
+	 */
+	public Set<PlaceholderTokenizer.Syntax> placeholders() {
+		return placeholders;
+	}
+
+	/**
+	 * @return {@code true} if the process keeps running and translates the changes of source files when they are
+	 * saved
+	 */
+	public boolean watch() {
+		return watch;
+	}
+
+	/**
+	 * @return file the translation plan is written to instead of translating, {@code null} to translate
+	 */
+	public String planFile() {
+		return planFile;
+	}
+
+	/**
+	 * @return file with a translation plan which is translated instead of the changes of the source files,
+	 * {@code null} to translate the changes
+	 */
+	public String applyFile() {
+		return applyFile;
+	}
+
+	/**
+	 * @return {@code true} if the target files are only checked against the source files, nothing is translated
+	 */
+	public boolean verify() {
+		return verify;
+	}
+
+	/**
+	 * @return the projects which are translated one after another in a batch run, empty if only the repository of
+	 * this configuration is translated
+	 */
+	public List<TranslationConfig> projects() {
+		return projects;
+	}
+
+	/**
+	 * @return the file with the last translated commit relative to the repository directory
+	 */
+	public String stateFileName() {
+		return translationsDirectory() + "/" + TranslationState.FILE_NAME;
+	}
+
+	/**
+	 * @param targetLanguage the target language
+	 * @return the manifest of the target language relative to the repository directory
+	 */
+	public String manifestFileName(String targetLanguage) {
+		return translationsDirectory() + "/" + targetLanguage + "/" + TranslationManifest.FILE_NAME;
+	}
+
+	/**
+	 * @param namespace the namespace, e.g. {@code main} or {@code admin/users}
+	 * @return the source file of the namespace relative to the repository directory
+	 */
+	public String sourceFileName(String namespace) {
+		return translationsDirectory() + "/" + sourceLanguage() + "/" + namespace + ".json";
+	}
+
+	/**
+	 * @param targetLanguage the target language
+	 * @param namespace the namespace, e.g. {@code main} or {@code admin/users}
+	 * @return the target file of the namespace relative to the repository directory
+	 */
+	public String targetFileName(String targetLanguage, String namespace) {
+		return translationsDirectory() + "/" + targetLanguage + "/" + namespace + ".json";
 	}
 
-	public String targetFileName(String targetLanguage) {
-		return translationsDirectory() + "/" + targetLanguage + "/main.json";
+	/**
+	 * Collects the settings of a configuration. A builder can be reused, e.g. for the projects of a batch run,
+	 * every configuration it builds copies the current settings.
+	 */
+	static final class Builder {
+
+		private String sourceLanguage = CommandLineHelper.DEFAULT_SOURCE_LANGUAGE;
+		private Set<String> targetLanguages = Set.of();
+		private String translationsDirectory = CommandLineHelper.DEFAULT_TRANSLATION_DIRECTORY;
+		private String repositoryDirectory = CommandLineHelper.DEFAULT_REPOSITORY_PATH;
+		private int jobs = CommandLineHelper.DEFAULT_JOBS;
+		private String cacheDirectory;
+		private List<String> priority = List.of();
+		private boolean full;
+		private String reportFile;
+		private String recordingFile;
+		private String since;
+		private Set<PlaceholderTokenizer.Syntax> placeholders = EnumSet.allOf(PlaceholderTokenizer.Syntax.class);
+		private boolean watch;
+		private String planFile;
+		private String applyFile;
+		private boolean verify;
+		private List<TranslationConfig> projects = List.of();
+
+		private Builder() {
+		}
+
+		Builder sourceLanguage(String sourceLanguage) {
+			this.sourceLanguage = sourceLanguage;
+			return this;
+		}
+
+		Builder targetLanguages(Set<String> targetLanguages) {
+			this.targetLanguages = targetLanguages;
+			return this;
+		}
+
+		Builder translationsDirectory(String translationsDirectory) {
+			this.translationsDirectory = translationsDirectory;
+			return this;
+		}
+
+		Builder repositoryDirectory(String repositoryDirectory) {
+			this.repositoryDirectory = repositoryDirectory;
+			return this;
+		}
+
+		Builder jobs(int jobs) {
+			this.jobs = jobs;
+			return this;
+		}
+
+		/**
+		 * @param cacheDirectory directory of the translation memory, {@code null} (the default) to turn caching off
+		 */
+		Builder cacheDirectory(String cacheDirectory) {
+			this.cacheDirectory = cacheDirectory;
+			return this;
+		}
+
+		Builder priority(List<String> priority) {
+			this.priority = priority;
+			return this;
+		}
+
+		Builder full(boolean full) {
+			this.full = full;
+			return this;
+		}
+
+		Builder reportFile(String reportFile) {
+			this.reportFile = reportFile;
+			return this;
+		}
+
+		Builder recordingFile(String recordingFile) {
+			this.recordingFile = recordingFile;
+			return this;
+		}
+
+		Builder since(String since) {
+			this.since = since;
+			return this;
+		}
+
+		Builder placeholders(Set<PlaceholderTokenizer.Syntax> placeholders) {
+			this.placeholders = placeholders;
+			return this;
+		}
+
+		Builder watch(boolean watch) {
+			this.watch = watch;
+			return this;
+		}
+
+		Builder planFile(String planFile) {
+			this.planFile = planFile;
+			return this;
+		}
+
+		Builder applyFile(String applyFile) {
+			this.applyFile = applyFile;
+			return this;
+		}
+
+		Builder verify(boolean verify) {
+			this.verify = verify;
+			return this;
+		}
+
+		Builder projects(List<TranslationConfig> projects) {
+			this.projects = projects;
+			return this;
+		}
+
+		TranslationConfig build() {
+			return new TranslationConfig(this);
+		}
 	}
 }
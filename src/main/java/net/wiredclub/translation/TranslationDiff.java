@@ -0,0 +1,216 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Computes the differences between two translation files. Translation files are nested objects with text values,
+ * so the new json is indexed by key path, see {@link KeyPathIndex}, and the old json is walked once along the
+ * index, which takes linear time. Only add, remove and replace operations are created, there is no detection of
+ * moved or copied values. Arrays are compared as a whole like text values.
+ * <p>
+ * The index of a file can be reused for several diffs, e.g. the source file is indexed only once and
+ * compared with every target file. The operations refer to path ids of the index, a json patch is only built
+ * on request, see {@link Changes#toPatch()}.
+ */
+final class TranslationDiff {
+
+	private static final JsonNodeFactory NODE_FACTORY = JsonNodeFactory.instance;
+
+	private TranslationDiff() {
+	}
+
+	/**
+	 * @param from the old json, e.g. the previous source file
+	 * @param to the new json, e.g. the actual source file
+	 * @return operations which transform {@code from} into {@code to} as json patch
+	 */
+	static ArrayNode diff(JsonNode from, JsonNode to) {
+		return diff(from, KeyPathIndex.of(to)).toPatch();
+	}
+
+	/**
+	 * First all removed and replaced values are collected in order of {@code from}, then all added values
+	 * in order of {@code to}. If an object is removed, added or replaced, its children are not part of the
+	 * changes.
+	 *
+	 * @param from the old json
+	 * @param to index of the new json
+	 * @return operations which transform {@code from} into {@code to}
+	 */
+	static Changes diff(JsonNode from, KeyPathIndex to) {
+		return diff(from, to, true);
+	}
+
+	/**
+	 * Like {@link #diff(JsonNode, KeyPathIndex)}, but values are not compared. Only keys which were added or
+	 * removed and values which were replaced by an object or the other way round are part of the changes. This
+	 * is used to compare a target file with the source file, where all values differ.
+	 *
+	 * @param from the old json
+	 * @param to index of the new json
+	 * @return operations which transform the keys of {@code from} into the keys of {@code to}
+	 */
+	static Changes diffKeys(JsonNode from, KeyPathIndex to) {
+		return diff(from, to, false);
+	}
+
+	/**
+	 * @param to index of the json
+	 * @return changes without any operation, e.g. if the previous version of a file is not needed
+	 */
+	static Changes none(KeyPathIndex to) {
+		return new Changes(to);
+	}
+
+	private static Changes diff(JsonNode from, KeyPathIndex to, boolean compareValues) {
+		TranslationEvents.Diff event = new TranslationEvents.Diff();
+		event.begin();
+		Changes changes = new Changes(to);
+
+		int fromPaths = compare(changes, 0, from, compareValues);
+
+		for (int id = 0; id < to.size(); id++) {
+			JsonNode fromNode = changes.from.node(id);
+			if (fromNode == null) {
+				// the parent is an object of both, all other missing paths are skipped
+				changes.operations.add(new Operation(Op.ADD, id, to.parent(id), to.fieldName(id)));
+				id = to.end(id);
+			} else if (!fromNode.isObject() || !to.node(id).isObject()) {
+				// already replaced
+				id = to.end(id);
+			}
+		}
+
+		event.end();
+		if (event.shouldCommit()) {
+			event.fromPaths = fromPaths;
+			event.toPaths = to.size();
+			event.operations = changes.operations.size();
+			event.valuesCompared = compareValues;
+			event.commit();
+		}
+		return changes;
+	}
+
+	/**
+	 * @return number of compared objects and values of the old json
+	 */
+	private static int compare(Changes changes, int id, JsonNode fromNode, boolean compareValues) {
+		KeyPathIndex to = changes.to;
+		JsonNode toNode = to.node(id);
+		changes.from.set(id, fromNode);
+		if (!fromNode.isObject() || !toNode.isObject()) {
+			if (fromNode.isObject() != toNode.isObject() || compareValues && !fromNode.equals(toNode)) {
+				changes.operations.add(new Operation(Op.REPLACE, id, to.parent(id), to.fieldName(id)));
+			}
+			return 1;
+		}
+
+		int compared = 1;
+		Iterator<Map.Entry<String, JsonNode>> fields = fromNode.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			int child = to.child(id, field.getKey());
+			if (child < 0) {
+				changes.operations.add(new Operation(Op.REMOVE, -1, id, field.getKey()));
+				compared++;
+			} else {
+				compared += compare(changes, child, field.getValue(), compareValues);
+			}
+		}
+		return compared;
+	}
+
+	/**
+	 * Escapes a field name for a json pointer, see RFC 6901.
+	 *
+	 * @param fieldName the field name
+	 * @return the field name with '~' replaced by '~0' and '/' replaced by '~1'
+	 */
+	static String escape(String fieldName) {
+		if (fieldName.indexOf('~') < 0 && fieldName.indexOf('/') < 0) {
+			return fieldName;
+		}
+		return fieldName.replace("~", "~0").replace("/", "~1");
+	}
+
+	enum Op {
+		ADD, REMOVE, REPLACE
+	}
+
+	/**
+	 * @param op the operation
+	 * @param id path id of the added or replaced object or value, -1 for a removed key
+	 * @param parent path id of the object the key belongs to
+	 * @param fieldName the unescaped field name of the key
+	 */
+	record Operation(Op op, int id, int parent, String fieldName) {
+	}
+
+	/**
+	 * The operations which transform an old json into the json of an index, and the objects and values of the
+	 * old json by path id.
+	 */
+	static final class Changes {
+
+		private final KeyPathIndex to;
+		private final KeyPathIndex.Values from;
+		private final List<Operation> operations = new ArrayList<>();
+
+		private Changes(KeyPathIndex to) {
+			this.to = to;
+			this.from = new KeyPathIndex.Values(to.size());
+		}
+
+		/**
+		 * @return the index of the new json
+		 */
+		KeyPathIndex to() {
+			return to;
+		}
+
+		/**
+		 * @return the objects and values of the old json at the paths of the new json
+		 */
+		KeyPathIndex.Values from() {
+			return from;
+		}
+
+		List<Operation> operations() {
+			return Collections.unmodifiableList(operations);
+		}
+
+		int size() {
+			return operations.size();
+		}
+
+		/**
+		 * @return the operations as json patch, values of add and replace operations are shared with the new json
+		 * and must not be modified
+		 */
+		ArrayNode toPatch() {
+			ArrayNode patch = NODE_FACTORY.arrayNode(operations.size());
+			for (Operation operation : operations) {
+				ObjectNode json = patch.addObject();
+				json.put("op", operation.op().name().toLowerCase(Locale.ROOT));
+				if (operation.op() == Op.REMOVE) {
+					json.put("path", to.pointer(operation.parent(), operation.fieldName()));
+				} else {
+					json.put("path", to.pointer(operation.id()));
+					json.set("value", to.node(operation.id()));
+				}
+			}
+			return patch;
+		}
+	}
+}
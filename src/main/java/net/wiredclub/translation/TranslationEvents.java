@@ -0,0 +1,140 @@
+package net.wiredclub.translation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Configuration;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Recording;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+/**
+ * Java Flight Recorder events of the translation tool. They are recorded together with the events of the
+ * JVM, e.g. allocations and garbage collections, if the tool is started with {@code --jfr <file>} or a
+ * recording is started from outside, e.g. with {@code jcmd <pid> JFR.start}.
+ * <p>
+ * The events are cheap if no recording is running: their fields are only filled if
+ * {@link Event#shouldCommit()} returns {@code true}.
+ */
+final class TranslationEvents {
+
+	private static final String CATEGORY = "Translation Tool";
+
+	private TranslationEvents() {
+	}
+
+	/**
+	 * Starts a recording with the JDK profiling settings, which is written to the file when it is stopped.
+	 *
+	 * @param file the destination of the recording
+	 * @return the running recording
+	 * @throws IOException if the file cannot be created or the settings cannot be read
+	 */
+	static Recording startRecording(Path file) throws IOException {
+		Configuration configuration;
+		try {
+			configuration = Configuration.getConfiguration("profile");
+		} catch (ParseException e) {
+			throw new IOException("JFR settings 'profile' cannot be parsed.", e);
+		}
+		Recording recording = new Recording(configuration);
+		recording.setName("translation-tool");
+		recording.setToDisk(true);
+		recording.setDestination(file.toAbsolutePath());
+		recording.enable(DeepLRequest.class);
+		recording.enable(Diff.class);
+		recording.enable(FileRead.class);
+		recording.enable(FileWrite.class);
+		recording.start();
+		return recording;
+	}
+
+	@Name("net.wiredclub.translation.DeepLRequest")
+	@Label("DeepL Request")
+	@Category({CATEGORY, "DeepL"})
+	@Description("A batch of texts sent to DeepL, including retries")
+	static final class DeepLRequest extends Event {
+
+		@Label("Endpoint")
+		String endpoint;
+
+		@Label("Source Language")
+		String sourceLanguage;
+
+		@Label("Target Language")
+		String targetLanguage;
+
+		@Label("Texts")
+		int texts;
+
+		@Label("Characters")
+		long characters;
+
+		@Label("HTTP Status")
+		@Description("Status of the last response, 0 if no response was received")
+		int statusCode;
+	}
+
+	@Name("net.wiredclub.translation.Diff")
+	@Label("Translation Diff")
+	@Category({CATEGORY, "Diff"})
+	@Description("Comparison of two indexed translation files")
+	static final class Diff extends Event {
+
+		@Label("From Paths")
+		@Description("Objects and values of the old json which were compared")
+		int fromPaths;
+
+		@Label("To Paths")
+		@Description("Objects and values of the new json")
+		int toPaths;
+
+		@Label("Operations")
+		int operations;
+
+		@Label("Values Compared")
+		@Description("False if only keys are compared, e.g. a target file with its source file")
+		boolean valuesCompared;
+	}
+
+	@Name("net.wiredclub.translation.FileRead")
+	@Label("File Read")
+	@Category({CATEGORY, "File"})
+	@Description("A translation file read from disk or from the git history, including parsing")
+	static final class FileRead extends Event {
+
+		@Label("Path")
+		String path;
+
+		@Label("Revision")
+		@Description("The git revision, empty if the file is read from disk")
+		String revision;
+
+		@Label("Size")
+		@DataAmount
+		long bytes;
+	}
+
+	@Name("net.wiredclub.translation.FileWrite")
+	@Label("File Write")
+	@Category({CATEGORY, "File"})
+	@Description("A file written atomically, including serialization")
+	static final class FileWrite extends Event {
+
+		@Label("Path")
+		String path;
+
+		@Label("Size")
+		@DataAmount
+		long bytes;
+
+		@Label("Written")
+		@Description("False if the file already had the same content and was not replaced")
+		boolean written;
+	}
+}
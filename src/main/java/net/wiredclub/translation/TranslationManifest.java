@@ -0,0 +1,192 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Remembers for every value of a target language the fingerprint of the source text it was translated from. The
+ * manifest is stored in the directory of the target language, e.g. {@code translations/de/.translation-manifest.json},
+ * so it is committed together with the translated files. The fingerprints of a namespace have the shape of its
+ * source file, the git object ids of the source file and of the written target file are remembered as well.
+ * <p>
+ * A value is stale if the fingerprint of its current source text differs, so the keys whose source text changed
+ * are found without reading previous versions from git. This works with shallow clones, squash merges and
+ * rebases. A namespace whose source file has the remembered object id is not parsed at all. Values without a
+ * fingerprint, e.g. of namespaces which were translated before the manifest existed, are compared with the previous
+ * version of the source file as before. So are the values of a target file which was edited by hand after it was
+ * translated, its fingerprints no longer tell which source texts its values are translated from.
+ */
+class TranslationManifest {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TranslationManifest.class);
+
+	static final String FILE_NAME = ".translation-manifest.json";
+
+	private static final JsonNodeFactory NODE_FACTORY = JsonNodeFactory.instance;
+
+	// 64 bit FNV-1a, see http://www.isthe.com/chongo/tech/comp/fnv/
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+	private final JsonHelper jsonHelper;
+	private final FileHelper fileHelper;
+	private final String fileName;
+	private final String sourceLanguage;
+	private final ObjectNode namespaces;
+	private boolean changed;
+
+	private TranslationManifest(JsonHelper jsonHelper, FileHelper fileHelper, String fileName, String sourceLanguage,
+	                            ObjectNode namespaces) {
+		this.jsonHelper = jsonHelper;
+		this.fileHelper = fileHelper;
+		this.fileName = fileName;
+		this.sourceLanguage = sourceLanguage;
+		this.namespaces = namespaces;
+	}
+
+	/**
+	 * @param jsonHelper reads and writes the manifest
+	 * @param fileHelper reads and writes the manifest
+	 * @param fileName the manifest of a target language
+	 * @param sourceLanguage the source language of the run, a manifest of another source language is ignored
+	 * @return the manifest, empty if the file does not exist or cannot be read
+	 */
+	static TranslationManifest read(JsonHelper jsonHelper, FileHelper fileHelper, String fileName,
+	                                String sourceLanguage) {
+		ObjectNode namespaces = NODE_FACTORY.objectNode();
+		try {
+			JsonNode json = fileHelper.readFile(fileName, jsonHelper::readJson);
+			if (sourceLanguage.equals(json.path("sourceLanguage").asText()) && json.path("namespaces").isObject()) {
+				namespaces = (ObjectNode) json.get("namespaces");
+			}
+		} catch (TranslationFileNotFoundException e) {
+			// no namespace of the target language was translated with a manifest yet
+		} catch (IOException e) {
+			LOG.warn("Translation manifest '{}' cannot be read and is ignored. Cause: {}", fileName, e.getMessage());
+		}
+		return new TranslationManifest(jsonHelper, fileHelper, fileName, sourceLanguage, namespaces);
+	}
+
+	String fileName() {
+		return fileName;
+	}
+
+	/**
+	 * @param namespace the namespace, e.g. {@code main} or {@code admin/users}
+	 * @return the git object id of the source file the target file was translated from, {@code null} if the
+	 * namespace has none
+	 */
+	String blobId(String namespace) {
+		JsonNode blobId = namespaces.path(namespace).get("blobId");
+		return blobId != null && blobId.isTextual() ? blobId.textValue() : null;
+	}
+
+	/**
+	 * @param namespace the namespace, e.g. {@code main} or {@code admin/users}
+	 * @return the git object id of the target file when it was translated, {@code null} if the namespace has none
+	 */
+	String targetBlobId(String namespace) {
+		JsonNode targetBlobId = namespaces.path(namespace).get("targetBlobId");
+		return targetBlobId != null && targetBlobId.isTextual() ? targetBlobId.textValue() : null;
+	}
+
+	/**
+	 * @param namespace the namespace, e.g. {@code main} or {@code admin/users}
+	 * @param targetBlobId the git object id of the current target file, see {@link FileHelper#blobId(String)}
+	 * @return the fingerprints of the source texts the target file was translated from in the shape of the source
+	 * file, {@code null} if the namespace has none or if the target file changed since it was translated
+	 */
+	JsonNode fingerprints(String namespace, String targetBlobId) {
+		String translatedBlobId = targetBlobId(namespace);
+		if (translatedBlobId != null && !translatedBlobId.equals(targetBlobId)) {
+			return null;
+		}
+		JsonNode fingerprints = namespaces.path(namespace).get("fingerprints");
+		return fingerprints != null && fingerprints.isObject() ? fingerprints : null;
+	}
+
+	/**
+	 * @param namespace the namespace which was translated completely
+	 * @param source the source file it was translated from, see {@link #source(String, JsonNode)}, the node is
+	 * shared and must not be modified
+	 * @param targetBlobId the git object id of the target file as it was written
+	 */
+	void update(String namespace, JsonNode source, String targetBlobId) {
+		ObjectNode entry = NODE_FACTORY.objectNode();
+		entry.setAll((ObjectNode) source);
+		entry.put("targetBlobId", targetBlobId);
+		if (!entry.equals(namespaces.get(namespace))) {
+			namespaces.set(namespace, entry);
+			changed = true;
+		}
+	}
+
+	/**
+	 * @return {@code true} if the manifest was written, {@code false} if it is unchanged
+	 * @throws IOException if the manifest cannot be written
+	 */
+	boolean write() throws IOException {
+		if (!changed) {
+			return false;
+		}
+		ObjectNode json = NODE_FACTORY.objectNode();
+		json.put("sourceLanguage", sourceLanguage);
+		json.set("namespaces", namespaces);
+		boolean written = fileHelper.writeFileAtomically(fileName, out -> jsonHelper.writeJson(json, out));
+		changed = false;
+		return written;
+	}
+
+	/**
+	 * @param blobId the git object id of the source file, see {@link FileHelper#blobId(String)}
+	 * @param sourceJson the source file
+	 * @return the entry of the source file in a manifest
+	 */
+	static ObjectNode source(String blobId, JsonNode sourceJson) {
+		ObjectNode source = NODE_FACTORY.objectNode();
+		source.put("blobId", blobId);
+		source.set("fingerprints", fingerprints(sourceJson));
+		return source;
+	}
+
+	/**
+	 * @param sourceJson a source file
+	 * @return the fingerprints of all texts of the source file in its shape, arrays are left out
+	 */
+	static ObjectNode fingerprints(JsonNode sourceJson) {
+		ObjectNode fingerprints = NODE_FACTORY.objectNode();
+		Iterator<Map.Entry<String, JsonNode>> fields = sourceJson.fields();
+		while (fields.hasNext()) {
+			Map.Entry<String, JsonNode> field = fields.next();
+			JsonNode value = field.getValue();
+			if (value.isObject()) {
+				fingerprints.set(field.getKey(), fingerprints(value));
+			} else if (!value.isArray()) {
+				fingerprints.put(field.getKey(), fingerprint(value.asText()));
+			}
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * @param text a source text
+	 * @return a 64 bit hash of the UTF-8 bytes of the text as 16 hex digits
+	 */
+	static String fingerprint(String text) {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte b : text.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		String hex = Long.toHexString(hash);
+		return "0".repeat(16 - hex.length()) + hex;
+	}
+}
@@ -0,0 +1,385 @@
+package net.wiredclub.translation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A persistent translation memory in front of DeepL. Translations are stored per source text,
+ * source language, target language and tag handling, so the same text is never paid twice.
+ * <p>
+ * The memory is an append-only file of records {@code [key length][value length][key][value]} with
+ * an index of record offsets and a small LRU cache of values in front of it. If the file grows
+ * beyond its limit, the oldest records are dropped. All file access is guarded by a lock file,
+ * so parallel runs on the same machine can share one memory.
+ */
+public class TranslationMemory implements Closeable {
+
+	// private static final Logger LOG = LoggerFactory.getLogger(TranslationMemory.class);
+
+	public static final String DEFAULT_FILE_NAME = "translation-memory.bin";
+	public static final int DEFAULT_CACHED_ENTRIES = 10_000;
+	public static final long DEFAULT_MAX_FILE_BYTES = 64L * 1024 * 1024;
+
+	private static final int MAGIC = 0x544d454d; // "TMEM"
+	private static final int HEADER_BYTES = 4;
+	private static final int RECORD_HEADER_BYTES = 8;
+	private static final char KEY_SEPARATOR = '\u001f';
+
+	// file locks are held by the jvm, threads of the same jvm must be serialized before locking.
+	private static final Map<Path, Object> JVM_LOCKS = new ConcurrentHashMap<>();
+
+	private static final TranslationMemory DISABLED = new TranslationMemory();
+
+	private final Path file;
+	private final Path lockFile;
+	private final Object jvmLock;
+	private final long maxFileBytes;
+	private final Map<String, String> cache;
+	private final Map<String, Long> index = new HashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private FileChannel channel;
+	private Object fileKey;
+	private long indexedLength;
+
+	private TranslationMemory() {
+		this.file = null;
+		this.lockFile = null;
+		this.jvmLock = null;
+		this.maxFileBytes = 0;
+		this.cache = Map.of();
+	}
+
+	private TranslationMemory(Path file, int cachedEntries, long maxFileBytes) throws IOException {
+		this.file = file.toAbsolutePath().normalize();
+		this.lockFile = this.file.resolveSibling(this.file.getFileName() + ".lock");
+		this.jvmLock = JVM_LOCKS.computeIfAbsent(this.lockFile, path -> new Object());
+		this.maxFileBytes = maxFileBytes;
+		this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > cachedEntries;
+			}
+		};
+
+		Files.createDirectories(this.file.getParent());
+		withFileLock(() -> {
+			openChannel();
+			return null;
+		});
+	}
+
+	/**
+	 * @return a memory which does not remember anything
+	 */
+	public static TranslationMemory disabled() {
+		return DISABLED;
+	}
+
+	public static TranslationMemory open(Path file) throws IOException {
+		return open(file, DEFAULT_CACHED_ENTRIES, DEFAULT_MAX_FILE_BYTES);
+	}
+
+	public static TranslationMemory open(Path file, int cachedEntries, long maxFileBytes) throws IOException {
+		return new TranslationMemory(file, cachedEntries, maxFileBytes);
+	}
+
+	public boolean isEnabled() {
+		return file != null;
+	}
+
+	/**
+	 * Looks up a translation.
+	 *
+	 * @param text the source text
+	 * @param sourceLanguage the source language
+	 * @param targetLanguage the target language
+	 * @param tagHandling the tag handling settings used for the translation
+	 * @return the translation or {@code null} if the text was not translated before
+	 * @throws IOException if the memory file cannot be read
+	 */
+	public synchronized String get(String text, String sourceLanguage, String targetLanguage, String tagHandling)
+			throws IOException {
+		if (!isEnabled()) {
+			return null;
+		}
+
+		String key = key(text, sourceLanguage, targetLanguage, tagHandling);
+		String translation = cache.get(key);
+		if (translation == null) {
+			Long offset = index.get(key);
+			if (offset == null && channel.size() > indexedLength) {
+				// another process has appended records in the meantime
+				withFileLock(this::scan);
+				offset = index.get(key);
+			}
+			if (offset != null) {
+				translation = readValue(offset);
+				cache.put(key, translation);
+			}
+		}
+
+		(translation == null ? misses : hits).incrementAndGet();
+		return translation;
+	}
+
+	/**
+	 * Checks whether a translation exists without counting it as hit or miss.
+	 *
+	 * @param text the source text
+	 * @param sourceLanguage the source language
+	 * @param targetLanguage the target language
+	 * @param tagHandling the tag handling settings used for the translation
+	 * @return true if the text was translated before
+	 * @throws IOException if the memory file cannot be read
+	 */
+	public synchronized boolean contains(String text, String sourceLanguage, String targetLanguage,
+	                                     String tagHandling) throws IOException {
+		if (!isEnabled()) {
+			return false;
+		}
+
+		String key = key(text, sourceLanguage, targetLanguage, tagHandling);
+		if (cache.containsKey(key) || index.containsKey(key)) {
+			return true;
+		}
+		if (channel.size() > indexedLength) {
+			withFileLock(this::scan);
+		}
+		return index.containsKey(key);
+	}
+
+	/**
+	 * Stores translations of texts. All records are appended with one write.
+	 *
+	 * @param translations source texts and their translations
+	 * @param sourceLanguage the source language
+	 * @param targetLanguage the target language
+	 * @param tagHandling the tag handling settings used for the translation
+	 * @throws IOException if the memory file cannot be written
+	 */
+	public synchronized void putAll(Map<String, String> translations, String sourceLanguage, String targetLanguage,
+	                                String tagHandling) throws IOException {
+		if (!isEnabled() || translations.isEmpty()) {
+			return;
+		}
+
+		Map<String, String> records = new LinkedHashMap<>();
+		for (Map.Entry<String, String> translation : translations.entrySet()) {
+			records.put(key(translation.getKey(), sourceLanguage, targetLanguage, tagHandling), translation.getValue());
+		}
+
+		withFileLock(() -> {
+			scan();
+			append(records);
+			if (channel.size() > maxFileBytes) {
+				compact();
+			}
+			return null;
+		});
+		cache.putAll(records);
+	}
+
+	public long hits() {
+		return hits.get();
+	}
+
+	public long misses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return hits in percent of all lookups, 0 if there was no lookup
+	 */
+	public double hitRate() {
+		long lookups = hits() + misses();
+		return lookups == 0 ? 0 : hits() * 100.0 / lookups;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private String key(String text, String sourceLanguage, String targetLanguage, String tagHandling) {
+		return sourceLanguage.toLowerCase() + KEY_SEPARATOR + targetLanguage.toLowerCase() + KEY_SEPARATOR
+				+ tagHandling + KEY_SEPARATOR + Normalizer.normalize(text, Normalizer.Form.NFC);
+	}
+
+	private void openChannel() throws IOException {
+		channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+		index.clear();
+		indexedLength = 0;
+		if (channel.size() < HEADER_BYTES) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).flip();
+			channel.truncate(0);
+			channel.write(header, 0);
+		} else {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			channel.read(header, 0);
+			if (header.flip().getInt() != MAGIC) {
+				throw new IOException("File '" + file + "' is not a translation memory.");
+			}
+		}
+		indexedLength = HEADER_BYTES;
+		scan();
+	}
+
+	/**
+	 * Indexes all records which were appended since the last scan. A record which is not
+	 * completely written, e.g. after a crash, is cut off.
+	 */
+	private Void scan() throws IOException {
+		Object currentFileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+		if (fileKey != null && !fileKey.equals(currentFileKey)) {
+			// another process has compacted the memory, the records of this channel are outdated
+			channel.close();
+			cache.clear();
+			openChannel();
+			return null;
+		}
+
+		long size = channel.size();
+		ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+		long position = indexedLength;
+		while (position + RECORD_HEADER_BYTES <= size) {
+			recordHeader.clear();
+			channel.read(recordHeader, position);
+			recordHeader.flip();
+			int keyLength = recordHeader.getInt();
+			int valueLength = recordHeader.getInt();
+			long end = position + RECORD_HEADER_BYTES + keyLength + valueLength;
+			if (keyLength < 0 || valueLength < 0 || end > size) {
+				break;
+			}
+			index.put(readString(position + RECORD_HEADER_BYTES, keyLength), position);
+			position = end;
+		}
+		if (position < size) {
+			channel.truncate(position);
+		}
+		indexedLength = position;
+		return null;
+	}
+
+	private void append(Map<String, String> records) throws IOException {
+		List<byte[]> encoded = new ArrayList<>(records.size() * 2);
+		int length = 0;
+		for (Map.Entry<String, String> record : records.entrySet()) {
+			byte[] key = record.getKey().getBytes(StandardCharsets.UTF_8);
+			byte[] value = record.getValue().getBytes(StandardCharsets.UTF_8);
+			encoded.add(key);
+			encoded.add(value);
+			length += RECORD_HEADER_BYTES + key.length + value.length;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		int i = 0;
+		for (String key : records.keySet()) {
+			byte[] keyBytes = encoded.get(i++);
+			byte[] valueBytes = encoded.get(i++);
+			index.put(key, indexedLength + buffer.position());
+			buffer.putInt(keyBytes.length).putInt(valueBytes.length).put(keyBytes).put(valueBytes);
+		}
+
+		buffer.flip();
+		long position = indexedLength;
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+		indexedLength = position;
+	}
+
+	/**
+	 * Rewrites the memory with the newest records only, so that at most half of the maximum size is used.
+	 */
+	private void compact() throws IOException {
+		List<Long> offsets = new ArrayList<>(index.values());
+		offsets.sort(null);
+
+		long budget = maxFileBytes / 2;
+		int first = offsets.size();
+		while (first > 0 && budget >= recordLength(offsets.get(first - 1))) {
+			budget -= recordLength(offsets.get(first - 1));
+			first--;
+		}
+
+		Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+		try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			out.write(ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).flip());
+			for (int i = first; i < offsets.size(); i++) {
+				long offset = offsets.get(i);
+				channel.transferTo(offset, recordLength(offset), out);
+			}
+		}
+		channel.close();
+		Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		cache.clear();
+		openChannel();
+	}
+
+	private long recordLength(long offset) throws IOException {
+		ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+		channel.read(recordHeader, offset);
+		recordHeader.flip();
+		return RECORD_HEADER_BYTES + (long) recordHeader.getInt() + recordHeader.getInt();
+	}
+
+	private String readValue(long offset) throws IOException {
+		ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+		channel.read(recordHeader, offset);
+		recordHeader.flip();
+		int keyLength = recordHeader.getInt();
+		int valueLength = recordHeader.getInt();
+		return readString(offset + RECORD_HEADER_BYTES + keyLength, valueLength);
+	}
+
+	private String readString(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("Unexpected end of translation memory '" + file + "'.");
+			}
+		}
+		return new String(buffer.array(), StandardCharsets.UTF_8);
+	}
+
+	@SuppressWarnings("try")
+	private <T> T withFileLock(LockedAction<T> action) throws IOException {
+		synchronized (jvmLock) {
+			try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE);
+			     FileLock ignored = lockChannel.lock()) {
+				return action.run();
+			}
+		}
+	}
+
+	@FunctionalInterface
+	private interface LockedAction<T> {
+		T run() throws IOException;
+	}
+}
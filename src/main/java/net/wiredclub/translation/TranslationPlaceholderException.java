@@ -0,0 +1,30 @@
+package net.wiredclub.translation;
+
+import java.util.List;
+
+public class TranslationPlaceholderException extends TranslationException {
+
+	private final List<String> translations;
+
+	public TranslationPlaceholderException(String message) {
+		this(message, null);
+	}
+
+	/**
+	 * @param message describes the lost placeholders
+	 * @param translations the translations of all texts in order of the texts, {@code null} for a text whose
+	 * placeholder got lost
+	 */
+	public TranslationPlaceholderException(String message, List<String> translations) {
+		super(message, TranslationStatusCode.STATUS_PLACEHOLDER_LOST);
+		this.translations = translations;
+	}
+
+	/**
+	 * @return the translations of all texts, {@code null} for a text whose placeholder got lost, or {@code null}
+	 * if no text is translated
+	 */
+	public List<String> translations() {
+		return translations;
+	}
+}
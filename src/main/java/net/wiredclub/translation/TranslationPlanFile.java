@@ -0,0 +1,205 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_INVALID_ARGUMENT;
+
+/**
+ * A translation plan which is computed offline with {@code --plan} and executed later with {@code --apply}, e.g.
+ * on another machine or on a schedule. For every target language the plan contains the distinct texts which need
+ * a translation by DeepL, the characters DeepL charges for them and the {@link ChangeSet} of every changed
+ * namespace.
+ * <p>
+ * A text of a change set refers to its source text by the index within the texts of the target language, so a
+ * text is contained only once however often it is used. A text which is already translated in the target file
+ * contains the translation.
+ * <p>
+ * The plan also contains the source files it was computed from as entries of a {@link TranslationManifest}, they are
+ * remembered in the manifests of the target languages when the plan is applied.
+ */
+class TranslationPlanFile {
+
+	static final int VERSION = 2;
+
+	private static final JsonNodeFactory NODE_FACTORY = JsonNodeFactory.instance;
+
+	private final String sourceLanguage;
+	private final String baseCommit;
+	private final String commit;
+	private final Map<String, LanguagePlan> languages;
+	private final Map<String, JsonNode> sources;
+
+	/**
+	 * @param sourceLanguage the source language
+	 * @param baseCommit the commit the changes of the source files were computed since, {@code null} if unknown
+	 * @param commit the commit whose source files are translated when the plan is applied, {@code null} if unknown
+	 * @param languages the plans of the target languages
+	 * @param sources the manifest entries of the source files by namespace, see
+	 * {@link TranslationManifest#source(String, JsonNode)}
+	 */
+	TranslationPlanFile(String sourceLanguage, String baseCommit, String commit, Map<String, LanguagePlan> languages,
+	                    Map<String, JsonNode> sources) {
+		this.sourceLanguage = sourceLanguage;
+		this.baseCommit = baseCommit;
+		this.commit = commit;
+		this.languages = languages;
+		this.sources = sources;
+	}
+
+	String sourceLanguage() {
+		return sourceLanguage;
+	}
+
+	String baseCommit() {
+		return baseCommit;
+	}
+
+	String commit() {
+		return commit;
+	}
+
+	Map<String, LanguagePlan> languages() {
+		return languages;
+	}
+
+	/**
+	 * @return the manifest entries of the source files the plan was computed from by namespace, empty if the plan
+	 * has none
+	 */
+	Map<String, JsonNode> sources() {
+		return sources;
+	}
+
+	/**
+	 * @return number of distinct texts of all target languages
+	 */
+	int texts() {
+		return languages.values().stream().mapToInt(language -> language.texts().size()).sum();
+	}
+
+	/**
+	 * @return number of characters DeepL charges for all target languages
+	 */
+	long characters() {
+		return languages.values().stream().mapToLong(LanguagePlan::characters).sum();
+	}
+
+	JsonNode toJson() {
+		ObjectNode json = NODE_FACTORY.objectNode();
+		json.put("version", VERSION);
+		json.put("sourceLanguage", sourceLanguage);
+		json.put("baseCommit", baseCommit);
+		json.put("commit", commit);
+		json.put("texts", texts());
+		json.put("characters", characters());
+		ObjectNode languagesJson = json.putObject("languages");
+		for (Map.Entry<String, LanguagePlan> language : languages.entrySet()) {
+			ObjectNode languageJson = languagesJson.putObject(language.getKey());
+			languageJson.put("characters", language.getValue().characters());
+			ArrayNode texts = languageJson.putArray("texts");
+			language.getValue().texts().forEach(texts::add);
+			ObjectNode files = languageJson.putObject("files");
+			for (Map.Entry<String, FilePlan> file : language.getValue().files().entrySet()) {
+				ObjectNode fileJson = files.putObject(file.getKey());
+				fileJson.put("blobId", file.getValue().blobId());
+				fileJson.setAll((ObjectNode) file.getValue().changes().toJson());
+			}
+		}
+		ObjectNode sourcesJson = json.putObject("sources");
+		sources.forEach(sourcesJson::set);
+		return json;
+	}
+
+	/**
+	 * @param json the plan as written by {@link #toJson()}
+	 * @return the plan
+	 * @throws TranslationException thrown if the json is no plan of this version
+	 */
+	static TranslationPlanFile fromJson(JsonNode json) throws TranslationException {
+		if (json.path("version").asInt() != VERSION) {
+			throw invalid("version " + VERSION + " expected");
+		}
+		if (!json.path("sourceLanguage").isTextual() || !json.path("languages").isObject()) {
+			throw invalid("source language or target languages missing");
+		}
+
+		Map<String, LanguagePlan> languages = new LinkedHashMap<>();
+		Iterator<Map.Entry<String, JsonNode>> languagesJson = json.get("languages").fields();
+		while (languagesJson.hasNext()) {
+			Map.Entry<String, JsonNode> language = languagesJson.next();
+			JsonNode languageJson = language.getValue();
+			if (!languageJson.path("texts").isArray() || !languageJson.path("files").isObject()) {
+				throw invalid("texts or files of '" + language.getKey() + "' missing");
+			}
+			List<String> texts = new ArrayList<>();
+			languageJson.get("texts").forEach(text -> texts.add(text.asText()));
+
+			Map<String, FilePlan> files = new LinkedHashMap<>();
+			Iterator<Map.Entry<String, JsonNode>> filesJson = languageJson.get("files").fields();
+			while (filesJson.hasNext()) {
+				Map.Entry<String, JsonNode> file = filesJson.next();
+				String name = language.getKey() + "/" + file.getKey();
+				JsonNode blobId = file.getValue().path("blobId");
+				files.put(file.getKey(), new FilePlan(blobId.isTextual() ? blobId.asText() : null,
+						readChanges(file.getValue(), texts.size(), name)));
+			}
+			languages.put(language.getKey(), new LanguagePlan(texts, languageJson.path("characters").asLong(), files));
+		}
+		// plans without sources are valid, their target files are translated without updating the manifests
+		Map<String, JsonNode> sources = new LinkedHashMap<>();
+		Iterator<Map.Entry<String, JsonNode>> sourcesJson = json.path("sources").fields();
+		while (sourcesJson.hasNext()) {
+			Map.Entry<String, JsonNode> namespace = sourcesJson.next();
+			if (namespace.getValue().isObject()) {
+				sources.put(namespace.getKey(), namespace.getValue());
+			}
+		}
+		return new TranslationPlanFile(json.get("sourceLanguage").asText(), textOrNull(json.path("baseCommit")),
+				textOrNull(json.path("commit")), languages, sources);
+	}
+
+	private static ChangeSet readChanges(JsonNode file, int texts, String name) throws TranslationException {
+		try {
+			return ChangeSet.fromJson(file, texts);
+		} catch (IllegalArgumentException e) {
+			throw invalid("changes of '" + name + "' invalid, " + e.getMessage());
+		}
+	}
+
+	private static String textOrNull(JsonNode node) {
+		return node.isTextual() ? node.asText() : null;
+	}
+
+	private static TranslationException invalid(String cause) {
+		return new TranslationException("Error: Invalid translation plan, " + cause + ". "
+				+ "Please compute the plan again with --plan.", STATUS_INVALID_ARGUMENT);
+	}
+
+	/**
+	 * The changed namespaces of a target language.
+	 *
+	 * @param texts the distinct texts which need a translation by DeepL
+	 * @param characters number of characters DeepL charges for the texts
+	 * @param files the plans of the target files by namespace
+	 */
+	record LanguagePlan(List<String> texts, long characters, Map<String, FilePlan> files) {
+	}
+
+	/**
+	 * The changes of a target file.
+	 *
+	 * @param blobId the git object id of the target file the plan was computed for, {@code null} if it did not exist
+	 * @param changes keys which are added or removed and texts which are replaced
+	 */
+	record FilePlan(String blobId, ChangeSet changes) {
+	}
+}
@@ -0,0 +1,76 @@
+package net.wiredclub.translation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides which target languages are translated within the remaining DeepL quota. Target languages
+ * are considered in priority order: first the configured priority languages, then all others in
+ * alphabetical order. A target language is translated completely or deferred to a later run, so a
+ * run never stops halfway because the quota is exceeded.
+ */
+class TranslationPlanner {
+
+	/**
+	 * Remaining characters if the quota is unknown, e.g. DeepL usage could not be requested.
+	 */
+	static final long UNLIMITED = Long.MAX_VALUE;
+
+	private final List<String> priority;
+
+	/**
+	 * @param priority target languages which are preferred if the quota is not sufficient for all of them
+	 */
+	TranslationPlanner(List<String> priority) {
+		this.priority = priority;
+	}
+
+	/**
+	 * @param charactersPerLanguage characters which are sent to DeepL for every target language
+	 * @param remainingCharacters characters which are left in the DeepL quota
+	 * @return the plan with selected and deferred target languages
+	 */
+	Plan plan(Map<String, Long> charactersPerLanguage, long remainingCharacters) {
+		List<String> order = new ArrayList<>();
+		for (String language : priority) {
+			if (charactersPerLanguage.containsKey(language) && !order.contains(language)) {
+				order.add(language);
+			}
+		}
+		List<String> others = new ArrayList<>(charactersPerLanguage.keySet());
+		others.removeAll(order);
+		Collections.sort(others);
+		order.addAll(others);
+
+		Map<String, Long> selected = new LinkedHashMap<>();
+		Map<String, Long> deferred = new LinkedHashMap<>();
+		long remaining = remainingCharacters;
+		for (String language : order) {
+			long characters = charactersPerLanguage.get(language);
+			if (characters <= remaining) {
+				selected.put(language, characters);
+				if (remaining != UNLIMITED) {
+					remaining -= characters;
+				}
+			} else {
+				deferred.put(language, characters);
+			}
+		}
+		return new Plan(selected, deferred, remainingCharacters);
+	}
+
+	/**
+	 * @param selected target languages which are translated and their characters, in priority order
+	 * @param deferred target languages which do not fit into the quota and their characters, in priority order
+	 * @param remainingCharacters characters which were left in the DeepL quota before the run
+	 */
+	record Plan(Map<String, Long> selected, Map<String, Long> deferred, long remainingCharacters) {
+
+		boolean isSelected(String language) {
+			return selected.containsKey(language);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.DefaultIndenter;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+
+import java.io.IOException;
+
+/**
+ * Pretty printer for translation files. Objects and arrays are indented with tabs and field names are
+ * followed by {@code ": "} instead of jacksons default {@code " : "}, e.g.
+ * <pre>
+ * {
+ * 	"key": "value",
+ * 	"group": {
+ * 		"key": "value"
+ * 	}
+ * }
+ * </pre>
+ */
+class TranslationPrettyPrinter extends DefaultPrettyPrinter {
+
+	private static final long serialVersionUID = 1L;
+
+	TranslationPrettyPrinter() {
+		DefaultPrettyPrinter.Indenter indenter = new DefaultIndenter("\t", DefaultIndenter.SYS_LF);
+		indentObjectsWith(indenter);
+		indentArraysWith(indenter);
+	}
+
+	private TranslationPrettyPrinter(TranslationPrettyPrinter base) {
+		super(base);
+	}
+
+	@Override
+	public TranslationPrettyPrinter createInstance() {
+		return new TranslationPrettyPrinter(this);
+	}
+
+	@Override
+	public void writeObjectFieldValueSeparator(JsonGenerator generator) throws IOException {
+		generator.writeRaw(": ");
+	}
+}
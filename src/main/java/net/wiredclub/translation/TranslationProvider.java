@@ -0,0 +1,117 @@
+package net.wiredclub.translation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A backend which translates texts, e.g. {@link DeepLHelper}. Translations are requested asynchronously and in
+ * batches: the returned future completes when all texts are translated, so the caller does not block a thread
+ * per request and can keep the requests of many target languages in flight at the same time.
+ * <p>
+ * A future completes exceptionally with an {@link IOException} if the backend cannot be reached, with a
+ * {@link TranslationJsonProcessingException} if its response is invalid, or with a
+ * {@link TranslationPlaceholderException} if a placeholder got lost, see {@link #await(CompletableFuture)}.
+ * Implementations are thread safe.
+ */
+public interface TranslationProvider {
+
+	/**
+	 * @param texts texts in source language
+	 * @param sourceLanguage the source language
+	 * @param targetLanguage the target language
+	 * @return the translations in the same order as the texts
+	 */
+	CompletableFuture<List<String>> translateAsync(List<String> texts, String sourceLanguage, String targetLanguage);
+
+	/**
+	 * @param texts texts in source language
+	 * @param sourceLanguage the source language
+	 * @param targetLanguage the target language
+	 * @return number of characters the backend charges for the translation of the texts
+	 * @throws IOException if the translation memory cannot be read
+	 */
+	long billableCharacters(List<String> texts, String sourceLanguage, String targetLanguage) throws IOException;
+
+	/**
+	 * @return the characters translated in the current billing period and the limit of the backend
+	 */
+	CompletableFuture<Usage> usageAsync();
+
+	List<String> sourceLanguages() throws IOException, TranslationJsonProcessingException;
+
+	List<String> targetLanguages() throws IOException, TranslationJsonProcessingException;
+
+	/**
+	 * @return the address of the backend, which separates cached data of different backends
+	 */
+	default String baseUri() {
+		return "";
+	}
+
+	/**
+	 * @param translationMemory the translation memory which is consulted before the backend is asked
+	 */
+	default void useTranslationMemory(TranslationMemory translationMemory) {
+	}
+
+	/**
+	 * @param placeholders the tokenizer which protects the placeholders of the texts
+	 */
+	default void usePlaceholders(PlaceholderTokenizer placeholders) {
+	}
+
+	/**
+	 * @param listener the listener which is notified after every request to the backend
+	 */
+	default void addListener(DeepLTransport.RequestListener listener) {
+	}
+
+	default void removeListener(DeepLTransport.RequestListener listener) {
+	}
+
+	/**
+	 * Waits for a translation and throws the exception it completed with.
+	 *
+	 * @param future the future of a translation
+	 * @return the result of the future
+	 * @throws IOException if the backend cannot be reached or the thread is interrupted
+	 * @throws TranslationJsonProcessingException if the response of the backend is invalid
+	 * @throws TranslationPlaceholderException if a placeholder got lost in a translation
+	 */
+	static <T> T await(CompletableFuture<T> future)
+			throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Translation was interrupted.", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			while (cause instanceof CompletionException && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof TranslationJsonProcessingException) {
+				throw (TranslationJsonProcessingException) cause;
+			} else if (cause instanceof TranslationPlaceholderException) {
+				throw (TranslationPlaceholderException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException("Translation failed.", cause);
+		}
+	}
+
+	/**
+	 * @param characterCount characters translated in the current billing period
+	 * @param characterLimit characters which can be translated in the billing period
+	 */
+	record Usage(long characterCount, long characterLimit) {
+	}
+}
@@ -0,0 +1,1411 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static net.wiredclub.translation.RunReport.Phase;
+import static net.wiredclub.translation.RunReport.Stage;
+import static net.wiredclub.translation.TranslationProvider.Usage;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_BAD_AS_HELL;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_FILE_NOT_FOUND;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_INVALID_ARGUMENT;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_JSON_INVALID;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_OUT_OF_SYNC;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_QUOTA_EXCEEDED;
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_TRANSLATION_FILE_INVALID;
+
+/**
+ * The translation of one project: the translations directory of a repository with its configuration, its run report
+ * and the state which is read at the start of the translation, i.e. the base revisions and the manifests of the
+ * target languages. A run of the tool translates with one instance, a batch run with one instance per project, so
+ * the projects do not share any state. {@link PlanRun} and {@link WatchRun} translate with an instance of their
+ * project, {@link BatchRun} creates one per project.
+ * <p>
+ * The changes of the source files since the last translated commit of each target language are translated, see
+ * {@link TranslationState}, or since the previous commit if it is unknown. In watch mode the source files which
+ * were translated last are remembered, so the changes of saved source files are translated since then.
+ */
+class TranslationRun {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TranslationRun.class);
+
+	/**
+	 * Changes of the source file are computed against this revision if the last translated commit is unknown.
+	 */
+	static final String PREVIOUS_REVISION = "HEAD~1";
+
+	private final JsonHelper jsonHelper;
+	private final TranslationProvider provider;
+	private final FileHelper fileHelper;
+	private final TranslationConfig cfg;
+	private final RunReport report;
+	// source files translated in watch mode by namespace, null if the tool does not watch
+	private final Map<String, JsonNode> sourceSnapshot;
+	// the changes of the source files since these revisions are translated by target language
+	private Map<String, String> baseRevisions = Map.of();
+	// manifests of the target languages of the run by target language
+	private Map<String, TranslationManifest> manifests = Map.of();
+
+	/**
+	 * @param jsonHelper reads and writes the translation files
+	 * @param provider translates the texts
+	 * @param fileHelper reads the repository and writes the translation files
+	 * @param cfg the configuration of the project
+	 * @param report the report the project is measured in
+	 */
+	TranslationRun(JsonHelper jsonHelper, TranslationProvider provider, FileHelper fileHelper, TranslationConfig cfg,
+	               RunReport report) {
+		this.jsonHelper = jsonHelper;
+		this.provider = provider;
+		this.fileHelper = fileHelper;
+		this.cfg = cfg;
+		this.report = report;
+		this.sourceSnapshot = cfg.watch() ? new ConcurrentHashMap<>() : null;
+	}
+
+	/**
+	 * <ol>
+	 *     <li>Discover all namespaces (json files) of the source language and skip the unchanged ones</li>
+	 *     <li>For every changed namespace, read source file and find differences to the previous version</li>
+	 *     <li>For every namespace and target language (in parallel if more than one job is configured)</li>
+	 *     <ol>
+	 *         <li>Read target file and find differences to source file</li>
+	 *         <li>Collect text changes between target to source and remaining source text changes</li>
+	 *     </ol>
+	 *     <li>Select the target languages which fit into the remaining DeepL quota</li>
+	 *     <li>For every namespace and selected target language (in parallel if more than one job is configured)</li>
+	 *     <ol>
+	 *         <li>Translate texts and patch the target file</li>
+	 *         <li>Write output file</li>
+	 *     </ol>
+	 *     <li>Report the results of all namespaces and target languages in alphabetical order</li>
+	 * </ol>
+	 *
+	 * Look at the activity diagram in documentation folder for a graphical overview.
+	 *
+	 * @throws TranslationException throws exception if translation is not possible
+	 * @throws IOException throws exception if an error during file IO occurs
+	 */
+	void translate() throws TranslationException, IOException {
+		List<String> namespaces = discover();
+		// requested in background, it is needed when the translations are planned
+		CompletableFuture<Usage> usage = requestUsage();
+
+		List<TranslationUnit> units = changedUnits(namespaces);
+		if (units.isEmpty()) {
+			LOG.info("All {} namespace(s) are unchanged, there is nothing to translate.", namespaces.size());
+			updateState(List.of());
+			return;
+		}
+
+		List<LanguageResult> results = translateUnits(units, usage);
+		// only completely translated target languages are remembered, the others repeat their missing changes
+		updateState(results);
+		reportResults(results);
+
+		LOG.info("Translation process finished but files were not committed and pushed. "
+				+ "Please verify translation files and commit and push them.");
+	}
+
+	/**
+	 * Reads the state of the project which the translation starts from: the base revision and the manifest of every
+	 * target language. Then every json file in the directory of the source language is discovered as namespace.
+	 *
+	 * @return the namespaces of the source language
+	 * @throws TranslationException thrown if the revision given with {@code --since} or the directory of the
+	 * source language does not exist
+	 * @throws IOException thrown if the repository cannot be read
+	 */
+	List<String> discover() throws TranslationException, IOException {
+		// the changes of the source files since these revisions are translated
+		baseRevisions = resolveBaseRevisions();
+		readManifests(cfg.targetLanguages());
+
+		long start = System.nanoTime();
+		List<String> namespaces = discoverNamespaces();
+		report.stage(Stage.DISCOVER, start);
+
+		// run information for devs
+		if (LOG.isDebugEnabled()) {
+			LOG.info("Translation tool started.");
+			LOG.info("Source language: {}", cfg.sourceLanguage());
+			LOG.info("Target language(s): {}", cfg.targetLanguages());
+			LOG.info("Translations directory: {}", cfg.translationsDirectory());
+			LOG.info("Namespace(s): {}", namespaces);
+			LOG.info("Parallel jobs: {}", cfg.jobs());
+		}
+		return namespaces;
+	}
+
+	/**
+	 * @param namespaces the namespaces, see {@link #discover()}
+	 * @return every namespace of every target language, with {@code --full} also the unchanged ones
+	 * @throws IOException thrown if the repository cannot be read
+	 */
+	List<TranslationUnit> changedUnits(List<String> namespaces) throws IOException {
+		List<TranslationUnit> units = createUnits(namespaces);
+		if (!cfg.full()) {
+			long start = System.nanoTime();
+			units = findChangedUnits(units);
+			report.stage(Stage.FIND_CHANGES, start);
+		}
+		return units;
+	}
+
+	/**
+	 * @param namespaces the namespaces
+	 * @return every namespace of every target language, the target languages in alphabetical order
+	 */
+	List<TranslationUnit> createUnits(Collection<String> namespaces) {
+		List<String> targetLanguages = new ArrayList<>(cfg.targetLanguages());
+		Collections.sort(targetLanguages);
+
+		List<TranslationUnit> units = new ArrayList<>();
+		for (String namespace : namespaces) {
+			for (String targetLanguage : targetLanguages) {
+				units.add(new TranslationUnit(namespace, targetLanguage));
+			}
+		}
+		return units;
+	}
+
+	/**
+	 * Prepares, plans and completes the translation of namespaces of target languages, see
+	 * {@link #translate()}.
+	 *
+	 * @param units the namespaces of the target languages
+	 * @param usage the DeepL usage which was requested in background
+	 * @return the results of the namespaces of the target languages in order of the units, see
+	 * {@link #reportResults(List)}
+	 * @throws TranslationException thrown if the current thread is interrupted
+	 */
+	List<LanguageResult> translateUnits(List<TranslationUnit> units, CompletableFuture<Usage> usage)
+			throws TranslationException {
+		ExecutorService executor = createExecutor(units.size());
+		try {
+			Map<String, SourceWork> sources = new HashMap<>();
+			List<LanguageWork> works = prepareUnits(executor, units, sources);
+
+			long start = System.nanoTime();
+			// the texts of all namespaces of a target language are translated together, identical texts only once
+			Map<String, List<TranslationBatch>> batchesPerLanguage = new LinkedHashMap<>();
+			for (LanguageWork work : works) {
+				if (work.error() == null) {
+					batchesPerLanguage.computeIfAbsent(work.unit().targetLanguage(), key -> new ArrayList<>())
+							.add(work.batch());
+				}
+			}
+			works = countCharacters(works, batchesPerLanguage);
+			TranslationPlanner.Plan plan = planTranslations(charactersPerLanguage(works), usage);
+			report.stage(Stage.PLAN, start);
+
+			start = System.nanoTime();
+			// the translations of all selected target languages are requested at once, so the provider keeps
+			// their requests in flight while the target files are patched as soon as their translations arrive
+			Map<String, CompletableFuture<Void>> translations = new HashMap<>();
+			for (Map.Entry<String, List<TranslationBatch>> language : batchesPerLanguage.entrySet()) {
+				if (plan.isSelected(language.getKey())) {
+					translations.put(language.getKey(), requestTranslation(language.getKey(),
+							() -> TranslationBatch.translateAsync(language.getValue())));
+				}
+			}
+			List<LanguageResult> results = forEach(executor, works,
+					work -> completeLanguage(work, plan, translations.get(work.unit().targetLanguage())));
+			report.stage(Stage.COMPLETE, start);
+
+			if (sourceSnapshot != null) {
+				rememberSources(sources.values(), results);
+			}
+			updateManifests(manifestSources(sources.values()), results);
+			return results;
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Counts the characters of every target language like {@link PlanRun} does: a text which
+	 * several namespaces need is counted once. The characters of a target language are reported with its first
+	 * namespace. If the characters cannot be counted, all namespaces of the target language fail.
+	 *
+	 * @param works the prepared namespaces of all target languages
+	 * @param batchesPerLanguage the batches of the prepared namespaces by target language
+	 * @return the works with their characters in order of the works
+	 */
+	private List<LanguageWork> countCharacters(List<LanguageWork> works,
+	                                           Map<String, List<TranslationBatch>> batchesPerLanguage) {
+		Map<String, Long> charactersPerLanguage = new HashMap<>();
+		Map<String, TranslationException> errors = new HashMap<>();
+		for (Map.Entry<String, List<TranslationBatch>> language : batchesPerLanguage.entrySet()) {
+			try {
+				charactersPerLanguage.put(language.getKey(), TranslationBatch.billableCharacters(language.getValue()));
+			} catch (IOException e) {
+				errors.put(language.getKey(),
+						unexpectedError(cfg.translationsDirectory() + "/" + language.getKey(), e));
+			}
+		}
+
+		List<LanguageWork> result = new ArrayList<>(works.size());
+		for (LanguageWork work : works) {
+			String targetLanguage = work.unit().targetLanguage();
+			if (work.error() != null) {
+				result.add(work);
+			} else if (errors.containsKey(targetLanguage)) {
+				result.add(LanguageWork.failed(work.unit(), errors.get(targetLanguage)));
+			} else {
+				Long characters = charactersPerLanguage.remove(targetLanguage);
+				result.add(work.withCharacters(characters == null ? 0 : characters));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Reads the source files of the namespaces and prepares every namespace of every target language.
+	 *
+	 * @param executor the executor, {@code null} to prepare one after another
+	 * @param units the namespaces of the target languages
+	 * @param sources the prepared source files are added by namespace
+	 * @return the prepared namespaces of the target languages in order of the units
+	 * @throws TranslationException thrown if the current thread is interrupted
+	 */
+	List<LanguageWork> prepareUnits(ExecutorService executor, List<TranslationUnit> units,
+	                                Map<String, SourceWork> sources) throws TranslationException {
+		Map<String, Set<String>> changedNamespaces = new LinkedHashMap<>();
+		for (TranslationUnit unit : units) {
+			changedNamespaces.computeIfAbsent(unit.namespace(), key -> new HashSet<>()).add(unit.targetLanguage());
+		}
+
+		// source json and source diff patches of a namespace are shared between all target languages and
+		// must not be modified.
+		long start = System.nanoTime();
+		for (SourceWork source : forEach(executor, new ArrayList<>(changedNamespaces.entrySet()),
+				namespace -> prepareSource(namespace.getKey(), namespace.getValue()))) {
+			sources.put(source.namespace(), source);
+		}
+
+		List<LanguageWork> works = forEach(executor, units,
+				unit -> prepareLanguage(unit, sources.get(unit.namespace())));
+		report.stage(Stage.PREPARE, start);
+		return works;
+	}
+
+	/**
+	 * Checks that every namespace of every target language is in sync with its source file, without any request to
+	 * DeepL and without changing a file. The source files and then the target files are verified in parallel, all
+	 * processors are used because nothing is sent to DeepL. Every problem is logged.
+	 *
+	 * @throws TranslationException thrown if at least one problem was found or the current thread is interrupted
+	 * @throws IOException thrown if a language directory cannot be read
+	 */
+	void verify() throws TranslationException, IOException {
+		long start = System.nanoTime();
+		List<String> namespaces = discoverNamespaces();
+		List<TranslationUnit> units = createUnits(namespaces);
+		List<TranslationVerifier.Problem> problems = new ArrayList<>();
+		for (TranslationUnit unit : createUnits(unknownNamespaces(namespaces))) {
+			problems.add(new TranslationVerifier.Problem(cfg.targetFileName(unit.targetLanguage(), unit.namespace()),
+					"", "The namespace is not part of the source language."));
+		}
+		report.stage(Stage.DISCOVER, start);
+
+		start = System.nanoTime();
+		TranslationVerifier verifier = new TranslationVerifier(jsonHelper, fileHelper,
+				new PlaceholderTokenizer(cfg.placeholders()), cfg.repositoryDirectory());
+		ExecutorService executor = createExecutor(units.size(), Runtime.getRuntime().availableProcessors());
+		try {
+			List<TranslationVerifier.Source> sources = forEach(executor, namespaces,
+					namespace -> verifier.readSource(cfg.sourceFileName(namespace)));
+			Map<String, TranslationVerifier.Source> sourceByNamespace = new HashMap<>();
+			for (int i = 0; i < namespaces.size(); i++) {
+				sourceByNamespace.put(namespaces.get(i), sources.get(i));
+				problems.addAll(sources.get(i).problems());
+			}
+			for (List<TranslationVerifier.Problem> targetProblems : forEach(executor, units,
+					unit -> verifier.verifyTarget(sourceByNamespace.get(unit.namespace()),
+							cfg.targetFileName(unit.targetLanguage(), unit.namespace())))) {
+				problems.addAll(targetProblems);
+			}
+		} finally {
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+		report.stage(Stage.VERIFY, start);
+
+		for (TranslationVerifier.Problem problem : problems) {
+			LOG.warn(problem.describe());
+		}
+		if (!problems.isEmpty()) {
+			long files = problems.stream().map(TranslationVerifier.Problem::fileName).distinct().count();
+			throw new TranslationException("Error: " + problems.size() + " problem(s) found in " + files
+					+ " translation file(s). Please run the translation tool or fix the files.", STATUS_OUT_OF_SYNC);
+		}
+		LOG.info("All {} translation file(s) of {} namespace(s) are in sync.", namespaces.size() + units.size(),
+				namespaces.size());
+	}
+
+	/**
+	 * @param namespaces the namespaces of the source language
+	 * @return the namespaces of the target languages which the source language does not have
+	 * @throws IOException thrown if a language directory cannot be read
+	 */
+	private Set<String> unknownNamespaces(List<String> namespaces) throws IOException {
+		Set<String> unknownNamespaces = new TreeSet<>();
+		for (String targetLanguage : cfg.targetLanguages()) {
+			unknownNamespaces.addAll(fileHelper.discoverNamespaces(
+					cfg.repositoryDirectory() + "/" + cfg.translationsDirectory() + "/" + targetLanguage));
+		}
+		namespaces.forEach(unknownNamespaces::remove);
+		return unknownNamespaces;
+	}
+
+	/**
+	 * Forgets the remembered source file of a namespace in watch mode, e.g. because it was deleted.
+	 *
+	 * @param namespace the namespace
+	 */
+	void forgetSource(String namespace) {
+		sourceSnapshot.remove(namespace);
+	}
+
+	/**
+	 * Remembers the source files of the namespaces which were translated into all target languages, the next
+	 * changes of these namespaces are found by comparing with them. Namespaces which failed or were deferred
+	 * keep their previous version, so that their changes are translated again.
+	 *
+	 * @param sources the source files of the namespaces
+	 * @param results results of all namespaces of all target languages
+	 */
+	private void rememberSources(Collection<SourceWork> sources, List<LanguageResult> results) {
+		Set<String> incompleteNamespaces = new HashSet<>();
+		for (LanguageResult result : results) {
+			if (result.error() != null || result.deferred()) {
+				incompleteNamespaces.add(result.unit().namespace());
+			}
+		}
+		for (SourceWork source : sources) {
+			if (source.error() == null && !incompleteNamespaces.contains(source.namespace())) {
+				sourceSnapshot.put(source.namespace(), source.sourceJson());
+			}
+		}
+	}
+
+	/**
+	 * @return the revision given with {@code --since} for all target languages, otherwise the last translated commit
+	 * of every target language if it is part of the repository, otherwise the previous commit
+	 * @throws TranslationException thrown if the revision given with {@code --since} does not exist
+	 * @throws IOException if the repository cannot be read
+	 */
+	private Map<String, String> resolveBaseRevisions() throws TranslationException, IOException {
+		Map<String, String> revisions = new HashMap<>();
+		if (cfg.since() != null) {
+			String commit = fileHelper.resolveCommit(cfg.repositoryDirectory(), cfg.since());
+			if (commit == null) {
+				throw new TranslationException("Error: Revision '" + cfg.since() + "' not found. "
+						+ "Please verify the argument of --since.", STATUS_INVALID_ARGUMENT);
+			}
+			LOG.info("Translating the changes since '{}' ({}).", cfg.since(), commit);
+			cfg.targetLanguages().forEach(language -> revisions.put(language, commit));
+			return revisions;
+		}
+
+		String stateFileName = cfg.repositoryDirectory() + "/" + cfg.stateFileName();
+		Map<String, String> lastCommits = new TranslationState(jsonHelper, fileHelper, stateFileName)
+				.lastTranslatedCommits(cfg.sourceLanguage(), cfg.targetLanguages());
+		Map<String, Set<String>> languagesPerCommit = new TreeMap<>();
+		for (String targetLanguage : cfg.targetLanguages()) {
+			String lastCommit = lastCommits.get(targetLanguage);
+			if (lastCommit != null && fileHelper.resolveCommit(cfg.repositoryDirectory(), lastCommit) == null) {
+				LOG.warn("Last translated commit {} of '{}' in '{}' not found, the changes since the previous commit "
+						+ "are translated.", lastCommit, targetLanguage, cfg.stateFileName());
+				lastCommit = null;
+			}
+			revisions.put(targetLanguage, lastCommit == null ? PREVIOUS_REVISION : lastCommit);
+			if (lastCommit != null) {
+				languagesPerCommit.computeIfAbsent(lastCommit, key -> new TreeSet<>()).add(targetLanguage);
+			}
+		}
+		languagesPerCommit.forEach((commit, languages) ->
+				LOG.info("Translating the changes of {} since the last translated commit {}.", languages, commit));
+		return revisions;
+	}
+
+	/**
+	 * @return the commit the changes of the source files are translated since, {@code null} if the target languages
+	 * have different base revisions
+	 * @throws IOException if the repository cannot be read
+	 */
+	String baseCommit() throws IOException {
+		Set<String> revisions = new HashSet<>(baseRevisions.values());
+		return revisions.size() == 1
+				? fileHelper.resolveCommit(cfg.repositoryDirectory(), revisions.iterator().next()) : null;
+	}
+
+	/**
+	 * @param targetLanguage the target language
+	 * @return the revision the changes of the source files are translated since into the target language
+	 */
+	private String baseRevision(String targetLanguage) {
+		return baseRevisions.getOrDefault(targetLanguage, PREVIOUS_REVISION);
+	}
+
+	/**
+	 * Remembers the current commit as last translated commit of every target language which was translated
+	 * completely.
+	 *
+	 * @param results results of all changed namespaces of all target languages
+	 * @throws IOException if the repository cannot be read or the state file cannot be written
+	 */
+	private void updateState(List<LanguageResult> results) throws IOException {
+		String headCommit = fileHelper.resolveCommit(cfg.repositoryDirectory(), "HEAD");
+		if (headCommit != null) {
+			updateState(headCommit, cfg.targetLanguages(), results);
+		}
+	}
+
+	/**
+	 * Remembers the commit as last translated commit of every target language whose namespaces neither failed nor
+	 * were deferred, the other target languages keep their last translated commit.
+	 *
+	 * @param headCommit the commit whose source files are translated
+	 * @param targetLanguages the target languages of the run
+	 * @param results results of all changed namespaces of the target languages
+	 * @throws IOException if the state file cannot be written
+	 */
+	void updateState(String headCommit, Collection<String> targetLanguages, List<LanguageResult> results)
+			throws IOException {
+		Set<String> incompleteLanguages = new HashSet<>();
+		for (LanguageResult result : results) {
+			if (result.error() != null || result.deferred()) {
+				incompleteLanguages.add(result.unit().targetLanguage());
+			}
+		}
+		Map<String, String> commits = new TreeMap<>();
+		for (String targetLanguage : targetLanguages) {
+			if (!incompleteLanguages.contains(targetLanguage)) {
+				commits.put(targetLanguage, headCommit);
+			}
+		}
+		if (commits.isEmpty()) {
+			return;
+		}
+		String stateFileName = cfg.repositoryDirectory() + "/" + cfg.stateFileName();
+		if (new TranslationState(jsonHelper, fileHelper, stateFileName).update(commits, cfg.sourceLanguage())) {
+			LOG.info("Last translated commit {} of {} written to '{}'.", headCommit, commits.keySet(),
+					cfg.stateFileName());
+		}
+	}
+
+	private List<String> discoverNamespaces() throws TranslationException, IOException {
+		String sourceDirectory = cfg.translationsDirectory() + "/" + cfg.sourceLanguage();
+		List<String> namespaces = new ArrayList<>(
+				fileHelper.discoverNamespaces(cfg.repositoryDirectory() + "/" + sourceDirectory));
+		if (namespaces.isEmpty()) {
+			throw new TranslationException("Error: No json file found in '" + sourceDirectory + "'. "
+					+ "Please verify that the directory of the source language exists.", STATUS_FILE_NOT_FOUND);
+		}
+		return namespaces;
+	}
+
+	/**
+	 * A namespace of a target language is unchanged if neither its source file nor its target file differ from
+	 * their version in the base revision of the target language. If the manifest of the target language knows the
+	 * source file of the namespace, the source file is compared with it instead, so a lost history does not hide a
+	 * changed source file. Only the git object ids of the files are compared, they are not parsed.
+	 *
+	 * @param units all namespaces of all target languages
+	 * @return the units whose source file or target file has changed
+	 * @throws IOException if the repository cannot be read
+	 */
+	private List<TranslationUnit> findChangedUnits(List<TranslationUnit> units) throws IOException {
+		// the files are looked up once per base revision, usually all target languages have the same
+		Map<String, Set<String>> fileNamesPerRevision = new HashMap<>();
+		Set<String> fileNames = new LinkedHashSet<>();
+		for (TranslationUnit unit : units) {
+			Set<String> revisionFileNames =
+					fileNamesPerRevision.computeIfAbsent(baseRevision(unit.targetLanguage()), key -> new HashSet<>());
+			revisionFileNames.add(cfg.sourceFileName(unit.namespace()));
+			revisionFileNames.add(cfg.targetFileName(unit.targetLanguage(), unit.namespace()));
+			fileNames.addAll(revisionFileNames);
+		}
+		Map<String, Map<String, String>> previousIds = new HashMap<>();
+		for (Map.Entry<String, Set<String>> revision : fileNamesPerRevision.entrySet()) {
+			previousIds.put(revision.getKey(), fileHelper.blobIdsFromHistory(cfg.repositoryDirectory(),
+					revision.getKey(), revision.getValue()));
+		}
+
+		Map<String, String> currentIds = new HashMap<>();
+		for (String fileName : fileNames) {
+			currentIds.put(fileName, fileHelper.blobId(cfg.repositoryDirectory() + "/" + fileName));
+		}
+
+		List<TranslationUnit> changedUnits = new ArrayList<>();
+		for (TranslationUnit unit : units) {
+			String sourceFileName = cfg.sourceFileName(unit.namespace());
+			String targetFileName = cfg.targetFileName(unit.targetLanguage(), unit.namespace());
+			Map<String, String> revisionIds = previousIds.get(baseRevision(unit.targetLanguage()));
+			String manifestId = manifests.get(unit.targetLanguage()).blobId(unit.namespace());
+			String currentSourceId = currentIds.get(sourceFileName);
+			boolean sourceUnchanged = manifestId == null
+					? currentSourceId != null && currentSourceId.equals(revisionIds.get(sourceFileName))
+					: manifestId.equals(currentSourceId);
+			String currentTargetId = currentIds.get(targetFileName);
+			boolean targetUnchanged =
+					currentTargetId != null && currentTargetId.equals(revisionIds.get(targetFileName));
+			if (!sourceUnchanged || !targetUnchanged) {
+				changedUnits.add(unit);
+			}
+		}
+		LOG.debug("Skipped {} unchanged of {} namespace file(s).", units.size() - changedUnits.size(), units.size());
+		return changedUnits;
+	}
+
+	CompletableFuture<Usage> requestUsage() {
+		return provider.usageAsync();
+	}
+
+	/**
+	 * @param works prepared namespaces of all target languages
+	 * @return the characters every target language needs
+	 */
+	private static Map<String, Long> charactersPerLanguage(List<LanguageWork> works) {
+		Map<String, Long> charactersPerLanguage = new LinkedHashMap<>();
+		for (LanguageWork work : works) {
+			if (work.error() == null) {
+				charactersPerLanguage.merge(work.unit().targetLanguage(), work.characters(), Long::sum);
+			}
+		}
+		return charactersPerLanguage;
+	}
+
+	/**
+	 * Selects the target languages which fit into the remaining DeepL quota. If the usage cannot be requested,
+	 * all target languages are selected.
+	 *
+	 * @param charactersPerLanguage the characters every target language needs
+	 * @param usage the DeepL usage which was requested in background
+	 * @return the plan with selected and deferred target languages
+	 */
+	TranslationPlanner.Plan planTranslations(Map<String, Long> charactersPerLanguage,
+	                                         CompletableFuture<Usage> usage) {
+		long remainingCharacters = TranslationPlanner.UNLIMITED;
+		try {
+			Usage currentUsage = usage.join();
+			remainingCharacters = Math.max(0, currentUsage.characterLimit() - currentUsage.characterCount());
+			LOG.debug("DeepL translations possible: {}/{}", currentUsage.characterCount(),
+					currentUsage.characterLimit());
+		} catch (CompletionException e) {
+			LOG.warn("DeepL usage could not be requested, the quota is not checked. Cause: {}",
+					e.getCause().getMessage());
+		}
+
+		TranslationPlanner.Plan plan = new TranslationPlanner(cfg.priority()).plan(charactersPerLanguage,
+				remainingCharacters);
+		LOG.debug("Planned {} character(s) for {}.", plan.selected().values().stream().mapToLong(Long::longValue).sum(),
+				plan.selected().keySet());
+		return plan;
+	}
+
+	ExecutorService createExecutor(int tasks) {
+		return createExecutor(tasks, cfg.jobs());
+	}
+
+	/**
+	 * @param tasks number of tasks
+	 * @param jobs maximum number of tasks which run in parallel
+	 * @return the executor, {@code null} if the tasks run one after another
+	 */
+	private ExecutorService createExecutor(int tasks, int jobs) {
+		if (jobs <= 1 || tasks <= 1) {
+			return null;
+		}
+		int threads = Math.min(jobs, tasks);
+		AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "translation-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Runs a task for every item, in parallel if an executor is given.
+	 *
+	 * @param executor the executor, {@code null} to run the tasks one after another
+	 * @param items the items, e.g. namespaces or namespaces of target languages
+	 * @param task the task, it must not throw exceptions but return them within its result
+	 * @return the results in order of the items, so that they do not depend on thread scheduling
+	 * @throws TranslationException thrown if the current thread is interrupted
+	 */
+	<I, T> List<T> forEach(ExecutorService executor, List<I> items, Function<I, T> task)
+			throws TranslationException {
+		List<T> results = new ArrayList<>(items.size());
+		if (executor == null) {
+			for (I item : items) {
+				results.add(task.apply(item));
+			}
+			return results;
+		}
+
+		try {
+			List<Future<T>> futures = new ArrayList<>(items.size());
+			for (I item : items) {
+				futures.add(executor.submit(() -> task.apply(item)));
+			}
+			for (Future<T> future : futures) {
+				results.add(future.get());
+			}
+			return results;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new TranslationException("Error: Translation was interrupted.", STATUS_BAD_AS_HELL);
+		} catch (ExecutionException e) {
+			// the tasks catch all exceptions, so this should never happen.
+			throw new IllegalStateException(e.getCause());
+		}
+	}
+
+	/**
+	 * Reads the source file of one namespace and finds the differences to its previous version in the base revision
+	 * of every target language. Exceptions are not thrown but returned within the work, so that the other namespaces
+	 * are not affected.
+	 *
+	 * @param namespace the namespace
+	 * @param targetLanguages the target languages the namespace is translated into
+	 * @return the prepared source of the namespace
+	 */
+	private SourceWork prepareSource(String namespace, Set<String> targetLanguages) {
+		String sourceFileName = cfg.sourceFileName(namespace);
+		String sourceLanguage = cfg.sourceLanguage();
+		try {
+			long start = System.nanoTime();
+			JsonNode sourceJson = getTranslationFile(sourceFileName, sourceLanguage);
+			report.phase(sourceLanguage, Phase.READ_SOURCE, start);
+
+			// the source is indexed once and compared with its previous version and every target file
+			start = System.nanoTime();
+			KeyPathIndex sourceKeys = KeyPathIndex.of(sourceJson);
+			report.phase(sourceLanguage, Phase.DIFF_SOURCE, start);
+
+			start = System.nanoTime();
+			ObjectNode manifestSource = TranslationManifest.source(
+					fileHelper.blobId(cfg.repositoryDirectory() + "/" + sourceFileName), sourceJson);
+			KeyPathIndex.Values sourceFingerprints = sourceKeys.values(manifestSource.get("fingerprints"));
+			report.phase(sourceLanguage, Phase.DIFF_SOURCE, start);
+
+			// find all changes from previous version of the source file to the actual source file, once per base
+			// revision. If the manifests of all its target languages have fingerprints of the namespace, the
+			// previous version is not needed.
+			Map<String, List<String>> languagesPerRevision = new HashMap<>();
+			for (String targetLanguage : targetLanguages) {
+				languagesPerRevision.computeIfAbsent(baseRevision(targetLanguage), key -> new ArrayList<>())
+						.add(targetLanguage);
+			}
+			Map<String, SourceDiff> diffs = new HashMap<>();
+			for (Map.Entry<String, List<String>> revision : languagesPerRevision.entrySet()) {
+				TranslationDiff.Changes sourceChanges = hasFingerprints(namespace, revision.getValue())
+						? TranslationDiff.none(sourceKeys)
+						: findChangesInSource(namespace, sourceFileName, sourceKeys, revision.getKey());
+				diffs.put(revision.getKey(), new SourceDiff(sourceChanges, findChangedPaths(sourceChanges)));
+			}
+			return new SourceWork(namespace, sourceJson, sourceKeys, diffs, manifestSource, sourceFingerprints, null);
+		} catch (TranslationException e) {
+			return SourceWork.failed(namespace, e);
+		} catch (Exception e) {
+			return SourceWork.failed(namespace, unexpectedError(sourceFileName, e));
+		}
+	}
+
+	/**
+	 * Reads one namespace of a target language and collects all changes and texts which need a translation.
+	 * Exceptions are not thrown but returned within the work, so that the other target languages are not
+	 * affected.
+	 *
+	 * @param unit the namespace and target language
+	 * @param source the prepared source of the namespace, it is not modified
+	 * @return the prepared work of the namespace of the target language
+	 */
+	private LanguageWork prepareLanguage(TranslationUnit unit, SourceWork source) {
+		if (source.error() != null) {
+			return LanguageWork.failed(unit, source.error());
+		}
+		String targetLanguage = unit.targetLanguage();
+		String targetFileName = cfg.targetFileName(targetLanguage, unit.namespace());
+		try {
+			long start = System.nanoTime();
+			JsonNode targetJson = getTargetTranslationFile(targetFileName, targetLanguage);
+			report.phase(targetLanguage, Phase.READ_TARGET, start);
+			KeyPathIndex sourceKeys = source.sourceKeys();
+
+			// This call is a bit weird, because we use target json as first parameter (source) and source as
+			// second (target). This is because the names are used in a different context. We want to know which keys
+			// need to be added to or removed from target json in comparison to source json. The target json will be
+			// transformed into the same structure as source json.
+			start = System.nanoTime();
+			TranslationDiff.Changes targetChanges = TranslationDiff.diffKeys(targetJson, sourceKeys);
+			report.phase(targetLanguage, Phase.DIFF_TARGET, start);
+			// LOG.debug("target to source diff patch: {}", targetChanges.toPatch().toPrettyString());
+
+			// the fingerprints of the manifest tell which values are stale, otherwise the values whose source text
+			// changed since the previous version are.
+			start = System.nanoTime();
+			SourceDiff sourceDiff = source.diffs().get(baseRevision(targetLanguage));
+			JsonNode fingerprints = fingerprints(unit);
+			BitSet stalePaths = fingerprints == null ? sourceDiff.changedPaths()
+					: findStalePaths(source, sourceDiff, targetChanges, sourceKeys.values(fingerprints));
+
+			// all texts of this target language are translated together, identical texts only once.
+			TranslationBatch batch = new TranslationBatch(provider, cfg.sourceLanguage(), targetLanguage,
+					TranslationBatch.indexExistingTranslations(sourceKeys, targetChanges.from(), stalePaths));
+
+			// add or remove fields (field values will be translated) and replace changed texts, the changes of
+			// both diffs are applied together in one pass over the target json.
+			ChangeSet changes = new ChangeSet();
+			String sourceFileName = cfg.sourceFileName(unit.namespace());
+			collectKeyChanges(changes, targetChanges, batch, sourceFileName);
+			if (fingerprints == null) {
+				collectValueChanges(changes, sourceDiff.changes(), batch, sourceFileName);
+			} else {
+				collectStaleValues(changes, sourceKeys, stalePaths, batch, sourceFileName);
+			}
+			report.phase(targetLanguage, Phase.COLLECT, start);
+
+			return new LanguageWork(unit, targetJson, changes, batch, 0, null);
+		} catch (TranslationException e) {
+			return LanguageWork.failed(unit, e);
+		} catch (Exception e) {
+			return LanguageWork.failed(unit, unexpectedError(targetFileName, e));
+		}
+	}
+
+	/**
+	 * Translates one prepared namespace of a target language, patches and writes its file. Exceptions are not
+	 * thrown but returned within the result, so that the other target languages are not affected.
+	 *
+	 * @param work the prepared work of the namespace of the target language
+	 * @param plan the plan, target languages which are not selected are deferred
+	 * @param translation the requested translation of the batches of the target language, {@code null} if it is not
+	 * translated
+	 * @return the result of the namespace of the target language
+	 */
+	private LanguageResult completeLanguage(LanguageWork work, TranslationPlanner.Plan plan,
+	                                        CompletableFuture<Void> translation) {
+		TranslationUnit unit = work.unit();
+		if (work.error() != null) {
+			return LanguageResult.failed(unit, work.error());
+		}
+		if (!plan.isSelected(unit.targetLanguage())) {
+			return LanguageResult.deferred(unit, work.characters());
+		}
+
+		String targetLanguage = unit.targetLanguage();
+		try {
+			TranslationBatch batch = work.batch();
+			ChangeSet changes = work.changes();
+			TranslationPlaceholderException lostPlaceholders = null;
+			try {
+				TranslationProvider.await(translation);
+			} catch (TranslationPlaceholderException e) {
+				if (e.translations() == null) {
+					throw e;
+				}
+				// the texts of all namespaces are translated together, only a namespace with a lost placeholder fails
+				if (changes.hasUntranslated()) {
+					lostPlaceholders = lostPlaceholders(unit, changes, e);
+				}
+			}
+
+			long start = System.nanoTime();
+			JsonNode targetJson = work.targetJson();
+			// add or remove keys and replace changed texts in target json
+			changes.apply(targetJson);
+			report.phase(targetLanguage, Phase.PATCH, start);
+
+			// write result into target directory and overwrite existing translation file.
+			start = System.nanoTime();
+			String writtenFile = null;
+			if (!changes.isEmpty()) {
+				writtenFile = writeTargetTranslationFile(targetJson, unit);
+			}
+			report.phase(targetLanguage, Phase.WRITE, start);
+
+			report.keys(targetLanguage, changes.addedTexts(), changes.removedKeys(), changes.replacedTexts());
+			report.texts(targetLanguage, batch.translatedTexts(), batch.reusedTexts(), work.characters());
+			return new LanguageResult(unit, changes.keyOperations(), changes.replacedTexts(), batch.translatedTexts(),
+					batch.reusedTexts(), work.characters(), writtenFile, false, lostPlaceholders);
+		} catch (TranslationException e) {
+			return LanguageResult.failed(unit, e);
+		} catch (Exception e) {
+			return LanguageResult.failed(unit, unexpectedError(cfg.targetFileName(unit.targetLanguage(),
+					unit.namespace()), e));
+		}
+	}
+
+	/**
+	 * Requests a translation and measures it until it completes. The requests are started on the current thread,
+	 * so they are reported for the target language, but no thread waits for their responses.
+	 *
+	 * @param targetLanguage the target language
+	 * @param request starts the translation
+	 * @return the requested translation
+	 */
+	<T> CompletableFuture<T> requestTranslation(String targetLanguage, Supplier<CompletableFuture<T>> request) {
+		long start = System.nanoTime();
+		report.enter(targetLanguage);
+		try {
+			return request.get().whenComplete((result, error) -> report.phase(targetLanguage, Phase.TRANSLATE, start));
+		} catch (RuntimeException e) {
+			return CompletableFuture.failedFuture(e);
+		} finally {
+			report.leave();
+		}
+	}
+
+	/**
+	 * The keys whose placeholders got lost keep their value, so that the other keys of the target file are patched
+	 * anyway.
+	 *
+	 * @param unit the namespace and target language
+	 * @param changes the changes of the target file, the texts without translation are removed
+	 * @param e the exception the translation completed with
+	 * @return the error of the target file which names the keys whose placeholders got lost
+	 */
+	TranslationPlaceholderException lostPlaceholders(TranslationUnit unit, ChangeSet changes,
+	                                                 TranslationPlaceholderException e) {
+		List<String> keys = changes.discardUntranslated();
+		return new TranslationPlaceholderException("Error: Placeholders got lost in the translation of " + keys.size()
+				+ " key(s) of '" + cfg.targetFileName(unit.targetLanguage(), unit.namespace()) + "', they are not "
+				+ "changed: " + String.join(", ", keys) + ". Cause: " + e.getMessage());
+	}
+
+	TranslationException unexpectedError(String fileName, Exception e) {
+		LOG.debug(e.getMessage(), e);
+		String message = "Error: Translation of '" + fileName + "' failed. Cause: " + e;
+		return new TranslationException(message, STATUS_BAD_AS_HELL);
+	}
+
+	/**
+	 * Logs the results of all namespaces of all target languages. If one or more of them failed, all errors are
+	 * reported together and the status code of the first failure is used. If target languages were deferred
+	 * because of the DeepL quota, {@link TranslationStatusCode#STATUS_QUOTA_EXCEEDED} is used.
+	 *
+	 * @param results results of all namespaces of all target languages in alphabetical order
+	 * @throws TranslationException thrown if the translation of at least one file failed or was deferred
+	 */
+	void reportResults(List<LanguageResult> results) throws TranslationException {
+		List<LanguageResult> failures = new ArrayList<>();
+		Map<String, Long> deferredCharacters = new TreeMap<>();
+		Map<String, Long> consumedCharacters = new TreeMap<>();
+		for (LanguageResult result : results) {
+			TranslationUnit unit = result.unit();
+			String targetFileName = cfg.targetFileName(unit.targetLanguage(), unit.namespace());
+			report.file(unit.targetLanguage(), result.writtenFile() != null, result.deferred(),
+					result.error() != null);
+			if (result.keyOperations() > 0) {
+				LOG.info("Created patch (KEYS DIFF) with {} operation(s)/translation(s) for '{}'.",
+						result.keyOperations(), targetFileName);
+			}
+			if (result.valueTranslations() > 0) {
+				LOG.info("Created patch (VALUE DIFF) with {} translation(s) for '{}'.",
+						result.valueTranslations(), targetFileName);
+			}
+			if (result.translatedTexts() > 0 || result.reusedTexts() > 0) {
+				LOG.debug("Translated {} distinct text(s) and reused {} existing translation(s) for '{}'.",
+						result.translatedTexts(), result.reusedTexts(), targetFileName);
+			}
+			if (result.writtenFile() != null) {
+				LOG.info("File written to '{}'.", result.writtenFile());
+			}
+			if (result.deferred()) {
+				deferredCharacters.merge(unit.targetLanguage(), result.characters(), Long::sum);
+			} else if (result.error() != null) {
+				failures.add(result);
+			} else if (result.characters() > 0) {
+				consumedCharacters.merge(unit.targetLanguage(), result.characters(), Long::sum);
+			}
+		}
+		for (Map.Entry<String, Long> deferred : deferredCharacters.entrySet()) {
+			LOG.warn("Translation into '{}' deferred, it needs {} character(s) which exceed the DeepL quota.",
+					deferred.getKey(), deferred.getValue());
+		}
+		if (!consumedCharacters.isEmpty()) {
+			StringBuilder consumed = new StringBuilder();
+			consumedCharacters.forEach((language, characters) ->
+					consumed.append(consumed.length() == 0 ? "" : ", ").append(language).append('=').append(characters));
+			LOG.info("DeepL characters consumed: {} (total {}).", consumed,
+					consumedCharacters.values().stream().mapToLong(Long::longValue).sum());
+		}
+
+		if (!failures.isEmpty()) {
+			StringBuilder message = new StringBuilder("Error: Translation failed for ")
+					.append(failures.size()).append(" of ").append(results.size()).append(" target file(s).");
+			for (LanguageResult failure : failures) {
+				message.append("\n  ").append(failure.unit()).append(": ");
+				String cause = failure.error().getMessage();
+				message.append(cause == null ? failure.error().statusCode() : cause);
+			}
+			throw new TranslationException(message.toString(), failures.get(0).error().statusCode());
+		}
+		if (!deferredCharacters.isEmpty()) {
+			throw new TranslationException("Warning: Translation deferred for " + deferredCharacters.size() + " of "
+					+ cfg.targetLanguages().size() + " target language(s) because the DeepL quota is not sufficient. "
+					+ "Please run the translation again when the quota is renewed.", STATUS_QUOTA_EXCEEDED);
+		}
+	}
+
+	private JsonNode getTranslationFile(String filename, String language) throws TranslationException, IOException {
+		try {
+			// the file is streamed into the parser
+			return fileHelper.readFile(cfg.repositoryDirectory() + "/" + filename,
+					in -> jsonHelper.readJson(report.countRead(language, in)));
+			// LOG.debug("source json: {}", sourceJson.toPrettyString());
+		} catch (JsonProcessingException e) {
+			throw new TranslationException(
+					"Error: Invalid Json. Please verify that the file '" + filename + "' is valid json. "
+							+ "Cause: " + e.getMessage(),
+					STATUS_JSON_INVALID);
+		} catch (TranslationFileNotFoundException e) {
+			throw new TranslationException("Error: '" + filename + "' not found. "
+					+ "Please verify that the file exists.", STATUS_FILE_NOT_FOUND);
+		}
+	}
+
+	/**
+	 * A namespace which is new in the source language does not exist in the target languages yet,
+	 * so a missing target file is handled like an empty one and created.
+	 */
+	JsonNode getTargetTranslationFile(String filename, String language)
+			throws TranslationException, IOException {
+		if (!Files.exists(Paths.get(cfg.repositoryDirectory(), filename))) {
+			LOG.info("File '{}' does not exist and will be created.", filename);
+			return jsonHelper.createNewTranslationFile();
+		}
+		return getTranslationFile(filename, language);
+	}
+
+	/**
+	 * The previous version of the source file is the version which was translated last in watch mode, otherwise
+	 * the version of the base revision.
+	 */
+	private TranslationDiff.Changes findChangesInSource(String namespace, String sourceFileName,
+	                                                    KeyPathIndex sourceKeys, String revision)
+			throws IOException, TranslationException {
+		String sourceLanguage = cfg.sourceLanguage();
+		long start = System.nanoTime();
+		JsonNode previousSourceJson = sourceSnapshot == null ? null : sourceSnapshot.get(namespace);
+		try {
+			if (previousSourceJson == null) {
+				previousSourceJson = readPreviousTranslationFile(cfg.repositoryDirectory(), revision, sourceFileName,
+						in -> report.countRead(sourceLanguage, in));
+			}
+		} catch (TranslationFileNotFoundException e) {
+			// a new namespace has no previous version, all its keys are added
+			LOG.debug("'{}' has no previous version in git.", sourceFileName);
+			previousSourceJson = jsonHelper.createNewTranslationFile();
+		} catch (TranslationJsonProcessingException e) {
+			throw new TranslationException(
+					"Error: Invalid Json. Please verify that the file '" + sourceFileName + "' is valid json.",
+					STATUS_JSON_INVALID);
+		}
+		report.phase(sourceLanguage, Phase.READ_PREVIOUS_SOURCE, start);
+
+		start = System.nanoTime();
+		TranslationDiff.Changes changes = TranslationDiff.diff(previousSourceJson, sourceKeys);
+		report.phase(sourceLanguage, Phase.DIFF_SOURCE, start);
+		// LOG.debug("diff json patch: {}", changes.toPatch().toPrettyString());
+		return changes;
+	}
+
+	/**
+	 * @param sourceChanges changes of the source file since the previous version
+	 * @return path ids of all objects and values which were added or replaced in the source file, including
+	 * their descendants
+	 */
+	private BitSet findChangedPaths(TranslationDiff.Changes sourceChanges) {
+		BitSet changedPaths = new BitSet(sourceChanges.to().size());
+		for (TranslationDiff.Operation operation : sourceChanges.operations()) {
+			if (operation.op() != TranslationDiff.Op.REMOVE) {
+				changedPaths.set(operation.id(), sourceChanges.to().end(operation.id()) + 1);
+			}
+		}
+		return changedPaths;
+	}
+
+	/**
+	 * A value of the target file is stale if the fingerprint of the source text it was translated from differs
+	 * from the fingerprint of the current source text. A value without fingerprint is stale if its source text
+	 * changed since the previous version. A value which is an object in the source file or the other way round is
+	 * stale as well.
+	 *
+	 * @param source the prepared source of the namespace
+	 * @param sourceDiff changes of the source file since the base revision of the target language
+	 * @param targetChanges changes of target file compared to source file
+	 * @param fingerprints the fingerprints of the manifest of the target language at the paths of the source file
+	 * @return path ids of all objects and values which need a translation, including their descendants
+	 */
+	private BitSet findStalePaths(SourceWork source, SourceDiff sourceDiff, TranslationDiff.Changes targetChanges,
+	                              KeyPathIndex.Values fingerprints) {
+		KeyPathIndex sourceKeys = source.sourceKeys();
+		BitSet stalePaths = new BitSet(sourceKeys.size());
+		for (TranslationDiff.Operation operation : targetChanges.operations()) {
+			if (operation.op() == TranslationDiff.Op.REPLACE) {
+				stalePaths.set(operation.id(), sourceKeys.end(operation.id()) + 1);
+			}
+		}
+		for (int id = 1; id < sourceKeys.size(); id++) {
+			JsonNode targetValue = targetChanges.from().node(id);
+			if (sourceKeys.node(id).isContainerNode() || targetValue == null || targetValue.isContainerNode()) {
+				continue;
+			}
+			JsonNode fingerprint = fingerprints.node(id);
+			if (fingerprint == null ? sourceDiff.changedPaths().get(id)
+					: !fingerprint.asText().equals(source.sourceFingerprints().node(id).asText())) {
+				stalePaths.set(id);
+			}
+		}
+		return stalePaths;
+	}
+
+	/**
+	 * @param namespace the namespace
+	 * @param targetLanguages the target languages
+	 * @return {@code true} if the manifests of all the target languages have fingerprints of the namespace
+	 * @throws IOException if a target file cannot be read
+	 */
+	private boolean hasFingerprints(String namespace, Collection<String> targetLanguages) throws IOException {
+		for (String targetLanguage : targetLanguages) {
+			if (fingerprints(new TranslationUnit(namespace, targetLanguage)) == null) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param unit a namespace of a target language
+	 * @return the fingerprints of the manifest of the target language, {@code null} if it has none of the namespace
+	 * or if the target file was edited since it was translated
+	 * @throws IOException if the target file cannot be read
+	 */
+	private JsonNode fingerprints(TranslationUnit unit) throws IOException {
+		TranslationManifest manifest = manifests.get(unit.targetLanguage());
+		if (manifest.targetBlobId(unit.namespace()) == null) {
+			return manifest.fingerprints(unit.namespace(), null);
+		}
+		String targetFileName = cfg.targetFileName(unit.targetLanguage(), unit.namespace());
+		return manifest.fingerprints(unit.namespace(),
+				fileHelper.blobId(cfg.repositoryDirectory() + "/" + targetFileName));
+	}
+
+	/**
+	 * Reads the manifests of the target languages which the run compares with and updates, empty manifests if they
+	 * do not exist yet.
+	 *
+	 * @param targetLanguages the target languages
+	 */
+	void readManifests(Collection<String> targetLanguages) {
+		Map<String, TranslationManifest> result = new HashMap<>();
+		for (String targetLanguage : targetLanguages) {
+			result.put(targetLanguage, TranslationManifest.read(jsonHelper, fileHelper,
+					cfg.repositoryDirectory() + "/" + cfg.manifestFileName(targetLanguage), cfg.sourceLanguage()));
+		}
+		manifests = result;
+	}
+
+	/**
+	 * @param sources the prepared source files
+	 * @return the manifest entries of the source files which could be read by namespace
+	 */
+	static Map<String, JsonNode> manifestSources(Collection<SourceWork> sources) {
+		Map<String, JsonNode> manifestSources = new HashMap<>();
+		for (SourceWork source : sources) {
+			if (source.error() == null) {
+				manifestSources.put(source.namespace(), source.manifestSource());
+			}
+		}
+		return manifestSources;
+	}
+
+	/**
+	 * Remembers the source files of all namespaces which were translated completely into a target language together
+	 * with their target files and writes the changed manifests. A manifest which cannot be written is only logged,
+	 * the next run then translates the changed values again.
+	 *
+	 * @param manifestSources the manifest entries of the source files the namespaces were translated from by
+	 * namespace
+	 * @param results results of all namespaces of all target languages
+	 */
+	void updateManifests(Map<String, JsonNode> manifestSources, List<LanguageResult> results) {
+		for (LanguageResult result : results) {
+			JsonNode manifestSource = manifestSources.get(result.unit().namespace());
+			if (result.error() == null && !result.deferred() && manifestSource != null) {
+				TranslationUnit unit = result.unit();
+				String targetFileName = cfg.targetFileName(unit.targetLanguage(), unit.namespace());
+				try {
+					manifests.get(unit.targetLanguage()).update(unit.namespace(), manifestSource,
+							fileHelper.blobId(cfg.repositoryDirectory() + "/" + targetFileName));
+				} catch (IOException e) {
+					LOG.warn("Target file '{}' cannot be read, its translation is not remembered. Cause: {}",
+							targetFileName, e.getMessage());
+				}
+			}
+		}
+		for (TranslationManifest manifest : manifests.values()) {
+			try {
+				if (manifest.write()) {
+					LOG.debug("Translation manifest written to '{}'.", manifest.fileName());
+				}
+			} catch (IOException e) {
+				LOG.warn("Translation manifest '{}' could not be written, the changed values are translated again "
+						+ "by the next run. Cause: {}", manifest.fileName(), e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * @param revision the revision the file is read from
+	 * @param counter wraps the stream of the file, e.g. to count the bytes read
+	 */
+	private JsonNode readPreviousTranslationFile(String repositoryDirectory, String revision, String fileName,
+	                                             UnaryOperator<InputStream> counter)
+			throws TranslationFileNotFoundException, TranslationJsonProcessingException, IOException {
+		try {
+			// the file is streamed from the object database into the parser
+			return fileHelper.readFileFromHistory(repositoryDirectory, revision, fileName,
+					in -> jsonHelper.readJson(counter.apply(in)));
+		} catch (JsonProcessingException e) {
+			throw new TranslationJsonProcessingException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Collects the changes of the target diff. Only add and remove operations are handled here, replace
+	 * operation will be handled by the changes of the source diff. The values of all added keys are registered
+	 * in the batch and translated later together with all other texts of the target language.
+	 *
+	 * @param changes the changes of the target file
+	 * @param targetChanges changes of target file compared to source file
+	 * @param batch collects all texts which need a translation
+	 * @param sourceFileName the name of the source file for error messages
+	 *
+	 * @throws TranslationException thrown if the source json contains an array
+	 */
+	private void collectKeyChanges(ChangeSet changes, TranslationDiff.Changes targetChanges, TranslationBatch batch,
+	                               String sourceFileName) throws TranslationException {
+		KeyPathIndex sourceKeys = targetChanges.to();
+		for (TranslationDiff.Operation operation : targetChanges.operations()) {
+			switch (operation.op()) {
+				case ADD:
+					traverse(changes.add(sourceKeys, operation.id()), batch, sourceKeys.node(operation.id()),
+							sourceFileName);
+					break;
+				case REMOVE:
+					changes.remove(sourceKeys, operation.parent(), operation.fieldName());
+					break;
+				default:
+					// replace would do an unnecessary translation.
+			}
+		}
+	}
+
+	/**
+	 * Collects the changes of the source diff. Only the replace operation is handled here.
+	 * All other operations are already handled or not needed. The replaced values are
+	 * registered in the batch and translated later together with all other texts of the target language.
+	 *
+	 * @param changes the changes of the target file
+	 * @param sourceChanges changes of source file
+	 * @param batch collects all texts which need a translation
+	 * @param sourceFileName the name of the source file for error messages
+	 *
+	 * @throws TranslationException thrown if the source json contains an array
+	 */
+	private void collectValueChanges(ChangeSet changes, TranslationDiff.Changes sourceChanges,
+	                                 TranslationBatch batch, String sourceFileName) throws TranslationException {
+		KeyPathIndex sourceKeys = sourceChanges.to();
+		for (TranslationDiff.Operation operation : sourceChanges.operations()) {
+			// for operations add and remove translation is not needed
+			if (operation.op() == TranslationDiff.Op.REPLACE) {
+				traverse(changes.replace(sourceKeys, operation.id()), batch, sourceKeys.node(operation.id()),
+						sourceFileName);
+			}
+		}
+	}
+
+	/**
+	 * Collects the stale values of the target file, see {@link #findStalePaths}. The values are registered in the
+	 * batch and translated later together with all other texts of the target language.
+	 *
+	 * @param changes the changes of the target file
+	 * @param sourceKeys the key paths of the source file
+	 * @param stalePaths path ids of all objects and values which need a translation
+	 * @param batch collects all texts which need a translation
+	 * @param sourceFileName the name of the source file for error messages
+	 *
+	 * @throws TranslationException thrown if the source json contains an array
+	 */
+	private void collectStaleValues(ChangeSet changes, KeyPathIndex sourceKeys, BitSet stalePaths,
+	                                TranslationBatch batch, String sourceFileName) throws TranslationException {
+		for (int id = stalePaths.nextSetBit(0); id >= 0; id = stalePaths.nextSetBit(sourceKeys.end(id) + 1)) {
+			traverse(changes.replace(sourceKeys, id), batch, sourceKeys.node(id), sourceFileName);
+		}
+	}
+
+	/**
+	 * Recursive approach to iterate through json tree. For every text value a text is added to the
+	 * change set, its value is set when the batch is translated. Package-private for benchmarks.
+	 *
+	 * @param key the key of the change set the json node is the value of
+	 * @param batch collects all texts which need a translation
+	 * @param jsonNode the json node to be evaluated
+	 * @param fileName the name of the file the json node is read from for error messages
+	 *
+	 * @throws TranslationException thrown if an array is defined in json
+	 */
+	static void traverse(ChangeSet.Key key, TranslationBatch batch, JsonNode jsonNode, String fileName)
+			throws TranslationException {
+		if (jsonNode.isObject()) {
+			key.object();
+			Iterator<String> fieldNames = jsonNode.fieldNames();
+			while (fieldNames.hasNext()) {
+				String fieldName = fieldNames.next();
+				JsonNode fieldValue = jsonNode.get(fieldName);
+				traverse(key.field(fieldName), batch, fieldValue, fileName);
+			}
+		} else if (jsonNode.isArray()) {
+			throw new TranslationException("Error: Arrays are not allowed in translation file '" + fileName + "'.",
+					STATUS_TRANSLATION_FILE_INVALID);
+		} else {
+			String textToTranslate = jsonNode.asText();
+			batch.add(key.text(), textToTranslate);
+		}
+	}
+
+	/**
+	 * @param appliedTranslationPatch a json that holds all values which should be written to an output file
+	 * @param unit the namespace and the desired target language
+	 * @return the name of the written file or {@code null} if the file is unchanged
+	 *
+	 * @throws TranslationException thrown if the translation patch is an invalid json
+	 * @throws IOException thrown if an error occurs during file access
+	 */
+	String writeTargetTranslationFile(JsonNode appliedTranslationPatch, TranslationUnit unit)
+			throws TranslationException, IOException {
+		String targetFileName = cfg.repositoryDirectory() + "/"
+				+ cfg.targetFileName(unit.targetLanguage(), unit.namespace());
+		try {
+			boolean written = fileHelper.writeFileAtomically(targetFileName, out ->
+					jsonHelper.writeJson(appliedTranslationPatch, report.countWritten(unit.targetLanguage(), out)));
+			if (!written) {
+				LOG.debug("File '{}' is unchanged and not written.", targetFileName);
+				return null;
+			}
+			return targetFileName;
+		} catch (JsonProcessingException e) {
+			throw new TranslationException(
+					"Error: Could not create a valid json file. Something has gone wrong. Please check.",
+					STATUS_JSON_INVALID);
+		}
+	}
+
+	/**
+	 * A namespace of a target language, the unit of work which is translated independently.
+	 */
+	record TranslationUnit(String namespace, String targetLanguage) {
+
+		@Override
+		public String toString() {
+			return targetLanguage + "/" + namespace;
+		}
+	}
+
+	/**
+	 * The source file of a namespace and its changes since the previous versions by base revision.
+	 */
+	record SourceWork(String namespace, JsonNode sourceJson, KeyPathIndex sourceKeys, Map<String, SourceDiff> diffs,
+	                  ObjectNode manifestSource, KeyPathIndex.Values sourceFingerprints, TranslationException error) {
+
+		static SourceWork failed(String namespace, TranslationException error) {
+			return new SourceWork(namespace, null, null, null, null, null, error);
+		}
+	}
+
+	/**
+	 * The changes of a source file since a previous version and the path ids they added or replaced.
+	 */
+	record SourceDiff(TranslationDiff.Changes changes, BitSet changedPaths) {
+	}
+
+	/**
+	 * A namespace of a target language with all changes which are prepared but not yet translated. The characters
+	 * of a target language are counted with its first namespace.
+	 */
+	record LanguageWork(TranslationUnit unit, JsonNode targetJson, ChangeSet changes, TranslationBatch batch,
+	                    long characters, TranslationException error) {
+
+		static LanguageWork failed(TranslationUnit unit, TranslationException error) {
+			return new LanguageWork(unit, null, null, null, 0, error);
+		}
+
+		LanguageWork withCharacters(long characters) {
+			return new LanguageWork(unit, targetJson, changes, batch, characters, error);
+		}
+	}
+
+	/**
+	 * Outcome of the translation of a namespace of a target language.
+	 */
+	record LanguageResult(TranslationUnit unit, int keyOperations, int valueTranslations, int translatedTexts,
+	                      int reusedTexts, long characters, String writtenFile, boolean deferred,
+	                      TranslationException error) {
+
+		static LanguageResult failed(TranslationUnit unit, TranslationException error) {
+			return new LanguageResult(unit, 0, 0, 0, 0, 0, null, false, error);
+		}
+
+		static LanguageResult deferred(TranslationUnit unit, long characters) {
+			return new LanguageResult(unit, 0, 0, 0, 0, characters, null, true, null);
+		}
+
+		LanguageResult withTexts(int translatedTexts, long characters) {
+			return new LanguageResult(unit, keyOperations, valueTranslations, translatedTexts, reusedTexts, characters,
+					writtenFile, deferred, error);
+		}
+	}
+}
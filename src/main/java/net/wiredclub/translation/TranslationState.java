@@ -0,0 +1,104 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Remembers for every target language the commit whose source files were translated completely into it by the
+ * last successful run. The state is stored next to the translations, e.g.
+ * {@code translations/.translation-state.json}, so it is committed together with the translated files. The next
+ * run finds the changes of the source files since the commit of each target language instead of the previous
+ * commit, so it translates exactly what changed in between, however many commits were made or merged. A target
+ * language which failed or was deferred keeps its commit, so only its changes are translated again.
+ */
+class TranslationState {
+
+	private static final Logger LOG = LoggerFactory.getLogger(TranslationState.class);
+
+	static final String FILE_NAME = ".translation-state.json";
+
+	private final JsonHelper jsonHelper;
+	private final FileHelper fileHelper;
+	private final String fileName;
+
+	/**
+	 * @param jsonHelper reads and writes the state file
+	 * @param fileHelper reads and writes the state file
+	 * @param fileName the state file
+	 */
+	TranslationState(JsonHelper jsonHelper, FileHelper fileHelper, String fileName) {
+		this.jsonHelper = jsonHelper;
+		this.fileHelper = fileHelper;
+		this.fileName = fileName;
+	}
+
+	/**
+	 * A state file of an older version has one commit for all target languages, it is used for the target
+	 * languages without commit of their own.
+	 *
+	 * @param sourceLanguage the source language of the run, a state of another source language is ignored
+	 * @param targetLanguages the target languages of the run
+	 * @return the last translated commit by target language, a target language whose commit is unknown is missing
+	 */
+	Map<String, String> lastTranslatedCommits(String sourceLanguage, Collection<String> targetLanguages) {
+		JsonNode json = read(sourceLanguage);
+		Map<String, String> commits = new HashMap<>();
+		for (String targetLanguage : targetLanguages) {
+			String commit = json.path("languages").path(targetLanguage).asText(json.path("commit").asText());
+			if (!commit.isBlank()) {
+				commits.put(targetLanguage, commit);
+			}
+		}
+		return commits;
+	}
+
+	/**
+	 * The commits of target languages which are not part of the run are kept.
+	 *
+	 * @param commits the commits whose source files are translated completely by target language
+	 * @param sourceLanguage the source language of the run
+	 * @return {@code true} if the state file was written, {@code false} if it already contains the commits
+	 * @throws IOException if the state file cannot be written
+	 */
+	boolean update(Map<String, String> commits, String sourceLanguage) throws IOException {
+		JsonNode previous = read(sourceLanguage);
+		ObjectNode json = JsonNodeFactory.instance.objectNode();
+		json.put("sourceLanguage", sourceLanguage);
+		if (previous.has("commit")) {
+			json.set("commit", previous.get("commit"));
+		}
+		Map<String, String> languages = new TreeMap<>();
+		previous.path("languages").fields().forEachRemaining(entry ->
+				languages.put(entry.getKey(), entry.getValue().asText()));
+		languages.putAll(commits);
+		ObjectNode languagesJson = json.putObject("languages");
+		languages.forEach(languagesJson::put);
+		return fileHelper.writeFileAtomically(fileName, out -> jsonHelper.writeJson(json, out));
+	}
+
+	/**
+	 * @return the state, an empty state if it does not exist, cannot be read or is of another source language
+	 */
+	private JsonNode read(String sourceLanguage) {
+		try {
+			JsonNode json = fileHelper.readFile(fileName, jsonHelper::readJson);
+			if (sourceLanguage.equals(json.path("sourceLanguage").asText())) {
+				return json;
+			}
+		} catch (TranslationFileNotFoundException e) {
+			// no run was completed yet
+		} catch (IOException e) {
+			LOG.warn("Translation state '{}' cannot be read and is ignored. Cause: {}", fileName, e.getMessage());
+		}
+		return JsonNodeFactory.instance.objectNode();
+	}
+}
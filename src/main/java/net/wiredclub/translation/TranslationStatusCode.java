@@ -9,6 +9,9 @@ public enum TranslationStatusCode {
 	STATUS_FILE_NOT_FOUND(4),
 	STATUS_JSON_INVALID(5),
 	STATUS_TRANSLATION_FILE_INVALID(6),
+	STATUS_QUOTA_EXCEEDED(7),
+	STATUS_PLACEHOLDER_LOST(8),
+	STATUS_OUT_OF_SYNC(9),
 	STATUS_BAD_AS_HELL(666);
 
 	private final int exitCode;
@@ -0,0 +1,225 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Checks without any request to DeepL that target files are structurally in sync with their source files, e.g. as
+ * a gate for pull requests: a target file must have exactly the keys of its source file, no arrays, and every text
+ * must have the placeholders of its source text. All problems of a file are found in one pass.
+ * <p>
+ * A source file is parsed once and shared by all target languages, its keys are looked up by hash in its
+ * {@link KeyPathIndex}. Target files are streamed token by token and compared with the index on the fly, without
+ * building a json tree or a diff. The verifier is immutable and can be shared between threads.
+ */
+final class TranslationVerifier {
+
+	private final JsonHelper jsonHelper;
+	private final FileHelper fileHelper;
+	private final PlaceholderTokenizer placeholders;
+	private final String repositoryDirectory;
+
+	/**
+	 * @param placeholders the tokenizer which finds the placeholders of the texts
+	 * @param repositoryDirectory the root directory of the repository, file names are relative to it
+	 */
+	TranslationVerifier(JsonHelper jsonHelper, FileHelper fileHelper, PlaceholderTokenizer placeholders,
+	                    String repositoryDirectory) {
+		this.jsonHelper = jsonHelper;
+		this.fileHelper = fileHelper;
+		this.placeholders = placeholders;
+		this.repositoryDirectory = repositoryDirectory;
+	}
+
+	/**
+	 * Reads and checks a source file. Exceptions are not thrown but returned as problems, so that the other
+	 * files are verified anyway.
+	 *
+	 * @param fileName the source file relative to the repository directory
+	 * @return the source with its problems, without key paths if it cannot be compared with target files
+	 */
+	Source readSource(String fileName) {
+		JsonNode sourceJson;
+		try {
+			sourceJson = fileHelper.readFile(repositoryDirectory + "/" + fileName, jsonHelper::readJson);
+		} catch (TranslationFileNotFoundException e) {
+			return new Source(fileName, null, null, List.of(new Problem(fileName, "", "The file is missing.")));
+		} catch (IOException e) {
+			return new Source(fileName, null, null, List.of(readError(fileName, e)));
+		}
+		if (!sourceJson.isObject()) {
+			return new Source(fileName, null, null,
+					List.of(new Problem(fileName, "", "A translation file must contain a json object.")));
+		}
+
+		KeyPathIndex keys = KeyPathIndex.of(sourceJson);
+		String[] protectedTexts = new String[keys.size()];
+		List<Problem> problems = new ArrayList<>();
+		for (int id = 1; id < keys.size(); id++) {
+			JsonNode node = keys.node(id);
+			if (node.isArray()) {
+				problems.add(new Problem(fileName, keys.pointer(id), "Arrays are not allowed."));
+			} else if (!node.isObject()) {
+				protectedTexts[id] = placeholders.protect(node.asText());
+			}
+		}
+		return new Source(fileName, keys, protectedTexts, problems);
+	}
+
+	/**
+	 * Checks a target file against its source file. Exceptions are not thrown but returned as problems, so that
+	 * the other files are verified anyway.
+	 *
+	 * @param source the source of the namespace, it is not modified
+	 * @param fileName the target file relative to the repository directory
+	 * @return the problems of the target file in document order, followed by its missing keys
+	 */
+	List<Problem> verifyTarget(Source source, String fileName) {
+		if (source.keys() == null) {
+			// the problems of the source file are reported already
+			return List.of();
+		}
+		List<Problem> problems = new ArrayList<>();
+		try {
+			fileHelper.readFile(repositoryDirectory + "/" + fileName, in -> {
+				try (JsonParser parser = jsonHelper.createParser(in)) {
+					new TargetFile(source, fileName, problems).verify(parser);
+				}
+				return null;
+			});
+		} catch (TranslationFileNotFoundException e) {
+			problems.add(new Problem(fileName, "", "The file is missing."));
+		} catch (IOException e) {
+			problems.add(readError(fileName, e));
+		}
+		return problems;
+	}
+
+	private static Problem readError(String fileName, IOException e) {
+		if (e instanceof JsonProcessingException) {
+			return new Problem(fileName, "",
+					"Invalid json. Cause: " + ((JsonProcessingException) e).getOriginalMessage());
+		}
+		return new Problem(fileName, "", "The file cannot be read. Cause: " + e.getMessage());
+	}
+
+	/**
+	 * The verification of one target file.
+	 */
+	private final class TargetFile {
+
+		private final Source source;
+		private final KeyPathIndex keys;
+		private final String fileName;
+		private final List<Problem> problems;
+		// path ids of the source which were found in the target file, or which must not be reported as missing
+		private final BitSet found;
+
+		private TargetFile(Source source, String fileName, List<Problem> problems) {
+			this.source = source;
+			this.keys = source.keys();
+			this.fileName = fileName;
+			this.problems = problems;
+			this.found = new BitSet(keys.size());
+		}
+
+		private void verify(JsonParser parser) throws IOException {
+			if (parser.nextToken() != JsonToken.START_OBJECT) {
+				problems.add(new Problem(fileName, "", "A translation file must contain a json object."));
+				return;
+			}
+			verifyObject(parser, 0);
+
+			// a missing object is reported once, not every key below it
+			int id = found.nextClearBit(1);
+			while (id < keys.size()) {
+				problems.add(new Problem(fileName, keys.pointer(id), "The key is missing."));
+				id = found.nextClearBit(keys.end(id) + 1);
+			}
+		}
+
+		/**
+		 * Reads the fields of an object until its end.
+		 *
+		 * @param parent path id of the object in the source file
+		 */
+		private void verifyObject(JsonParser parser, int parent) throws IOException {
+			while (parser.nextToken() == JsonToken.FIELD_NAME) {
+				String fieldName = parser.currentName();
+				JsonToken token = parser.nextToken();
+				int id = keys.child(parent, fieldName);
+				if (id < 0) {
+					problems.add(new Problem(fileName, keys.pointer(parent, fieldName),
+							"The key is not part of the source file."));
+				} else if (found.get(id)) {
+					problems.add(new Problem(fileName, keys.pointer(id), "The key is duplicated."));
+				} else if (token == JsonToken.START_ARRAY) {
+					problems.add(new Problem(fileName, keys.pointer(id), "Arrays are not allowed."));
+					found.set(id, keys.end(id) + 1);
+				} else if (token == JsonToken.START_OBJECT && keys.isObject(id)) {
+					found.set(id);
+					verifyObject(parser, id);
+					continue;
+				} else if (token == JsonToken.START_OBJECT || keys.isObject(id)) {
+					problems.add(new Problem(fileName, keys.pointer(id), keys.isObject(id)
+							? "The key is an object in the source file, but a text here."
+							: "The key is a text in the source file, but an object here."));
+					found.set(id, keys.end(id) + 1);
+				} else {
+					found.set(id);
+					verifyText(id, parser.getText());
+				}
+				parser.skipChildren();
+			}
+		}
+
+		private void verifyText(int id, String text) {
+			String protectedSourceText = source.protectedTexts()[id];
+			if (protectedSourceText == null) {
+				// the source has an array here, it is reported with the source file
+				return;
+			}
+			String protectedText = placeholders.protect(text);
+			String missing = placeholders.lostPlaceholder(protectedSourceText, protectedText);
+			if (missing != null) {
+				problems.add(new Problem(fileName, keys.pointer(id),
+						"The placeholder '" + missing + "' of the source text is missing."));
+			}
+			String unknown = placeholders.lostPlaceholder(protectedText, protectedSourceText);
+			if (unknown != null) {
+				problems.add(new Problem(fileName, keys.pointer(id),
+						"The placeholder '" + unknown + "' is not part of the source text."));
+			}
+		}
+	}
+
+	/**
+	 * A source file prepared for the verification of its target files.
+	 *
+	 * @param keys the key paths of the source file, {@code null} if it cannot be compared with target files
+	 * @param protectedTexts the texts of the source file with protected placeholders by path id, see
+	 * {@link PlaceholderTokenizer#protect(String)}
+	 * @param problems the problems of the source file
+	 */
+	record Source(String fileName, KeyPathIndex keys, String[] protectedTexts, List<Problem> problems) {
+	}
+
+	/**
+	 * @param fileName the file relative to the repository directory
+	 * @param path the json pointer of the key, empty if the problem concerns the whole file
+	 * @param message the description of the problem
+	 */
+	record Problem(String fileName, String path, String message) {
+
+		String describe() {
+			return fileName + (path.isEmpty() ? "" : " at '" + path + "'") + ": " + message;
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package net.wiredclub.translation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_FILE_NOT_FOUND;
+
+/**
+ * The translation of a project in watch mode: the namespaces are translated like a normal run and the process keeps
+ * running. Whenever a source file is saved, the changes since the version of the file which was translated last by
+ * the process are translated by the {@link TranslationRun} of the project.
+ */
+final class WatchRun {
+
+	private static final Logger LOG = LoggerFactory.getLogger(WatchRun.class);
+
+	/**
+	 * Time a watch mode process waits for the current run to finish when the JVM is shut down, e.g. by Ctrl+C.
+	 */
+	private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+	private final TranslationConfig cfg;
+	private final TranslationRun translationRun;
+
+	private volatile SourceWatcher watcher;
+
+	/**
+	 * @param jsonHelper reads and writes the translation files
+	 * @param provider translates the texts
+	 * @param fileHelper reads the repository and writes the translation files
+	 * @param cfg the configuration of the project
+	 * @param report the report the project is measured in
+	 */
+	WatchRun(JsonHelper jsonHelper, TranslationProvider provider, FileHelper fileHelper, TranslationConfig cfg,
+	         RunReport report) {
+		this.cfg = cfg;
+		this.translationRun = new TranslationRun(jsonHelper, provider, fileHelper, cfg, report);
+	}
+
+	/**
+	 * Translates the namespaces like a normal run and keeps the process running. Whenever source files are
+	 * saved, their changes are translated into all target languages. A failed translation is logged and the
+	 * process keeps watching. Watching stops when {@link #stop()} is called or the JVM is shut down.
+	 *
+	 * @param runFinished counted down when the run of the tool is finished, the JVM waits for it when it is shut down
+	 * @throws TranslationException thrown if the directory of the source language does not exist
+	 * @throws IOException thrown if the directory of the source language cannot be watched
+	 */
+	void watch(CountDownLatch runFinished) throws TranslationException, IOException {
+		Path sourceDirectory = Paths.get(cfg.repositoryDirectory(), cfg.translationsDirectory(), cfg.sourceLanguage());
+		if (!Files.isDirectory(sourceDirectory)) {
+			throw new TranslationException("Error: '" + sourceDirectory + "' not found. "
+					+ "Please verify that the directory of the source language exists.", STATUS_FILE_NOT_FOUND);
+		}
+		// the directory is watched before the first run, so that no change is missed
+		watcher = new SourceWatcher(sourceDirectory, SourceWatcher.DEFAULT_DEBOUNCE);
+		Thread shutdownHook = new Thread(() -> {
+			stop();
+			try {
+				// the run report and the recording are written before the JVM halts
+				runFinished.await(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}, "translation-watch-shutdown");
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+		try {
+			try {
+				translationRun.translate();
+			} catch (TranslationException e) {
+				LOG.warn(e.getMessage());
+			}
+			LOG.info("Watching '{}' for changes, press Ctrl+C to stop.", sourceDirectory);
+			Set<String> namespaces = watcher.awaitChanges();
+			while (!namespaces.isEmpty()) {
+				translateChanges(namespaces);
+				namespaces = watcher.awaitChanges();
+			}
+			LOG.info("Stopped watching '{}'.", sourceDirectory);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stop();
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				// the JVM is shutting down, the hook waits for this run
+			}
+		}
+	}
+
+	/**
+	 * Stops watching the source files, the watching run finishes after its current translation.
+	 */
+	void stop() {
+		SourceWatcher current = watcher;
+		if (current == null) {
+			return;
+		}
+		try {
+			current.close();
+		} catch (IOException e) {
+			LOG.debug("Source watcher could not be closed.", e);
+		}
+	}
+
+	/**
+	 * Translates the changes of saved source files into all target languages, a namespace whose source file
+	 * was deleted is ignored.
+	 *
+	 * @param namespaces the namespaces whose source files were saved
+	 */
+	private void translateChanges(Set<String> namespaces) {
+		long start = System.nanoTime();
+		List<String> savedNamespaces = new ArrayList<>();
+		for (String namespace : namespaces) {
+			if (Files.exists(Paths.get(cfg.repositoryDirectory(), cfg.sourceFileName(namespace)))) {
+				savedNamespaces.add(namespace);
+			} else {
+				translationRun.forgetSource(namespace);
+				LOG.info("Source file of namespace '{}' was deleted, its translations are kept.", namespace);
+			}
+		}
+		if (savedNamespaces.isEmpty()) {
+			return;
+		}
+		LOG.info("Translating the changes of {}.", savedNamespaces);
+		try {
+			translationRun.reportResults(translationRun.translateUnits(translationRun.createUnits(savedNamespaces),
+					translationRun.requestUsage()));
+			LOG.info("Changes of {} translated in {} ms.", savedNamespaces,
+					TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		} catch (TranslationException e) {
+			LOG.warn(e.getMessage());
+		}
+	}
+}
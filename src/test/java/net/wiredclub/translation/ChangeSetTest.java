@@ -0,0 +1,110 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_TRANSLATION_FILE_INVALID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangeSetTest {
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+
+	@Test
+	void testChangesKeepTheKeyOrderAndAppendAddedKeys() throws Exception {
+		JsonNode targetJson = jsonHelper.convertStringToJson(
+				"{ \"a\": \"A\", \"b\": { \"c\": \"C\", \"d\": \"D\" }, \"x\": \"X\", \"e\": \"E\" }");
+
+		ChangeSet changes = new ChangeSet();
+		changes.remove("/x");
+		changes.add("/f").text().set("de:F");
+		ChangeSet.Key added = changes.add("/b/g");
+		added.field("h").text().set("de:H");
+		added.field("i").object();
+		changes.replace("/b/c").text().set("de:C");
+		changes.replace("/a").text().set("de:A");
+		changes.apply(targetJson);
+
+		assertEquals("{\"a\":\"de:A\",\"b\":{\"c\":\"de:C\",\"d\":\"D\",\"g\":{\"h\":\"de:H\",\"i\":{}}},"
+				+ "\"e\":\"E\",\"f\":\"de:F\"}", targetJson.toString());
+		assertEquals(1, changes.removedKeys());
+		assertEquals(2, changes.addedKeys());
+		assertEquals(2, changes.addedTexts());
+		assertEquals(2, changes.replacedTexts());
+		assertEquals(5, changes.keyOperations());
+	}
+
+	@Test
+	void testEscapedFieldNamesAreChanged() throws Exception {
+		JsonNode targetJson = jsonHelper.convertStringToJson("{ \"a/b\": \"AB\", \"c~d\": { \"e\": \"E\" } }");
+
+		ChangeSet changes = new ChangeSet();
+		changes.replace("/a~1b").text().set("de:AB");
+		changes.replace("/c~0d/e").text().set("de:E");
+		changes.apply(targetJson);
+
+		assertEquals("{\"a/b\":\"de:AB\",\"c~d\":{\"e\":\"de:E\"}}", targetJson.toString());
+	}
+
+	@Test
+	void testTextIsReplacedByObject() throws Exception {
+		JsonNode targetJson = jsonHelper.convertStringToJson("{ \"a\": \"A\", \"b\": \"B\" }");
+
+		ChangeSet changes = new ChangeSet();
+		changes.replace("/a").field("c").text().set("de:C");
+		changes.apply(targetJson);
+
+		assertEquals("{\"a\":{\"c\":\"de:C\"},\"b\":\"B\"}", targetJson.toString());
+	}
+
+	@Test
+	void testEmptyChangeSetIsNotApplied() throws Exception {
+		JsonNode targetJson = jsonHelper.convertStringToJson("[]");
+
+		ChangeSet changes = new ChangeSet();
+		changes.apply(targetJson);
+
+		assertTrue(changes.isEmpty());
+		assertEquals("[]", targetJson.toString());
+	}
+
+	@Test
+	void testUntranslatedTextIsNotApplied() throws Exception {
+		JsonNode targetJson = jsonHelper.convertStringToJson("{ \"a\": \"A\" }");
+
+		ChangeSet changes = new ChangeSet();
+		changes.replace("/a").text();
+
+		assertThrows(IllegalStateException.class, () -> changes.apply(targetJson));
+	}
+
+	@Test
+	void testUntranslatedTextsAreDiscarded() throws Exception {
+		JsonNode targetJson = jsonHelper.convertStringToJson("{ \"a\": \"A\", \"b\": { \"c/d\": \"CD\" } }");
+
+		ChangeSet changes = new ChangeSet();
+		changes.replace("/a").text().set("de:A");
+		changes.replace("/b/c~1d").text();
+		changes.add("/e").text();
+
+		assertTrue(changes.hasUntranslated());
+		assertEquals(List.of("/b/c~1d", "/e"), changes.discardUntranslated());
+		assertFalse(changes.hasUntranslated());
+		changes.apply(targetJson);
+		assertEquals("{\"a\":\"de:A\",\"b\":{\"c/d\":\"CD\"}}", targetJson.toString());
+	}
+
+	@Test
+	void testRootCannotBeChanged() {
+		ChangeSet changes = new ChangeSet();
+
+		TranslationException thrownException = assertThrows(TranslationException.class, () -> changes.replace(""));
+
+		assertEquals(STATUS_TRANSLATION_FILE_INVALID, thrownException.statusCode());
+	}
+}
@@ -2,26 +2,36 @@ package net.wiredclub.translation;
 
 import org.apache.commons.cli.ParseException;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import static net.wiredclub.translation.TranslationStatusCode.STATUS_INVALID_ARGUMENT;
 import static net.wiredclub.translation.TranslationToolTest.TEST_TRANSLATIONS_DIRECTORY;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 public class CommandLineHelperTest {
 
+	@TempDir
+	Path tempDir;
+
 	@Test
 	void testGetTranslationConfigWithoutArguments() throws TranslationException, IOException {
 		String[] noArgs = {};
@@ -138,4 +148,161 @@ public class CommandLineHelperTest {
 
 		assertEquals("org.apache.commons.cli.ParseException", thrownException.getClass().getName());
 	}
+
+	@Test
+	void testParseArgumentsWithInvalidJobs() {
+		String[] invalidArgs = {
+				"-s", "en",
+				"-t", "de",
+				"-j", "0"
+		};
+
+		CommandLineHelper commandLineHelper = new CommandLineHelper();
+
+		ParseException thrownException = assertThrows(ParseException.class,
+				() -> commandLineHelper.parseArguments(commandLineHelper.defineOptions(), invalidArgs));
+
+		assertEquals("Jobs '0' is not allowed. Please use a number greater than 0.", thrownException.getMessage());
+	}
+
+	@Test
+	void testParseArgumentsWithInvalidPlaceholders() {
+		String[] invalidArgs = {
+				"-s", "en",
+				"-t", "de",
+				"--placeholders", "printf,percent"
+		};
+
+		CommandLineHelper commandLineHelper = new CommandLineHelper();
+
+		ParseException thrownException = assertThrows(ParseException.class,
+				() -> commandLineHelper.parseArguments(commandLineHelper.defineOptions(), invalidArgs));
+
+		assertEquals("Placeholder syntax 'percent' is not allowed. "
+				+ "Possible values are: none, double-braces, braces, icu, printf, tags", thrownException.getMessage());
+	}
+
+	@Test
+	void testParseArgumentsWithPlanAndApply() {
+		String[] invalidArgs = {
+				"-s", "en",
+				"-t", "de",
+				"--plan", "plan.json",
+				"--apply", "plan.json"
+		};
+
+		CommandLineHelper commandLineHelper = new CommandLineHelper();
+
+		ParseException thrownException = assertThrows(ParseException.class,
+				() -> commandLineHelper.parseArguments(commandLineHelper.defineOptions(), invalidArgs));
+
+		assertEquals("Only one of --plan, --apply, --watch, --verify and --batch is allowed.",
+				thrownException.getMessage());
+	}
+
+	@Test
+	void testGetTranslationConfigWithVerifyDoesNotAskDeepL() throws TranslationException, IOException {
+		String[] args = {
+				"-s", "en",
+				"-t", "de",
+				"--verify"
+		};
+
+		TranslationProvider providerMock = mock(TranslationProvider.class);
+		CommandLineHelper commandLineHelper = new CommandLineHelper(providerMock, new FileHelper());
+		TranslationConfig translationConfig = commandLineHelper.getTranslationConfig(args);
+
+		assertTrue(translationConfig.verify());
+		assertEquals(Set.of("de"), translationConfig.targetLanguages());
+		verifyNoInteractions(providerMock);
+	}
+
+	@Test
+	void testGetTranslationConfigWithBatch() throws TranslationException, IOException {
+		Files.createDirectories(tempDir.resolve("admin/i18n/en"));
+		Files.createDirectories(tempDir.resolve("admin/i18n/fr"));
+		Path batchFile = tempDir.resolve("batch.json");
+		Files.writeString(batchFile, "{ \"projects\": [ "
+				+ "{ \"repo\": \"" + tempDir.resolve("shop") + "\", \"targets\": [\"de\", \"nl\"] }, "
+				+ "{ \"repo\": \"" + tempDir.resolve("admin") + "\", \"path\": \"i18n\", \"source\": \"en\", "
+				+ "\"since\": \"v2.3\" } ] }");
+		String[] args = {
+				"--batch", batchFile.toString(),
+				"--cache-dir", tempDir.resolve("cache").toString(),
+				"-j", "4"
+		};
+
+		CommandLineHelper commandLineHelper = new CommandLineHelper(new InProcessTranslationProvider(),
+				new FileHelper());
+		TranslationConfig translationConfig = commandLineHelper.getTranslationConfig(args);
+
+		List<TranslationConfig> projects = translationConfig.projects();
+		assertEquals(2, projects.size());
+		assertEquals(tempDir.resolve("shop").toString(), projects.get(0).repositoryDirectory());
+		assertEquals("translations", projects.get(0).translationsDirectory());
+		assertEquals(Set.of("de", "nl"), projects.get(0).targetLanguages());
+		assertNull(projects.get(0).since());
+		assertEquals("i18n", projects.get(1).translationsDirectory());
+		assertEquals(Set.of("fr"), projects.get(1).targetLanguages());
+		assertEquals("v2.3", projects.get(1).since());
+		assertEquals(4, projects.get(1).jobs());
+		assertTrue(projects.get(1).projects().isEmpty());
+	}
+
+	@Test
+	void testParseArgumentsWithBatchProjectWithoutRepo() throws IOException {
+		Path batchFile = tempDir.resolve("batch.json");
+		Files.writeString(batchFile, "{ \"projects\": [ { \"path\": \"translations\" } ] }");
+		String[] invalidArgs = {
+				"--batch", batchFile.toString(),
+				"--cache-dir", tempDir.resolve("cache").toString()
+		};
+
+		CommandLineHelper commandLineHelper = new CommandLineHelper(new InProcessTranslationProvider(),
+				new FileHelper());
+
+		ParseException thrownException = assertThrows(ParseException.class,
+				() -> commandLineHelper.parseArguments(commandLineHelper.defineOptions(), invalidArgs));
+
+		assertEquals("Project 1 of batch file '" + batchFile + "' has no repo.", thrownException.getMessage());
+	}
+
+	@Test
+	void testParseArgumentsWithBatchAndSince() throws IOException {
+		Path batchFile = tempDir.resolve("batch.json");
+		Files.writeString(batchFile, "{ \"projects\": [ { \"repo\": \"" + tempDir.resolve("shop") + "\" } ] }");
+		String[] invalidArgs = {
+				"--batch", batchFile.toString(),
+				"--since", "v2.3",
+				"--cache-dir", tempDir.resolve("cache").toString()
+		};
+
+		CommandLineHelper commandLineHelper = new CommandLineHelper(new InProcessTranslationProvider(),
+				new FileHelper());
+
+		ParseException thrownException = assertThrows(ParseException.class,
+				() -> commandLineHelper.parseArguments(commandLineHelper.defineOptions(), invalidArgs));
+
+		assertEquals("--since is not allowed with --batch, set \"since\" per project in the batch file instead.",
+				thrownException.getMessage());
+	}
+
+	@Test
+	void testNoCacheKeepsLanguageCache() throws TranslationException, IOException {
+		Files.createDirectories(tempDir.resolve("shop/translations/en"));
+		String[] args = {
+				"--repo", tempDir.resolve("shop").toString(),
+				"--target", "de",
+				"--cache-dir", tempDir.resolve("cache").toString(),
+				"--no-cache"
+		};
+
+		CommandLineHelper commandLineHelper = new CommandLineHelper(new InProcessTranslationProvider(),
+				new FileHelper());
+		TranslationConfig translationConfig = commandLineHelper.getTranslationConfig(args);
+
+		assertNull(translationConfig.cacheDirectory());
+		assertTrue(Files.isRegularFile(tempDir.resolve("cache").resolve(LanguageCache.DEFAULT_FILE_NAME)),
+				"Languages must be cached without translation memory.");
+	}
 }
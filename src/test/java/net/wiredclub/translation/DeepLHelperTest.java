@@ -5,6 +5,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -19,7 +20,7 @@ class DeepLHelperTest {
 
 	@Test
 	void testUsage() throws IOException, TranslationJsonProcessingException {
-		DeepLHelper.DeepLUsage usage = deepLHelper.usage();
+		TranslationProvider.Usage usage = deepLHelper.usage();
 
 		assertNotNull(usage);
 		LOG.info("Character count: {}", usage.characterCount());
@@ -49,13 +50,44 @@ class DeepLHelperTest {
 	}
 
 	@Test
-	void testTranslate() throws IOException, TranslationJsonProcessingException {
+	void testTranslate() throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
 		String translatedText = deepLHelper.translate("hello", "en", "de");
 
 		assertNotNull(translatedText);
 		assertEquals("hallo", translatedText);
 	}
 
+	@Test
+	void testTranslateBatch() throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		List<String> translatedTexts = deepLHelper.translate(List.of("hello", "world"), "en", "de");
+
+		assertEquals(List.of("hallo", "Welt"), translatedTexts);
+	}
+
+	@Test
+	void testCreateBatches() {
+		List<String> texts = new ArrayList<>();
+		for (int i = 0; i < DeepLHelper.MAX_TEXTS_PER_REQUEST * 2 + 1; i++) {
+			texts.add("text " + i);
+		}
+
+		List<List<String>> batches = deepLHelper.createBatches(texts);
+
+		assertEquals(3, batches.size());
+		assertEquals(DeepLHelper.MAX_TEXTS_PER_REQUEST, batches.get(0).size());
+		assertEquals(DeepLHelper.MAX_TEXTS_PER_REQUEST, batches.get(1).size());
+		assertEquals(List.of("text " + DeepLHelper.MAX_TEXTS_PER_REQUEST * 2), batches.get(2));
+	}
+
+	@Test
+	void testCreateBatchesBySize() {
+		String largeText = "x".repeat(DeepLHelper.MAX_REQUEST_BYTES / 2);
+
+		List<List<String>> batches = deepLHelper.createBatches(List.of("small", largeText, largeText, "small"));
+
+		assertEquals(List.of(List.of("small", largeText), List.of(largeText, "small")), batches);
+	}
+
 	@Test
 	void testWrapTextToTranslate() {
 		assertEquals("outside",
@@ -67,7 +99,7 @@ class DeepLHelperTest {
 		assertEquals("outside <donut>{{inside}}</donut> and <donut>{{ inside spaces }}</donut>",
 				deepLHelper.wrapTextToTranslate("outside {{inside}} and {{ inside spaces }}"));
 
-		assertEquals("outside <donut>{{- and many things inside</br> }}</donut>",
+		assertEquals("outside <donut>{{- and many things inside&lt;/br&gt; }}</donut>",
 				deepLHelper.wrapTextToTranslate("outside {{- and many things inside</br> }}"));
 	}
 
@@ -0,0 +1,201 @@
+package net.wiredclub.translation;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DeepLTransportTest {
+
+	private final AtomicInteger busyResponses = new AtomicInteger();
+	private final AtomicInteger concurrentRequests = new AtomicInteger();
+	private final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+
+	private HttpServer server;
+	private DeepLTransport transport;
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/echo", exchange -> {
+			byte[] request = exchange.getRequestBody().readAllBytes();
+			respond(exchange.getResponseBody(), () -> exchange.sendResponseHeaders(200, 0), request);
+		});
+		server.createContext("/gzip", exchange -> {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+			try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+				gzip.write("{\"compressed\":true}".getBytes(StandardCharsets.UTF_8));
+			}
+			exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			respond(exchange.getResponseBody(), () -> exchange.sendResponseHeaders(200, 0), compressed.toByteArray());
+		});
+		server.createContext("/quota", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			byte[] body = "{\"message\":\"Quota exceeded\"}".getBytes(StandardCharsets.UTF_8);
+			respond(exchange.getResponseBody(), () -> exchange.sendResponseHeaders(456, 0), body);
+		});
+		server.createContext("/busy", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			boolean busy = busyResponses.getAndDecrement() > 0;
+			byte[] body = (busy ? "{\"message\":\"Too many requests\"}" : "{}").getBytes(StandardCharsets.UTF_8);
+			respond(exchange.getResponseBody(), () -> exchange.sendResponseHeaders(busy ? 429 : 200, 0), body);
+		});
+		server.createContext("/slow", exchange -> {
+			try {
+				Thread.sleep(2_000);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange.getResponseBody(), () -> exchange.sendResponseHeaders(200, 0), new byte[0]);
+		});
+		server.createContext("/lagging", exchange -> {
+			exchange.getRequestBody().readAllBytes();
+			try {
+				Thread.sleep(200);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			respond(exchange.getResponseBody(), () -> exchange.sendResponseHeaders(200, 0), new byte[0]);
+		});
+		server.createContext("/delayed", exchange -> {
+			byte[] request = exchange.getRequestBody().readAllBytes();
+			maxConcurrentRequests.accumulateAndGet(concurrentRequests.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			concurrentRequests.decrementAndGet();
+			respond(exchange.getResponseBody(), () -> exchange.sendResponseHeaders(200, 0), request);
+		});
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		DeepLTransport.Settings settings = new DeepLTransport.Settings(Duration.ofSeconds(1), Duration.ofMillis(300),
+				Duration.ofMillis(500), 2, false, 2, Duration.ofMillis(10));
+		transport = new DeepLTransport("http://localhost:" + server.getAddress().getPort(), settings);
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	void testPostSendsUrlEncodedForm() throws IOException {
+		String response = transport.post("/echo", DeepLTransport.Form.form()
+				.add("text", "a & b")
+				.add("text", "\u00e4\u00f6\u00fc"));
+
+		assertEquals("text=a+%26+b&text=%C3%A4%C3%B6%C3%BC", response);
+	}
+
+	@Test
+	void testPostDecodesGzipResponse() throws IOException {
+		assertEquals("{\"compressed\":true}", transport.post("/gzip", DeepLTransport.Form.form()));
+	}
+
+	@Test
+	void testPostThrowsExceptionWithStatusCode() {
+		DeepLTransport.DeepLHttpException thrownException = assertThrows(DeepLTransport.DeepLHttpException.class,
+				() -> transport.post("/quota", DeepLTransport.Form.form()));
+
+		assertEquals(456, thrownException.statusCode());
+	}
+
+	@Test
+	void testPostRetriesTooManyRequests() throws IOException {
+		busyResponses.set(2);
+		assertEquals("{}", transport.post("/busy", DeepLTransport.Form.form()));
+
+		busyResponses.set(3);
+		DeepLTransport.DeepLHttpException thrownException = assertThrows(DeepLTransport.DeepLHttpException.class,
+				() -> transport.post("/busy", DeepLTransport.Form.form()));
+		assertEquals(429, thrownException.statusCode());
+	}
+
+	@Test
+	void testPostTimesOut() {
+		assertThrows(HttpTimeoutException.class, () -> transport.post("/slow", DeepLTransport.Form.form()));
+	}
+
+	@Test
+	void testWaitingForConnectionCountsAgainstTotalTimeout() throws Exception {
+		// the connections are set up before, so only the waiting counts
+		transport.post("/echo", DeepLTransport.Form.form());
+		transport.post("/echo", DeepLTransport.Form.form());
+		List<CompletableFuture<String>> responses = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			responses.add(transport.postAsync("/lagging", DeepLTransport.Form.form()));
+		}
+
+		for (int i = 0; i < 4; i++) {
+			assertEquals("", responses.get(i).get());
+		}
+		// the last request waits for a connection until the others completed, it cannot complete in time
+		ExecutionException thrownException = assertThrows(ExecutionException.class, () -> responses.get(4).get());
+		assertTrue(thrownException.getCause() instanceof HttpTimeoutException, thrownException.toString());
+	}
+
+	@Test
+	void testPostAsyncKeepsRequestsInFlightUpToMaxConnections() throws Exception {
+		List<CompletableFuture<String>> responses = new ArrayList<>();
+		for (int i = 0; i < 4; i++) {
+			responses.add(transport.postAsync("/delayed", DeepLTransport.Form.form().add("text", "t" + i)));
+		}
+		// the requests are sent in the background, the calling thread is not blocked
+		assertFalse(responses.get(3).isDone());
+
+		for (int i = 0; i < 4; i++) {
+			assertEquals("text=t" + i, responses.get(i).get());
+		}
+		assertEquals(2, maxConcurrentRequests.get());
+	}
+
+	@Test
+	void testListenerIsNotifiedForEveryRequest() throws IOException {
+		List<Integer> statusCodes = new CopyOnWriteArrayList<>();
+		transport.addListener((endpoint, statusCode, requestBytes, responseBytes, latencyNanos) -> {
+			assertTrue(latencyNanos > 0);
+			statusCodes.add(statusCode);
+		});
+
+		transport.post("/echo", DeepLTransport.Form.form().add("text", "hello"));
+		assertThrows(IOException.class, () -> transport.post("/quota", DeepLTransport.Form.form()));
+
+		assertEquals(List.of(200, 456), statusCodes);
+	}
+
+	private static void respond(OutputStream out, ResponseHeaders headers, byte[] body) throws IOException {
+		headers.send();
+		try (out) {
+			out.write(body);
+		}
+	}
+
+	@FunctionalInterface
+	private interface ResponseHeaders {
+		void send() throws IOException;
+	}
+}
@@ -0,0 +1,308 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Local stand-in for the DeepL API, used by load tests and the end-to-end benchmark. It answers the
+ * endpoints the translation tool uses:
+ * <ul>
+ *     <li>{@code /v2/translate} returns every text prefixed with the lower case target language, e.g. {@code de:Text},
+ *     the placeholder {@link #LOST_PLACEHOLDER} is dropped like DeepL sometimes drops a placeholder</li>
+ *     <li>{@code /v2/languages} returns the languages of the bundled language snapshot</li>
+ *     <li>{@code /v2/usage} returns the characters translated so far and the configured limit</li>
+ * </ul>
+ * Every request is delayed by the configured latency and fails randomly with 429 or 503 at the configured
+ * rates. Requests with another auth key than {@link #AUTH_KEY} are rejected with 403.
+ */
+class FakeDeepLServer implements Closeable {
+
+	static final String AUTH_KEY = "fake-deepl-auth-key";
+	static final String LOST_PLACEHOLDER = "{{lost}}";
+
+	private static final String PROTECTED_LOST_PLACEHOLDER =
+			"<" + PlaceholderTokenizer.TAG + ">" + LOST_PLACEHOLDER + "</" + PlaceholderTokenizer.TAG + ">";
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final Settings settings;
+	private final HttpServer server;
+	private final ExecutorService executor;
+	private final Random random;
+	private final List<String> sourceLanguages;
+	private final List<String> targetLanguages;
+
+	private final AtomicLong requests = new AtomicLong();
+	private final AtomicLong rejectedRequests = new AtomicLong();
+	private final AtomicLong translatedTexts = new AtomicLong();
+	private final AtomicLong translatedCharacters = new AtomicLong();
+	private final AtomicLong requestBytes = new AtomicLong();
+	private final AtomicLong responseBytes = new AtomicLong();
+
+	/**
+	 * Starts the server on a free local port.
+	 */
+	FakeDeepLServer(Settings settings) throws IOException {
+		this.settings = settings;
+		this.random = new Random(settings.seed());
+
+		JsonNode snapshot;
+		try (InputStream inputStream = FakeDeepLServer.class.getResourceAsStream("/deepl-languages.json")) {
+			snapshot = MAPPER.readTree(inputStream);
+		}
+		this.sourceLanguages = languages(snapshot.get("source"));
+		this.targetLanguages = languages(snapshot.get("target"));
+
+		this.executor = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "fake-deepl");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		this.server.createContext("/v2/", this::handle);
+		this.server.setExecutor(executor);
+		this.server.start();
+	}
+
+	private static List<String> languages(JsonNode languages) {
+		List<String> result = new ArrayList<>();
+		for (JsonNode language : languages) {
+			result.add(language.asText().toUpperCase(Locale.ROOT));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the base uri for {@link DeepLTransport}, e.g. {@code http://localhost:12345}
+	 */
+	String baseUri() {
+		return "http://localhost:" + server.getAddress().getPort();
+	}
+
+	/**
+	 * @return a DeepL helper which sends its requests to this server
+	 */
+	DeepLHelper deepLHelper(DeepLTransport.Settings transportSettings) {
+		return new DeepLHelper(new JsonHelper(), new DeepLTransport(baseUri(), transportSettings), AUTH_KEY);
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try (exchange) {
+			requests.incrementAndGet();
+			byte[] body = exchange.getRequestBody().readAllBytes();
+			requestBytes.addAndGet(body.length);
+			if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+				try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(body))) {
+					body = gzip.readAllBytes();
+				}
+			}
+			Map<String, List<String>> form = parseForm(new String(body, StandardCharsets.UTF_8));
+
+			sleep(settings.latency());
+			if (!AUTH_KEY.equals(first(form, "auth_key"))) {
+				respond(exchange, 403, message("Wrong auth key"));
+				return;
+			}
+			int failure = failure();
+			if (failure != 0) {
+				rejectedRequests.incrementAndGet();
+				respond(exchange, failure, message(failure == 429 ? "Too many requests" : "Service unavailable"));
+				return;
+			}
+
+			switch (exchange.getRequestURI().getPath()) {
+				case "/v2/translate" -> respond(exchange, 200, translate(form));
+				case "/v2/languages" -> respond(exchange, 200, languages(form));
+				case "/v2/usage" -> respond(exchange, 200, usage());
+				default -> respond(exchange, 404, message("Not found"));
+			}
+		}
+	}
+
+	private int failure() {
+		double value;
+		synchronized (random) {
+			value = random.nextDouble();
+		}
+		if (value < settings.tooManyRequestsRate()) {
+			return 429;
+		}
+		if (value < settings.tooManyRequestsRate() + settings.errorRate()) {
+			return 503;
+		}
+		return 0;
+	}
+
+	private ObjectNode translate(Map<String, List<String>> form) {
+		String prefix = first(form, "target_lang").toLowerCase(Locale.ROOT) + ":";
+		String sourceLanguage = first(form, "source_lang");
+		ObjectNode response = MAPPER.createObjectNode();
+		ArrayNode translations = response.putArray("translations");
+		for (String text : form.getOrDefault("text", List.of())) {
+			translatedTexts.incrementAndGet();
+			translatedCharacters.addAndGet(text.codePointCount(0, text.length()));
+			translations.addObject()
+					.put("detected_source_language", sourceLanguage == null ? "EN" : sourceLanguage.toUpperCase(Locale.ROOT))
+					.put("text", prefix + text.replace(PROTECTED_LOST_PLACEHOLDER, ""));
+		}
+		return response;
+	}
+
+	private ArrayNode languages(Map<String, List<String>> form) {
+		ArrayNode response = MAPPER.createArrayNode();
+		for (String language : "target".equals(first(form, "type")) ? targetLanguages : sourceLanguages) {
+			response.addObject().put("language", language).put("name", language);
+		}
+		return response;
+	}
+
+	private ObjectNode usage() {
+		return MAPPER.createObjectNode()
+				.put("character_count", translatedCharacters.get())
+				.put("character_limit", settings.characterLimit());
+	}
+
+	private void respond(HttpExchange exchange, int statusCode, JsonNode json) throws IOException {
+		byte[] response = MAPPER.writeValueAsBytes(json);
+		responseBytes.addAndGet(response.length);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(statusCode, response.length);
+		try (OutputStream outputStream = exchange.getResponseBody()) {
+			outputStream.write(response);
+		}
+	}
+
+	private static ObjectNode message(String message) {
+		return MAPPER.createObjectNode().put("message", message);
+	}
+
+	private static Map<String, List<String>> parseForm(String body) {
+		Map<String, List<String>> form = new HashMap<>();
+		if (body.isEmpty()) {
+			return form;
+		}
+		for (String parameter : body.split("&")) {
+			int separator = parameter.indexOf('=');
+			String name = URLDecoder.decode(separator < 0 ? parameter : parameter.substring(0, separator),
+					StandardCharsets.UTF_8);
+			String value = separator < 0 ? "" : URLDecoder.decode(parameter.substring(separator + 1),
+					StandardCharsets.UTF_8);
+			form.computeIfAbsent(name, key -> new ArrayList<>()).add(value);
+		}
+		return form;
+	}
+
+	private static String first(Map<String, List<String>> form, String name) {
+		List<String> values = form.get(name);
+		return values == null || values.isEmpty() ? null : values.get(0);
+	}
+
+	private static void sleep(Duration duration) {
+		if (duration.isZero()) {
+			return;
+		}
+		try {
+			Thread.sleep(duration.toMillis());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return number of requests received, including rejected requests
+	 */
+	long requests() {
+		return requests.get();
+	}
+
+	/**
+	 * @return number of requests which were answered with 429 or 503
+	 */
+	long rejectedRequests() {
+		return rejectedRequests.get();
+	}
+
+	/**
+	 * @return number of texts which were translated
+	 */
+	long translatedTexts() {
+		return translatedTexts.get();
+	}
+
+	/**
+	 * @return number of characters which were translated, like DeepL counts them
+	 */
+	long translatedCharacters() {
+		return translatedCharacters.get();
+	}
+
+	/**
+	 * @return size of all request bodies as received
+	 */
+	long requestBytes() {
+		return requestBytes.get();
+	}
+
+	/**
+	 * @return size of all response bodies
+	 */
+	long responseBytes() {
+		return responseBytes.get();
+	}
+
+	@Override
+	public void close() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @param latency delay of every response
+	 * @param errorRate share of requests which fail with 503
+	 * @param tooManyRequestsRate share of requests which fail with 429
+	 * @param characterLimit character limit reported by {@code /v2/usage}
+	 * @param seed seed of the random failures
+	 */
+	record Settings(Duration latency, double errorRate, double tooManyRequestsRate, long characterLimit, long seed) {
+
+		static Settings defaults() {
+			return new Settings(Duration.ZERO, 0, 0, 1_000_000_000_000L, 42);
+		}
+
+		Settings withLatency(Duration latency) {
+			return new Settings(latency, errorRate, tooManyRequestsRate, characterLimit, seed);
+		}
+
+		Settings withFailures(double errorRate, double tooManyRequestsRate) {
+			return new Settings(latency, errorRate, tooManyRequestsRate, characterLimit, seed);
+		}
+
+		Settings withCharacterLimit(long characterLimit) {
+			return new Settings(latency, errorRate, tooManyRequestsRate, characterLimit, seed);
+		}
+	}
+}
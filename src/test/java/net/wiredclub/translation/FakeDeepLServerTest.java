@@ -0,0 +1,706 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FakeDeepLServerTest {
+
+	private static final DeepLTransport.Settings TRANSPORT_SETTINGS = new DeepLTransport.Settings(
+			Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(10), 4, false, 10, Duration.ofMillis(1));
+
+	@TempDir
+	Path tempDir;
+
+	private FakeDeepLServer server;
+
+	@AfterEach
+	void stopServer() {
+		if (server != null) {
+			server.close();
+		}
+	}
+
+	@Test
+	void testTranslateKeepsPlaceholders()
+			throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+
+		List<String> translations = deepLHelper.translate(List.of("Hello {{name}}", "World"), "en", "de");
+
+		assertEquals(List.of("de:Hello {{name}}", "de:World"), translations);
+		assertEquals(2L, server.translatedTexts());
+	}
+
+	@Test
+	void testLostPlaceholderOnlyRejectsItsText() throws IOException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		List<String> texts = List.of("Hello {{name}}", "Bye " + FakeDeepLServer.LOST_PLACEHOLDER, "World");
+
+		try (TranslationMemory translationMemory = TranslationMemory.open(tempDir.resolve("memory"))) {
+			deepLHelper.useTranslationMemory(translationMemory);
+			TranslationPlaceholderException thrownException = assertThrows(TranslationPlaceholderException.class,
+					() -> deepLHelper.translate(texts, "en", "de"));
+			assertEquals(Arrays.asList("de:Hello {{name}}", null, "de:World"), thrownException.translations());
+
+			// the accepted translations are cached, only the rejected text is sent again
+			assertThrows(TranslationPlaceholderException.class, () -> deepLHelper.translate(texts, "en", "de"));
+			assertEquals(4L, server.translatedTexts());
+		}
+	}
+
+	@Test
+	void testTranslationsAreReturnedIfTheMemoryCannotBeWritten()
+			throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		Path memoryDirectory = tempDir.resolve("memory");
+
+		try (TranslationMemory translationMemory = TranslationMemory.open(memoryDirectory.resolve("memory"))) {
+			deepLHelper.useTranslationMemory(translationMemory);
+			// the lock file of the memory cannot be created any more
+			try (Stream<Path> files = Files.list(memoryDirectory)) {
+				for (Path file : files.collect(Collectors.toList())) {
+					Files.delete(file);
+				}
+			}
+			Files.delete(memoryDirectory);
+
+			assertEquals(List.of("de:Hello", "de:World"), deepLHelper.translate(List.of("Hello", "World"), "en", "de"));
+			assertEquals(2L, server.translatedTexts());
+		}
+	}
+
+	@Test
+	void testLanguagesAndUsage()
+			throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults().withCharacterLimit(1_000));
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+
+		deepLHelper.translate("Hello", "en", "fr");
+		TranslationProvider.Usage usage = deepLHelper.usage();
+
+		assertTrue(deepLHelper.sourceLanguages().contains("en"), "EN must be part of source languages.");
+		assertTrue(deepLHelper.targetLanguages().contains("en-gb"), "EN-GB must be part of target languages.");
+		assertEquals(5L, usage.characterCount());
+		assertEquals(1_000L, usage.characterLimit());
+	}
+
+	@Test
+	void testRejectedRequestsAreRetried()
+			throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults().withFailures(0.2, 0.3));
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+
+		List<String> translations = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			translations.add(deepLHelper.translate("Text " + i, "en", "de"));
+		}
+
+		assertEquals("de:Text 9", translations.get(9));
+		assertTrue(server.rejectedRequests() > 0, "Some requests must be rejected.");
+		assertEquals(10L + server.rejectedRequests(), server.requests());
+	}
+
+	@Test
+	void testTranslationToolCatchesUpWithSyntheticRepository() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 2, 2));
+
+		JsonHelper jsonHelper = new JsonHelper();
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		Path reportFile = tempDir.resolve("report.json");
+		TranslationStatusCode statusCode = new TranslationTool(jsonHelper, deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper)).run(new String[]{"-r", repository.toString(),
+				"-p", SyntheticRepository.TRANSLATIONS_DIRECTORY, "-s", SyntheticRepository.SOURCE_LANGUAGE,
+				"--no-cache", "--report", reportFile.toString()});
+
+		assertEquals(TranslationStatusCode.STATUS_OK, statusCode);
+		assertTrue(server.translatedTexts() > 0, "Changed texts must be translated.");
+		for (String targetLanguage : SyntheticRepository.targetLanguages(2)) {
+			String target = Files.readString(repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+					.resolve(targetLanguage).resolve("main.json"));
+			assertTrue(target.contains(" revision 3\""), "Texts of the last commit must be translated.");
+		}
+		JsonNode report;
+		try (InputStream in = Files.newInputStream(reportFile)) {
+			report = jsonHelper.readJson(in);
+		}
+		assertEquals("STATUS_OK", report.get("status").asText());
+		assertTrue(report.at("/languages/de/characters").asLong() > 0, "Characters must be reported per language.");
+		assertTrue(report.at("/languages/de/requests/count").asInt() > 0, "Requests must be reported per language.");
+
+		String state = Files.readString(repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+				.resolve(TranslationState.FILE_NAME));
+		assertTrue(state.contains(fileHelper.resolveCommit(repository.toString(), "HEAD")),
+				"Translated commit must be remembered.");
+	}
+
+	@Test
+	void testTranslationToolCatchesUpWithAllCommitsSinceRevision() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 1, 1));
+
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationStatusCode statusCode = new TranslationTool(new JsonHelper(), deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper)).run(new String[]{"-r", repository.toString(),
+				"-p", SyntheticRepository.TRANSLATIONS_DIRECTORY, "-s", SyntheticRepository.SOURCE_LANGUAGE,
+				"--no-cache", "--since", "HEAD~3"});
+
+		assertEquals(TranslationStatusCode.STATUS_OK, statusCode);
+		String target = Files.readString(repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+				.resolve(SyntheticRepository.targetLanguages(1).get(0)).resolve("main.json"));
+		for (int commit = 1; commit <= 3; commit++) {
+			assertTrue(target.contains(" revision " + commit + "\""), "Texts of all commits must be translated.");
+		}
+	}
+
+	@Test
+	void testOnlyTheFailedTargetLanguageIsTranslatedAgain() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 1, 2));
+		List<String> targetLanguages = SyntheticRepository.targetLanguages(2);
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		Path translatedFile = translations.resolve(targetLanguages.get(0)).resolve("main.json");
+		Path failedFile = translations.resolve(targetLanguages.get(1)).resolve("main.json");
+		String failedTarget = Files.readString(failedFile);
+		Files.writeString(failedFile, "{ invalid");
+		String[] args = {"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--no-cache"};
+
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationTool translationTool = new TranslationTool(new JsonHelper(), deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper));
+		assertEquals(TranslationStatusCode.STATUS_JSON_INVALID, translationTool.run(args));
+
+		// the translated target language is remembered, the failed one keeps its unknown commit
+		TranslationState state = new TranslationState(new JsonHelper(), fileHelper,
+				translations.resolve(TranslationState.FILE_NAME).toString());
+		String headCommit = fileHelper.resolveCommit(repository.toString(), "HEAD");
+		assertEquals(Map.of(targetLanguages.get(0), headCommit),
+				state.lastTranslatedCommits(SyntheticRepository.SOURCE_LANGUAGE, targetLanguages));
+
+		String translated = Files.readString(translatedFile);
+		long translatedTexts = server.translatedTexts();
+		Files.writeString(failedFile, failedTarget);
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(args));
+
+		assertEquals(translatedTexts * 2, server.translatedTexts());
+		assertEquals(translated, Files.readString(translatedFile));
+		assertTrue(Files.readString(failedFile).contains(" revision 3\""),
+				"Texts of the last commit must be translated.");
+		assertEquals(Map.of(targetLanguages.get(0), headCommit, targetLanguages.get(1), headCommit),
+				state.lastTranslatedCommits(SyntheticRepository.SOURCE_LANGUAGE, targetLanguages));
+	}
+
+	@Test
+	void testLostPlaceholderKeepsItsKeyAndTranslatesTheOthers() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 1, 1));
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		Path sourceFile = translations.resolve(SyntheticRepository.SOURCE_LANGUAGE).resolve("main.json");
+		Path targetFile = translations.resolve(SyntheticRepository.targetLanguages(1).get(0)).resolve("main.json");
+		Files.writeString(sourceFile, Files.readString(sourceFile)
+				.replaceFirst(" revision 3\"", " revision 3 " + FakeDeepLServer.LOST_PLACEHOLDER + "\""));
+		String[] args = {"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--cache-dir", tempDir.resolve("cache").toString()};
+
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationTool translationTool = new TranslationTool(new JsonHelper(), deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper));
+		assertEquals(TranslationStatusCode.STATUS_PLACEHOLDER_LOST, translationTool.run(args));
+
+		String target = Files.readString(targetFile);
+		assertTrue(target.contains(" revision 3\""), "Texts without lost placeholder must be translated.");
+		assertFalse(target.contains(FakeDeepLServer.LOST_PLACEHOLDER),
+				"Text with lost placeholder must not be written.");
+
+		// the next run takes the other texts from the translation memory and only sends the rejected text again
+		long translatedTexts = server.translatedTexts();
+		assertEquals(TranslationStatusCode.STATUS_PLACEHOLDER_LOST, translationTool.run(args));
+		assertEquals(translatedTexts + 1, server.translatedTexts());
+		assertEquals(target, Files.readString(targetFile));
+	}
+
+	@Test
+	void testLostPlaceholderOnlyFailsItsNamespace() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 2, 1));
+		String targetLanguage = SyntheticRepository.targetLanguages(1).get(0);
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		// both namespaces are translated with one request, only main loses a placeholder
+		Path sourceFile = translations.resolve(SyntheticRepository.SOURCE_LANGUAGE).resolve("main.json");
+		Files.writeString(sourceFile, Files.readString(sourceFile)
+				.replaceFirst(" revision 3\"", " revision 3 " + FakeDeepLServer.LOST_PLACEHOLDER + "\""));
+		Path reportFile = tempDir.resolve("report.json");
+		String[] args = {"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--no-cache", "--report", reportFile.toString()};
+
+		JsonHelper jsonHelper = new JsonHelper();
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		assertEquals(TranslationStatusCode.STATUS_PLACEHOLDER_LOST, new TranslationTool(jsonHelper, deepLHelper,
+				fileHelper, new CommandLineHelper(deepLHelper, fileHelper)).run(args));
+
+		Path cleanTarget = translations.resolve(targetLanguage).resolve("namespace001.json");
+		assertTrue(Files.readString(cleanTarget).contains(" revision 3\""),
+				"Texts of the namespace without lost placeholder must be translated.");
+		JsonNode report;
+		try (InputStream in = Files.newInputStream(reportFile)) {
+			report = jsonHelper.readJson(in);
+		}
+		assertEquals(2, report.at("/languages/" + targetLanguage + "/files").asInt());
+		assertEquals(1, report.at("/languages/" + targetLanguage + "/filesFailed").asInt(),
+				"Only the namespace with the lost placeholder must fail.");
+		TranslationManifest manifest = readManifest(translations, targetLanguage);
+		assertEquals(fileHelper.blobId(cleanTarget.toString()), manifest.targetBlobId("namespace001"),
+				"The manifest of the namespace without lost placeholder must be updated.");
+		assertNull(manifest.targetBlobId("main"));
+	}
+
+	@Test
+	void testAllNamespacesOfATargetLanguageAreTranslatedWithOneRequest() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(300, 3, 2));
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		// the same new text in two namespaces is translated and counted once
+		for (String namespace : List.of("main", "namespace001")) {
+			Path sourceFile = translations.resolve(SyntheticRepository.SOURCE_LANGUAGE).resolve(namespace + ".json");
+			Files.writeString(sourceFile, Files.readString(sourceFile).replaceFirst("\\{", "{\"shared\":\"Shared\","));
+		}
+		Path planFile = tempDir.resolve("plan.json");
+		Path reportFile = tempDir.resolve("report.json");
+		String[] args = {"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--no-cache", "--jobs", "4"};
+
+		JsonHelper jsonHelper = new JsonHelper();
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationTool translationTool = new TranslationTool(jsonHelper, deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper));
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(
+				concat(args, "--plan", planFile.toString())));
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(
+				concat(args, "--report", reportFile.toString())));
+
+		JsonNode plan;
+		try (InputStream in = Files.newInputStream(planFile)) {
+			plan = jsonHelper.readJson(in);
+		}
+		JsonNode report;
+		try (InputStream in = Files.newInputStream(reportFile)) {
+			report = jsonHelper.readJson(in);
+		}
+		assertEquals(plan.at("/texts").asLong(), server.translatedTexts());
+		for (String targetLanguage : SyntheticRepository.targetLanguages(2)) {
+			JsonNode languageReport = report.at("/languages/" + targetLanguage);
+			assertEquals(3, languageReport.get("files").asInt());
+			assertEquals(1, languageReport.at("/requests/count").asInt());
+			assertEquals(plan.at("/languages/" + targetLanguage + "/characters").asLong(),
+					languageReport.get("characters").asLong(), "Plan and run must count the same characters.");
+			for (String namespace : List.of("main", "namespace001")) {
+				String target = Files.readString(translations.resolve(targetLanguage).resolve(namespace + ".json"));
+				assertTrue(target.contains("\"" + targetLanguage + ":Shared\""), "Shared text must be translated.");
+			}
+		}
+	}
+
+	@Test
+	void testUnchangedNamespacesAreSkippedWithoutBeingParsed() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(300, 3, 2));
+		List<String> targetLanguages = SyntheticRepository.targetLanguages(2);
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		// the target files of an unchanged namespace would fail if they were parsed
+		for (String targetLanguage : targetLanguages) {
+			Files.writeString(translations.resolve(targetLanguage).resolve("namespace002.json"), "{ invalid");
+		}
+		commitAsTranslated(repository, targetLanguages);
+		FileHelper fileHelper = new FileHelper();
+		Path sourceFile = translations.resolve(SyntheticRepository.SOURCE_LANGUAGE).resolve("main.json");
+		Files.writeString(sourceFile, Files.readString(sourceFile).replaceFirst("\\{", "{\"added\":\"Added\","));
+		Path reportFile = tempDir.resolve("report.json");
+
+		JsonHelper jsonHelper = new JsonHelper();
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		TranslationStatusCode statusCode = new TranslationTool(jsonHelper, deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper)).run(new String[]{"-r", repository.toString(),
+				"-p", SyntheticRepository.TRANSLATIONS_DIRECTORY, "-s", SyntheticRepository.SOURCE_LANGUAGE,
+				"--no-cache", "--report", reportFile.toString()});
+
+		assertEquals(TranslationStatusCode.STATUS_OK, statusCode);
+		JsonNode report;
+		try (InputStream in = Files.newInputStream(reportFile)) {
+			report = jsonHelper.readJson(in);
+		}
+		for (String targetLanguage : targetLanguages) {
+			assertEquals(1, report.at("/languages/" + targetLanguage + "/files").asInt());
+			assertTrue(Files.readString(translations.resolve(targetLanguage).resolve("main.json"))
+					.contains("\"" + targetLanguage + ":Added\""), "Added text must be translated.");
+		}
+	}
+
+	@Test
+	void testFailedNamespacesLeaveTheOthersIntact() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults().withLatency(Duration.ofMillis(20)));
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(300, 3, 2));
+		List<String> targetLanguages = SyntheticRepository.targetLanguages(2);
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		// the second target file of main fails, then both target files of namespace001
+		Path invalidTarget = translations.resolve(targetLanguages.get(1)).resolve("main.json");
+		Files.writeString(invalidTarget, "{ invalid");
+		Path arraySource = translations.resolve(SyntheticRepository.SOURCE_LANGUAGE).resolve("namespace001.json");
+		Files.writeString(arraySource, Files.readString(arraySource).replaceFirst("\\{", "{\"list\":[\"A\"],"));
+		List<String> failedTargets = new ArrayList<>();
+		for (String targetLanguage : targetLanguages) {
+			failedTargets.add(Files.readString(translations.resolve(targetLanguage).resolve("namespace001.json")));
+		}
+		String[] args = {"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--no-cache", "--jobs", "4"};
+
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationTool translationTool = new TranslationTool(new JsonHelper(), deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper));
+		// the results are reported in order of the namespaces, so the first failure decides the status code
+		assertEquals(TranslationStatusCode.STATUS_JSON_INVALID, translationTool.run(args));
+
+		assertEquals("{ invalid", Files.readString(invalidTarget));
+		for (int i = 0; i < targetLanguages.size(); i++) {
+			String targetLanguage = targetLanguages.get(i);
+			assertEquals(failedTargets.get(i),
+					Files.readString(translations.resolve(targetLanguage).resolve("namespace001.json")));
+			assertTrue(Files.readString(translations.resolve(targetLanguage).resolve("namespace002.json"))
+					.contains(" revision 3\""), "Texts of the other namespaces must be translated.");
+		}
+		assertTrue(Files.readString(translations.resolve(targetLanguages.get(0)).resolve("main.json"))
+				.contains(" revision 3\""), "Texts of the other target language must be translated.");
+	}
+
+	@Test
+	void testFailedProjectOfABatchDoesNotStopTheOthers() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path shop = tempDir.resolve("shop");
+		Path admin = tempDir.resolve("admin");
+		SyntheticRepository.generate(shop, SyntheticRepository.Settings.defaults().withSize(200, 1, 1));
+		SyntheticRepository.generate(admin, SyntheticRepository.Settings.defaults().withSize(200, 1, 1));
+		String targetLanguage = SyntheticRepository.targetLanguages(1).get(0);
+		// the first project fails, the second one is translated anyway
+		Path invalidTarget = shop.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY).resolve(targetLanguage)
+				.resolve("main.json");
+		Files.writeString(invalidTarget, "{ invalid");
+		Path batchFile = tempDir.resolve("batch.json");
+		Files.writeString(batchFile, "{ \"projects\": [ "
+				+ "{ \"repo\": \"" + shop + "\", \"path\": \"" + SyntheticRepository.TRANSLATIONS_DIRECTORY + "\" }, "
+				+ "{ \"repo\": \"" + admin + "\", \"path\": \"" + SyntheticRepository.TRANSLATIONS_DIRECTORY + "\", "
+				+ "\"since\": \"HEAD~3\" } ] }");
+		Path reportFile = tempDir.resolve("report.json");
+
+		JsonHelper jsonHelper = new JsonHelper();
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationStatusCode statusCode = new TranslationTool(jsonHelper, deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper)).run(new String[]{"--batch", batchFile.toString(),
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--no-cache", "--report", reportFile.toString()});
+
+		assertEquals(TranslationStatusCode.STATUS_JSON_INVALID, statusCode);
+		assertEquals(5, statusCode.exitCode());
+		assertEquals("{ invalid", Files.readString(invalidTarget));
+		String target = Files.readString(admin.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+				.resolve(targetLanguage).resolve("main.json"));
+		for (int commit = 1; commit <= 3; commit++) {
+			assertTrue(target.contains(" revision " + commit + "\""), "Texts of all commits must be translated.");
+		}
+		JsonNode report;
+		try (InputStream in = Files.newInputStream(reportFile)) {
+			report = jsonHelper.readJson(in);
+		}
+		assertEquals("STATUS_JSON_INVALID", report.get("status").asText());
+		assertEquals(2, report.get("projects").size());
+		assertEquals(shop.toString(), report.at("/projects/0/repo").asText());
+		assertEquals("STATUS_JSON_INVALID", report.at("/projects/0/status").asText());
+		assertEquals(admin.toString(), report.at("/projects/1/repo").asText());
+		assertEquals("STATUS_OK", report.at("/projects/1/status").asText());
+		assertTrue(report.at("/projects/1/languages/" + targetLanguage + "/characters").asLong() > 0,
+				"Characters must be reported per project.");
+	}
+
+	@Test
+	void testSourceTextChangedWithoutARunIsTranslated() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		TranslationTool translationTool = changeSourceWithoutARun(repository);
+		Path targetFile = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+				.resolve(SyntheticRepository.targetLanguages(1).get(0)).resolve("main.json");
+
+		// the source file did not change since the remembered commit, but its fingerprints in the manifest did
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(translationArgs(repository)));
+
+		assertTrue(Files.readString(targetFile).contains("\"de:Changed\""), "Changed text must be translated.");
+	}
+
+	@Test
+	void testEditedTargetFileFallsBackToTheSourceDiff() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		TranslationTool translationTool = changeSourceWithoutARun(repository);
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		String targetLanguage = SyntheticRepository.targetLanguages(1).get(0);
+		Path targetFile = translations.resolve(targetLanguage).resolve("main.json");
+		Files.writeString(targetFile, Files.readString(targetFile).replace("de:Original", "Hand translated"));
+
+		// the fingerprints do not belong to the edited target file, the source diff since the remembered commit
+		// is empty
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(translationArgs(repository)));
+
+		assertTrue(Files.readString(targetFile).contains("\"Hand translated\""), "Edited text must be kept.");
+		FileHelper fileHelper = new FileHelper();
+		TranslationManifest manifest = readManifest(translations, targetLanguage);
+		assertEquals(fileHelper.blobId(targetFile.toString()), manifest.targetBlobId("main"));
+	}
+
+	@Test
+	void testManifestsOfFailedAndDeferredLanguagesAreKept() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 1, 3));
+		// the target languages are planned in alphabetical order: de, es, fr
+		List<String> targetLanguages = SyntheticRepository.targetLanguages(3);
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		Path planFile = tempDir.resolve("plan.json");
+		String[] args = translationArgs(repository);
+
+		JsonHelper jsonHelper = new JsonHelper();
+		FileHelper fileHelper = new FileHelper();
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		assertEquals(TranslationStatusCode.STATUS_OK, new TranslationTool(jsonHelper, deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper)).run(concat(args, "--plan", planFile.toString())));
+		JsonNode plan;
+		try (InputStream in = Files.newInputStream(planFile)) {
+			plan = jsonHelper.readJson(in);
+		}
+		server.close();
+
+		// the quota is sufficient for de only, es fails
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults()
+				.withCharacterLimit(plan.at("/languages/de/characters").asLong() + 1));
+		Files.writeString(translations.resolve("es").resolve("main.json"), "{ invalid");
+		deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		assertEquals(TranslationStatusCode.STATUS_JSON_INVALID, new TranslationTool(jsonHelper, deepLHelper,
+				fileHelper, new CommandLineHelper(deepLHelper, fileHelper)).run(args));
+
+		for (String targetLanguage : targetLanguages) {
+			String targetBlobId = fileHelper.blobId(translations.resolve(targetLanguage).resolve("main.json")
+					.toString());
+			JsonNode fingerprints = readManifest(translations, targetLanguage).fingerprints("main", targetBlobId);
+			assertEquals("de".equals(targetLanguage), fingerprints != null,
+					"Only the translated target language must be remembered in its manifest: " + targetLanguage);
+		}
+	}
+
+	@Test
+	void testPlanIsComputedOfflineAndAppliedLater() throws IOException, GitAPIException {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 2, 2));
+		Path planFile = tempDir.resolve("plan.json");
+		String[] args = {"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--no-cache"};
+
+		JsonHelper jsonHelper = new JsonHelper();
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationTool translationTool = new TranslationTool(jsonHelper, deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper));
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(
+				concat(args, "--plan", planFile.toString())));
+
+		// the plan is computed without any request to DeepL
+		long requests = server.requests();
+		assertEquals(0L, server.translatedTexts());
+		JsonNode plan;
+		try (InputStream in = Files.newInputStream(planFile)) {
+			plan = jsonHelper.readJson(in);
+		}
+		assertTrue(plan.at("/languages/de/characters").asLong() > 0, "Characters must be planned per language.");
+
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(
+				concat(args, "--apply", planFile.toString())));
+
+		// the texts of a target language are translated together
+		assertEquals(plan.at("/texts").asLong(), server.translatedTexts());
+		assertTrue(server.requests() > requests, "Texts must be translated when the plan is applied.");
+		for (String targetLanguage : SyntheticRepository.targetLanguages(2)) {
+			String target = Files.readString(repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+					.resolve(targetLanguage).resolve("main.json"));
+			assertTrue(target.contains(" revision 3\""), "Texts of the last commit must be translated.");
+		}
+		String state = Files.readString(repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+				.resolve(TranslationState.FILE_NAME));
+		assertTrue(state.contains(plan.get("commit").asText()), "Planned commit must be remembered.");
+
+		// the target files changed, so the plan is outdated
+		assertEquals(TranslationStatusCode.STATUS_INVALID_ARGUMENT, translationTool.run(
+				concat(args, "--apply", planFile.toString())));
+	}
+
+	@Test
+	void testPlanIsComputedWithoutLanguageCacheAndUnreachableDeepL() throws IOException, GitAPIException {
+		// every request to DeepL fails, but it is counted
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults().withFailures(1, 0));
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 1, 2));
+		Path cacheDirectory = tempDir.resolve("cache");
+		Path planFile = tempDir.resolve("plan.json");
+		String[] args = {"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--cache-dir", cacheDirectory.toString(),
+				"--plan", planFile.toString()};
+
+		FileHelper fileHelper = new FileHelper();
+		assertEquals(TranslationStatusCode.STATUS_OK, new TranslationTool(new JsonHelper(), deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper)).run(args));
+
+		assertTrue(Files.exists(planFile), "Plan must be written.");
+		assertEquals(0L, server.requests(), "Nothing must be requested from DeepL, not even the languages.");
+	}
+
+	@Test
+	void testWatchModeTranslatesSavedSourceFiles() throws Exception {
+		server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		Path repository = tempDir.resolve("repo");
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 1, 1));
+		Path translations = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY);
+		Path sourceFile = translations.resolve(SyntheticRepository.SOURCE_LANGUAGE).resolve("main.json");
+		Path targetFile = translations.resolve(SyntheticRepository.targetLanguages(1).get(0)).resolve("main.json");
+
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationTool translationTool = new TranslationTool(new JsonHelper(), deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper));
+		CompletableFuture<TranslationStatusCode> run = CompletableFuture.supplyAsync(() ->
+				translationTool.run(new String[]{"-r", repository.toString(),
+						"-p", SyntheticRepository.TRANSLATIONS_DIRECTORY, "-s", SyntheticRepository.SOURCE_LANGUAGE,
+						"--no-cache", "--watch"}));
+		try {
+			// the first run translates the last commit and remembers it
+			awaitFile(translations.resolve(TranslationState.FILE_NAME), "\"languages\"");
+			long translatedTexts = server.translatedTexts();
+
+			String source = Files.readString(sourceFile);
+			Files.writeString(sourceFile, source.replaceFirst(" revision 3\"", " saved in watch mode\""));
+
+			awaitFile(targetFile, " saved in watch mode\"");
+			assertEquals(translatedTexts + 1, server.translatedTexts());
+		} finally {
+			translationTool.stopWatching();
+		}
+		assertEquals(TranslationStatusCode.STATUS_OK, run.get(10, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Translates a new source text and commits the translation, then changes the text and commits it as if it
+	 * was translated, e.g. by a squash merge of a branch whose translation run was lost.
+	 */
+	private TranslationTool changeSourceWithoutARun(Path repository) throws IOException, GitAPIException {
+		SyntheticRepository.generate(repository, SyntheticRepository.Settings.defaults().withSize(200, 1, 1));
+		Path sourceFile = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+				.resolve(SyntheticRepository.SOURCE_LANGUAGE).resolve("main.json");
+		Files.writeString(sourceFile, Files.readString(sourceFile).replaceFirst("\\{", "{\"edited\":\"Original\","));
+
+		DeepLHelper deepLHelper = server.deepLHelper(TRANSPORT_SETTINGS);
+		FileHelper fileHelper = new FileHelper();
+		TranslationTool translationTool = new TranslationTool(new JsonHelper(), deepLHelper, fileHelper,
+				new CommandLineHelper(deepLHelper, fileHelper));
+		assertEquals(TranslationStatusCode.STATUS_OK, translationTool.run(translationArgs(repository)));
+		commitAsTranslated(repository, List.of());
+
+		Files.writeString(sourceFile, Files.readString(sourceFile).replace("\"Original\"", "\"Changed\""));
+		commitAsTranslated(repository, SyntheticRepository.targetLanguages(1));
+		return translationTool;
+	}
+
+	private String[] translationArgs(Path repository) {
+		return new String[]{"-r", repository.toString(), "-p", SyntheticRepository.TRANSLATIONS_DIRECTORY,
+				"-s", SyntheticRepository.SOURCE_LANGUAGE, "--cache-dir", tempDir.resolve("cache").toString()};
+	}
+
+	/**
+	 * Commits all files and remembers the commit as translated for the target languages.
+	 */
+	private static void commitAsTranslated(Path repository, List<String> targetLanguages)
+			throws IOException, GitAPIException {
+		try (Git git = Git.open(repository.toFile())) {
+			git.add().addFilepattern(".").call();
+			git.commit().setMessage("Translated").setSign(false).call();
+		}
+		FileHelper fileHelper = new FileHelper();
+		String headCommit = fileHelper.resolveCommit(repository.toString(), "HEAD");
+		Map<String, String> commits = new HashMap<>();
+		targetLanguages.forEach(targetLanguage -> commits.put(targetLanguage, headCommit));
+		Path stateFile = repository.resolve(SyntheticRepository.TRANSLATIONS_DIRECTORY)
+				.resolve(TranslationState.FILE_NAME);
+		new TranslationState(new JsonHelper(), fileHelper, stateFile.toString())
+				.update(commits, SyntheticRepository.SOURCE_LANGUAGE);
+	}
+
+	private static TranslationManifest readManifest(Path translations, String targetLanguage) {
+		return TranslationManifest.read(new JsonHelper(), new FileHelper(),
+				translations.resolve(targetLanguage).resolve(TranslationManifest.FILE_NAME).toString(),
+				SyntheticRepository.SOURCE_LANGUAGE);
+	}
+
+	private static String[] concat(String[] args, String... moreArgs) {
+		String[] allArgs = Arrays.copyOf(args, args.length + moreArgs.length);
+		System.arraycopy(moreArgs, 0, allArgs, args.length, moreArgs.length);
+		return allArgs;
+	}
+
+	private static void awaitFile(Path file, String content) throws IOException, InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(20);
+		while (!Files.exists(file) || !Files.readString(file).contains(content)) {
+			if (System.nanoTime() > deadline) {
+				throw new AssertionError("'" + content + "' not found in " + file);
+			}
+			Thread.sleep(50);
+		}
+	}
+}
@@ -1,17 +1,33 @@
 package net.wiredclub.translation;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class FileHelperTest {
 
 	// private static final Logger LOG = LoggerFactory.getLogger(FileHelperTest.class);
 
+	@TempDir
+	Path tempDir;
+
 	@Test
 	void testReadPreviousFileFromHistory() throws IOException, TranslationFileNotFoundException {
 		String fileName = "translations/en/main.json";
@@ -31,4 +47,76 @@ public class FileHelperTest {
 		assertEquals("net.wiredclub.translation.TranslationFileNotFoundException", thrownException.getClass().getName());
 		assertEquals("not found", thrownException.getMessage());
 	}
+
+	@Test
+	void testWriteFileAtomically() throws IOException {
+		Path file = tempDir.resolve("main.json");
+		FileHelper fileHelper = new FileHelper();
+
+		assertTrue(fileHelper.writeFileAtomically(file.toString(),
+				out -> out.write("{}".getBytes(StandardCharsets.UTF_8))));
+		FileTime written = FileTime.fromMillis(1000);
+		Files.setLastModifiedTime(file, written);
+
+		assertFalse(fileHelper.writeFileAtomically(file.toString(),
+				out -> out.write("{}".getBytes(StandardCharsets.UTF_8))), "Unchanged file must not be written.");
+		assertEquals(written, Files.getLastModifiedTime(file));
+
+		assertTrue(fileHelper.writeFileAtomically(file.toString(),
+				out -> out.write("{ }".getBytes(StandardCharsets.UTF_8))));
+		assertEquals("{ }", Files.readString(file));
+		try (Stream<Path> files = Files.list(tempDir)) {
+			assertEquals(1L, files.count(), "Temporary files must be removed.");
+		}
+	}
+
+	@Test
+	void testReadFilesFromHistory() throws IOException {
+		String sourceFile = "translations/en/main.json";
+		String targetFile = "translations/de/main.json";
+		JsonHelper jsonHelper = new JsonHelper();
+
+		try (FileHelper fileHelper = new FileHelper()) {
+			Map<String, JsonNode> files = fileHelper.readFilesFromHistory(".", TranslationRun.PREVIOUS_REVISION,
+					List.of(sourceFile, targetFile, "not found"), jsonHelper::readJson);
+
+			assertEquals(Set.of(sourceFile, targetFile), files.keySet());
+			assertTrue(files.get(sourceFile).isObject(), "Source file must be a json object.");
+		}
+	}
+
+	@Test
+	void testResolveCommit() throws IOException {
+		try (FileHelper fileHelper = new FileHelper()) {
+			String head = fileHelper.resolveCommit(".", "HEAD");
+
+			assertNotNull(head);
+			assertEquals(40, head.length());
+			assertEquals(head, fileHelper.resolveCommit(".", head.substring(0, 12)));
+			assertNull(fileHelper.resolveCommit(".", "no-such-branch"));
+		}
+	}
+
+	@Test
+	void testDiscoverNamespaces() throws IOException {
+		Files.createDirectories(tempDir.resolve("en/admin"));
+		Files.writeString(tempDir.resolve("en/main.json"), "{}");
+		Files.writeString(tempDir.resolve("en/admin/users.json"), "{}");
+		Files.writeString(tempDir.resolve("en/readme.txt"), "");
+
+		Set<String> namespaces = new FileHelper().discoverNamespaces(tempDir.resolve("en").toString());
+
+		assertEquals(List.of("admin/users", "main"), List.copyOf(namespaces));
+	}
+
+	@Test
+	void testBlobIdEqualsGitObjectId() throws IOException {
+		Path file = tempDir.resolve("main.json");
+		Files.writeString(file, "{}");
+
+		FileHelper fileHelper = new FileHelper();
+
+		assertEquals("9e26dfeeb6e641a33dae4961196235bdb965b21b", fileHelper.blobId(file.toString()));
+		assertNull(fileHelper.blobId(tempDir.resolve("not found").toString()));
+	}
 }
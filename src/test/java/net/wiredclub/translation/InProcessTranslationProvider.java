@@ -0,0 +1,107 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Translation provider for tests and benchmarks which needs no network. Every text is translated to itself prefixed
+ * with the target language, e.g. {@code de:Text}, like {@link FakeDeepLServer} does. A translation completes after the
+ * configured latency without blocking a thread in the meantime, so many requests can be in flight at the same time.
+ * The supported languages are the languages of the bundled language snapshot and the quota is unlimited.
+ */
+class InProcessTranslationProvider implements TranslationProvider {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+
+	private final Executor executor;
+	private final List<String> sourceLanguages;
+	private final List<String> targetLanguages;
+	private final List<List<String>> requests = new CopyOnWriteArrayList<>();
+	private final AtomicLong translatedTexts = new AtomicLong();
+	private final AtomicLong translatedCharacters = new AtomicLong();
+
+	InProcessTranslationProvider() {
+		this(Duration.ZERO);
+	}
+
+	/**
+	 * @param latency time until a translation completes
+	 */
+	InProcessTranslationProvider(Duration latency) {
+		this.executor = CompletableFuture.delayedExecutor(latency.toNanos(), TimeUnit.NANOSECONDS);
+		try (InputStream inputStream = getClass().getResourceAsStream("/deepl-languages.json")) {
+			JsonNode snapshot = MAPPER.readTree(inputStream);
+			this.sourceLanguages = languages(snapshot.get("source"));
+			this.targetLanguages = languages(snapshot.get("target"));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static List<String> languages(JsonNode languages) {
+		List<String> result = new ArrayList<>();
+		for (JsonNode language : languages) {
+			result.add(language.asText().toLowerCase(Locale.ROOT));
+		}
+		return List.copyOf(result);
+	}
+
+	@Override
+	public CompletableFuture<List<String>> translateAsync(List<String> texts, String sourceLanguage,
+	                                                      String targetLanguage) {
+		requests.add(List.copyOf(texts));
+		return CompletableFuture.supplyAsync(() -> {
+			List<String> translations = new ArrayList<>(texts.size());
+			for (String text : texts) {
+				translations.add(targetLanguage.toLowerCase(Locale.ROOT) + ":" + text);
+				translatedCharacters.addAndGet(text.codePointCount(0, text.length()));
+			}
+			translatedTexts.addAndGet(texts.size());
+			return translations;
+		}, executor);
+	}
+
+	@Override
+	public long billableCharacters(List<String> texts, String sourceLanguage, String targetLanguage) {
+		return texts.stream().mapToLong(text -> text.codePointCount(0, text.length())).sum();
+	}
+
+	@Override
+	public CompletableFuture<Usage> usageAsync() {
+		return CompletableFuture.completedFuture(new Usage(translatedCharacters.get(), Long.MAX_VALUE));
+	}
+
+	@Override
+	public List<String> sourceLanguages() {
+		return sourceLanguages;
+	}
+
+	@Override
+	public List<String> targetLanguages() {
+		return targetLanguages;
+	}
+
+	/**
+	 * @return the texts of every translation request, in order of the requests
+	 */
+	List<List<String>> requests() {
+		return List.copyOf(requests);
+	}
+
+	long translatedTexts() {
+		return translatedTexts.get();
+	}
+}
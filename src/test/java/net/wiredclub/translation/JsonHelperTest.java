@@ -1,7 +1,12 @@
 package net.wiredclub.translation;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
@@ -18,4 +23,24 @@ public class JsonHelperTest {
 				thrownException.getClass().getName());
 		// LOG.info(thrownException.getMessage());
 	}
+
+	@Test
+	void testWriteJsonInFormatOfTranslationFiles() throws IOException, TranslationJsonProcessingException {
+		JsonHelper jsonHelper = new JsonHelper();
+		JsonNode json = jsonHelper.convertStringToJson(
+				"{ \"a\": \"x\\\" : \\\"y\", \"b\": { \"c\": \"C\" }, \"d\": {} }");
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		jsonHelper.writeJson(json, out);
+
+		String expected = "{\n"
+				+ "\t\"a\": \"x\\\" : \\\"y\",\n"
+				+ "\t\"b\": {\n"
+				+ "\t\t\"c\": \"C\"\n"
+				+ "\t},\n"
+				+ "\t\"d\": { }\n"
+				+ "}";
+		assertEquals(expected, out.toString(StandardCharsets.UTF_8));
+		assertEquals(expected, jsonHelper.convertJsonToString(json));
+	}
 }
@@ -0,0 +1,84 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyPathIndexTest {
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+
+	@Test
+	void testPathsAreNumberedInDocumentOrder() throws TranslationJsonProcessingException {
+		JsonNode json = jsonHelper.convertStringToJson(
+				"{ \"a\": \"A\", \"b\": { \"c\": \"C\", \"d\": { \"e\": \"E\" } }, \"f\": \"F\" }");
+
+		KeyPathIndex keys = KeyPathIndex.of(json);
+
+		assertEquals(7, keys.size());
+		int b = keys.child(0, "b");
+		assertEquals(2, b);
+		assertEquals(5, keys.end(b));
+		assertEquals(6, keys.child(0, "f"));
+		assertEquals(6, keys.end(0));
+		int d = keys.child(b, "d");
+		assertEquals(b, keys.parent(d));
+		assertEquals("d", keys.fieldName(d));
+		assertTrue(keys.isObject(d));
+		assertSame(json.get("b").get("d").get("e"), keys.node(keys.child(d, "e")));
+	}
+
+	@Test
+	void testMissingChildIsNotFound() throws TranslationJsonProcessingException {
+		JsonNode json = jsonHelper.convertStringToJson("{ \"a\": { \"b\": \"B\" }, \"b\": \"B\" }");
+
+		KeyPathIndex keys = KeyPathIndex.of(json);
+
+		assertEquals(-1, keys.child(0, "c"));
+		assertEquals(-1, keys.child(keys.child(0, "b"), "b"));
+		assertEquals(2, keys.child(keys.child(0, "a"), "b"));
+	}
+
+	@Test
+	void testPointersAreEscaped() throws TranslationJsonProcessingException {
+		JsonNode json = jsonHelper.convertStringToJson("{ \"a/b\": { \"c~d\": \"E\" } }");
+
+		KeyPathIndex keys = KeyPathIndex.of(json);
+
+		assertEquals("", keys.pointer(0));
+		assertEquals("/a~1b/c~0d", keys.pointer(2));
+		assertEquals("/a~1b/f~1g", keys.pointer(1, "f/g"));
+	}
+
+	@Test
+	void testValuesAreStoredByPathId() throws TranslationJsonProcessingException {
+		JsonNode sourceJson = jsonHelper.convertStringToJson("{ \"a\": \"A\", \"b\": { \"c\": \"C\" } }");
+		JsonNode targetJson = jsonHelper.convertStringToJson("{ \"a\": \"X\" }");
+
+		KeyPathIndex keys = KeyPathIndex.of(sourceJson);
+		KeyPathIndex.Values values = TranslationDiff.diffKeys(targetJson, keys).from();
+
+		assertSame(targetJson, values.node(0));
+		assertSame(targetJson.get("a"), values.node(keys.child(0, "a")));
+		assertEquals(null, values.node(keys.child(0, "b")));
+	}
+
+	@Test
+	void testValuesOfAnotherJsonFollowTheIndex() throws TranslationJsonProcessingException {
+		JsonNode sourceJson = jsonHelper.convertStringToJson("{ \"a\": \"A\", \"b\": { \"c\": \"C\" }, \"d\": \"D\" }");
+		JsonNode otherJson = jsonHelper.convertStringToJson("{ \"b\": { \"c\": \"X\" }, \"d\": { \"e\": \"E\" }, "
+				+ "\"x\": \"Y\" }");
+
+		KeyPathIndex keys = KeyPathIndex.of(sourceJson);
+		KeyPathIndex.Values values = keys.values(otherJson);
+
+		assertSame(otherJson, values.node(0));
+		assertEquals(null, values.node(keys.child(0, "a")));
+		assertSame(otherJson.get("b").get("c"), values.node(keys.child(keys.child(0, "b"), "c")));
+		// an object where the index has a value is stored, its fields are ignored
+		assertSame(otherJson.get("d"), values.node(keys.child(0, "d")));
+	}
+}
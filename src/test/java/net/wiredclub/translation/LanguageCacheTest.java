@@ -0,0 +1,150 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LanguageCacheTest {
+
+	private static final Duration TTL = Duration.ofHours(1);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testLanguagesAreCached() throws IOException, TranslationJsonProcessingException {
+		CountingDeepLHelper deepLHelper = new CountingDeepLHelper(false);
+		Path cacheFile = tempDir.resolve("languages.json");
+		Clock clock = Clock.fixed(Instant.parse("2022-05-01T10:00:00Z"), ZoneOffset.UTC);
+
+		LanguageCache.Languages languages =
+				new LanguageCache(deepLHelper, new JsonHelper(), cacheFile, TTL, clock).languages();
+		LanguageCache.Languages cachedLanguages =
+				new LanguageCache(deepLHelper, new JsonHelper(), cacheFile, TTL, clock).languages();
+
+		assertEquals(List.of("de", "en"), languages.source());
+		assertEquals(List.of("de", "en-gb"), languages.target());
+		assertEquals(languages, cachedLanguages);
+		assertEquals(2, deepLHelper.requests.get());
+	}
+
+	@Test
+	void testOutdatedLanguagesAreRequestedAgain() throws IOException, TranslationJsonProcessingException {
+		CountingDeepLHelper deepLHelper = new CountingDeepLHelper(false);
+		Path cacheFile = tempDir.resolve("languages.json");
+		Instant now = Instant.parse("2022-05-01T10:00:00Z");
+
+		new LanguageCache(deepLHelper, new JsonHelper(), cacheFile, TTL, Clock.fixed(now, ZoneOffset.UTC))
+				.languages();
+		new LanguageCache(deepLHelper, new JsonHelper(), cacheFile, TTL,
+				Clock.fixed(now.plus(TTL), ZoneOffset.UTC)).languages();
+
+		assertEquals(4, deepLHelper.requests.get());
+	}
+
+	@Test
+	void testOutdatedLanguagesAreUsedIfDeepLIsNotReachable() throws IOException, TranslationJsonProcessingException {
+		Path cacheFile = tempDir.resolve("languages.json");
+		Instant now = Instant.parse("2022-05-01T10:00:00Z");
+		new LanguageCache(new CountingDeepLHelper(false), new JsonHelper(), cacheFile, TTL,
+				Clock.fixed(now, ZoneOffset.UTC)).languages();
+
+		LanguageCache.Languages languages = new LanguageCache(new CountingDeepLHelper(true), new JsonHelper(),
+				cacheFile, TTL, Clock.fixed(now.plus(TTL), ZoneOffset.UTC)).languages();
+
+		assertEquals(List.of("de", "en"), languages.source());
+	}
+
+	@Test
+	void testCachedLanguagesAreNeverRequested() throws IOException, TranslationJsonProcessingException {
+		Path cacheFile = tempDir.resolve("languages.json");
+		Instant now = Instant.parse("2022-05-01T10:00:00Z");
+		new LanguageCache(new CountingDeepLHelper(false), new JsonHelper(), cacheFile, TTL,
+				Clock.fixed(now, ZoneOffset.UTC)).languages();
+		CountingDeepLHelper deepLHelper = new CountingDeepLHelper(false);
+
+		LanguageCache.Languages outdated = new LanguageCache(deepLHelper, new JsonHelper(), cacheFile, TTL,
+				Clock.fixed(now.plus(TTL), ZoneOffset.UTC)).cachedLanguages();
+		LanguageCache.Languages shipped = new LanguageCache(deepLHelper, new JsonHelper(), null, TTL)
+				.cachedLanguages();
+
+		assertEquals(List.of("de", "en"), outdated.source());
+		assertTrue(shipped.target().contains("de"), "DE must be part of the shipped target languages.");
+		assertEquals(0, deepLHelper.requests.get());
+	}
+
+	@Test
+	void testLanguagesAreCachedPerBaseUri() throws IOException, TranslationJsonProcessingException {
+		CountingDeepLHelper free = new CountingDeepLHelper(false);
+		CountingDeepLHelper pro = new CountingDeepLHelper(false, "https://api.deepl.com");
+		Path cacheFile = tempDir.resolve("languages.json");
+		Clock clock = Clock.fixed(Instant.parse("2022-05-01T10:00:00Z"), ZoneOffset.UTC);
+
+		new LanguageCache(free, new JsonHelper(), cacheFile, TTL, clock).languages();
+		new LanguageCache(pro, new JsonHelper(), cacheFile, TTL, clock).languages();
+		new LanguageCache(free, new JsonHelper(), cacheFile, TTL, clock).languages();
+		new LanguageCache(pro, new JsonHelper(), cacheFile, TTL, clock).languages();
+
+		assertEquals(2, free.requests.get());
+		assertEquals(2, pro.requests.get());
+	}
+
+	@Test
+	void testSnapshotIsUsedIfDeepLIsNotReachable() throws IOException, TranslationJsonProcessingException {
+		LanguageCache.Languages languages =
+				new LanguageCache(new CountingDeepLHelper(true), new JsonHelper(), null, TTL).languages();
+
+		assertTrue(languages.source().contains("en"), "EN must be part of source languages.");
+		assertTrue(languages.target().contains("de"), "DE must be part of target languages.");
+	}
+
+	private static class CountingDeepLHelper extends DeepLHelper {
+
+		private final AtomicInteger requests = new AtomicInteger();
+		private final boolean offline;
+		private final String baseUri;
+
+		CountingDeepLHelper(boolean offline) {
+			this(offline, "https://api-free.deepl.com");
+		}
+
+		CountingDeepLHelper(boolean offline, String baseUri) {
+			this.offline = offline;
+			this.baseUri = baseUri;
+		}
+
+		@Override
+		public String baseUri() {
+			return baseUri;
+		}
+
+		@Override
+		public List<String> sourceLanguages() throws IOException {
+			requests.incrementAndGet();
+			if (offline) {
+				throw new IOException("offline");
+			}
+			return List.of("de", "en");
+		}
+
+		@Override
+		public List<String> targetLanguages() throws IOException {
+			requests.incrementAndGet();
+			if (offline) {
+				throw new IOException("offline");
+			}
+			return List.of("de", "en-gb");
+		}
+	}
+}
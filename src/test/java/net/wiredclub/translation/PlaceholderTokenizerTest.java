@@ -0,0 +1,83 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PlaceholderTokenizerTest {
+
+	private final PlaceholderTokenizer tokenizer = PlaceholderTokenizer.defaults();
+
+	@Test
+	void testTextWithoutPlaceholdersIsNotCopied() {
+		String text = "100% sure, {not a placeholder and <b>bold</b>";
+
+		assertSame(text, tokenizer.protect(text));
+		assertSame(text, tokenizer.restore(text));
+	}
+
+	@Test
+	void testBracesAndPrintf() {
+		assertEquals("Hello <donut>{name}</donut>, you have <donut>%1$d</donut> new <donut>%s</donut>",
+				tokenizer.protect("Hello {name}, you have %1$d new %s"));
+		assertEquals("<donut>{0}</donut> costs <donut>{price, number, ::currency/EUR}</donut> (<donut>%.2f%%</donut>)",
+				tokenizer.protect("{0} costs {price, number, ::currency/EUR} (%.2f%%)"));
+	}
+
+	@Test
+	void testNumberedTagsAreEscaped() {
+		String text = "Read the <0>terms</0> and <1/>{{- link}}";
+
+		String protectedText = tokenizer.protect(text);
+
+		assertEquals("Read the <donut>&lt;0&gt;</donut>terms<donut>&lt;/0&gt;</donut> and "
+				+ "<donut>&lt;1/&gt;{{- link}}</donut>", protectedText);
+		assertEquals(text, tokenizer.restore(protectedText));
+	}
+
+	@Test
+	void testIcuMessagesAreTranslated() {
+		String text = "{count, plural, =0 {No items} one {# item for {name}} other {# items}}";
+
+		String protectedText = tokenizer.protect(text);
+
+		assertEquals("<donut>{count, plural, =0 {</donut>No items<donut>} one {#</donut> item for "
+				+ "<donut>{name}} other {#</donut> items<donut>}}</donut>", protectedText);
+		assertEquals(text, tokenizer.restore(protectedText));
+	}
+
+	@Test
+	void testInvalidIcuIsNotProtected() {
+		assertEquals("{count, plural, one {# item}", tokenizer.protect("{count, plural, one {# item}"));
+		assertEquals("<donut>{gender, select, male {</donut>He<donut>} other {</donut>#<donut>}}</donut>",
+				tokenizer.protect("{gender, select, male {He} other {#}}"));
+	}
+
+	@Test
+	void testOnlyConfiguredSyntaxesAreProtected() {
+		PlaceholderTokenizer doubleBraces =
+				new PlaceholderTokenizer(EnumSet.of(PlaceholderTokenizer.Syntax.DOUBLE_BRACES));
+
+		assertEquals("Hello <donut>{{name}}</donut>, {name} and %s",
+				doubleBraces.protect("Hello {{name}}, {name} and %s"));
+		assertEquals("double-braces", doubleBraces.signature());
+		assertEquals("", new PlaceholderTokenizer(Set.of()).signature());
+	}
+
+	@Test
+	void testLostPlaceholder() {
+		String protectedText = tokenizer.protect("{{a}} and {{b}} or {{a}}");
+
+		assertNull(tokenizer.lostPlaceholder(protectedText,
+				"<donut>{{b}}</donut> und <donut>{{a}}</donut> oder <donut>{{a}}</donut>"));
+		assertEquals("{{a}}", tokenizer.lostPlaceholder(protectedText,
+				"<donut>{{a}}</donut> und <donut>{{b}}</donut>"));
+		assertEquals("{{b}}", tokenizer.lostPlaceholder(protectedText,
+				"<donut>{{a}}</donut> und <donut>{{ b }}</donut> oder <donut>{{a}}</donut>"));
+	}
+}
@@ -0,0 +1,119 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RunReportTest {
+
+	@Test
+	void testPercentile() {
+		long[] sorted = {10, 20, 30, 40, 50, 60, 70, 80, 90, 100};
+
+		assertEquals(50L, RunReport.percentile(sorted, 50));
+		assertEquals(90L, RunReport.percentile(sorted, 90));
+		assertEquals(100L, RunReport.percentile(sorted, 99));
+		assertEquals(0L, RunReport.percentile(new long[0], 50));
+	}
+
+	@Test
+	void testRequestsAreReportedForTheLanguageOfTheThread() {
+		RunReport report = new RunReport();
+
+		report.requestCompleted("/v2/languages", 200, 10, 100, 1_000_000);
+		report.enter("de");
+		report.requestCompleted("/v2/translate", 200, 20, 200, 2_000_000);
+		report.requestCompleted("/v2/translate", 429, 20, 30, 3_000_000);
+		report.leave();
+		report.requestCompleted("/v2/usage", 200, 10, 50, 4_000_000);
+		JsonNode json = report.toJson();
+
+		assertEquals(4, json.at("/requests/count").asInt());
+		assertEquals(1, json.at("/requests/failed").asInt());
+		assertEquals(2, json.at("/languages/de/requests/count").asInt());
+		assertEquals(40, json.at("/languages/de/requests/bytesSent").asInt());
+		assertEquals(3, json.at("/languages/de/requests/latencyMillis/max").asInt());
+		assertEquals(2, json.at("/otherRequests/count").asInt());
+	}
+
+	@Test
+	void testBytesAreCounted() throws IOException {
+		RunReport report = new RunReport();
+
+		try (InputStream in = report.countRead("en", new ByteArrayInputStream(new byte[1000]))) {
+			in.read();
+			in.readAllBytes();
+		}
+		try (OutputStream out = report.countWritten("de", new ByteArrayOutputStream())) {
+			out.write('{');
+			out.write(new byte[100], 10, 50);
+		}
+		JsonNode json = report.toJson();
+
+		assertEquals(1000, json.at("/languages/en/bytesRead").asInt());
+		assertEquals(1, json.at("/languages/en/filesRead").asInt());
+		assertEquals(51, json.at("/languages/de/bytesWritten").asInt());
+	}
+
+	@Test
+	void testKeysAndFilesAreSummedPerLanguage() {
+		RunReport report = new RunReport();
+
+		report.phase("de", RunReport.Phase.TRANSLATE, System.nanoTime() - 5_000_000);
+		report.keys("de", 3, 1, 2);
+		report.keys("de", 1, 0, 0);
+		report.texts("de", 4, 1, 120);
+		report.file("de", true, false, false);
+		report.file("de", false, false, true);
+		report.file("fr", false, true, false);
+		report.finish(TranslationStatusCode.STATUS_QUOTA_EXCEEDED);
+		JsonNode json = report.toJson();
+
+		assertEquals("STATUS_QUOTA_EXCEEDED", json.get("status").asText());
+		assertTrue(json.at("/languages/de/phases/translate").asLong() >= 5, "Translate phase must be reported.");
+		assertEquals(4, json.at("/languages/de/keysAdded").asInt());
+		assertEquals(1, json.at("/languages/de/keysRemoved").asInt());
+		assertEquals(2, json.at("/languages/de/keysReplaced").asInt());
+		assertEquals(120, json.at("/languages/de/characters").asInt());
+		assertEquals(2, json.at("/languages/de/files").asInt());
+		assertEquals(1, json.at("/languages/de/filesFailed").asInt());
+		assertEquals(1, json.at("/languages/fr/filesDeferred").asInt());
+		assertTrue(report.summary().contains("3 target file(s), 1 written, keys +4 -1 ~2, 120 character(s)"),
+				report.summary());
+	}
+
+	@Test
+	void testProjectsOfBatchAreReportedAndSummedUp() {
+		RunReport batchReport = new RunReport();
+		RunReport shopReport = new RunReport();
+		shopReport.keys("de", 2, 0, 1);
+		shopReport.file("de", true, false, false);
+		shopReport.requestCompleted("/v2/translate", 200, 20, 200, 2_000_000);
+		shopReport.finish(TranslationStatusCode.STATUS_OK);
+		RunReport adminReport = new RunReport();
+		adminReport.keys("de", 1, 1, 0);
+		adminReport.file("de", false, false, true);
+		adminReport.finish(TranslationStatusCode.STATUS_TRANSLATION_FILE_INVALID);
+
+		batchReport.project("../shop", "translations", shopReport);
+		batchReport.project("../admin", "i18n", adminReport);
+		batchReport.finish(TranslationStatusCode.STATUS_TRANSLATION_FILE_INVALID);
+		JsonNode json = batchReport.toJson();
+
+		assertEquals("../shop", json.at("/projects/0/repo").asText());
+		assertEquals("STATUS_OK", json.at("/projects/0/status").asText());
+		assertEquals(1, json.at("/projects/0/requests/count").asInt());
+		assertEquals("i18n", json.at("/projects/1/path").asText());
+		assertEquals(1, json.at("/projects/1/languages/de/filesFailed").asInt());
+		assertTrue(batchReport.summary().contains("2 target file(s), 1 written, keys +3 -1 ~1, 0 character(s), "
+				+ "1 DeepL request(s)"), batchReport.summary());
+	}
+}
@@ -0,0 +1,53 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class SourceWatcherTest {
+
+	private static final Duration DEBOUNCE = Duration.ofMillis(200);
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testSavedNamespacesAreCollected() throws Exception {
+		Files.writeString(tempDir.resolve("main.json"), "{}");
+
+		try (SourceWatcher watcher = new SourceWatcher(tempDir, DEBOUNCE)) {
+			Files.writeString(tempDir.resolve("main.json"), "{\"a\": \"A\"}");
+			Files.writeString(tempDir.resolve("main.json~"), "{\"a\": \"A\"}");
+			Files.createDirectories(tempDir.resolve("admin"));
+			Files.writeString(tempDir.resolve("admin/users.json"), "{}");
+
+			Set<String> namespaces = assertTimeoutPreemptively(Duration.ofSeconds(10), watcher::awaitChanges);
+
+			assertEquals(Set.of("admin/users", "main"), namespaces);
+		}
+	}
+
+	@Test
+	void testCloseStopsWaiting() throws Exception {
+		SourceWatcher watcher = new SourceWatcher(tempDir, DEBOUNCE);
+		CompletableFuture<Set<String>> changes = CompletableFuture.supplyAsync(() -> {
+			try {
+				return watcher.awaitChanges();
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		});
+
+		watcher.close();
+
+		assertEquals(Set.of(), assertTimeoutPreemptively(Duration.ofSeconds(10), () -> changes.join()));
+	}
+}
@@ -0,0 +1,150 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.PersonIdent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates git repositories with translation files for load tests and the end-to-end benchmark. The
+ * first commit contains the source files and translated target files of all namespaces, see
+ * {@link TranslationCatalogues}. Every further commit changes and adds source texts like a developer
+ * would, the target files are not updated, so the last commit is what the translation tool has to
+ * catch up with. The generated repositories are deterministic for the same settings.
+ */
+final class SyntheticRepository {
+
+	static final String SOURCE_LANGUAGE = "en";
+	static final String TRANSLATIONS_DIRECTORY = "translations";
+
+	private static final List<String> TARGET_LANGUAGES = List.of("de", "fr", "es", "it", "nl", "pl", "pt-pt",
+			"ru", "ja", "zh", "sv", "da", "fi", "cs", "el", "hu", "ro", "sk", "bg", "uk");
+	private static final PersonIdent AUTHOR = new PersonIdent("Synthetic Repository", "synthetic@example.com");
+
+	private SyntheticRepository() {
+	}
+
+	/**
+	 * @param languages number of target languages, at most 20
+	 * @return the target languages of a generated repository
+	 */
+	static List<String> targetLanguages(int languages) {
+		return TARGET_LANGUAGES.subList(0, languages);
+	}
+
+	/**
+	 * @param directory the empty or missing directory of the repository
+	 * @param settings size and history of the repository
+	 * @throws IOException if a file cannot be written
+	 * @throws GitAPIException if a commit fails
+	 */
+	static void generate(Path directory, Settings settings) throws IOException, GitAPIException {
+		JsonHelper jsonHelper = new JsonHelper();
+		Random random = new Random(settings.seed());
+		int keysPerNamespace = Math.max(1, settings.keys() / settings.namespaces());
+
+		List<ObjectNode> sources = new ArrayList<>();
+		List<Integer> nextKeys = new ArrayList<>();
+		try (Git git = Git.init().setDirectory(directory.toFile()).setInitialBranch("main").call()) {
+			for (int n = 0; n < settings.namespaces(); n++) {
+				int firstKey = n * keysPerNamespace;
+				ObjectNode source = TranslationCatalogues.source(firstKey, keysPerNamespace, settings.depth(),
+						settings.valueLength());
+				sources.add(source);
+				nextKeys.add(firstKey + keysPerNamespace);
+				write(jsonHelper, directory, SOURCE_LANGUAGE, namespace(n), source);
+				for (String targetLanguage : targetLanguages(settings.languages())) {
+					write(jsonHelper, directory, targetLanguage, namespace(n), TranslationCatalogues.target(source,
+							firstKey, keysPerNamespace, settings.depth(), targetLanguage));
+				}
+			}
+			commit(git, "Initial translations");
+
+			int changedKeys = Math.max(1, (int) (keysPerNamespace * settings.churn()));
+			for (int commit = 1; commit <= settings.commits(); commit++) {
+				for (int n = 0; n < settings.namespaces(); n++) {
+					ObjectNode source = sources.get(n);
+					int firstKey = n * keysPerNamespace;
+					for (int i = 0; i < changedKeys; i++) {
+						int key = firstKey + random.nextInt(keysPerNamespace);
+						TranslationCatalogues.group(source, key, settings.depth()).put("key" + key,
+								TranslationCatalogues.text(key, settings.valueLength()) + " revision " + commit);
+					}
+					// about a tenth of the changes are new texts
+					for (int i = 0; i < Math.max(1, changedKeys / 10); i++) {
+						int key = nextKeys.get(n);
+						TranslationCatalogues.group(source, key, settings.depth()).put("key" + key,
+								TranslationCatalogues.text(key, settings.valueLength()));
+						nextKeys.set(n, key + 1);
+					}
+					write(jsonHelper, directory, SOURCE_LANGUAGE, namespace(n), source);
+				}
+				commit(git, "Change texts " + commit);
+			}
+		}
+	}
+
+	/**
+	 * Resets the working tree to the last commit and removes untracked files, e.g. after a translation
+	 * run.
+	 *
+	 * @param directory the directory of the repository
+	 * @throws IOException if the repository cannot be opened
+	 * @throws GitAPIException if the reset fails
+	 */
+	static void reset(Path directory) throws IOException, GitAPIException {
+		try (Git git = Git.open(directory.toFile())) {
+			git.reset().setMode(ResetCommand.ResetType.HARD).call();
+			git.clean().setCleanDirectories(true).setForce(true).call();
+		}
+	}
+
+	private static String namespace(int namespace) {
+		return namespace == 0 ? "main" : String.format("namespace%03d", namespace);
+	}
+
+	private static void write(JsonHelper jsonHelper, Path directory, String language, String namespace,
+	                          ObjectNode json) throws IOException {
+		Path file = directory.resolve(TRANSLATIONS_DIRECTORY).resolve(language).resolve(namespace + ".json");
+		Files.createDirectories(file.getParent());
+		try (OutputStream outputStream = Files.newOutputStream(file)) {
+			jsonHelper.writeJson(json, outputStream);
+		}
+	}
+
+	private static void commit(Git git, String message) throws GitAPIException {
+		git.add().addFilepattern(".").call();
+		git.commit().setMessage(message).setAuthor(AUTHOR).setCommitter(AUTHOR).setSign(false).call();
+	}
+
+	/**
+	 * @param keys number of source texts of all namespaces together
+	 * @param namespaces number of json files per language
+	 * @param languages number of target languages, at most 20
+	 * @param commits number of commits after the initial commit which change source texts
+	 * @param churn share of the source texts of a namespace which are changed per commit
+	 * @param depth nesting depth of the texts
+	 * @param valueLength length of every text
+	 * @param seed seed of the changed texts
+	 */
+	record Settings(int keys, int namespaces, int languages, int commits, double churn, int depth, int valueLength,
+	                long seed) {
+
+		static Settings defaults() {
+			return new Settings(1_000, 1, 2, 3, 0.02, 2, 60, 42);
+		}
+
+		Settings withSize(int keys, int namespaces, int languages) {
+			return new Settings(keys, namespaces, languages, commits, churn, depth, valueLength, seed);
+		}
+	}
+}
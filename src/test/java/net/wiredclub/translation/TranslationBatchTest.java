@@ -0,0 +1,67 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranslationBatchTest {
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+
+	@Test
+	void testIdenticalTextsAreTranslatedOnce() throws Exception {
+		InProcessTranslationProvider provider = new InProcessTranslationProvider();
+		TranslationBatch batch = new TranslationBatch(provider, "en", "de", Map.of());
+
+		ChangeSet changes = new ChangeSet();
+		ChangeSet.Text first = changes.replace("/a").text();
+		ChangeSet.Text second = changes.replace("/b").text();
+		ChangeSet.Text third = changes.replace("/c").text();
+		batch.add(first, "Save");
+		batch.add(second, "Save");
+		batch.add(third, "Cancel");
+		batch.translate();
+
+		assertEquals(List.of(List.of("Save", "Cancel")), provider.requests());
+		assertEquals("de:Save", first.value());
+		assertEquals("de:Save", second.value());
+		assertEquals("de:Cancel", third.value());
+		assertEquals(3, batch.operations());
+		assertEquals(2, batch.translatedTexts());
+	}
+
+	@Test
+	void testExistingTranslationsAreReused() throws Exception {
+		JsonNode sourceJson = jsonHelper.convertStringToJson(
+				"{ \"a\": \"Save\", \"b\": { \"c\": \"Cancel\" }, \"d\": \"Delete\" }");
+		JsonNode targetJson = jsonHelper.convertStringToJson(
+				"{ \"a\": \"Speichern\", \"b\": { \"c\": \"Abbrechen\" }, \"d\": \"Entfernen\" }");
+
+		// the source text of "/d" was changed, its translation is outdated
+		KeyPathIndex sourceKeys = KeyPathIndex.of(sourceJson);
+		BitSet changedPaths = new BitSet();
+		changedPaths.set(sourceKeys.child(0, "d"));
+		Map<String, String> existingTranslations = TranslationBatch.indexExistingTranslations(sourceKeys,
+				TranslationDiff.diffKeys(targetJson, sourceKeys).from(), changedPaths);
+		assertEquals(Map.of("Save", "Speichern", "Cancel", "Abbrechen"), existingTranslations);
+
+		InProcessTranslationProvider provider = new InProcessTranslationProvider();
+		TranslationBatch batch = new TranslationBatch(provider, "en", "de", existingTranslations);
+		ChangeSet changes = new ChangeSet();
+		ChangeSet.Text reused = changes.add("/e").text();
+		ChangeSet.Text translated = changes.replace("/d").text();
+		batch.add(reused, "Cancel");
+		batch.add(translated, "Delete");
+		batch.translate();
+
+		assertEquals(List.of(List.of("Delete")), provider.requests());
+		assertEquals("Abbrechen", reused.value());
+		assertEquals("de:Delete", translated.value());
+		assertEquals(1, batch.reusedTexts());
+	}
+}
@@ -0,0 +1,124 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Random;
+
+/**
+ * Generates translation files for benchmarks and load tests. The keys are distributed over nested groups, every group
+ * has ten children, so a depth of 3 creates paths like {@code /group3/group7/key42}. The generated
+ * catalogues are deterministic for the same parameters.
+ */
+final class TranslationCatalogues {
+
+	private static final String WORDS = "lorem ipsum dolor sit amet consectetur adipiscing elit sed do eiusmod tempor "
+			+ "incididunt ut labore et dolore magna aliqua {{name}} ";
+	private static final int GROUPS_PER_LEVEL = 10;
+
+	private TranslationCatalogues() {
+	}
+
+	/**
+	 * @param keys number of texts
+	 * @param depth number of nested groups above the texts, 0 creates a flat file
+	 * @param valueLength length of every text
+	 * @return the source file
+	 */
+	static ObjectNode source(int keys, int depth, int valueLength) {
+		return source(0, keys, depth, valueLength);
+	}
+
+	/**
+	 * @param firstKey number of the first text, files with different key ranges have different texts
+	 * @param keys number of texts
+	 * @param depth number of nested groups above the texts, 0 creates a flat file
+	 * @param valueLength length of every text
+	 * @return the source file
+	 */
+	static ObjectNode source(int firstKey, int keys, int depth, int valueLength) {
+		ObjectNode root = JsonNodeFactory.instance.objectNode();
+		for (int i = firstKey; i < firstKey + keys; i++) {
+			group(root, i, depth).put("key" + i, text(i, valueLength));
+		}
+		return root;
+	}
+
+	/**
+	 * Creates a target file of the source file, where about 5% of the keys are missing, 2% of the keys are
+	 * outdated and all other values are "translated".
+	 *
+	 * @param source the source file
+	 * @param keys number of texts of the source file
+	 * @param depth nesting depth of the source file
+	 * @param targetLanguage the target language, it prefixes the "translated" values
+	 * @return the target file
+	 */
+	static ObjectNode target(JsonNode source, int keys, int depth, String targetLanguage) {
+		return target(source, 0, keys, depth, targetLanguage);
+	}
+
+	/**
+	 * Like {@link #target(JsonNode, int, int, String)} for a source file created with a first key.
+	 */
+	static ObjectNode target(JsonNode source, int firstKey, int keys, int depth, String targetLanguage) {
+		Random random = new Random(42);
+		ObjectNode root = JsonNodeFactory.instance.objectNode();
+		for (int i = firstKey; i < firstKey + keys; i++) {
+			int chance = random.nextInt(100);
+			if (chance < 5) {
+				// key is new and not translated yet
+				continue;
+			}
+			ObjectNode group = group(root, i, depth);
+			if (chance < 7) {
+				group.put("outdated" + i, "veraltet " + i);
+			}
+			group.put("key" + i, targetLanguage + ":" + source.at(path(i, depth)).asText());
+		}
+		return root;
+	}
+
+	/**
+	 * @return the json pointer of the text with the given number
+	 */
+	static String path(int key, int depth) {
+		StringBuilder path = new StringBuilder();
+		int group = key;
+		for (int level = 0; level < depth; level++) {
+			path.append("/group").append(group % GROUPS_PER_LEVEL);
+			group /= GROUPS_PER_LEVEL;
+		}
+		return path.append("/key").append(key).toString();
+	}
+
+	/**
+	 * @return a text of the given length, which starts with the number of the key, so that texts of different keys
+	 * differ, and contains a placeholder if it is long enough
+	 */
+	static String text(int key, int valueLength) {
+		StringBuilder text = new StringBuilder(valueLength).append(key).append(' ');
+		int offset = key % WORDS.length();
+		while (text.length() < valueLength) {
+			text.append(WORDS, offset, WORDS.length());
+			offset = 0;
+		}
+		text.setLength(valueLength);
+		return text.toString();
+	}
+
+	/**
+	 * @return the group of the text with the given number, missing groups are created
+	 */
+	static ObjectNode group(ObjectNode root, int key, int depth) {
+		ObjectNode node = root;
+		int group = key;
+		for (int level = 0; level < depth; level++) {
+			String name = "group" + (group % GROUPS_PER_LEVEL);
+			node = node.has(name) ? (ObjectNode) node.get(name) : node.putObject(name);
+			group /= GROUPS_PER_LEVEL;
+		}
+		return node;
+	}
+}
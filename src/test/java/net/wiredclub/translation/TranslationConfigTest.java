@@ -0,0 +1,53 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationConfigTest {
+
+	@Test
+	void testBuilderHasTheDefaultsOfTheCommandLine() {
+		TranslationConfig config = TranslationConfig.builder().build();
+
+		assertEquals(CommandLineHelper.DEFAULT_SOURCE_LANGUAGE, config.sourceLanguage());
+		assertTrue(config.targetLanguages().isEmpty());
+		assertEquals(CommandLineHelper.DEFAULT_TRANSLATION_DIRECTORY, config.translationsDirectory());
+		assertEquals(CommandLineHelper.DEFAULT_REPOSITORY_PATH, config.repositoryDirectory());
+		assertEquals(CommandLineHelper.DEFAULT_JOBS, config.jobs());
+		assertNull(config.cacheDirectory());
+		assertEquals(EnumSet.allOf(PlaceholderTokenizer.Syntax.class), config.placeholders());
+		assertFalse(config.watch());
+		assertFalse(config.verify());
+		assertNull(config.planFile());
+		assertNull(config.applyFile());
+		assertTrue(config.projects().isEmpty());
+	}
+
+	@Test
+	void testBuiltConfigurationDoesNotChangeWithItsBuilder() {
+		Set<String> targetLanguages = new HashSet<>(Set.of("de"));
+		TranslationConfig.Builder builder = TranslationConfig.builder()
+				.targetLanguages(targetLanguages)
+				.placeholders(Set.of())
+				.since("v2.3");
+		TranslationConfig config = builder.build();
+
+		targetLanguages.add("fr");
+		builder.since(null).priority(List.of("fr"));
+
+		assertEquals(Set.of("de"), config.targetLanguages());
+		assertTrue(config.placeholders().isEmpty());
+		assertEquals("v2.3", config.since());
+		assertTrue(config.priority().isEmpty());
+		assertEquals(Set.of("de", "fr"), builder.build().targetLanguages());
+	}
+}
@@ -0,0 +1,75 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranslationDiffTest {
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+
+	@Test
+	void testDiffOfEqualJsonIsEmpty() throws TranslationJsonProcessingException {
+		JsonNode json = jsonHelper.convertStringToJson("{ \"a\": \"A\", \"b\": { \"c\": \"C\" } }");
+
+		assertEquals(0, TranslationDiff.diff(json, json.deepCopy()).size());
+	}
+
+	@Test
+	void testDiffCreatesAddRemoveAndReplace() throws TranslationJsonProcessingException {
+		JsonNode from = jsonHelper.convertStringToJson(
+				"{ \"a\": \"A\", \"b\": { \"c\": \"C\", \"d\": \"D\" }, \"e\": { \"f\": \"F\" } }");
+		JsonNode to = jsonHelper.convertStringToJson(
+				"{ \"a\": \"A2\", \"b\": { \"c\": \"C\", \"g\": \"G\" }, \"h\": { \"i\": \"I\" } }");
+
+		JsonNode patch = TranslationDiff.diff(from, to);
+
+		JsonNode expected = jsonHelper.convertStringToJson("["
+				+ "{ \"op\": \"replace\", \"path\": \"/a\", \"value\": \"A2\" },"
+				+ "{ \"op\": \"remove\", \"path\": \"/b/d\" },"
+				+ "{ \"op\": \"remove\", \"path\": \"/e\" },"
+				+ "{ \"op\": \"add\", \"path\": \"/b/g\", \"value\": \"G\" },"
+				+ "{ \"op\": \"add\", \"path\": \"/h\", \"value\": { \"i\": \"I\" } }"
+				+ "]");
+		assertEquals(expected, patch);
+	}
+
+	@Test
+	void testDiffReplacesValueByObject() throws TranslationJsonProcessingException {
+		JsonNode from = jsonHelper.convertStringToJson("{ \"a\": \"A\" }");
+		JsonNode to = jsonHelper.convertStringToJson("{ \"a\": { \"b\": \"B\" } }");
+
+		JsonNode patch = TranslationDiff.diff(from, to);
+
+		assertEquals(1, patch.size());
+		assertEquals("replace", patch.get(0).get("op").asText());
+		assertEquals(to.get("a"), patch.get(0).get("value"));
+	}
+
+	@Test
+	void testDiffKeysIgnoresValues() throws TranslationJsonProcessingException {
+		JsonNode from = jsonHelper.convertStringToJson("{ \"a\": \"A\", \"b\": \"B\" }");
+		JsonNode to = jsonHelper.convertStringToJson("{ \"a\": \"A2\", \"c\": \"C\" }");
+
+		JsonNode patch = TranslationDiff.diffKeys(from, KeyPathIndex.of(to)).toPatch();
+
+		JsonNode expected = jsonHelper.convertStringToJson("["
+				+ "{ \"op\": \"remove\", \"path\": \"/b\" },"
+				+ "{ \"op\": \"add\", \"path\": \"/c\", \"value\": \"C\" }"
+				+ "]");
+		assertEquals(expected, patch);
+	}
+
+	@Test
+	void testDiffEscapesFieldNames() throws TranslationJsonProcessingException {
+		JsonNode from = jsonHelper.convertStringToJson("{}");
+		JsonNode to = jsonHelper.convertStringToJson("{ \"a/b\": { \"c~d\": \"E\" } }");
+
+		JsonNode patch = TranslationDiff.diff(from, to);
+
+		assertEquals("/a~1b", patch.get(0).get("path").asText());
+		assertEquals(to.get("a/b"), to.at(patch.get(0).get("path").asText()));
+		assertEquals("/a~1b/c~0d", KeyPathIndex.of(to).pointer(2));
+	}
+}
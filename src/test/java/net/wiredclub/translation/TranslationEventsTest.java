@@ -0,0 +1,75 @@
+package net.wiredclub.translation;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationEventsTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testEventsAreRecorded() throws IOException, TranslationFileNotFoundException {
+		Path recordingFile = tempDir.resolve("run.jfr");
+		String translationFile = tempDir.resolve("de/main.json").toString();
+		FileHelper fileHelper = new FileHelper();
+		JsonHelper jsonHelper = new JsonHelper();
+
+		try (Recording recording = TranslationEvents.startRecording(recordingFile)) {
+			fileHelper.writeFileAtomically(translationFile,
+					out -> out.write("{\"a\": \"A\", \"b\": \"B\"}".getBytes(StandardCharsets.UTF_8)));
+			TranslationDiff.diff(fileHelper.readFile(translationFile, jsonHelper::readJson),
+					jsonHelper.createNewTranslationFile());
+			recording.stop();
+		}
+
+		List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile).stream()
+				.filter(event -> event.getEventType().getName().startsWith("net.wiredclub.translation."))
+				.collect(Collectors.toList());
+		RecordedEvent write = find(events, "FileWrite");
+		RecordedEvent read = find(events, "FileRead");
+		RecordedEvent diff = find(events, "Diff");
+		assertTrue(write.getBoolean("written"), "File must be written.");
+		assertEquals(20L, write.getLong("bytes"));
+		assertEquals(translationFile, read.getString("path"));
+		assertEquals(3, diff.getInt("fromPaths"));
+		assertEquals(2, diff.getInt("operations"));
+	}
+
+	@Test
+	void testDeepLRequestsAreRecorded()
+			throws IOException, TranslationJsonProcessingException, TranslationPlaceholderException {
+		Path recordingFile = tempDir.resolve("deepl.jfr");
+
+		try (FakeDeepLServer server = new FakeDeepLServer(FakeDeepLServer.Settings.defaults());
+		     Recording recording = TranslationEvents.startRecording(recordingFile)) {
+			server.deepLHelper(DeepLTransport.Settings.defaults()).translate(List.of("Hello", "World"), "en", "de");
+			recording.stop();
+		}
+
+		RecordedEvent request = find(RecordingFile.readAllEvents(recordingFile), "DeepLRequest");
+		assertEquals("de", request.getString("targetLanguage"));
+		assertEquals(2, request.getInt("texts"));
+		assertEquals(10L, request.getLong("characters"));
+		assertEquals(200, request.getInt("statusCode"));
+	}
+
+	private static RecordedEvent find(List<RecordedEvent> events, String name) {
+		return events.stream()
+				.filter(event -> event.getEventType().getName().equals("net.wiredclub.translation." + name))
+				.findFirst()
+				.orElseThrow(() -> new AssertionError("Event " + name + " is missing in " + events));
+	}
+}
@@ -0,0 +1,104 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationManifestTest {
+
+	private static final String BLOB_ID = "2e65efe2a145dda7ee51d1741299f848e5bf752e";
+	private static final String TARGET_BLOB_ID = "9daeafb9864cf43055ae93beb0afd6c7d144bfa4";
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+	private final FileHelper fileHelper = new FileHelper();
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testMissingManifestIsEmpty() throws IOException {
+		TranslationManifest manifest = read("en");
+
+		assertNull(manifest.fingerprints("main", null));
+		assertNull(manifest.blobId("main"));
+		assertNull(manifest.targetBlobId("main"));
+		assertFalse(manifest.write());
+	}
+
+	@Test
+	void testSourcesAreWrittenAndRead() throws IOException, TranslationException {
+		JsonNode sourceJson = jsonHelper.convertStringToJson("{ \"a\": \"A\" }");
+		JsonNode source = TranslationManifest.source(BLOB_ID, sourceJson);
+		TranslationManifest manifest = read("en");
+
+		manifest.update("admin/users", source, TARGET_BLOB_ID);
+
+		assertTrue(manifest.write());
+		assertFalse(manifest.write());
+		TranslationManifest readManifest = read("en");
+		assertEquals(BLOB_ID, readManifest.blobId("admin/users"));
+		assertEquals(TARGET_BLOB_ID, readManifest.targetBlobId("admin/users"));
+		assertEquals(TranslationManifest.fingerprints(sourceJson),
+				readManifest.fingerprints("admin/users", TARGET_BLOB_ID));
+		readManifest.update("admin/users", source, TARGET_BLOB_ID);
+		assertFalse(readManifest.write());
+	}
+
+	@Test
+	void testEditedTargetFileHasNoFingerprints() throws TranslationException {
+		JsonNode sourceJson = jsonHelper.convertStringToJson("{ \"a\": \"A\" }");
+		TranslationManifest manifest = read("en");
+
+		manifest.update("main", TranslationManifest.source(BLOB_ID, sourceJson), TARGET_BLOB_ID);
+
+		assertNull(manifest.fingerprints("main", BLOB_ID));
+		assertNull(manifest.fingerprints("main", null));
+		assertEquals(TranslationManifest.fingerprints(sourceJson), manifest.fingerprints("main", TARGET_BLOB_ID));
+	}
+
+	@Test
+	void testManifestOfOtherSourceLanguageIsIgnored() throws IOException, TranslationException {
+		TranslationManifest manifest = read("en");
+		JsonNode sourceJson = jsonHelper.convertStringToJson("{ \"a\": \"A\" }");
+		manifest.update("main", TranslationManifest.source(BLOB_ID, sourceJson), TARGET_BLOB_ID);
+		manifest.write();
+
+		assertNull(read("fr").fingerprints("main", TARGET_BLOB_ID));
+	}
+
+	@Test
+	void testFingerprintsHaveTheShapeOfTheSource() throws TranslationJsonProcessingException {
+		JsonNode sourceJson = jsonHelper.convertStringToJson(
+				"{ \"a\": \"Save\", \"b\": { \"c\": \"Cancel\" }, \"d\": [\"D\"], \"e\": \"Save\" }");
+
+		JsonNode fingerprints = TranslationManifest.fingerprints(sourceJson);
+
+		assertEquals(TranslationManifest.fingerprint("Save"), fingerprints.get("a").asText());
+		assertEquals(TranslationManifest.fingerprint("Cancel"), fingerprints.get("b").get("c").asText());
+		assertFalse(fingerprints.has("d"));
+		assertEquals(fingerprints.get("a"), fingerprints.get("e"));
+	}
+
+	@Test
+	void testFingerprintIsStable() {
+		// FNV-1a test vectors
+		assertEquals("cbf29ce484222325", TranslationManifest.fingerprint(""));
+		assertEquals("af63dc4c8601ec8c", TranslationManifest.fingerprint("a"));
+		assertNotEquals(TranslationManifest.fingerprint("Save"), TranslationManifest.fingerprint("Save "));
+		assertEquals(16, TranslationManifest.fingerprint("\u00dcbersetzung").length());
+	}
+
+	private TranslationManifest read(String sourceLanguage) {
+		return TranslationManifest.read(jsonHelper, fileHelper, tempDir.resolve(TranslationManifest.FILE_NAME)
+				.toString(), sourceLanguage);
+	}
+}
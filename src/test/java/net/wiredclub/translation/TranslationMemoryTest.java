@@ -0,0 +1,95 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationMemoryTest {
+
+	private static final String TAG_HANDLING = "xml";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testGetReturnsStoredTranslation() throws IOException {
+		try (TranslationMemory memory = TranslationMemory.open(tempDir.resolve("memory.bin"))) {
+			assertNull(memory.get("Save", "en", "de", TAG_HANDLING));
+
+			memory.putAll(Map.of("Save", "Speichern"), "en", "de", TAG_HANDLING);
+
+			assertEquals("Speichern", memory.get("Save", "en", "de", TAG_HANDLING));
+			assertNull(memory.get("Save", "en", "fr", TAG_HANDLING));
+			assertNull(memory.get("Save", "en", "de", "none"));
+			assertEquals(1, memory.hits());
+			assertEquals(3, memory.misses());
+			assertEquals(25.0, memory.hitRate());
+		}
+	}
+
+	@Test
+	void testTranslationsArePersisted() throws IOException {
+		Path file = tempDir.resolve("memory.bin");
+		try (TranslationMemory memory = TranslationMemory.open(file)) {
+			memory.putAll(Map.of("Save", "Speichern", "Cancel", "Abbrechen"), "en", "de", TAG_HANDLING);
+		}
+
+		try (TranslationMemory memory = TranslationMemory.open(file)) {
+			assertEquals("Speichern", memory.get("Save", "en", "de", TAG_HANDLING));
+			assertEquals("Abbrechen", memory.get("Cancel", "en", "de", TAG_HANDLING));
+		}
+	}
+
+	@Test
+	void testSourceTextIsNormalized() throws IOException {
+		try (TranslationMemory memory = TranslationMemory.open(tempDir.resolve("memory.bin"))) {
+			// composed and decomposed form of "e" with acute accent
+			memory.putAll(Map.of("caf\u00e9", "Caf\u00e9"), "fr", "de", TAG_HANDLING);
+
+			assertEquals("Caf\u00e9", memory.get("cafe\u0301", "fr", "de", TAG_HANDLING));
+		}
+	}
+
+	@Test
+	void testRecordsOfOtherInstancesAreFound() throws IOException {
+		Path file = tempDir.resolve("memory.bin");
+		try (TranslationMemory first = TranslationMemory.open(file);
+		     TranslationMemory second = TranslationMemory.open(file)) {
+			first.putAll(Map.of("Save", "Speichern"), "en", "de", TAG_HANDLING);
+
+			assertEquals("Speichern", second.get("Save", "en", "de", TAG_HANDLING));
+		}
+	}
+
+	@Test
+	void testOldestRecordsAreEvicted() throws IOException {
+		Path file = tempDir.resolve("memory.bin");
+		try (TranslationMemory memory = TranslationMemory.open(file, 1, 2048)) {
+			for (int i = 0; i < 100; i++) {
+				memory.putAll(Map.of("text " + i, "Text " + i), "en", "de", TAG_HANDLING);
+			}
+
+			assertTrue(Files.size(file) <= 2048, "Translation memory must not exceed its limit.");
+			assertNull(memory.get("text 0", "en", "de", TAG_HANDLING));
+			assertEquals("Text 99", memory.get("text 99", "en", "de", TAG_HANDLING));
+		}
+	}
+
+	@Test
+	void testDisabledMemoryDoesNotRemember() throws IOException {
+		TranslationMemory memory = TranslationMemory.disabled();
+		memory.putAll(Map.of("Save", "Speichern"), "en", "de", TAG_HANDLING);
+
+		assertFalse(memory.isEnabled());
+		assertNull(memory.get("Save", "en", "de", TAG_HANDLING));
+	}
+}
@@ -0,0 +1,86 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_INVALID_ARGUMENT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TranslationPlanFileTest {
+
+	private static final String COMMIT = "0123456789abcdef0123456789abcdef01234567";
+
+	private final JsonHelper jsonHelper = new JsonHelper();
+
+	@Test
+	void testPlanIsWrittenAndRead() throws Exception {
+		ChangeSet changes = new ChangeSet();
+		changes.replace("/a").text().refer(1);
+		ChangeSet.Key added = changes.add("/b");
+		added.field("c").text().refer(0);
+		added.field("d").field("e").text().set("Entfernen");
+		changes.remove("/x");
+
+		JsonNode sourceJson = jsonHelper.convertStringToJson("{ \"a\": \"Save\" }");
+		TranslationPlanFile plan = new TranslationPlanFile("en", null, COMMIT, Map.of("de",
+				new TranslationPlanFile.LanguagePlan(List.of("Cancel", "Save"), 10,
+						Map.of("main", new TranslationPlanFile.FilePlan(null, changes)))),
+				Map.of("main", TranslationManifest.source("9daeafb9864cf43055ae93beb0afd6c7d144bfa4", sourceJson)));
+
+		TranslationPlanFile readPlan = TranslationPlanFile.fromJson(
+				jsonHelper.convertStringToJson(jsonHelper.convertJsonToString(plan.toJson())));
+
+		assertEquals("en", readPlan.sourceLanguage());
+		assertNull(readPlan.baseCommit());
+		assertEquals(COMMIT, readPlan.commit());
+		assertEquals(2, readPlan.texts());
+		assertEquals(10L, readPlan.characters());
+		TranslationPlanFile.LanguagePlan languagePlan = readPlan.languages().get("de");
+		assertEquals(List.of("Cancel", "Save"), languagePlan.texts());
+		TranslationPlanFile.FilePlan filePlan = languagePlan.files().get("main");
+		assertNull(filePlan.blobId());
+
+		// the texts are contained once, the changes refer to them
+		ChangeSet readChanges = filePlan.changes();
+		assertEquals("{\"a\":1,\"b\":{\"c\":0,\"d\":{\"e\":\"Entfernen\"}},\"x\":null}",
+				readChanges.toJson().get("changes").toString());
+		assertEquals(4, readChanges.keyOperations());
+		assertEquals(1, readChanges.replacedTexts());
+		assertEquals("{\"a\":\"" + TranslationManifest.fingerprint("Save") + "\"}",
+				readPlan.sources().get("main").get("fingerprints").toString());
+
+		JsonNode targetJson = jsonHelper.convertStringToJson("{ \"x\": \"X\", \"a\": \"Sichern\" }");
+		readChanges.translate(List.of("Abbrechen", "Speichern"));
+		readChanges.apply(targetJson);
+		assertEquals("{\"a\":\"Speichern\",\"b\":{\"c\":\"Abbrechen\",\"d\":{\"e\":\"Entfernen\"}}}",
+				targetJson.toString());
+	}
+
+	@Test
+	void testPlanWithUnknownTextIsInvalid() throws Exception {
+		JsonNode json = jsonHelper.convertStringToJson("{ \"version\": 2, \"sourceLanguage\": \"en\", "
+				+ "\"languages\": { \"de\": { \"texts\": [\"Save\"], \"files\": { \"main\": { "
+				+ "\"changes\": { \"a\": 1 } } } } } }");
+
+		TranslationException thrownException = assertThrows(TranslationException.class,
+				() -> TranslationPlanFile.fromJson(json));
+
+		assertEquals(STATUS_INVALID_ARGUMENT, thrownException.statusCode());
+	}
+
+	@Test
+	void testPlanOfAnotherVersionIsInvalid() throws Exception {
+		JsonNode json = jsonHelper.convertStringToJson(
+				"{ \"version\": 99, \"sourceLanguage\": \"en\", \"languages\": {} }");
+
+		TranslationException thrownException = assertThrows(TranslationException.class,
+				() -> TranslationPlanFile.fromJson(json));
+
+		assertEquals(STATUS_INVALID_ARGUMENT, thrownException.statusCode());
+	}
+}
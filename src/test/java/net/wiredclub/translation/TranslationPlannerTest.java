@@ -0,0 +1,40 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationPlannerTest {
+
+	@Test
+	void testAllLanguagesAreSelectedIfQuotaIsUnlimited() {
+		TranslationPlanner.Plan plan = new TranslationPlanner(List.of())
+				.plan(Map.of("fr", 500L, "de", 700L), TranslationPlanner.UNLIMITED);
+
+		assertEquals(List.of("de", "fr"), List.copyOf(plan.selected().keySet()));
+		assertTrue(plan.deferred().isEmpty(), "No language must be deferred.");
+	}
+
+	@Test
+	void testLanguagesWhichExceedQuotaAreDeferred() {
+		TranslationPlanner.Plan plan = new TranslationPlanner(List.of())
+				.plan(Map.of("de", 700L, "fr", 500L, "it", 200L), 1000);
+
+		assertEquals(Map.of("de", 700L, "it", 200L), plan.selected());
+		assertEquals(Map.of("fr", 500L), plan.deferred());
+		assertTrue(plan.isSelected("it"), "IT fits into the remaining quota.");
+	}
+
+	@Test
+	void testPriorityLanguagesAreSelectedFirst() {
+		TranslationPlanner.Plan plan = new TranslationPlanner(List.of("fr", "es"))
+				.plan(Map.of("de", 700L, "fr", 500L, "it", 200L), 1000);
+
+		assertEquals(List.of("fr", "it"), List.copyOf(plan.selected().keySet()));
+		assertEquals(Map.of("de", 700L), plan.deferred());
+	}
+}
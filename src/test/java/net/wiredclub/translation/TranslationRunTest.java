@@ -0,0 +1,44 @@
+package net.wiredclub.translation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static net.wiredclub.translation.TranslationStatusCode.STATUS_TRANSLATION_FILE_INVALID;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationRunTest {
+
+	@Test
+	void testDiffAgainstBaseline() throws TranslationJsonProcessingException {
+		JsonHelper jsonHelper = new JsonHelper();
+		JsonNode baselineJson = jsonHelper.convertStringToJson("{}");
+		JsonNode sourceJson = jsonHelper.convertStringToJson("{ \"f1\" : \"v1\" }");
+
+		JsonNode patch = TranslationDiff.diff(baselineJson, sourceJson);
+
+		assertNotNull(patch);
+		assertEquals(1, patch.size());
+		assertEquals("add", patch.get(0).get("op").asText());
+		assertEquals("/f1", patch.get(0).get("path").asText());
+		assertEquals("v1", patch.get(0).get("value").asText());
+	}
+
+	@Test
+	void testTraverseRejectsArraysWithFileName() throws TranslationJsonProcessingException {
+		JsonNode sourceJson = new JsonHelper().convertStringToJson("{ \"f1\" : [\"v1\"] }");
+		KeyPathIndex sourceKeys = KeyPathIndex.of(sourceJson);
+		ChangeSet changes = new ChangeSet();
+		TranslationBatch batch = new TranslationBatch(null, "en", "de", Map.of());
+
+		TranslationException thrownException = assertThrows(TranslationException.class, () -> TranslationRun.traverse(
+				changes.replace(sourceKeys, 1), batch, sourceKeys.node(1), "en/namespace001.json"));
+
+		assertEquals(STATUS_TRANSLATION_FILE_INVALID, thrownException.statusCode());
+		assertTrue(thrownException.getMessage().contains("'en/namespace001.json'"), thrownException.getMessage());
+	}
+}
@@ -0,0 +1,79 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationStateTest {
+
+	private static final String COMMIT = "0123456789abcdef0123456789abcdef01234567";
+	private static final String PREVIOUS_COMMIT = "76543210fedcba9876543210fedcba9876543210";
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testLastTranslatedCommitIsRemembered() throws IOException {
+		String stateFile = tempDir.resolve("translations").resolve(TranslationState.FILE_NAME).toString();
+		TranslationState state = new TranslationState(new JsonHelper(), new FileHelper(), stateFile);
+
+		assertTrue(state.lastTranslatedCommits("en", List.of("de")).isEmpty());
+		assertTrue(state.update(Map.of("de", COMMIT), "en"), "State must be written.");
+		assertFalse(state.update(Map.of("de", COMMIT), "en"), "Unchanged state must not be written again.");
+		assertEquals(Map.of("de", COMMIT), state.lastTranslatedCommits("en", List.of("de")));
+	}
+
+	@Test
+	void testCommitsOfOtherTargetLanguagesAreKept() throws IOException {
+		String stateFile = tempDir.resolve(TranslationState.FILE_NAME).toString();
+		TranslationState state = new TranslationState(new JsonHelper(), new FileHelper(), stateFile);
+
+		state.update(Map.of("de", PREVIOUS_COMMIT, "fr", PREVIOUS_COMMIT), "en");
+		state.update(Map.of("de", COMMIT), "en");
+
+		assertEquals(Map.of("de", COMMIT, "fr", PREVIOUS_COMMIT),
+				state.lastTranslatedCommits("en", List.of("de", "fr", "nl")));
+	}
+
+	@Test
+	void testCommitOfOlderStateIsUsedForAllTargetLanguages() throws IOException {
+		Path stateFile = tempDir.resolve(TranslationState.FILE_NAME);
+		Files.writeString(stateFile, "{ \"commit\": \"" + PREVIOUS_COMMIT + "\", \"sourceLanguage\": \"en\" }",
+				StandardCharsets.UTF_8);
+		TranslationState state = new TranslationState(new JsonHelper(), new FileHelper(), stateFile.toString());
+
+		state.update(Map.of("de", COMMIT), "en");
+
+		assertEquals(Map.of("de", COMMIT, "fr", PREVIOUS_COMMIT),
+				state.lastTranslatedCommits("en", List.of("de", "fr")));
+	}
+
+	@Test
+	void testStateOfAnotherSourceLanguageIsIgnored() throws IOException {
+		String stateFile = tempDir.resolve(TranslationState.FILE_NAME).toString();
+		TranslationState state = new TranslationState(new JsonHelper(), new FileHelper(), stateFile);
+
+		state.update(Map.of("en", COMMIT), "de");
+
+		assertTrue(state.lastTranslatedCommits("en", List.of("en")).isEmpty());
+	}
+
+	@Test
+	void testInvalidStateIsIgnored() throws IOException {
+		Path stateFile = tempDir.resolve(TranslationState.FILE_NAME);
+		Files.writeString(stateFile, "{ invalid", StandardCharsets.UTF_8);
+
+		assertTrue(new TranslationState(new JsonHelper(), new FileHelper(), stateFile.toString())
+				.lastTranslatedCommits("en", List.of("de")).isEmpty());
+	}
+}
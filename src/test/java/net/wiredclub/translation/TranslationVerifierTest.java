@@ -0,0 +1,97 @@
+package net.wiredclub.translation;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranslationVerifierTest {
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	void testTargetInSyncHasNoProblems() throws IOException {
+		TranslationVerifier verifier = verifier();
+		write("en.json", "{ \"a\": \"Hello {{name}}\", \"b\": { \"c\": \"%s items\" } }");
+		write("de.json", "{ \"b\": { \"c\": \"%s Elemente\" }, \"a\": \"Hallo {{name}}\" }");
+
+		TranslationVerifier.Source source = verifier.readSource("en.json");
+
+		assertEquals(List.of(), source.problems());
+		assertEquals(List.of(), verifier.verifyTarget(source, "de.json"));
+	}
+
+	@Test
+	void testAllProblemsOfTargetAreReported() throws IOException {
+		TranslationVerifier verifier = verifier();
+		write("en.json", "{ \"a\": \"A\", \"b\": { \"c\": \"C\", \"d\": \"D\" }, \"e\": { \"f\": \"F\" }, "
+				+ "\"g\": \"G\", \"h\": \"H\" }");
+		write("de.json", "{ \"a\": [\"A\"], \"b\": { \"c\": \"C\" }, \"e\": \"E\", \"x\": { \"y\": \"Y\" }, "
+				+ "\"g\": \"G\", \"g\": \"G\" }");
+
+		List<TranslationVerifier.Problem> problems = verifier.verifyTarget(verifier.readSource("en.json"),
+				"de.json");
+
+		assertEquals(List.of(
+				new TranslationVerifier.Problem("de.json", "/a", "Arrays are not allowed."),
+				new TranslationVerifier.Problem("de.json", "/e",
+						"The key is an object in the source file, but a text here."),
+				new TranslationVerifier.Problem("de.json", "/x", "The key is not part of the source file."),
+				new TranslationVerifier.Problem("de.json", "/g", "The key is duplicated."),
+				new TranslationVerifier.Problem("de.json", "/b/d", "The key is missing."),
+				new TranslationVerifier.Problem("de.json", "/h", "The key is missing.")), problems);
+	}
+
+	@Test
+	void testBrokenPlaceholdersAreReported() throws IOException {
+		TranslationVerifier verifier = verifier();
+		write("en.json", "{ \"a/b\": \"Hello {{name}}\", \"c\": \"Save\" }");
+		write("de.json", "{ \"a/b\": \"Hallo {{name\", \"c\": \"Speichern {0}\" }");
+
+		List<TranslationVerifier.Problem> problems = verifier.verifyTarget(verifier.readSource("en.json"),
+				"de.json");
+
+		assertEquals(List.of(
+				new TranslationVerifier.Problem("de.json", "/a~1b",
+						"The placeholder '{{name}}' of the source text is missing."),
+				new TranslationVerifier.Problem("de.json", "/c",
+						"The placeholder '{0}' is not part of the source text.")), problems);
+	}
+
+	@Test
+	void testInvalidFilesAreReported() throws IOException {
+		TranslationVerifier verifier = verifier();
+		write("en.json", "{ \"a\": [\"A\"], \"b\": \"B\" }");
+		write("de.json", "{ \"a\": \"A\", ");
+		write("fr.json", "[]");
+
+		TranslationVerifier.Source source = verifier.readSource("en.json");
+
+		assertEquals(List.of(new TranslationVerifier.Problem("en.json", "/a", "Arrays are not allowed.")),
+				source.problems());
+		assertTrue(verifier.verifyTarget(source, "de.json").get(0).message().startsWith("Invalid json. Cause: "));
+		assertEquals(List.of(new TranslationVerifier.Problem("fr.json", "",
+				"A translation file must contain a json object.")), verifier.verifyTarget(source, "fr.json"));
+		assertEquals(List.of(new TranslationVerifier.Problem("nl.json", "", "The file is missing.")),
+				verifier.verifyTarget(source, "nl.json"));
+		assertNull(verifier.readSource("it.json").keys());
+	}
+
+	private TranslationVerifier verifier() {
+		return new TranslationVerifier(new JsonHelper(), new FileHelper(), PlaceholderTokenizer.defaults(),
+				tempDir.toString());
+	}
+
+	private void write(String fileName, String content) throws IOException {
+		Files.writeString(tempDir.resolve(fileName), content, StandardCharsets.UTF_8);
+	}
+}